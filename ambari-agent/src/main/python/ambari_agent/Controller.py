@@ -293,6 +293,9 @@ class Controller(threading.Thread):
 
     heartbeat_interval = self.netutil.HEARTBEAT_IDLE_INTERVAL_DEFAULT_MAX_SEC
 
+    # time the server held the last heartbeat waiting for commands
+    command_wait_time = 0.0
+
     while not self.DEBUG_STOP_HEARTBEATING:
       current_time = time.time()
       logging_level = logging.DEBUG
@@ -342,9 +345,15 @@ class Controller(threading.Thread):
 
         logger.log(logging_level, "Heartbeat interval is %s seconds", heartbeat_interval)
 
+        command_wait_time = float(response['commandWaitTime']) / 1000 if 'commandWaitTime' in response.keys() else 0.0
+
         if 'hasMappedComponents' in response.keys():
           self.hasMappedComponents = response['hasMappedComponents'] is not False
 
+        if response.get('componentStatusResync'):
+          logger.info("Server requested all component statuses to be resent")
+          self.heartbeat.request_full_component_status()
+
         if 'hasPendingTasks' in response.keys():
           has_pending_tasks = bool(response['hasPendingTasks'])
           self.recovery_manager.set_paused(has_pending_tasks)
@@ -472,7 +481,10 @@ class Controller(threading.Thread):
         time.sleep(delay)
 
       # Sleep for some time
-      timeout = heartbeat_interval - self.netutil.MINIMUM_INTERVAL_BETWEEN_HEARTBEATS
+      # the server may hold the heartbeat of an idle agent waiting for commands,
+      # which already accounts for part of the interval
+      timeout = max(0, heartbeat_interval - self.netutil.MINIMUM_INTERVAL_BETWEEN_HEARTBEATS - command_wait_time)
+      command_wait_time = 0.0
       logger.log(logging_level, "Waiting %s for next heartbeat", timeout)
 
       if 0 == self.heartbeat_stop_callback.wait(timeout, self.netutil.MINIMUM_INTERVAL_BETWEEN_HEARTBEATS):
@@ -522,6 +534,9 @@ class Controller(threading.Thread):
         logger.info('Resetting ActionQueue...')
         self.actionQueue.reset()
 
+        # server forgets component statuses on registration
+        self.heartbeat.request_full_component_status()
+
         # Process callbacks
         for callback in self.registration_listeners:
           callback()
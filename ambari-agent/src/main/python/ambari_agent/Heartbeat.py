@@ -19,11 +19,14 @@ limitations under the License.
 '''
 
 import ambari_simplejson as json
+import hashlib
 import logging
 import os
+import threading
 import time
 from pprint import pformat
 
+from ambari_agent.AmbariConfig import AmbariConfig
 from ambari_agent.hostname import hostname
 from ambari_agent.HostInfo import HostInfo
 from ambari_agent.Hardware import Hardware
@@ -33,6 +36,7 @@ logger = logging.getLogger(__name__)
 
 firstContact = True
 class Heartbeat:
+  COMPONENT_STATUS_DELTA_ENABLED_KEY = "agent.component.status.delta.enabled"
 
   def __init__(self, actionQueue, config=None, alert_collector=None):
     self.actionQueue = actionQueue
@@ -40,6 +44,77 @@ class Heartbeat:
     self.reports = []
     self.collector = alert_collector
 
+    # last component status report sent per cluster/service/component
+    self.component_status_reports = {}
+    self.component_status_sequence = 0
+    self.component_status_full = True
+    self.component_status_lock = threading.RLock()
+
+  def is_component_status_delta_enabled(self):
+    """
+    Component status deltas are only sent when enabled on the server, which
+    sends the setting in the registration response
+    """
+    return self.config is not None and \
+      self.config.has_option(AmbariConfig.AMBARI_PROPERTIES_CATEGORY, Heartbeat.COMPONENT_STATUS_DELTA_ENABLED_KEY) and \
+      self.config.get(AmbariConfig.AMBARI_PROPERTIES_CATEGORY, Heartbeat.COMPONENT_STATUS_DELTA_ENABLED_KEY).lower() == "true"
+
+  def request_full_component_status(self):
+    """
+    Makes the next heartbeat carrying component statuses send all of them,
+    used after registration or when the server lost track of the deltas
+    """
+    with self.component_status_lock:
+      self.component_status_full = True
+
+  def add_component_status(self, heartbeat, component_statuses):
+    """
+    Adds the component statuses to the heartbeat. In delta mode only the
+    reports which changed since they were last sent are added, together with
+    a sequence number and a hash of the statuses of all known components
+    which the server uses to detect lost deltas.
+    """
+    if not self.is_component_status_delta_enabled():
+      heartbeat['componentStatus'] = component_statuses
+      return
+
+    with self.component_status_lock:
+      if self.component_status_full:
+        # a full report replaces the known statuses, so removed components
+        # are dropped from them and from the hash
+        self.component_status_reports = {}
+
+      changed = []
+      for report in component_statuses:
+        key = Heartbeat.component_status_key(report)
+        if self.component_status_reports.get(key) != report:
+          changed.append(report)
+        self.component_status_reports[key] = report
+
+      if self.component_status_full:
+        heartbeat['componentStatus'] = self.component_status_reports.values()
+        heartbeat['componentStatusDelta'] = False
+        self.component_status_full = False
+      else:
+        heartbeat['componentStatus'] = changed
+        heartbeat['componentStatusDelta'] = True
+
+      self.component_status_sequence += 1
+      heartbeat['componentStatusSequence'] = self.component_status_sequence
+      heartbeat['componentStatusHash'] = self.component_status_hash()
+
+  def component_status_hash(self):
+    """
+    Hash of the statuses of all known components, computed the same way as
+    the server does: sorted cluster/service/component=status lines
+    """
+    entries = sorted(["{0}={1}".format(key, report['status']) for key, report in self.component_status_reports.items()])
+    return hashlib.md5("\n".join(entries)).hexdigest()
+
+  @staticmethod
+  def component_status_key(report):
+    return "{0}/{1}/{2}".format(report['clusterName'], report['serviceName'], report['componentName'])
+
   def build(self, id='-1', add_state=False, componentsMapped=False):
     global clusterId, clusterDefinitionRevision, firstContact
     timestamp = int(time.time()*1000)
@@ -65,7 +140,10 @@ class Heartbeat:
 
     if len(queueResult) != 0:
       heartbeat['reports'] = queueResult['reports']
-      heartbeat['componentStatus'] = queueResult['componentStatus']
+      if len(queueResult['componentStatus']) > 0:
+        self.add_component_status(heartbeat, queueResult['componentStatus'])
+      else:
+        heartbeat['componentStatus'] = queueResult['componentStatus']
       if len(heartbeat['reports']) > 0:
         # There may be IN_PROGRESS tasks
         commandsInProgress = True
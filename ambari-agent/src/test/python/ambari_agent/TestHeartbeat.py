@@ -249,6 +249,83 @@ class TestHeartbeat(TestCase):
     self.assertFalse(args[1])
     self.assertFalse(args[2])
 
+  @patch.object(ActionQueue, "result")
+  def test_build_component_status_delta(self, result_mock):
+    config = AmbariConfig.AmbariConfig()
+    config.set('agent', 'prefix', 'tmp')
+    config.set('agent', 'cache_dir', "/var/lib/ambari-agent/cache")
+    config.set('agent', 'tolerate_download_failures', "true")
+    config.add_section(AmbariConfig.AmbariConfig.AMBARI_PROPERTIES_CATEGORY)
+    config.set(AmbariConfig.AmbariConfig.AMBARI_PROPERTIES_CATEGORY, Heartbeat.COMPONENT_STATUS_DELTA_ENABLED_KEY, "true")
+    dummy_controller = MagicMock()
+    dummy_controller.recovery_manager.recovery_timestamp = -1
+    actionQueue = ActionQueue(config, dummy_controller)
+    heartbeat = Heartbeat(actionQueue, config)
+
+    namenode = {'status': 'STARTED', 'componentName': 'NAMENODE', 'serviceName': 'HDFS', 'clusterName': 'cc'}
+    datanode = {'status': 'STARTED', 'componentName': 'DATANODE', 'serviceName': 'HDFS', 'clusterName': 'cc'}
+
+    # first report is always complete
+    result_mock.return_value = {'reports': [], 'componentStatus': [namenode, datanode]}
+    hb = heartbeat.build(10)
+    self.assertFalse(hb['componentStatusDelta'])
+    self.assertEquals(2, len(hb['componentStatus']))
+    self.assertEquals(1, hb['componentStatusSequence'])
+    full_hash = hb['componentStatusHash']
+
+    # only the changed component is sent afterwards
+    stopped_datanode = dict(datanode, status='INSTALLED')
+    result_mock.return_value = {'reports': [], 'componentStatus': [namenode, stopped_datanode]}
+    hb = heartbeat.build(11)
+    self.assertTrue(hb['componentStatusDelta'])
+    self.assertEquals([stopped_datanode], hb['componentStatus'])
+    self.assertEquals(2, hb['componentStatusSequence'])
+    self.assertNotEquals(full_hash, hb['componentStatusHash'])
+
+    # a resync sends all current components again
+    heartbeat.request_full_component_status()
+    result_mock.return_value = {'reports': [], 'componentStatus': [namenode, stopped_datanode]}
+    hb = heartbeat.build(12)
+    self.assertFalse(hb['componentStatusDelta'])
+    self.assertEquals(2, len(hb['componentStatus']))
+    self.assertEquals(3, hb['componentStatusSequence'])
+
+  @patch.object(ActionQueue, "result")
+  def test_build_component_status_removed_component(self, result_mock):
+    config = AmbariConfig.AmbariConfig()
+    config.set('agent', 'prefix', 'tmp')
+    config.set('agent', 'cache_dir', "/var/lib/ambari-agent/cache")
+    config.set('agent', 'tolerate_download_failures', "true")
+    config.add_section(AmbariConfig.AmbariConfig.AMBARI_PROPERTIES_CATEGORY)
+    config.set(AmbariConfig.AmbariConfig.AMBARI_PROPERTIES_CATEGORY, Heartbeat.COMPONENT_STATUS_DELTA_ENABLED_KEY, "true")
+    dummy_controller = MagicMock()
+    dummy_controller.recovery_manager.recovery_timestamp = -1
+    actionQueue = ActionQueue(config, dummy_controller)
+    heartbeat = Heartbeat(actionQueue, config)
+
+    namenode = {'status': 'STARTED', 'componentName': 'NAMENODE', 'serviceName': 'HDFS', 'clusterName': 'cc'}
+    datanode = {'status': 'STARTED', 'componentName': 'DATANODE', 'serviceName': 'HDFS', 'clusterName': 'cc'}
+
+    result_mock.return_value = {'reports': [], 'componentStatus': [namenode]}
+    namenode_hash = heartbeat.build(10)['componentStatusHash']
+
+    result_mock.return_value = {'reports': [], 'componentStatus': [namenode, datanode]}
+    heartbeat.build(11)
+
+    # the datanode was removed from the host, the full report must not resend it
+    heartbeat.request_full_component_status()
+    result_mock.return_value = {'reports': [], 'componentStatus': [namenode]}
+    hb = heartbeat.build(12)
+    self.assertFalse(hb['componentStatusDelta'])
+    self.assertEquals([namenode], hb['componentStatus'])
+    self.assertEquals(namenode_hash, hb['componentStatusHash'])
+
+    # nor does it come back with the following deltas
+    hb = heartbeat.build(13)
+    self.assertTrue(hb['componentStatusDelta'])
+    self.assertEquals([], hb['componentStatus'])
+    self.assertEquals(namenode_hash, hb['componentStatusHash'])
+
 
 if __name__ == "__main__":
   unittest.main(verbosity=2)
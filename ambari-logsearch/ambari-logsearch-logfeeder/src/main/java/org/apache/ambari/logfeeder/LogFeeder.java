@@ -148,11 +148,9 @@ public class LogFeeder {
   private void logStats() {
     configHandler.logStats();
 
-    if (metricsManager.isMetricsEnabled()) {
-      List<MetricData> metricsList = new ArrayList<MetricData>();
-      configHandler.addMetrics(metricsList);
-      metricsManager.useMetrics(metricsList);
-    }
+    List<MetricData> metricsList = new ArrayList<MetricData>();
+    configHandler.addMetrics(metricsList);
+    metricsManager.useMetrics(metricsList);
   }
 
   public void test() {
@@ -21,7 +21,6 @@ package org.apache.ambari.logfeeder.filter;
 
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -32,6 +31,7 @@ import java.util.Set;
 import java.util.regex.Pattern;
 
 import oi.thekraken.grok.api.Grok;
+import oi.thekraken.grok.api.Match;
 import oi.thekraken.grok.api.exception.GrokException;
 
 import org.apache.ambari.logfeeder.common.LogFeederException;
@@ -44,8 +44,6 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 
-import com.google.gson.reflect.TypeToken;
-
 public class FilterGrok extends Filter {
   private static final Logger LOG = Logger.getLogger(FilterGrok.class);
 
@@ -57,8 +55,13 @@ public class FilterGrok extends Filter {
   private Grok grokMultiline = null;
   private Grok grokMessage = null;
 
+  private GrokPrefilter messagePrefilter = null;
+  private GrokPrefilter multilinePrefilter = null;
+  private com.google.code.regexp.Pattern multilineRegex = null;
+  private String[] multilineGroups = null;
+
   private StringBuilder strBuff = null;
-  private String currMultilineJsonStr = null;
+  private String currMultilineStartStr = null;
 
   private InputMarker savedInputMarker = null;
 
@@ -68,8 +71,6 @@ public class FilterGrok extends Filter {
   private Set<String> namedParamList = new HashSet<String>();
   private Set<String> multiLineamedParamList = new HashSet<String>();
 
-  private Type jsonType = new TypeToken<Map<String, String>>() {}.getType();
-
   private MetricData grokErrorMetric = new MetricData("filter.error.grok", false);
 
   @Override
@@ -93,12 +94,16 @@ public class FilterGrok extends Filter {
       grokMessage = new Grok();
       loadPatterns(grokMessage);
       grokMessage.compile(messagePattern);
+      messagePrefilter = GrokPrefilter.compile(messagePattern);
       if (!StringUtils.isEmpty(multilinePattern)) {
         extractNamedParams(multilinePattern, multiLineamedParamList);
 
         grokMultiline = new Grok();
         loadPatterns(grokMultiline);
         grokMultiline.compile(multilinePattern);
+        multilinePrefilter = GrokPrefilter.compile(multilinePattern);
+        multilineRegex = com.google.code.regexp.Pattern.compile(grokMultiline.getNamedRegex());
+        multilineGroups = grokMultiline.getNamedRegexCollection().keySet().toArray(new String[0]);
       }
     } catch (Throwable t) {
       LOG.fatal("Caught exception while initializing Grok. multilinePattern=" + multilinePattern + ", messagePattern="
@@ -166,18 +171,17 @@ public class FilterGrok extends Filter {
     }
 
     if (grokMultiline != null) {
-      String jsonStr = grokMultiline.capture(inputStr);
-      if (!"{}".equals(jsonStr)) {
+      if (isMultilineStart(inputStr)) {
         if (strBuff != null) {
           Map<String, Object> jsonObj = Collections.synchronizedMap(new HashMap<String, Object>());
           try {
-            applyMessage(strBuff.toString(), jsonObj, currMultilineJsonStr);
+            applyMessage(strBuff.toString(), jsonObj, currMultilineStartStr);
           } finally {
             strBuff = null;
             savedInputMarker = null;
           }
         }
-        currMultilineJsonStr = jsonStr;
+        currMultilineStartStr = inputStr;
       }
 
       if (strBuff == null) {
@@ -205,27 +209,56 @@ public class FilterGrok extends Filter {
     }
   }
 
-  private void applyMessage(String inputStr, Map<String, Object> jsonObj, String multilineJsonStr) throws LogFeederException {
-    String jsonStr = grokMessage.capture(inputStr);
+  /**
+   * Same as capturing the line with the multiline grok and checking if anything was captured, but runs only the regex,
+   * after the literals of the pattern are found in the line.
+   */
+  private boolean isMultilineStart(String inputStr) {
+    if (StringUtils.isBlank(inputStr) || (multilinePrefilter != null && !multilinePrefilter.mayMatch(inputStr))) {
+      return false;
+    }
+    com.google.code.regexp.Matcher matcher = multilineRegex.matcher(inputStr);
+    if (!matcher.find()) {
+      return false;
+    }
+    for (String group : multilineGroups) {
+      if (matcher.group(group) != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private Map<String, Object> capture(Grok grok, GrokPrefilter prefilter, String inputStr) {
+    if (inputStr == null || (prefilter != null && !prefilter.mayMatch(inputStr))) {
+      return Collections.emptyMap();
+    }
+    Match match = grok.match(inputStr);
+    match.captures();
+    return match.toMap();
+  }
+
+  private void applyMessage(String inputStr, Map<String, Object> jsonObj, String multilineStartStr) throws LogFeederException {
+    Map<String, Object> captured = capture(grokMessage, messagePrefilter, inputStr);
 
     boolean parseError = false;
-    if ("{}".equals(jsonStr)) {
+    if (!hasValue(captured)) {
       parseError = true;
       logParseError(inputStr);
 
-      if (multilineJsonStr == null) {
+      if (multilineStartStr == null) {
         // TODO: Should we just add this as raw message in solr?
         return;
       }
     }
 
     if (parseError) {
-      jsonStr = multilineJsonStr;
+      captured = capture(grokMultiline, multilinePrefilter, multilineStartStr);
     }
-    Map<String, String> jsonSrc = LogFeederUtil.getGson().fromJson(jsonStr, jsonType);
     for (String namedParam : namedParamList) {
-      if (jsonSrc.get(namedParam) != null) {
-        jsonObj.put(namedParam, jsonSrc.get(namedParam));
+      Object value = captured.get(namedParam);
+      if (value != null) {
+        jsonObj.put(namedParam, value.toString());
       }
     }
     if (parseError) {
@@ -245,6 +278,15 @@ public class FilterGrok extends Filter {
     statMetric.value++;
   }
 
+  private boolean hasValue(Map<String, Object> captured) {
+    for (Object value : captured.values()) {
+      if (value != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private void logParseError(String inputStr) {
     grokErrorMetric.value++;
     String logMessageKey = this.getClass().getSimpleName() + "_PARSEERROR";
@@ -259,7 +301,7 @@ public class FilterGrok extends Filter {
     if (strBuff != null) {
       Map<String, Object> jsonObj = Collections.synchronizedMap(new HashMap<String, Object>());
       try {
-        applyMessage(strBuff.toString(), jsonObj, currMultilineJsonStr);
+        applyMessage(strBuff.toString(), jsonObj, currMultilineStartStr);
       } catch (LogFeederException e) {
         LOG.error(e.getLocalizedMessage(), e.getCause());
       }
@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ambari.logfeeder.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rejects the lines which can't match a grok pattern without running its regex.
+ * <p>
+ * The literal texts of the pattern outside of its %{...} references, groups and character classes, e.g. "[", "]:" and
+ * " - " of "%{LOGLEVEL:level} \[%{DATA:thread}\]: %{INT:line} - %{GREEDYDATA:msg}", must all occur in a matching line,
+ * in the same order. Patterns which can't be analyzed safely, like ones with top level alternations, case insensitive
+ * parts or escape sequences longer than a letter outside of groups and character classes, get no prefilter.
+ */
+class GrokPrefilter {
+  private static final Pattern INLINE_FLAGS = Pattern.compile("\\(\\?([a-zA-Z-]*)[:)]");
+  private static final String META_CHARACTERS = ".^$";
+  // the escapes of a letter which stand for a single character, a character class or a boundary; the rest, like
+  // \x41, \cX, \k<name> or \p{Alpha}, continue past the letter, and digits are octals or back references
+  private static final String SINGLE_LETTER_ESCAPES = "tnrfaedDsSwWhHvVbBAGzZR";
+
+  private final String[] literals;
+
+  private GrokPrefilter(List<String> literals) {
+    this.literals = literals.toArray(new String[literals.size()]);
+  }
+
+  /**
+   * @return the prefilter of the pattern, or null if no literal is required by it, or it can't be analyzed
+   */
+  static GrokPrefilter compile(String grokPattern) {
+    if (grokPattern == null) {
+      return null;
+    }
+    String pattern = removeReferences(grokPattern);
+    if (pattern == null || hasUnsupportedFlags(pattern)) {
+      return null;
+    }
+
+    List<String> literals = new ArrayList<>();
+    StringBuilder literal = new StringBuilder();
+    for (int i = 0; i < pattern.length(); i++) {
+      char c = pattern.charAt(i);
+      if (c == '|' || (c == '\\' && i + 1 < pattern.length() && pattern.charAt(i + 1) == 'Q')) {
+        return null;
+      } else if (c == '\\') {
+        if (++i == pattern.length()) {
+          return null;
+        }
+        char escaped = pattern.charAt(i);
+        if (SINGLE_LETTER_ESCAPES.indexOf(escaped) >= 0) {
+          addLiteral(literals, literal);
+        } else if (Character.isLetterOrDigit(escaped)) {
+          return null;
+        } else {
+          literal.append(escaped);
+        }
+      } else if (c == '(' || c == '[') {
+        addLiteral(literals, literal);
+        i = skipBlock(pattern, i);
+        if (i < 0) {
+          return null;
+        }
+      } else if (c == '?' || c == '*' || c == '+' || c == '{') {
+        // the quantified character may be missing, or is repeated
+        if (literal.length() > 0 && c != '+') {
+          literal.setLength(literal.length() - 1);
+        }
+        addLiteral(literals, literal);
+        if (c == '{') {
+          i = pattern.indexOf('}', i);
+          if (i < 0) {
+            return null;
+          }
+        }
+      } else if (META_CHARACTERS.indexOf(c) >= 0) {
+        addLiteral(literals, literal);
+      } else {
+        literal.append(c);
+      }
+    }
+    addLiteral(literals, literal);
+    return literals.isEmpty() ? null : new GrokPrefilter(literals);
+  }
+
+  /**
+   * @return false if the line can't match the pattern
+   */
+  boolean mayMatch(String line) {
+    int index = 0;
+    for (String literal : literals) {
+      index = line.indexOf(literal, index);
+      if (index < 0) {
+        return false;
+      }
+      index += literal.length();
+    }
+    return true;
+  }
+
+  String[] getLiterals() {
+    return literals;
+  }
+
+  private static void addLiteral(List<String> literals, StringBuilder literal) {
+    if (literal.length() > 0) {
+      literals.add(literal.toString());
+      literal.setLength(0);
+    }
+  }
+
+  /**
+   * Replaces the %{...} references with "()", as they match text which is not known without expanding them.
+   */
+  private static String removeReferences(String grokPattern) {
+    StringBuilder pattern = new StringBuilder();
+    int start = 0;
+    int reference;
+    while ((reference = grokPattern.indexOf("%{", start)) >= 0) {
+      int end = grokPattern.indexOf('}', reference);
+      if (end < 0) {
+        return null;
+      }
+      pattern.append(grokPattern, start, reference).append("()");
+      start = end + 1;
+    }
+    return pattern.append(grokPattern, start, grokPattern.length()).toString();
+  }
+
+  private static boolean hasUnsupportedFlags(String pattern) {
+    Matcher matcher = INLINE_FLAGS.matcher(pattern);
+    while (matcher.find()) {
+      String flags = matcher.group(1);
+      if (flags.indexOf('i') >= 0 || flags.indexOf('x') >= 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the index of the character closing the group or character class starting at the index, or -1
+   */
+  private static int skipBlock(String pattern, int start) {
+    int groups = 0;
+    int classes = 0;
+    int classStart = -1;
+    for (int i = start; i < pattern.length(); i++) {
+      char c = pattern.charAt(i);
+      if (c == '\\') {
+        i++;
+        continue;
+      }
+      if (c == '[') {
+        classes++;
+        classStart = i;
+      } else if (classes > 0) {
+        // a ']' right after the opening '[' or "[^" is a literal
+        boolean first = i == classStart + 1 || (i == classStart + 2 && pattern.charAt(classStart + 1) == '^');
+        if (c == ']' && !first) {
+          classes--;
+        }
+      } else if (c == '(') {
+        groups++;
+      } else if (c == ')') {
+        groups--;
+      }
+      if (groups == 0 && classes == 0) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
@@ -18,7 +18,6 @@
  */
 package org.apache.ambari.logfeeder.input;
 
-import java.io.BufferedReader;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -28,6 +27,8 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.apache.ambari.logfeeder.input.reader.LogFileLineReader;
+import org.apache.ambari.logfeeder.input.reader.LogFileWatcher;
 import org.apache.ambari.logfeeder.util.FileUtil;
 import org.apache.ambari.logfeeder.util.LogFeederPropertiesUtil;
 import org.apache.ambari.logfeeder.util.LogFeederUtil;
@@ -55,6 +56,9 @@ public abstract class AbstractInputFile extends Input {
   private Map<String, Map<String, Object>> jsonCheckPoints = new HashMap<>();
   private Map<String, InputMarker> lastCheckPointInputMarkers = new HashMap<>();
 
+  private volatile Runnable fileChangeListener;
+  private volatile LogFileTail currentLogFileTail;
+
   @Override
   protected String getStatMetricName() {
     return "input.files.read_lines";
@@ -90,32 +94,122 @@ public abstract class AbstractInputFile extends Input {
   }
 
   protected void processFile(File logPathFile, boolean follow) throws FileNotFoundException, IOException {
-    LOG.info("Monitoring logPath=" + logPath + ", logPathFile=" + logPathFile);
-    BufferedReader br = null;
-
-    int lineCount = 0;
+    LogFileTail logFileTail = new LogFileTail(logPathFile, follow);
     try {
+      logFileTail.open();
+      long waitMs;
+      while ((waitMs = logFileTail.read(Long.MAX_VALUE)) != LogFileTail.DONE) {
+        if (waitMs > 0) {
+          logFileTail.await(waitMs);
+        }
+      }
+    } finally {
+      logFileTail.close();
+    }
+  }
+
+  /**
+   * Sets the listener to notify when the files of this input change or it is drained, for the inputs read by the
+   * {@link InputScheduler} rather than a thread of their own.
+   */
+  void setFileChangeListener(Runnable fileChangeListener) {
+    this.fileChangeListener = fileChangeListener;
+  }
+
+  @Override
+  public void setDrain(boolean drain) {
+    super.setDrain(drain);
+    Runnable listener = fileChangeListener;
+    if (listener != null) {
+      listener.run();
+    }
+  }
+
+  @Override
+  public long getLagBytes() {
+    LogFileTail logFileTail = currentLogFileTail;
+    return logFileTail == null ? 0 : logFileTail.getLagBytes();
+  }
+
+  /**
+   * The state of reading a log file, which is advanced a bounded chunk at a time by {@link #read(long)}.
+   */
+  protected class LogFileTail {
+    /** Returned by {@link #read(long)} when the file is done */
+    static final long DONE = -1;
+
+    private final File logPathFile;
+    private final boolean follow;
+
+    private LogFileLineReader br;
+    private boolean watched;
+    private int lineCount;
+    private boolean resume = true;
+    private int resumeFromLineNumber;
+    private int sleepStep = 2;
+    private int sleepIteration;
+
+    protected LogFileTail(File logPathFile, boolean follow) {
+      this.logPathFile = logPathFile;
+      this.follow = follow;
+    }
+
+    protected void open() throws IOException {
+      LOG.info("Monitoring logPath=" + logPath + ", logPathFile=" + logPathFile);
       setFilePath(logPathFile.getAbsolutePath());
       
       br = openLogFile(logPathFile);
 
-      boolean resume = true;
-      int resumeFromLineNumber = getResumeFromLineNumber();
-      if (resumeFromLineNumber > 0) {
+      resumeFromLineNumber = getResumeFromLineNumber();
+      long resumeFromOffset = getResumeFromOffset();
+      if (resumeFromOffset > 0) {
+        if (br.seek(resumeFromOffset)) {
+          LOG.info("Resuming log file " + logPathFile.getAbsolutePath() + " from offset " + resumeFromOffset +
+              ", line number " + resumeFromLineNumber);
+          lineCount = resumeFromLineNumber;
+        } else {
+          LOG.info("Log file " + logPathFile.getAbsolutePath() + " is shorter than the checkpoint offset " +
+              resumeFromOffset + ", it must have been truncated. Reading it from the beginning");
+          br.close();
+          br = openLogFile(logPathFile);
+          // so that the lower line numbers read from now on are checkpointed; under the lock of checkIn, so that a
+          // concurrent check in of the old content can't write its position back
+          synchronized (AbstractInputFile.this) {
+            Map<String, Object> jsonCheckPoint = jsonCheckPoints.get(base64FileKey);
+            jsonCheckPoint.remove("line_number");
+            jsonCheckPoint.remove("offset");
+            lastCheckPointInputMarkers.remove(base64FileKey);
+          }
+        }
+      } else if (resumeFromLineNumber > 0) {
+        // checkpoint written before offsets were stored
         LOG.info("Resuming log file " + logPathFile.getAbsolutePath() + " from line number " + resumeFromLineNumber);
         resume = false;
       }
       
+      if (follow) {
+        watched = LogFileWatcher.INSTANCE.watch(logPathFile, fileChangeListener);
+      }
+      currentLogFileTail = this;
       setClosed(false);
-      int sleepStep = 2;
-      int sleepIteration = 0;
+    }
+
+    /**
+     * Reads lines until about maxBytes were read or the end of the file is reached.
+     *
+     * @return 0 if there may be more to read right away, the number of ms to wait for the file to change before reading
+     * again, or {@link #DONE}
+     */
+    protected long read(long maxBytes) {
+      long readBytes = 0;
       while (true) {
         try {
           if (isDrain()) {
-            break;
+            return DONE;
           }
 
-          String line = br.readLine();
+          long position = br.getPosition();
+          String line = br.readLine(!follow);
           if (line == null) {
             if (!resume) {
               resume = true;
@@ -125,7 +219,7 @@ public abstract class AbstractInputFile extends Input {
               flush();
               if (!follow) {
                 LOG.info("End of file. Done with filePath=" + logPathFile.getAbsolutePath() + ", lineCount=" + lineCount);
-                break;
+                return DONE;
               }
             } else if (sleepIteration > 4) {
               Object newFileKey = getFileKey(logPathFile);
@@ -136,10 +230,15 @@ public abstract class AbstractInputFile extends Input {
                 try {
                   LOG.info("File is rolled over. Closing current open file." + getShortDescription() + ", lineCount=" +
                       lineCount);
+                  String lastLine = br.readLine(true);
+                  if (lastLine != null) {
+                    lineCount++;
+                    outputLine(lastLine, new InputMarker(AbstractInputFile.this, base64FileKey, lineCount, br.getPosition()));
+                  }
                   br.close();
                 } catch (Exception ex) {
                   LOG.error("Error closing file" + getShortDescription(), ex);
-                  break;
+                  return DONE;
                 }
                 
                 try {
@@ -150,19 +249,16 @@ public abstract class AbstractInputFile extends Input {
                   LOG.error("Error opening rolled over file. " + getShortDescription(), ex);
                   LOG.info("Added input to not ready list." + getShortDescription());
                   isReady = false;
-                  inputManager.addToNotReady(this);
-                  break;
+                  inputManager.addToNotReady(AbstractInputFile.this);
+                  return DONE;
                 }
                 LOG.info("File is successfully rolled over. " + getShortDescription());
                 continue;
               }
             }
-            try {
-              Thread.sleep(sleepStep * 1000);
-              sleepStep = Math.min(sleepStep * 2, 10);
-            } catch (InterruptedException e) {
-              LOG.info("Thread interrupted." + getShortDescription());
-            }
+            long waitMs = sleepStep * 1000;
+            sleepStep = Math.min(sleepStep * 2, 10);
+            return waitMs;
           } else {
             lineCount++;
             sleepStep = 1;
@@ -173,17 +269,53 @@ public abstract class AbstractInputFile extends Input {
               resume = true;
             }
             if (resume) {
-              InputMarker marker = new InputMarker(this, base64FileKey, lineCount);
+              InputMarker marker = new InputMarker(AbstractInputFile.this, base64FileKey, lineCount, br.getPosition());
               outputLine(line, marker);
             }
+            readBytes += br.getPosition() - position;
+            if (readBytes >= maxBytes) {
+              return 0;
+            }
           }
         } catch (Throwable t) {
-          String logMessageKey = this.getClass().getSimpleName() + "_READ_LOOP_EXCEPTION";
+          String logMessageKey = AbstractInputFile.this.getClass().getSimpleName() + "_READ_LOOP_EXCEPTION";
           LogFeederUtil.logErrorMessageByInterval(logMessageKey, "Caught exception in read loop. lineNumber=" + lineCount +
               ", input=" + getShortDescription(), t, LOG, Level.ERROR);
+          // back off like at the end of the file, instead of failing again right away
+          long waitMs = sleepStep * 1000;
+          sleepStep = Math.min(sleepStep * 2, 10);
+          return waitMs;
         }
       }
-    } finally {
+    }
+
+    /**
+     * Waits until the file changes, if it is watched, or the timeout elapses.
+     */
+    protected void await(long timeoutMs) {
+      try {
+        LogFileWatcher.INSTANCE.await(logPathFile, timeoutMs);
+      } catch (InterruptedException e) {
+        LOG.info("Thread interrupted." + getShortDescription());
+      }
+    }
+
+    /**
+     * @return the bytes of the file not read yet, 0 if they can't be told from the size of the file, e.g. for gzip
+     */
+    long getLagBytes() {
+      LogFileLineReader reader = br;
+      return reader != null && reader.isSeekable() ? Math.max(0, logPathFile.length() - reader.getPosition()) : 0;
+    }
+
+    protected void close() {
+      if (currentLogFileTail == this) {
+        currentLogFileTail = null;
+      }
+      if (watched) {
+        LogFileWatcher.INSTANCE.unwatch(logPathFile, fileChangeListener);
+        watched = false;
+      }
       if (br != null) {
         LOG.info("Closing reader." + getShortDescription() + ", lineCount=" + lineCount);
         try {
@@ -195,7 +327,7 @@ public abstract class AbstractInputFile extends Input {
     }
   }
 
-  protected abstract BufferedReader openLogFile(File logFile) throws IOException;
+  protected abstract LogFileLineReader openLogFile(File logFile) throws IOException;
 
   protected abstract Object getFileKey(File logFile);
   
@@ -251,6 +383,17 @@ public abstract class AbstractInputFile extends Input {
     return resumeFromLineNumber;
   }
 
+  /**
+   * @return the byte offset to continue reading the current file at, 0 if the checkpoint has none
+   */
+  private long getResumeFromOffset() {
+    Map<String, Object> jsonCheckPoint = jsonCheckPoints.get(base64FileKey);
+    if (jsonCheckPoint == null || !base64FileKey.equals(jsonCheckPoint.get("file_key"))) {
+      return 0;
+    }
+    return LogFeederUtil.objectToLong(jsonCheckPoint.get("offset"), 0, "offset");
+  }
+
   @Override
   public synchronized void checkIn(InputMarker inputMarker) {
     try {
@@ -274,6 +417,7 @@ public abstract class AbstractInputFile extends Input {
       lastCheckPointTimeMSs.put(inputMarker.base64FileKey, currMS);
 
       jsonCheckPoint.put("line_number", "" + new Integer(inputMarker.lineNumber));
+      jsonCheckPoint.put("offset", "" + new Long(inputMarker.offset));
       jsonCheckPoint.put("last_write_time_ms", "" + new Long(currMS));
       jsonCheckPoint.put("last_write_time_date", new Date());
 
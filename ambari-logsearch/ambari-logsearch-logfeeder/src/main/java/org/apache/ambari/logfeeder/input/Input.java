@@ -37,6 +37,7 @@ import org.apache.ambari.logsearch.config.api.model.inputconfig.Fields;
 import org.apache.ambari.logsearch.config.api.model.inputconfig.FilterDescriptor;
 import org.apache.ambari.logsearch.config.api.model.inputconfig.InputDescriptor;
 import org.apache.commons.lang.BooleanUtils;
+import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Priority;
 
 public abstract class Input extends ConfigItem implements Runnable {
@@ -68,9 +69,22 @@ public abstract class Input extends ConfigItem implements Runnable {
   protected String getReadBytesMetricName() {
     return null;
   }
-  
+
+  private InputMetrics inputMetrics = new InputMetrics(null);
+  private long lineOutputNanos;
+
   public void loadConfig(InputDescriptor inputDescriptor) {
     this.inputDescriptor = inputDescriptor;
+    inputMetrics = new InputMetrics(getMetricsInstanceId(inputDescriptor));
+  }
+
+  /**
+   * Several inputs may have the same type, e.g. the same log read from several directories, so the instance id of the
+   * metrics of an input is its type and path.
+   */
+  static String getMetricsInstanceId(InputDescriptor inputDescriptor) {
+    String path = inputDescriptor.getPath();
+    return StringUtils.isEmpty(path) ? inputDescriptor.getType() : inputDescriptor.getType() + ":" + path;
   }
 
   public InputDescriptor getInputDescriptor() {
@@ -177,17 +191,29 @@ public abstract class Input extends ConfigItem implements Runnable {
     readBytesMetric.value += (line.length());
 
     if (firstFilter != null) {
+      long startTime = System.nanoTime();
+      lineOutputNanos = 0;
       try {
         firstFilter.apply(line, marker);
       } catch (LogFeederException e) {
         LOG.error(e.getLocalizedMessage(), e);
       }
+      inputMetrics.addFilterTime(System.nanoTime() - startTime - lineOutputNanos);
     } else {
       // TODO: For now, let's make filter mandatory, so that no one accidently forgets to write filter
       // outputManager.write(line, this);
     }
   }
 
+  /**
+   * Called by the {@link OutputManager} with the time it took to hand over an event of this input to the outputs, which
+   * is not counted as the filter time of the line being processed.
+   */
+  public void addOutputTime(long nanos) {
+    lineOutputNanos += nanos;
+    inputMetrics.addOutputTime(nanos);
+  }
+
   protected void flush() {
     if (firstFilter != null) {
       firstFilter.flush();
@@ -211,18 +237,30 @@ public abstract class Input extends ConfigItem implements Runnable {
       firstFilter.addMetricsContainers(metricsList);
     }
     metricsList.add(readBytesMetric);
+    inputMetrics.addMetricsContainers(metricsList);
   }
 
   @Override
   public void logStat() {
     super.logStat();
     logStatForMetric(readBytesMetric, "Stat: Bytes Read");
+    inputMetrics.update(statMetric.value, readBytesMetric.value, getLagBytes());
+    if (statMetric.value > 0) {
+      LOG.info("Stat: Input " + inputMetrics + ", key=" + getShortDescription());
+    }
 
     if (firstFilter != null) {
       firstFilter.logStat();
     }
   }
 
+  /**
+   * @return the number of bytes of the source not read yet, 0 if not known
+   */
+  public long getLagBytes() {
+    return 0;
+  }
+
   public abstract void checkIn(InputMarker inputMarker);
 
   public abstract void lastCheckIn();
@@ -18,13 +18,13 @@
  */
 package org.apache.ambari.logfeeder.input;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileFilter;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Comparator;
 
+import org.apache.ambari.logfeeder.input.reader.LogFileLineReader;
 import org.apache.ambari.logfeeder.input.reader.LogsearchReaderFactory;
 import org.apache.ambari.logfeeder.util.FileUtil;
 import org.apache.ambari.logsearch.config.api.model.inputconfig.InputFileDescriptor;
@@ -35,6 +35,9 @@ import org.apache.solr.common.util.Base64;
 
 public class InputFile extends AbstractInputFile {
 
+  private int nextFileIndex;
+  private LogFileTail currentTail;
+
   @Override
   public boolean isReady() {
     if (!isReady) {
@@ -72,33 +75,85 @@ public class InputFile extends AbstractInputFile {
     }
   }
 
+  @Override
+  boolean monitor() {
+    InputScheduler inputScheduler = inputManager.getInputScheduler();
+    if (inputScheduler == null || !isProcessFile()) {
+      return super.monitor();
+    }
+    if (!isReady()) {
+      return false;
+    }
+    LOG.info("Scheduling input on the reader pool. " + getShortDescription());
+    nextFileIndex = logFiles.length - 1;
+    inputScheduler.schedule(this);
+    return true;
+  }
+
   @Override
   void start() throws Exception {
-    boolean isProcessFile = BooleanUtils.toBooleanDefaultIfNull(((InputFileDescriptor)inputDescriptor).getProcessFile(), true);
-    if (isProcessFile) {
-      for (int i = logFiles.length - 1; i >= 0; i--) {
-        File file = logFiles[i];
-        if (i == 0 || !tail) {
-          try {
-            processFile(file, i == 0);
-            if (isClosed() || isDrain()) {
-              LOG.info("isClosed or isDrain. Now breaking loop.");
-              break;
-            }
-          } catch (Throwable t) {
-            LOG.error("Error processing file=" + file.getAbsolutePath(), t);
-          }
+    if (isProcessFile()) {
+      nextFileIndex = logFiles.length - 1;
+      long waitMs;
+      while ((waitMs = readChunk(Long.MAX_VALUE)) != LogFileTail.DONE) {
+        if (waitMs > 0) {
+          currentTail.await(waitMs);
         }
       }
-      close();
     } else {
       copyFiles(logFiles);
     }
   }
 
+  /**
+   * Reads the next chunk of the files of this input: the older ones first unless tailing, then the one followed.
+   *
+   * @return 0 if there may be more to read right away, the number of ms to wait for the followed file to change
+   * before reading again, or {@link LogFileTail#DONE} once the input is closed
+   */
+  long readChunk(long maxBytes) {
+    while (true) {
+      if (currentTail == null) {
+        while (nextFileIndex > 0 && tail) {
+          nextFileIndex--;
+        }
+        if (nextFileIndex < 0) {
+          close();
+          return LogFileTail.DONE;
+        }
+        File file = logFiles[nextFileIndex];
+        currentTail = new LogFileTail(file, nextFileIndex == 0);
+        nextFileIndex--;
+        try {
+          currentTail.open();
+        } catch (Throwable t) {
+          LOG.error("Error processing file=" + file.getAbsolutePath(), t);
+          currentTail.close();
+          currentTail = null;
+          continue;
+        }
+      }
+
+      long waitMs = currentTail.read(maxBytes);
+      if (waitMs != LogFileTail.DONE) {
+        return waitMs;
+      }
+      currentTail.close();
+      currentTail = null;
+      if (isClosed() || isDrain()) {
+        LOG.info("isClosed or isDrain. Now breaking loop.");
+        nextFileIndex = -1;
+      }
+    }
+  }
+
+  private boolean isProcessFile() {
+    return BooleanUtils.toBooleanDefaultIfNull(((InputFileDescriptor)inputDescriptor).getProcessFile(), true);
+  }
+
   @Override
-  protected BufferedReader openLogFile(File logFile) throws FileNotFoundException {
-    BufferedReader br = new BufferedReader(LogsearchReaderFactory.INSTANCE.getReader(logFile));
+  protected LogFileLineReader openLogFile(File logFile) throws IOException {
+    LogFileLineReader br = LogsearchReaderFactory.INSTANCE.getLineReader(logFile);
     fileKey = getFileKey(logFile);
     base64FileKey = Base64.byteArrayToBase64(fileKey.toString().getBytes());
     LOG.info("fileKey=" + fileKey + ", base64=" + base64FileKey + ". " + getShortDescription());
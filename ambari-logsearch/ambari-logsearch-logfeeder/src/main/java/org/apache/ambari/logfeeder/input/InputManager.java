@@ -56,8 +56,10 @@ public class InputManager {
   private File checkPointFolderFile;
 
   private MetricData filesCountMetric = new MetricData("input.files.count", true);
+  private MetricData lagBytesMetric = new MetricData("input.files.lag_bytes", true);
   
   private Thread inputIsReadyMonitor;
+  private InputScheduler inputScheduler;
 
   public List<Input> getInputList(String serviceName) {
     return inputs.get(serviceName);
@@ -112,10 +114,31 @@ public class InputManager {
     return count;
   }
 
+  private long getLagBytes() {
+    long lagBytes = 0;
+    for (List<Input> inputList : inputs.values()) {
+      for (Input input : inputList) {
+        lagBytes += input.getLagBytes();
+      }
+    }
+    return lagBytes;
+  }
+
   public void init() {
     initCheckPointSettings();
+    int inputReaderThreads = LogFeederPropertiesUtil.getInputReaderThreads();
+    if (inputReaderThreads > 0) {
+      inputScheduler = new InputScheduler(inputReaderThreads);
+    }
     startMonitorThread();
   }
+
+  /**
+   * @return the scheduler reading the file inputs, null if each input is read by a thread of its own
+   */
+  InputScheduler getInputScheduler() {
+    return inputScheduler;
+  }
   
   private void initCheckPointSettings() {
     checkPointExtension = LogFeederPropertiesUtil.getCheckPointExtension();
@@ -238,6 +261,8 @@ public class InputManager {
     }
     filesCountMetric.value = getActiveFilesCount();
     metricsList.add(filesCountMetric);
+    lagBytesMetric.value = getLagBytes();
+    metricsList.add(lagBytesMetric);
   }
 
   public void logStats() {
@@ -249,6 +274,9 @@ public class InputManager {
 
     filesCountMetric.value = getActiveFilesCount();
     LogFeederUtil.logStatForMetric(filesCountMetric, "Stat: Files Monitored Count", "");
+
+    lagBytesMetric.value = getLagBytes();
+    LogFeederUtil.logStatForMetric(lagBytesMetric, "Stat: Files Lag Bytes", "");
   }
 
 
@@ -406,6 +434,7 @@ public class InputManager {
       }
       if (allClosed) {
         LOG.info("All inputs are closed. Iterations=" + i);
+        shutdownInputScheduler();
         return;
       }
     }
@@ -418,5 +447,12 @@ public class InputManager {
         }
       }
     }
+    shutdownInputScheduler();
+  }
+
+  private void shutdownInputScheduler() {
+    if (inputScheduler != null) {
+      inputScheduler.shutdown();
+    }
   }
 }
@@ -20,21 +20,28 @@
 package org.apache.ambari.logfeeder.input;
 
 /**
- * This file contains the file inode, line number of the log currently been read
+ * This file contains the file inode, line number and byte offset of the log currently been read
  */
 public class InputMarker {
   public final Input input;
   public final String base64FileKey;
   public final int lineNumber;
+  /** The byte offset following the line, 0 if not known */
+  public final long offset;
   
   public InputMarker(Input input, String base64FileKey, int lineNumber) {
+    this(input, base64FileKey, lineNumber, 0);
+  }
+  
+  public InputMarker(Input input, String base64FileKey, int lineNumber, long offset) {
     this.input = input;
     this.base64FileKey = base64FileKey;
     this.lineNumber = lineNumber;
+    this.offset = offset;
   }
   
   @Override
   public String toString() {
-    return "InputMarker [lineNumber=" + lineNumber + ", input=" + input.getShortDescription() + "]";
+    return "InputMarker [lineNumber=" + lineNumber + ", offset=" + offset + ", input=" + input.getShortDescription() + "]";
   }
 }
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ambari.logfeeder.input;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.logfeeder.metrics.Histogram;
+import org.apache.ambari.logfeeder.metrics.MetricData;
+
+/**
+ * The metrics of a single input, published with the type and path of the input as their instance id: the lines and
+ * bytes read per second, the bytes behind the end of the source, and the time spent on each line by the filters and
+ * mappers, and by handing it over to the outputs, which grows when an output can't keep up.
+ */
+class InputMetrics {
+  private final Histogram filterTime = new Histogram();
+  private final Histogram outputTime = new Histogram();
+
+  private final MetricData linesPerSecMetric;
+  private final MetricData bytesPerSecMetric;
+  private final MetricData lagBytesMetric;
+  private final MetricData filterTimeMeanMetric;
+  private final MetricData filterTimeP95Metric;
+  private final MetricData filterTimeP99Metric;
+  private final MetricData outputTimeMeanMetric;
+  private final MetricData outputTimeP95Metric;
+  private final MetricData outputTimeP99Metric;
+
+  private long lastUpdateMS = System.currentTimeMillis();
+  private long lastLines = 0;
+  private long lastBytes = 0;
+
+  InputMetrics(String instanceId) {
+    linesPerSecMetric = new MetricData("input.lines_per_sec", true, instanceId);
+    bytesPerSecMetric = new MetricData("input.bytes_per_sec", true, instanceId);
+    lagBytesMetric = new MetricData("input.lag_bytes", true, instanceId);
+    filterTimeMeanMetric = new MetricData("input.filter_time_us.mean", true, instanceId);
+    filterTimeP95Metric = new MetricData("input.filter_time_us.p95", true, instanceId);
+    filterTimeP99Metric = new MetricData("input.filter_time_us.p99", true, instanceId);
+    outputTimeMeanMetric = new MetricData("input.output_time_us.mean", true, instanceId);
+    outputTimeP95Metric = new MetricData("input.output_time_us.p95", true, instanceId);
+    outputTimeP99Metric = new MetricData("input.output_time_us.p99", true, instanceId);
+  }
+
+  void addFilterTime(long nanos) {
+    filterTime.add(TimeUnit.NANOSECONDS.toMicros(nanos));
+  }
+
+  void addOutputTime(long nanos) {
+    outputTime.add(TimeUnit.NANOSECONDS.toMicros(nanos));
+  }
+
+  /**
+   * Computes the metrics of the interval since the previous update.
+   */
+  synchronized void update(long lines, long bytes, long lagBytes) {
+    long currMS = System.currentTimeMillis();
+    long durationMS = Math.max(currMS - lastUpdateMS, 1);
+    linesPerSecMetric.value = (lines - lastLines) * 1000 / durationMS;
+    bytesPerSecMetric.value = (bytes - lastBytes) * 1000 / durationMS;
+    lagBytesMetric.value = lagBytes;
+    lastUpdateMS = currMS;
+    lastLines = lines;
+    lastBytes = bytes;
+
+    Histogram.Snapshot filterTimeSnapshot = filterTime.intervalSnapshot();
+    filterTimeMeanMetric.value = filterTimeSnapshot.getMean();
+    filterTimeP95Metric.value = filterTimeSnapshot.getPercentile(0.95);
+    filterTimeP99Metric.value = filterTimeSnapshot.getPercentile(0.99);
+
+    Histogram.Snapshot outputTimeSnapshot = outputTime.intervalSnapshot();
+    outputTimeMeanMetric.value = outputTimeSnapshot.getMean();
+    outputTimeP95Metric.value = outputTimeSnapshot.getPercentile(0.95);
+    outputTimeP99Metric.value = outputTimeSnapshot.getPercentile(0.99);
+  }
+
+  void addMetricsContainers(List<MetricData> metricsList) {
+    metricsList.add(linesPerSecMetric);
+    metricsList.add(bytesPerSecMetric);
+    metricsList.add(lagBytesMetric);
+    metricsList.add(filterTimeMeanMetric);
+    metricsList.add(filterTimeP95Metric);
+    metricsList.add(filterTimeP99Metric);
+    metricsList.add(outputTimeMeanMetric);
+    metricsList.add(outputTimeP95Metric);
+    metricsList.add(outputTimeP99Metric);
+  }
+
+  @Override
+  public String toString() {
+    return "lines/s=" + linesPerSecMetric.value + ", bytes/s=" + bytesPerSecMetric.value + ", lag_bytes=" +
+        lagBytesMetric.value + ", filter_us(mean/p95/p99)=" + filterTimeMeanMetric.value + "/" +
+        filterTimeP95Metric.value + "/" + filterTimeP99Metric.value + ", output_us(mean/p95/p99)=" +
+        outputTimeMeanMetric.value + "/" + outputTimeP95Metric.value + "/" + outputTimeP99Metric.value;
+  }
+}
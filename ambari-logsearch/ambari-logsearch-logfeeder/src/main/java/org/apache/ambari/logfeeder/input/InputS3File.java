@@ -18,10 +18,11 @@
  */
 package org.apache.ambari.logfeeder.input;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.Channels;
 
+import org.apache.ambari.logfeeder.input.reader.LogFileLineReader;
 import org.apache.ambari.logfeeder.util.S3Util;
 import org.apache.ambari.logsearch.config.api.model.inputconfig.InputS3FileDescriptor;
 import org.apache.commons.lang.ArrayUtils;
@@ -77,10 +78,11 @@ public class InputS3File extends AbstractInputFile {
   }
 
   @Override
-  protected BufferedReader openLogFile(File logPathFile) throws IOException {
+  protected LogFileLineReader openLogFile(File logPathFile) throws IOException {
     String s3AccessKey = ((InputS3FileDescriptor)inputDescriptor).getS3AccessKey();
     String s3SecretKey = ((InputS3FileDescriptor)inputDescriptor).getS3SecretKey();
-    BufferedReader br = S3Util.getReader(logPathFile.getPath(), s3AccessKey, s3SecretKey);
+    LogFileLineReader br = new LogFileLineReader(
+        Channels.newChannel(S3Util.getInputStream(logPathFile.getPath(), s3AccessKey, s3SecretKey)));
     fileKey = getFileKey(logPathFile);
     base64FileKey = Base64.byteArrayToBase64(fileKey.toString().getBytes());
     LOG.info("fileKey=" + fileKey + ", base64=" + base64FileKey + ". " + getShortDescription());
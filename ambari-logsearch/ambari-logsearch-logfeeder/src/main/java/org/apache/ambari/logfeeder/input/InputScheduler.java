@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ambari.logfeeder.input;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.logfeeder.input.reader.LogFileWatcher;
+import org.apache.log4j.Logger;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Multiplexes the file inputs over a fixed pool of reader threads, instead of running a thread for each of them.
+ * <p>
+ * An input with data to read is read a chunk of at most {@link #CHUNK_BYTES} at a time, and is then queued behind the
+ * other inputs with data, so a busy file can't starve the rest. An input at the end of its file waits without holding
+ * a thread, until the {@link LogFileWatcher} reports a change of the file, it is drained, or its poll timeout elapses.
+ * An input is only read by one thread at a time, so its filters don't need to be thread safe. An input failing to be
+ * read is retried after a wait doubling with each consecutive failure, up to {@link #MAX_ERROR_WAIT_MS}.
+ */
+public class InputScheduler {
+  private static final Logger LOG = Logger.getLogger(InputScheduler.class);
+
+  static final long CHUNK_BYTES = 256 * 1024;
+  static final long MIN_ERROR_WAIT_MS = 500;
+  static final long MAX_ERROR_WAIT_MS = 60 * 1000;
+
+  private final ScheduledThreadPoolExecutor executor;
+  private final long chunkBytes;
+
+  public InputScheduler(int threads) {
+    this(threads, CHUNK_BYTES);
+  }
+
+  InputScheduler(int threads, long chunkBytes) {
+    this.chunkBytes = chunkBytes;
+    executor = new ScheduledThreadPoolExecutor(threads,
+        new ThreadFactoryBuilder().setNameFormat("InputReader-%d").build());
+    executor.setRemoveOnCancelPolicy(true);
+    LOG.info("Reading the file inputs with " + threads + " threads");
+  }
+
+  void schedule(InputFile input) {
+    ReadTask task = new ReadTask(input);
+    input.setFileChangeListener(task);
+    executor.execute(task.reader);
+  }
+
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private enum State {
+    QUEUED, RUNNING, WAITING, DONE
+  }
+
+  /**
+   * Reads an input a chunk at a time. Runs as the file change listener of the input too, which queues it for reading
+   * if it is waiting.
+   */
+  private class ReadTask implements Runnable {
+    private final InputFile input;
+
+    private State state = State.QUEUED;
+    private boolean changed;
+    private long errorWaitMs;
+    private ScheduledFuture<?> timeout;
+
+    private final Runnable reader = new Runnable() {
+      @Override
+      public void run() {
+        read();
+      }
+    };
+
+    private final Runnable timeoutHandler = new Runnable() {
+      @Override
+      public void run() {
+        wake(true);
+      }
+    };
+
+    ReadTask(InputFile input) {
+      this.input = input;
+    }
+
+    @Override
+    public void run() {
+      wake(false);
+    }
+
+    private void wake(boolean timedOut) {
+      synchronized (this) {
+        changed = true;
+        // a failed input waits for the whole backoff, even if its file changes
+        if (state != State.WAITING || (errorWaitMs > 0 && !timedOut)) {
+          return;
+        }
+        if (timeout != null) {
+          timeout.cancel(false);
+          timeout = null;
+        }
+        state = State.QUEUED;
+      }
+      executor.execute(reader);
+    }
+
+    private void read() {
+      synchronized (this) {
+        state = State.RUNNING;
+        changed = false;
+      }
+
+      long waitMs;
+      try {
+        waitMs = input.readChunk(chunkBytes);
+        errorWaitMs = 0;
+      } catch (Throwable t) {
+        errorWaitMs = errorWaitMs == 0 ? MIN_ERROR_WAIT_MS : Math.min(errorWaitMs * 2, MAX_ERROR_WAIT_MS);
+        LOG.error("Error reading input, retrying in " + errorWaitMs + " ms. " + input.getShortDescription(), t);
+        waitMs = errorWaitMs;
+      }
+
+      synchronized (this) {
+        if (waitMs == AbstractInputFile.LogFileTail.DONE) {
+          state = State.DONE;
+          input.setFileChangeListener(null);
+          LOG.info("Done reading input. " + input.getShortDescription());
+          return;
+        }
+        if (waitMs > 0 && (!changed || errorWaitMs > 0)) {
+          state = State.WAITING;
+          timeout = executor.schedule(timeoutHandler, waitMs, TimeUnit.MILLISECONDS);
+          return;
+        }
+        state = State.QUEUED;
+      }
+      executor.execute(reader);
+    }
+  }
+}
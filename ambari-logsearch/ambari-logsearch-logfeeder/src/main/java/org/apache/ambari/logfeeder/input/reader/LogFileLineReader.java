@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ambari.logfeeder.input.reader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Reads the lines of a log file like {@link java.io.BufferedReader#readLine()}, but keeps track of the byte offset
+ * following the last line returned, so that reading can be resumed at that offset after a restart.
+ * <p>
+ * Lines are terminated by '\n' or "\r\n". A line which is not terminated yet, e.g. because it is still being written,
+ * is only returned if asked to, otherwise it is held back until its terminator arrives.
+ */
+public class LogFileLineReader implements Closeable {
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final ReadableByteChannel channel;
+  private final Charset charset;
+  private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+  private byte[] lineBytes = new byte[256];
+  private int lineLength;
+  private long position;
+
+  public LogFileLineReader(ReadableByteChannel channel) {
+    this(channel, Charset.defaultCharset());
+  }
+
+  public LogFileLineReader(ReadableByteChannel channel, Charset charset) {
+    this.channel = channel;
+    this.charset = charset;
+    buffer.flip();
+  }
+
+  /**
+   * @param partial whether to return the remaining bytes of the file as a line if they are not terminated
+   * @return the next line without its terminator, or null if there is no (complete) line available at the moment
+   */
+  public String readLine(boolean partial) throws IOException {
+    while (true) {
+      if (!buffer.hasRemaining()) {
+        buffer.clear();
+        int read = channel.read(buffer);
+        buffer.flip();
+        if (read <= 0) {
+          if (partial && lineLength > 0) {
+            position += lineLength;
+            return takeLine(lineLength);
+          }
+          return null;
+        }
+      }
+
+      byte[] bytes = buffer.array();
+      int start = buffer.arrayOffset() + buffer.position();
+      int end = buffer.arrayOffset() + buffer.limit();
+      int newLine = start;
+      while (newLine < end && bytes[newLine] != '\n') {
+        newLine++;
+      }
+      append(bytes, start, newLine - start);
+      if (newLine < end) {
+        buffer.position(newLine - buffer.arrayOffset() + 1);
+        position += lineLength + 1;
+        int length = lineLength > 0 && lineBytes[lineLength - 1] == '\r' ? lineLength - 1 : lineLength;
+        return takeLine(length);
+      }
+      buffer.position(buffer.limit());
+    }
+  }
+
+  /**
+   * @return the byte offset following the last line returned
+   */
+  public long getPosition() {
+    return position;
+  }
+
+  /**
+   * @return true if the reader reads the file directly, so its position can be compared to the size of the file
+   */
+  public boolean isSeekable() {
+    return channel instanceof SeekableByteChannel;
+  }
+
+  /**
+   * Continues reading at the given byte offset, which should be one returned by {@link #getPosition()}. Seekable
+   * channels, like the ones of plain files, are positioned directly; any other channel is read up to the offset.
+   *
+   * @return false if the file is shorter than the offset, in which case the reader should not be used any more
+   */
+  public boolean seek(long offset) throws IOException {
+    buffer.clear();
+    buffer.flip();
+    lineLength = 0;
+    if (channel instanceof SeekableByteChannel) {
+      SeekableByteChannel seekableChannel = (SeekableByteChannel) channel;
+      if (offset > seekableChannel.size()) {
+        return false;
+      }
+      seekableChannel.position(offset);
+      position = offset;
+      return true;
+    }
+
+    while (position < offset) {
+      buffer.clear();
+      buffer.limit((int) Math.min(buffer.capacity(), offset - position));
+      int read = channel.read(buffer);
+      if (read < 0) {
+        return false;
+      }
+      position += read;
+    }
+    buffer.clear();
+    buffer.flip();
+    return true;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private void append(byte[] bytes, int offset, int length) {
+    if (lineLength + length > lineBytes.length) {
+      lineBytes = Arrays.copyOf(lineBytes, Math.max(lineBytes.length * 2, lineLength + length));
+    }
+    System.arraycopy(bytes, offset, lineBytes, lineLength, length);
+    lineLength += length;
+  }
+
+  private String takeLine(int length) {
+    String line = new String(lineBytes, 0, length, charset);
+    lineLength = 0;
+    return line;
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ambari.logfeeder.input.reader;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Wakes up the inputs waiting for the log files they follow to change. A single {@link WatchService} (inotify on
+ * Linux) is shared by all the inputs, watching the folders of the followed files. If no watch service is available,
+ * or a folder can't be watched, waiting for a file falls back to sleeping for the timeout, i.e. polling.
+ * <p>
+ * Inputs reading on a thread of their own block in {@link #await(File, long)}, the ones multiplexed over the reader
+ * pool register a listener instead.
+ */
+public enum LogFileWatcher {
+  INSTANCE;
+  private static final Logger LOG = Logger.getLogger(LogFileWatcher.class);
+
+  private final Map<Path, WatchKey> folderKeys = new HashMap<>();
+  private final Map<Path, Signal> signals = new HashMap<>();
+  private WatchService watchService;
+  private boolean unavailable;
+
+  /**
+   * Starts watching the file. Each call must be paired with a call to {@link #unwatch(File, Runnable)}.
+   *
+   * @param listener called on the thread of the watcher when the file changes, may be null
+   * @return false if changes of the file can't be watched, so waiting for it will only poll
+   */
+  public synchronized boolean watch(File file, Runnable listener) {
+    Path path = file.getAbsoluteFile().toPath();
+    Path folder = path.getParent();
+    if (folder == null || !folder.toFile().isDirectory() || !startWatchService()) {
+      return false;
+    }
+
+    if (!folderKeys.containsKey(folder)) {
+      try {
+        folderKeys.put(folder, folder.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE));
+      } catch (IOException e) {
+        LOG.warn("Couldn't watch folder " + folder + ", will poll for the changes of " + file, e);
+        return false;
+      }
+    }
+    Signal signal = signals.get(path);
+    if (signal == null) {
+      signal = new Signal();
+      signals.put(path, signal);
+    }
+    signal.watchers++;
+    if (listener != null) {
+      signal.listeners.add(listener);
+    }
+    return true;
+  }
+
+  public synchronized void unwatch(File file, Runnable listener) {
+    Path path = file.getAbsoluteFile().toPath();
+    Signal signal = signals.get(path);
+    if (signal == null) {
+      return;
+    }
+    signal.listeners.remove(listener);
+    if (--signal.watchers > 0) {
+      return;
+    }
+    signals.remove(path);
+
+    Path folder = path.getParent();
+    for (Path watchedPath : signals.keySet()) {
+      if (watchedPath.getParent().equals(folder)) {
+        return;
+      }
+    }
+    WatchKey key = folderKeys.remove(folder);
+    if (key != null) {
+      key.cancel();
+    }
+  }
+
+  /**
+   * Waits until the file changes, or the timeout elapses. Returns immediately if the file has changed since the last
+   * call, so a change which happens while the caller is busy reading is not missed.
+   */
+  public void await(File file, long timeoutMs) throws InterruptedException {
+    Signal signal;
+    synchronized (this) {
+      signal = signals.get(file.getAbsoluteFile().toPath());
+    }
+    if (signal == null) {
+      Thread.sleep(timeoutMs);
+      return;
+    }
+    synchronized (signal) {
+      if (!signal.changed) {
+        signal.wait(timeoutMs);
+      }
+      signal.changed = false;
+    }
+  }
+
+  private boolean startWatchService() {
+    if (watchService == null && !unavailable) {
+      try {
+        watchService = FileSystems.getDefault().newWatchService();
+      } catch (IOException | UnsupportedOperationException e) {
+        LOG.warn("File system watch service is not available, will poll for the changes of the log files", e);
+        unavailable = true;
+        return false;
+      }
+      Thread thread = new Thread("LogFileWatcher") {
+        @Override
+        public void run() {
+          processEvents();
+        }
+      };
+      thread.setDaemon(true);
+      thread.start();
+    }
+    return watchService != null;
+  }
+
+  private void processEvents() {
+    while (true) {
+      WatchKey key;
+      try {
+        key = watchService.take();
+      } catch (InterruptedException | ClosedWatchServiceException e) {
+        LOG.info("Stopped watching the log files");
+        return;
+      }
+
+      Path folder = (Path) key.watchable();
+      for (WatchEvent<?> event : key.pollEvents()) {
+        if (event.kind() == OVERFLOW) {
+          signalFolder(folder);
+        } else {
+          signal(folder.resolve((Path) event.context()));
+        }
+      }
+      key.reset();
+    }
+  }
+
+  private void signal(Path path) {
+    Signal signal;
+    synchronized (this) {
+      signal = signals.get(path);
+    }
+    if (signal != null) {
+      signal.signal();
+    }
+  }
+
+  private synchronized void signalFolder(Path folder) {
+    for (Map.Entry<Path, Signal> entry : signals.entrySet()) {
+      if (entry.getKey().getParent().equals(folder)) {
+        entry.getValue().signal();
+      }
+    }
+  }
+
+  private static class Signal {
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private int watchers;
+    private boolean changed;
+
+    void signal() {
+      synchronized (this) {
+        changed = true;
+        notifyAll();
+      }
+      for (Runnable listener : listeners) {
+        listener.run();
+      }
+    }
+  }
+}
@@ -19,9 +19,15 @@
 package org.apache.ambari.logfeeder.input.reader;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.io.IOException;
 import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
 
 import org.apache.log4j.Logger;
 
@@ -38,4 +44,18 @@ public enum LogsearchReaderFactory {
       return new FileReader(file);
     }
   }
+
+  /**
+   * Plain files are read through a {@link FileChannel}, so that the reader can seek to a checkpointed offset directly.
+   * The offsets of gzip files are those of the uncompressed content.
+   */
+  public LogFileLineReader getLineReader(File file) throws IOException {
+    LOG.debug("Inside reader factory for file:" + file);
+    if (GZIPReader.isValidFile(file.getAbsolutePath())) {
+      LOG.info("Reading file " + file + " as gzip file");
+      return new LogFileLineReader(Channels.newChannel(new GZIPInputStream(new FileInputStream(file))));
+    } else {
+      return new LogFileLineReader(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+    }
+  }
 }
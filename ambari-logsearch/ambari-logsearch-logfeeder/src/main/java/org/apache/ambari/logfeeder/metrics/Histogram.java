@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ambari.logfeeder.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non negative values, like latencies in microseconds, cheap enough to be updated for every log line.
+ * <p>
+ * Bucket i holds the values of i bits, so a percentile is reported as the upper bound of its bucket, which is at most
+ * twice the real value. Adding a value is two atomic increments, without locking.
+ */
+public class Histogram {
+  private static final int BUCKETS = 64;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong sum = new AtomicLong();
+
+  private long[] lastCounts = new long[BUCKETS];
+  private long lastSum = 0;
+
+  public void add(long value) {
+    counts.incrementAndGet(bucket(value));
+    sum.addAndGet(Math.max(value, 0));
+  }
+
+  /**
+   * @return the values added since the previous call
+   */
+  public synchronized Snapshot intervalSnapshot() {
+    long[] currentCounts = new long[BUCKETS];
+    long[] intervalCounts = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      currentCounts[i] = counts.get(i);
+      intervalCounts[i] = currentCounts[i] - lastCounts[i];
+    }
+    long currentSum = sum.get();
+    Snapshot snapshot = new Snapshot(intervalCounts, currentSum - lastSum);
+    lastCounts = currentCounts;
+    lastSum = currentSum;
+    return snapshot;
+  }
+
+  static int bucket(long value) {
+    return value <= 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(value);
+  }
+
+  static long upperBound(int bucket) {
+    return bucket == 0 ? 0 : bucket == BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+  }
+
+  public static class Snapshot {
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+
+    private Snapshot(long[] counts, long sum) {
+      this.counts = counts;
+      this.sum = sum;
+      long count = 0;
+      for (long bucketCount : counts) {
+        count += bucketCount;
+      }
+      this.count = count;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getMean() {
+      return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * @param percentile between 0 and 1, e.g. 0.95
+     */
+    public long getPercentile(double percentile) {
+      if (count == 0) {
+        return 0;
+      }
+      long rank = (long) Math.ceil(percentile * count);
+      long cumulativeCount = 0;
+      for (int i = 0; i < counts.length; i++) {
+        cumulativeCount += counts[i];
+        if (cumulativeCount >= rank) {
+          return upperBound(i);
+        }
+      }
+      return upperBound(counts.length - 1);
+    }
+  }
+}
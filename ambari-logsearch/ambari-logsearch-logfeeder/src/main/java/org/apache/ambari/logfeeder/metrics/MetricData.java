@@ -25,10 +25,22 @@ import org.apache.commons.lang3.builder.ToStringStyle;
 public class MetricData {
   public final String metricsName;
   public final boolean isPointInTime;
+  public final String instanceId; // e.g. the type of the input the metric belongs to, or null
+  public final boolean isSummed; // point in time values of the same name and instance are added up, e.g. queue sizes
 
   public MetricData(String metricsName, boolean isPointInTime) {
+    this(metricsName, isPointInTime, null);
+  }
+
+  public MetricData(String metricsName, boolean isPointInTime, String instanceId) {
+    this(metricsName, isPointInTime, instanceId, false);
+  }
+
+  public MetricData(String metricsName, boolean isPointInTime, String instanceId, boolean isSummed) {
     this.metricsName = metricsName;
     this.isPointInTime = isPointInTime;
+    this.instanceId = instanceId;
+    this.isSummed = isSummed;
   }
   
   public long value = 0;
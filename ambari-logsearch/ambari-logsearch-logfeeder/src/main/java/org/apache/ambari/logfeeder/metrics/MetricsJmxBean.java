@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ambari.logfeeder.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+
+/**
+ * Exposes the last gathered value of every metric as a read only attribute, so they can be looked at on a live host with
+ * any JMX client, whether or not they are published to AMS. The attribute of a metric with an instance id is named
+ * "name[instanceId]", e.g. "input.filter_time_us.p95[ambari_server:/var/log/ambari-server/ambari-server.log]".
+ */
+public class MetricsJmxBean implements DynamicMBean {
+
+  public static final String OBJECT_NAME = "org.apache.ambari.logfeeder:type=Metrics";
+
+  private volatile Map<String, Long> values = new TreeMap<>();
+
+  void update(List<MetricData> metricsList) {
+    Map<String, Long> newValues = new TreeMap<>();
+    for (MetricData metric : metricsList) {
+      if (metric.metricsName != null) {
+        String name = getAttributeName(metric);
+        // like for AMS, counters and summed point in time values are added up, for other ones the last is kept
+        Long value = !metric.isPointInTime || metric.isSummed ? newValues.get(name) : null;
+        newValues.put(name, value == null ? metric.value : value + metric.value);
+      }
+    }
+    values = newValues;
+  }
+
+  static String getAttributeName(MetricData metric) {
+    return metric.instanceId == null ? metric.metricsName : metric.metricsName + "[" + metric.instanceId + "]";
+  }
+
+  @Override
+  public Object getAttribute(String attribute) throws AttributeNotFoundException {
+    Long value = values.get(attribute);
+    if (value == null) {
+      throw new AttributeNotFoundException(attribute);
+    }
+    return value;
+  }
+
+  @Override
+  public AttributeList getAttributes(String[] attributes) {
+    Map<String, Long> currentValues = values;
+    AttributeList attributeList = new AttributeList();
+    for (String attribute : attributes) {
+      Long value = currentValues.get(attribute);
+      if (value != null) {
+        attributeList.add(new Attribute(attribute, value));
+      }
+    }
+    return attributeList;
+  }
+
+  @Override
+  public MBeanInfo getMBeanInfo() {
+    List<MBeanAttributeInfo> attributes = new ArrayList<>();
+    for (String name : values.keySet()) {
+      attributes.add(new MBeanAttributeInfo(name, Long.class.getName(), name, true, false, false));
+    }
+    return new MBeanInfo(getClass().getName(), "Log Feeder metrics", attributes.toArray(new MBeanAttributeInfo[0]), null,
+        new MBeanOperationInfo[0], null);
+  }
+
+  @Override
+  public void setAttribute(Attribute attribute) {
+    throw new UnsupportedOperationException("Log Feeder metrics are read only");
+  }
+
+  @Override
+  public AttributeList setAttributes(AttributeList attributes) {
+    return new AttributeList();
+  }
+
+  @Override
+  public Object invoke(String actionName, Object[] params, String[] signature) {
+    throw new UnsupportedOperationException("Log Feeder metrics have no operations");
+  }
+}
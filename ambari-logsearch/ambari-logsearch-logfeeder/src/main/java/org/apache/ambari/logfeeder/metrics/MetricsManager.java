@@ -19,11 +19,15 @@
 
 package org.apache.ambari.logfeeder.metrics;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.TreeMap;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import org.apache.ambari.logfeeder.util.LogFeederUtil;
 import org.apache.hadoop.metrics2.sink.timeline.TimelineMetric;
 import org.apache.hadoop.metrics2.sink.timeline.TimelineMetrics;
@@ -42,9 +46,20 @@ public class MetricsManager {
   private int maxMetricsBuffer = 60 * 60 * 1000; // If AMS is down, we should not keep the metrics in memory forever
   private HashMap<String, TimelineMetric> metricsMap = new HashMap<String, TimelineMetric>();
   private LogFeederAMSClient amsClient = null;
+  private MetricsJmxBean jmxBean = new MetricsJmxBean();
 
   public void init() {
     LOG.info("Initializing MetricsManager()");
+    try {
+      MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+      ObjectName objectName = new ObjectName(MetricsJmxBean.OBJECT_NAME);
+      if (mBeanServer.isRegistered(objectName)) {
+        mBeanServer.unregisterMBean(objectName);
+      }
+      mBeanServer.registerMBean(jmxBean, objectName);
+    } catch (Exception e) {
+      LOG.warn("Could not register the JMX bean of the metrics", e);
+    }
     amsClient = new LogFeederAMSClient();
 
     if (amsClient.getCollectorUri(null) != null) {
@@ -64,7 +79,11 @@ public class MetricsManager {
     return isMetricsEnabled;
   }
 
+  /**
+   * Updates the JMX bean of the metrics, and publishes them to AMS if it is enabled.
+   */
   public synchronized void useMetrics(List<MetricData> metricsList) {
+    jmxBean.update(metricsList);
     if (!isMetricsEnabled) {
       return;
     }
@@ -91,30 +110,35 @@ public class MetricsManager {
       metric.publishCount++;
 
       LOG.debug("Ensuring metrics=" + metric.metricsName);
-      TimelineMetric timelineMetric = metricsMap.get(metric.metricsName);
+      String metricKey = MetricsJmxBean.getAttributeName(metric);
+      TimelineMetric timelineMetric = metricsMap.get(metricKey);
       if (timelineMetric == null) {
         LOG.debug("Creating new metric obbject for " + metric.metricsName);
         timelineMetric = new TimelineMetric();
         timelineMetric.setMetricName(metric.metricsName);
+        timelineMetric.setInstanceId(metric.instanceId);
         timelineMetric.setHostName(LogFeederUtil.hostName);
         timelineMetric.setAppId(appId);
         timelineMetric.setStartTime(currMS);
         timelineMetric.setType("Long");
         timelineMetric.setMetricValues(new TreeMap<Long, Double>());
 
-        metricsMap.put(metric.metricsName, timelineMetric);
+        metricsMap.put(metricKey, timelineMetric);
       }
       
       LOG.debug("Adding metrics=" + metric.metricsName);
       if (metric.isPointInTime) {
-        timelineMetric.getMetricValues().put(currMSLong, new Double(currCount));
+        // summed metrics gathered at the same time are added up, e.g. the queue sizes of the outputs, while means and
+        // percentiles can't be, so the last one is kept
+        Double value = metric.isSummed ? timelineMetric.getMetricValues().get(currMSLong) : null;
+        timelineMetric.putMetricValue(currMSLong, value == null ? currCount : value + currCount);
       } else {
         Double value = timelineMetric.getMetricValues().get(currMSLong);
         if (value == null) {
           value = new Double(0);
         }
         value += (currCount - metric.prevPublishValue);
-        timelineMetric.getMetricValues().put(currMSLong, value);
+        timelineMetric.putMetricValue(currMSLong, value);
         metric.prevPublishValue = currCount;
       }
     }
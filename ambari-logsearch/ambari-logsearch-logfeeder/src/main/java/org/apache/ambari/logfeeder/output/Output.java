@@ -75,6 +75,14 @@ public abstract class Output extends ConfigBlock implements OutputConfigMonitor
     write(LogFeederUtil.getGson().toJson(jsonObj), inputMarker);
   }
 
+  /**
+   * Called by the {@link OutputManager} with an event written to all the outputs of the input. Writes its JSON form,
+   * serialized once for all of them. Outputs working on the fields of the event override it.
+   */
+  public void write(OutputEvent event, InputMarker inputMarker) throws Exception {
+    write(event.getJson(), inputMarker);
+  }
+
   boolean isClosed = false;
 
   /**
@@ -24,15 +24,23 @@ import java.util.Map;
 import org.apache.ambari.logfeeder.input.InputMarker;
 
 /**
- * This contains the output json object and InputMarker.
+ * This contains the output json object and InputMarker, and for an event tracked by a spool, the acknowledgement to run
+ * once it is sent.
  */
 public class OutputData {
   public final Map<String, Object> jsonObj;
   public final InputMarker inputMarker;
+  public final Runnable acknowledgement;
+  public final long createNanoTime = System.nanoTime();
 
   public OutputData(Map<String, Object> jsonObj, InputMarker inputMarker) {
+    this(jsonObj, inputMarker, null);
+  }
+
+  public OutputData(Map<String, Object> jsonObj, InputMarker inputMarker, Runnable acknowledgement) {
     this.jsonObj = jsonObj;
     this.inputMarker = inputMarker;
+    this.acknowledgement = acknowledgement;
   }
 
   @Override
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ambari.logfeeder.output;
+
+import java.util.Map;
+
+import org.apache.ambari.logfeeder.util.LogFeederUtil;
+
+/**
+ * An event written to all the outputs of an input. Its JSON form is serialized once, by the first output needing it.
+ */
+public class OutputEvent {
+  private final Map<String, Object> jsonObj;
+  private String json;
+
+  public OutputEvent(Map<String, Object> jsonObj) {
+    this.jsonObj = jsonObj;
+  }
+
+  public Map<String, Object> getJsonObj() {
+    return jsonObj;
+  }
+
+  public String getJson() {
+    if (json == null) {
+      json = LogFeederUtil.getGson().toJson(jsonObj);
+    }
+    return json;
+  }
+}
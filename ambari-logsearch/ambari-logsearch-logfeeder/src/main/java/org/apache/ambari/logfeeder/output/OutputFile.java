@@ -27,7 +27,6 @@ import java.io.PrintWriter;
 import java.util.Map;
 
 import org.apache.ambari.logfeeder.input.InputMarker;
-import org.apache.ambari.logfeeder.util.LogFeederUtil;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 import org.apache.commons.lang3.StringUtils;
@@ -91,6 +90,11 @@ public class OutputFile extends Output {
 
   @Override
   public void write(Map<String, Object> jsonObj, InputMarker inputMarker) throws Exception {
+    write(new OutputEvent(jsonObj), inputMarker);
+  }
+
+  @Override
+  public void write(OutputEvent event, InputMarker inputMarker) throws Exception {
     String outStr = null;
     CSVPrinter csvPrinter = null;
     try {
@@ -98,7 +102,7 @@ public class OutputFile extends Output {
         csvPrinter = new CSVPrinter(outWriter, CSVFormat.RFC4180);
         //TODO:
       } else {
-        outStr = LogFeederUtil.getGson().toJson(jsonObj);
+        outStr = event.getJson();
       }
       if (outWriter != null && outStr != null) {
         statMetric.value++;
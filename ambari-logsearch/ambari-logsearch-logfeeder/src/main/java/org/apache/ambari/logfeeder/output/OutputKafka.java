@@ -20,37 +20,64 @@
 package org.apache.ambari.logfeeder.output;
 
 import java.io.File;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedTransferQueue;
 
 import org.apache.ambari.logfeeder.input.InputMarker;
+import org.apache.ambari.logfeeder.metrics.MetricData;
+import org.apache.ambari.logfeeder.output.spool.OutputSpool;
+import org.apache.ambari.logfeeder.util.LogFeederPropertiesUtil;
 import org.apache.ambari.logfeeder.util.LogFeederUtil;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Writes the events to a Kafka topic. By default the events are sent asynchronously, batched and compressed by the
+ * producer, keyed by their host and type, so the events of a log file go to the same partition in order. The input
+ * markers of the events are checked in once the broker acknowledges them, see {@link PendingInputMarkers}.
+ */
 public class OutputKafka extends Output {
   private static final Logger LOG = Logger.getLogger(OutputKafka.class);
 
   private static final int FAILED_RETRY_INTERVAL = 30;
   private static final int CATCHUP_RETRY_INTERVAL = 5;
 
-  private static final int DEFAULT_BATCH_SIZE = 5000;
+  private static final int DEFAULT_BATCH_SIZE = 64 * 1024; // bytes per partition
   private static final int DEFAULT_LINGER_MS = 1000;
+  private static final String DEFAULT_COMPRESSION_TYPE = "snappy";
+  private static final String DEFAULT_KEY_FIELDS = "host,type";
+  private static final boolean DEFAULT_DURABLE_SPOOL = false;
+  private static final int DEFAULT_SPOOL_MAX_MB = 1024;
+  private static final int DEFAULT_SPOOL_SEGMENT_MB = 16;
+  private static final int DEFAULT_SPOOL_REPLAY_RATE = 0;
 
   private String topic = null;
   private boolean isAsync = true;
   private long messageCount = 0;
+  private String[] keyFields = null;
 
-  private KafkaProducer<String, String> producer = null;
+  private Producer<String, String> producer = null;
   private BlockingQueue<KafkaCallBack> failedMessages = new LinkedTransferQueue<KafkaCallBack>();
+  private PendingInputMarkers pendingInputMarkers = new PendingInputMarkers();
+  private OutputSpool spool = null;
+
+  private Type spooledEventType = new TypeToken<Map<String, Object>>() {}.getType();
+
+  private MetricData pendingMetric = new MetricData("output.kafka.pending_logs", true, null, true);
 
   // Let's start with the assumption Kafka is down
   private boolean isKafkaBrokerUp = false;
@@ -72,6 +99,7 @@ public class OutputKafka extends Output {
 
     producer = creteKafkaProducer(props);
     createKafkaRetryThread();
+    createSpool();
   }
 
   private Properties initProperties() throws Exception {
@@ -88,13 +116,15 @@ public class OutputKafka extends Output {
     isAsync = getBooleanValue("is_async", true);
     int batchSize = getIntValue("batch_size", DEFAULT_BATCH_SIZE);
     int lingerMS = getIntValue("linger_ms", DEFAULT_LINGER_MS);
+    String compressionType = getStringValue("compression_type", DEFAULT_COMPRESSION_TYPE);
+    keyFields = StringUtils.split(getStringValue("key_fields", DEFAULT_KEY_FIELDS), ", ");
 
     Properties props = new Properties();
     props.put("bootstrap.servers", brokerList);
     props.put("client.id", "logfeeder_producer");
     props.put("key.serializer", StringSerializer.class.getName());
     props.put("value.serializer", StringSerializer.class.getName());
-    props.put("compression.type", "snappy");
+    props.put("compression.type", compressionType);
     props.put("batch.size", batchSize);
     props.put("linger.ms", lingerMS);
 
@@ -113,7 +143,36 @@ public class OutputKafka extends Output {
     return props;
   }
 
-  protected KafkaProducer<String, String> creteKafkaProducer(Properties props) {
+  /**
+   * With durable_spool set, messages are spooled to the disk while Kafka is down, instead of blocking the inputs, and
+   * are replayed synchronously once it is back. The spool doesn't check in the input markers: the checkpoints stay
+   * behind the spooled events until the ones written after them are acknowledged by the broker.
+   */
+  private void createSpool() {
+    if (!getBooleanValue("durable_spool", DEFAULT_DURABLE_SPOOL)) {
+      return;
+    }
+    File spoolDir = new File(LogFeederPropertiesUtil.getLogFeederTempDir(), "spool/kafka/" + topic);
+    long maxBytes = getLongValue("spool_max_mb", DEFAULT_SPOOL_MAX_MB) * 1024 * 1024;
+    long segmentBytes = getLongValue("spool_segment_mb", DEFAULT_SPOOL_SEGMENT_MB) * 1024 * 1024;
+    int replayRate = getIntValue("spool_replay_rate", DEFAULT_SPOOL_REPLAY_RATE);
+    LOG.info("Creating spool at " + spoolDir + ", maxBytes=" + maxBytes + ", segmentBytes=" + segmentBytes +
+        ", replayRate=" + replayRate);
+    spool = new OutputSpool(getShortDescription(), spoolDir, maxBytes, segmentBytes, replayRate, new OutputSpool.Sink() {
+      @Override
+      public void replay(String event, Runnable acknowledgement) throws Exception {
+        String key = keyFields.length == 0 ? null : getKey(LogFeederUtil.getGson().<Map<String, Object>>fromJson(event,
+            spooledEventType));
+        while (!publishSync(key, event)) {
+          LOG.error("Kafka is down. Going to sleep for " + FAILED_RETRY_INTERVAL + " seconds before replaying the spool");
+          Thread.sleep(FAILED_RETRY_INTERVAL * 1000);
+        }
+        acknowledgement.run();
+      }
+    });
+  }
+
+  protected Producer<String, String> creteKafkaProducer(Properties props) {
     return new KafkaProducer<String, String>(props);
   }
 
@@ -128,7 +187,7 @@ public class OutputKafka extends Output {
             if (kafkaCallBack == null) {
               kafkaCallBack = failedMessages.take();
             }
-            if (publishMessage(kafkaCallBack.message, kafkaCallBack.inputMarker)) {
+            if (publishMessage(kafkaCallBack)) {
               kafkaCallBack = null;
             } else {
               LOG.error("Kafka is down. messageNumber=" + kafkaCallBack.thisMessageNumber + ". Going to sleep for " +
@@ -150,11 +209,49 @@ public class OutputKafka extends Output {
   }
 
   @Override
-  public synchronized void write(String block, InputMarker inputMarker) throws Exception {
+  public void write(OutputEvent event, InputMarker inputMarker) throws Exception {
+    write(getKey(event.getJsonObj()), event.getJson(), inputMarker);
+  }
+
+  @Override
+  public void write(Map<String, Object> jsonObj, InputMarker inputMarker) throws Exception {
+    write(getKey(jsonObj), LogFeederUtil.getGson().toJson(jsonObj), inputMarker);
+  }
+
+  @Override
+  public void write(String block, InputMarker inputMarker) throws Exception {
+    write(null, block, inputMarker);
+  }
+
+  /**
+   * @return the key of the record of the event, made of its key fields, or null if there are none configured
+   */
+  private String getKey(Map<String, Object> jsonObj) {
+    if (keyFields.length == 0) {
+      return null;
+    }
+    StringBuilder key = new StringBuilder();
+    for (int i = 0; i < keyFields.length; i++) {
+      if (i > 0) {
+        key.append('/');
+      }
+      key.append(jsonObj.get(keyFields[i]));
+    }
+    return key.toString();
+  }
+
+  private synchronized void write(String key, String block, InputMarker inputMarker) throws Exception {
+    if (spool != null) {
+      // once messages are spooled, the following ones are spooled too, so they are replayed in order
+      if (!spool.isEmpty() || failedMessages.size() > 0 || !publishMessage(key, block, inputMarker)) {
+        spool.add(block, null);
+      }
+      return;
+    }
     while (!isDrain() && !inputMarker.input.isDrain()) {
       try {
         if (failedMessages.size() == 0) {
-          if (publishMessage(block, inputMarker)) {
+          if (publishMessage(key, block, inputMarker)) {
             break;
           }
         }
@@ -190,6 +287,9 @@ public class OutputKafka extends Output {
   public void close() {
     LOG.info("Closing Kafka client...");
     flush();
+    if (spool != null) {
+      spool.close();
+    }
     if (producer != null) {
       try {
         producer.close();
@@ -201,39 +301,66 @@ public class OutputKafka extends Output {
     super.close();
   }
 
-  private boolean publishMessage(String block, InputMarker inputMarker) {
+  private boolean publishMessage(String key, String block, InputMarker inputMarker) {
+    KafkaCallBack kafkaCallBack = new KafkaCallBack(this, key, block, inputMarker, ++messageCount);
+    if (inputMarker != null) {
+      pendingInputMarkers.add(kafkaCallBack.thisMessageNumber, inputMarker);
+    }
+    if (publishMessage(kafkaCallBack)) {
+      return true;
+    }
+    // it is written again, or spooled by the caller
+    if (inputMarker != null) {
+      checkIn(pendingInputMarkers.remove(kafkaCallBack.thisMessageNumber, inputMarker));
+    }
+    return false;
+  }
+
+  private boolean publishMessage(KafkaCallBack kafkaCallBack) {
     if (isAsync && isKafkaBrokerUp) { // Send asynchronously
-      producer.send(new ProducerRecord<String, String>(topic, block), new KafkaCallBack(this, block, inputMarker, ++messageCount));
+      producer.send(new ProducerRecord<String, String>(topic, kafkaCallBack.key, kafkaCallBack.message), kafkaCallBack);
       return true;
-    } else { // Send synchronously
-      try {
-        // Not using key. Let it round robin
-        RecordMetadata metadata = producer.send(new ProducerRecord<String, String>(topic, block)).get();
-        if (metadata != null) {
-          statMetric.value++;
-          writeBytesMetric.value += block.length();
-        }
-        if (!isKafkaBrokerUp) {
-          LOG.info("Started writing to kafka. " + getShortDescription());
-          isKafkaBrokerUp = true;
-        }
-        return true;
-      } catch (InterruptedException e) {
-        isKafkaBrokerUp = false;
-        String logKeyMessage = this.getClass().getSimpleName() + "_KAFKA_INTERRUPT";
-        LogFeederUtil.logErrorMessageByInterval(logKeyMessage, "InterruptedException-Error sending message to Kafka", e, LOG,
-            Level.ERROR);
-      } catch (ExecutionException e) {
-        isKafkaBrokerUp = false;
-        String logKeyMessage = this.getClass().getSimpleName() + "_KAFKA_EXECUTION";
-        LogFeederUtil.logErrorMessageByInterval(logKeyMessage, "ExecutionException-Error sending message to Kafka", e, LOG,
-            Level.ERROR);
-      } catch (Throwable t) {
-        isKafkaBrokerUp = false;
-        String logKeyMessage = this.getClass().getSimpleName() + "_KAFKA_WRITE_ERROR";
-        LogFeederUtil.logErrorMessageByInterval(logKeyMessage, "GenericException-Error sending message to Kafka", t, LOG,
-            Level.ERROR);
+    } else if (publishSync(kafkaCallBack.key, kafkaCallBack.message)) { // Send synchronously
+      kafkaCallBack.acknowledge();
+      return true;
+    }
+    return false;
+  }
+
+  private void checkIn(InputMarker inputMarker) {
+    if (inputMarker != null) {
+      inputMarker.input.checkIn(inputMarker);
+    }
+  }
+
+  private boolean publishSync(String key, String block) {
+    try {
+      // Without a key the records are distributed round robin
+      RecordMetadata metadata = producer.send(new ProducerRecord<String, String>(topic, key, block)).get();
+      if (metadata != null) {
+        statMetric.value++;
+        writeBytesMetric.value += block.length();
+      }
+      if (!isKafkaBrokerUp) {
+        LOG.info("Started writing to kafka. " + getShortDescription());
+        isKafkaBrokerUp = true;
       }
+      return true;
+    } catch (InterruptedException e) {
+      isKafkaBrokerUp = false;
+      String logKeyMessage = this.getClass().getSimpleName() + "_KAFKA_INTERRUPT";
+      LogFeederUtil.logErrorMessageByInterval(logKeyMessage, "InterruptedException-Error sending message to Kafka", e, LOG,
+          Level.ERROR);
+    } catch (ExecutionException e) {
+      isKafkaBrokerUp = false;
+      String logKeyMessage = this.getClass().getSimpleName() + "_KAFKA_EXECUTION";
+      LogFeederUtil.logErrorMessageByInterval(logKeyMessage, "ExecutionException-Error sending message to Kafka", e, LOG,
+          Level.ERROR);
+    } catch (Throwable t) {
+      isKafkaBrokerUp = false;
+      String logKeyMessage = this.getClass().getSimpleName() + "_KAFKA_WRITE_ERROR";
+      LogFeederUtil.logErrorMessageByInterval(logKeyMessage, "GenericException-Error sending message to Kafka", t, LOG,
+          Level.ERROR);
     }
     return false;
   }
@@ -243,20 +370,48 @@ public class OutputKafka extends Output {
     return "output:destination=kafka,topic=" + topic;
   }
 
+  @Override
+  public void addMetricsContainers(List<MetricData> metricsList) {
+    super.addMetricsContainers(metricsList);
+    pendingMetric.value = pendingInputMarkers.size();
+    metricsList.add(pendingMetric);
+    if (spool != null) {
+      spool.addMetricsContainers(metricsList);
+    }
+  }
+
+  @Override
+  public synchronized void logStat() {
+    super.logStat();
+    pendingMetric.value = pendingInputMarkers.size();
+    logStatForMetric(pendingMetric, "Stat: Pending Acknowledgement");
+    if (spool != null) {
+      spool.logStat(", key=" + getShortDescription());
+    }
+  }
+
   class KafkaCallBack implements Callback {
 
     private long thisMessageNumber;
     private OutputKafka output = null;
+    private String key;
     private String message;
     private InputMarker inputMarker;
 
-    public KafkaCallBack(OutputKafka output, String message, InputMarker inputMarker, long messageCount) {
+    public KafkaCallBack(OutputKafka output, String key, String message, InputMarker inputMarker, long messageCount) {
       this.thisMessageNumber = messageCount;
       this.output = output;
       this.inputMarker = inputMarker;
+      this.key = key;
       this.message = message;
     }
 
+    void acknowledge() {
+      if (inputMarker != null) {
+        output.checkIn(output.pendingInputMarkers.acknowledge(thisMessageNumber, inputMarker));
+      }
+    }
+
     public void onCompletion(RecordMetadata metadata, Exception exception) {
       if (metadata != null) {
         if (!output.isKafkaBrokerUp) {
@@ -265,6 +420,7 @@ public class OutputKafka extends Output {
         }
         output.incrementStat(1);
         output.writeBytesMetric.value += message.length();
+        acknowledge();
       } else {
         output.isKafkaBrokerUp = false;
         String logKeyMessage = this.getClass().getSimpleName() + "_KAFKA_ASYNC_ERROR";
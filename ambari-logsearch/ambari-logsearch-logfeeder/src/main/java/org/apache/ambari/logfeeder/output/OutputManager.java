@@ -31,6 +31,7 @@ import org.apache.ambari.logfeeder.input.Input;
 import org.apache.ambari.logfeeder.input.InputMarker;
 import org.apache.ambari.logfeeder.loglevelfilter.FilterLogData;
 import org.apache.ambari.logfeeder.metrics.MetricData;
+import org.apache.ambari.logfeeder.util.EventHashUtil;
 import org.apache.ambari.logfeeder.util.LogFeederUtil;
 import org.apache.ambari.logfeeder.util.MurmurHash;
 import org.apache.ambari.logsearch.config.api.OutputConfigMonitor;
@@ -119,12 +120,12 @@ public class OutputManager {
         }
       }
       
-      Long eventMD5 = MurmurHash.hash64A(LogFeederUtil.getGson().toJson(jsonObj).getBytes(), HASH_SEED);
+      String eventMD5 = prefix + EventHashUtil.hash64A(jsonObj, HASH_SEED);
       if (input.isGenEventMD5()) {
-        jsonObj.put("event_md5", prefix + eventMD5.toString());
+        jsonObj.put("event_md5", eventMD5);
       }
       if (input.isUseEventMD5()) {
-        jsonObj.put("id", prefix + eventMD5.toString());
+        jsonObj.put("id", eventMD5);
       }
     }
 
@@ -141,32 +142,40 @@ public class OutputManager {
     if (jsonObj.containsKey("log_message")) {
       // TODO: Let's check size only for log_message for now
       String logMessage = (String) jsonObj.get("log_message");
-      logMessage = truncateLongLogMessage(jsonObj, input, logMessage);
+      byte[] logMessageBytes = truncateLongLogMessage(jsonObj, input, logMessage);
       if (addMessageMD5) {
-        jsonObj.put("message_md5", "" + MurmurHash.hash64A(logMessage.getBytes(), 31174077));
+        jsonObj.put("message_md5", "" + MurmurHash.hash64A(logMessageBytes, 31174077));
       }
     }
     if (FilterLogData.INSTANCE.isAllowed(jsonObj, inputMarker)
       && !outputLineFilter.apply(jsonObj, inputMarker.input)) {
+      OutputEvent event = new OutputEvent(jsonObj);
+      long startTime = System.nanoTime();
       for (Output output : input.getOutputList()) {
         try {
-          output.write(jsonObj, inputMarker);
+          output.write(event, inputMarker);
         } catch (Exception e) {
           LOG.error("Error writing. to " + output.getShortDescription(), e);
         }
       }
+      input.addOutputTime(System.nanoTime() - startTime);
     }
   }
 
+  /**
+   * @return the bytes of the log message after truncation
+   */
   @SuppressWarnings("unchecked")
-  private String truncateLongLogMessage(Map<String, Object> jsonObj, Input input, String logMessage) {
-    if (logMessage != null && logMessage.getBytes().length > MAX_OUTPUT_SIZE) {
+  private byte[] truncateLongLogMessage(Map<String, Object> jsonObj, Input input, String logMessage) {
+    byte[] logMessageBytes = logMessage.getBytes();
+    if (logMessageBytes.length > MAX_OUTPUT_SIZE) {
       messageTruncateMetric.value++;
       String logMessageKey = this.getClass().getSimpleName() + "_MESSAGESIZE";
-      LogFeederUtil.logErrorMessageByInterval(logMessageKey, "Message is too big. size=" + logMessage.getBytes().length +
+      LogFeederUtil.logErrorMessageByInterval(logMessageKey, "Message is too big. size=" + logMessageBytes.length +
           ", input=" + input.getShortDescription() + ". Truncating to " + MAX_OUTPUT_SIZE + ", first upto 100 characters=" +
           StringUtils.abbreviate(logMessage, 100), null, LOG, Level.WARN);
-      logMessage = new String(logMessage.getBytes(), 0, MAX_OUTPUT_SIZE);
+      logMessage = new String(logMessageBytes, 0, MAX_OUTPUT_SIZE);
+      logMessageBytes = logMessage.getBytes();
       jsonObj.put("log_message", logMessage);
       List<String> tagsList = (List<String>) jsonObj.get("tags");
       if (tagsList == null) {
@@ -175,11 +184,12 @@ public class OutputManager {
       }
       tagsList.add("error_message_truncated");
     }
-    return logMessage;
+    return logMessageBytes;
   }
 
   public void write(String jsonBlock, InputMarker inputMarker) {
     if (FilterLogData.INSTANCE.isAllowed(jsonBlock, inputMarker)) {
+      long startTime = System.nanoTime();
       for (Output output : inputMarker.input.getOutputList()) {
         try {
           output.write(jsonBlock, inputMarker);
@@ -187,6 +197,7 @@ public class OutputManager {
           LOG.error("Error writing. to " + output.getShortDescription(), e);
         }
       }
+      inputMarker.input.addOutputTime(System.nanoTime() - startTime);
     }
   }
 
@@ -24,8 +24,8 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +36,9 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.ambari.logfeeder.input.InputMarker;
+import org.apache.ambari.logfeeder.metrics.Histogram;
+import org.apache.ambari.logfeeder.metrics.MetricData;
+import org.apache.ambari.logfeeder.output.spool.OutputSpool;
 import org.apache.ambari.logfeeder.util.DateUtil;
 import org.apache.ambari.logfeeder.util.LogFeederPropertiesUtil;
 import org.apache.ambari.logfeeder.util.LogFeederUtil;
@@ -56,6 +59,7 @@ import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.cloud.CollectionStateWatcher;
 import org.apache.solr.common.cloud.DocCollection;
 
+
 public class OutputSolr extends Output implements CollectionStateWatcher {
 
   private static final Logger LOG = Logger.getLogger(OutputSolr.class);
@@ -65,10 +69,16 @@ public class OutputSolr extends Output implements CollectionStateWatcher {
 
   private static final int DEFAULT_MAX_BUFFER_SIZE = 5000;
   private static final int DEFAULT_MAX_INTERVAL_MS = 3000;
+  private static final int DEFAULT_TARGET_LATENCY_MS = 1000;
   private static final int DEFAULT_NUMBER_OF_WORKERS = 1;
   private static final boolean DEFAULT_SKIP_LOGTIME = false;
+  private static final boolean DEFAULT_DURABLE_SPOOL = false;
+  private static final int DEFAULT_SPOOL_MAX_MB = 1024;
+  private static final int DEFAULT_SPOOL_SEGMENT_MB = 16;
+  private static final int DEFAULT_SPOOL_REPLAY_RATE = 0;
 
-  private static final int RETRY_INTERVAL = 30;
+  private static final int MIN_RETRY_INTERVAL_MS = 1000;
+  private static final int MAX_RETRY_INTERVAL_MS = 30000;
 
   private String type;
   private String collection;
@@ -77,6 +87,7 @@ public class OutputSolr extends Output implements CollectionStateWatcher {
   private List<String> shards;
   private String zkConnectString;
   private int maxIntervalMS;
+  private int targetLatencyMS;
   private int workers;
   private int maxBufferSize;
   private boolean isComputeCurrentCollection = false;
@@ -87,6 +98,14 @@ public class OutputSolr extends Output implements CollectionStateWatcher {
 
   private BlockingQueue<OutputData> outgoingBuffer = null;
   private List<SolrWorkerThread> workerThreadList = new ArrayList<>();
+  private OutputSpool spool = null;
+
+  private MetricData queueSizeMetric = new MetricData("output.solr.queue_size", true, null, true);
+  private MetricData batchesMetric = new MetricData("output.solr.batches", false);
+  private MetricData indexTimeMetric = new MetricData("output.solr.index_time_ms", false);
+  private MetricData queueTimeP95Metric = new MetricData("output.solr.queue_time_ms.p95", true);
+  private MetricData queueTimeP99Metric = new MetricData("output.solr.queue_time_ms.p99", true);
+  private final Histogram queueTime = new Histogram();
 
   @Override
   public boolean monitorConfigChanges() {
@@ -116,6 +135,7 @@ public class OutputSolr extends Output implements CollectionStateWatcher {
     createOutgoingBuffer();
     createSolrStateWatcher();
     createSolrWorkers();
+    createSpool();
   }
 
   private void initParams() throws Exception {
@@ -139,6 +159,7 @@ public class OutputSolr extends Output implements CollectionStateWatcher {
     skipLogtime = getBooleanValue("skip_logtime", DEFAULT_SKIP_LOGTIME);
 
     maxIntervalMS = getIntValue("idle_flush_time_ms", DEFAULT_MAX_INTERVAL_MS);
+    targetLatencyMS = getIntValue("target_latency_ms", DEFAULT_TARGET_LATENCY_MS);
     workers = getIntValue("workers", DEFAULT_NUMBER_OF_WORKERS);
 
     maxBufferSize = getIntValue("flush_size", DEFAULT_MAX_BUFFER_SIZE);
@@ -147,8 +168,8 @@ public class OutputSolr extends Output implements CollectionStateWatcher {
       maxBufferSize = 1;
     }
 
-    LOG.info(String.format("Config: Number of workers=%d, splitMode=%s, splitInterval=%d."
-        + getShortDescription(), workers, splitMode, splitInterval));
+    LOG.info(String.format("Config: Number of workers=%d, splitMode=%s, splitInterval=%d, flushSize=%d, targetLatencyMS=%d."
+        + getShortDescription(), workers, splitMode, splitInterval, maxBufferSize, targetLatencyMS));
   }
 
   @Override
@@ -184,12 +205,83 @@ public class OutputSolr extends Output implements CollectionStateWatcher {
     }
   }
 
+  /**
+   * The buffer is bounded, so when Solr can't keep up the inputs block on writing to it, and stop reading their files
+   * until the workers catch up.
+   */
   private void createOutgoingBuffer() {
     int bufferSize = maxBufferSize * (workers + 3);
     LOG.info("Creating blocking queue with bufferSize=" + bufferSize);
     outgoingBuffer = new LinkedBlockingQueue<OutputData>(bufferSize);
   }
 
+  /**
+   * With durable_spool set, events which don't fit into the outgoing buffer are spooled to the disk instead of
+   * blocking the inputs, and are replayed through the buffer as the workers catch up.
+   */
+  private void createSpool() {
+    if (!getBooleanValue("durable_spool", DEFAULT_DURABLE_SPOOL)) {
+      return;
+    }
+    File spoolDir = getSpoolDir();
+    long maxBytes = getLongValue("spool_max_mb", DEFAULT_SPOOL_MAX_MB) * 1024 * 1024;
+    long segmentBytes = getLongValue("spool_segment_mb", DEFAULT_SPOOL_SEGMENT_MB) * 1024 * 1024;
+    int replayRate = getIntValue("spool_replay_rate", DEFAULT_SPOOL_REPLAY_RATE);
+    LOG.info("Creating spool at " + spoolDir + ", maxBytes=" + maxBytes + ", segmentBytes=" + segmentBytes +
+        ", replayRate=" + replayRate);
+    spool = new OutputSpool(getShortDescription(), spoolDir, maxBytes, segmentBytes, replayRate, new OutputSpool.Sink() {
+      @Override
+      public void replay(String event, Runnable acknowledgement) throws Exception {
+        outgoingBuffer.put(new OutputData(fromSpooledEvent(event), null, acknowledgement));
+      }
+    });
+  }
+
+  File getSpoolDir() {
+    return new File(LogFeederPropertiesUtil.getLogFeederTempDir(), "spool/solr/" + collection);
+  }
+
+  /**
+   * The form of an event in the spool. Dates, e.g. the logtime set by the date mappers, are held apart as epoch
+   * milliseconds, as Gson would write them as strings which Solr doesn't take for date fields.
+   */
+  private static class SpooledEvent {
+    private Map<String, Object> fields = new HashMap<>();
+    private Map<String, Long> dates = new HashMap<>();
+  }
+
+  private String toSpooledEvent(Map<String, Object> jsonObj) {
+    SpooledEvent spooledEvent = new SpooledEvent();
+    for (Map.Entry<String, Object> entry : jsonObj.entrySet()) {
+      if (entry.getValue() instanceof Date) {
+        spooledEvent.dates.put(entry.getKey(), ((Date) entry.getValue()).getTime());
+      } else {
+        spooledEvent.fields.put(entry.getKey(), entry.getValue());
+      }
+    }
+    return LogFeederUtil.getGson().toJson(spooledEvent);
+  }
+
+  /**
+   * Numbers are read back from the JSON form of a spooled event as doubles, so the integral ones are restored as longs.
+   */
+  private Map<String, Object> fromSpooledEvent(String event) {
+    SpooledEvent spooledEvent = LogFeederUtil.getGson().fromJson(event, SpooledEvent.class);
+    Map<String, Object> jsonObj = spooledEvent.fields;
+    for (Map.Entry<String, Object> entry : jsonObj.entrySet()) {
+      if (entry.getValue() instanceof Double) {
+        double value = (Double) entry.getValue();
+        if (value == Math.rint(value) && Math.abs(value) < Long.MAX_VALUE) {
+          entry.setValue((long) value);
+        }
+      }
+    }
+    for (Map.Entry<String, Long> entry : spooledEvent.dates.entrySet()) {
+      jsonObj.put(entry.getKey(), new Date(entry.getValue()));
+    }
+    return jsonObj;
+  }
+
   private void createSolrStateWatcher() throws Exception {
     if ("none".equals(splitMode)) {
       return;
@@ -268,17 +360,40 @@ public class OutputSolr extends Output implements CollectionStateWatcher {
     workerThreadList.add(solrWorkerThread);
   }
 
+  @Override
+  public void write(OutputEvent event, InputMarker inputMarker) throws Exception {
+    write(event.getJsonObj(), inputMarker);
+  }
+
   @Override
   public void write(Map<String, Object> jsonObj, InputMarker inputMarker) throws Exception {
     try {
       trimStrValue(jsonObj);
       useActualDateIfNeeded(jsonObj);
-      outgoingBuffer.put(new OutputData(jsonObj, inputMarker));
+      if (spool == null) {
+        outgoingBuffer.put(new OutputData(jsonObj, inputMarker));
+      } else if (!spool.isEmpty() || !offerDirect(jsonObj, inputMarker)) {
+        // once events are spooled, the following ones are spooled too, so they are replayed in order
+        spool.add(toSpooledEvent(jsonObj), inputMarker);
+      }
     } catch (InterruptedException e) {
       // ignore
     }
   }
 
+  /**
+   * Hands the event to the workers if the outgoing buffer has room for it. The spool holds back the check in of the
+   * spooled events until the event is sent.
+   */
+  private boolean offerDirect(Map<String, Object> jsonObj, InputMarker inputMarker) {
+    Runnable acknowledgement = spool.addDirectEvent();
+    if (outgoingBuffer.offer(new OutputData(jsonObj, inputMarker, acknowledgement))) {
+      return true;
+    }
+    acknowledgement.run();
+    return false;
+  }
+
   private void useActualDateIfNeeded(Map<String, Object> jsonObj) {
     if (skipLogtime) {
       jsonObj.put("logtime", DateUtil.getActualDateStr());
@@ -333,9 +448,58 @@ public class OutputSolr extends Output implements CollectionStateWatcher {
     return pendingCount;
   }
 
+  @Override
+  public void addMetricsContainers(List<MetricData> metricsList) {
+    super.addMetricsContainers(metricsList);
+    queueSizeMetric.value = outgoingBuffer.size() + getPendingCount();
+    metricsList.add(queueSizeMetric);
+    metricsList.add(batchesMetric);
+    metricsList.add(indexTimeMetric);
+    metricsList.add(queueTimeP95Metric);
+    metricsList.add(queueTimeP99Metric);
+    if (spool != null) {
+      spool.addMetricsContainers(metricsList);
+    }
+  }
+
+  /**
+   * The metrics are updated by all the workers.
+   */
+  private synchronized void addBatchMetrics(int documents, long latencyMS) {
+    statMetric.value += documents;
+    batchesMetric.value++;
+    indexTimeMetric.value += latencyMS;
+  }
+
+  private synchronized void addWriteBytes(long bytes) {
+    writeBytesMetric.value += bytes;
+  }
+
+  @Override
+  public synchronized void logStat() {
+    super.logStat();
+    queueSizeMetric.value = outgoingBuffer.size() + getPendingCount();
+    logStatForMetric(queueSizeMetric, "Stat: Queue Size");
+    logStatForMetric(batchesMetric, "Stat: Batches Sent");
+    logStatForMetric(indexTimeMetric, "Stat: Indexing Time ms");
+    Histogram.Snapshot queueTimeSnapshot = queueTime.intervalSnapshot();
+    queueTimeP95Metric.value = queueTimeSnapshot.getPercentile(0.95);
+    queueTimeP99Metric.value = queueTimeSnapshot.getPercentile(0.99);
+    if (queueTimeSnapshot.getCount() > 0) {
+      LOG.info("Stat: Queue Time ms: p95=" + queueTimeP95Metric.value + ", p99=" + queueTimeP99Metric.value + ", key=" +
+          getShortDescription());
+    }
+    if (spool != null) {
+      spool.logStat(", key=" + getShortDescription());
+    }
+  }
+
   @Override
   public void close() {
     LOG.info("Closing Solr client...");
+    if (spool != null) {
+      spool.close();
+    }
     flush();
 
     LOG.info("Closed Solr client");
@@ -351,8 +515,11 @@ public class OutputSolr extends Output implements CollectionStateWatcher {
     private static final String ROUTER_FIELD = "_router_field_";
 
     private final SolrClient solrClient;
-    private final Collection<SolrInputDocument> localBuffer = new ArrayList<>();
+    private final List<SolrInputDocument> localBuffer = new ArrayList<>();
     private final Map<String, InputMarker> latestInputMarkers = new HashMap<>();
+    private final List<Runnable> acknowledgements = new ArrayList<>();
+
+    private final AdaptiveBatch batch = new AdaptiveBatch(maxBufferSize, maxIntervalMS, targetLatencyMS);
 
     private long localBufferBytesSize = 0;
 
@@ -369,7 +536,7 @@ public class OutputSolr extends Output implements CollectionStateWatcher {
         long currTimeMS = System.currentTimeMillis();
         OutputData outputData = null;
         try {
-          long nextDispatchDuration = maxIntervalMS - (currTimeMS - lastDispatchTime);
+          long nextDispatchDuration = batch.getLingerMS() - (currTimeMS - lastDispatchTime);
           outputData = getOutputData(nextDispatchDuration);
 
           if (outputData != null) {
@@ -381,7 +548,7 @@ public class OutputSolr extends Output implements CollectionStateWatcher {
           }
 
           if (!localBuffer.isEmpty() &&
-              (outputData == null && isDrain() || nextDispatchDuration <= 0 || localBuffer.size() >= maxBufferSize)
+              (outputData == null && isDrain() || nextDispatchDuration <= 0 || localBuffer.size() >= batch.getSize())
              ) {
             boolean response = sendToSolr(outputData);
             if (isDrain() && !response) {
@@ -417,7 +584,11 @@ public class OutputSolr extends Output implements CollectionStateWatcher {
      */
     private boolean sendToSolr(OutputData outputData) {
       boolean result = false;
+      long retryIntervalMS = MIN_RETRY_INTERVAL_MS;
       while (!isDrain()) {
+        // after a failure the batch size shrinks, so the pending documents are sent in smaller parts
+        List<SolrInputDocument> documents = localBuffer.size() > batch.getSize() ?
+            localBuffer.subList(0, batch.getSize()) : localBuffer;
         try {
           synchronized (propertiesLock) {
             if (isComputeCurrentCollection) {
@@ -425,38 +596,84 @@ public class OutputSolr extends Output implements CollectionStateWatcher {
               addRouterField();
             }
           }
-          addToSolr(outputData);
-          resetLocalBuffer();
-          //Send successful, will return 
-          result = true;
-          break;
-        } catch (IOException | SolrException exception) {
-          // Transient error, lets block till it is available
-          try {
-            LOG.warn("Solr is not reachable. Going to retry after " + RETRY_INTERVAL + " seconds. " + "output="
-                + getShortDescription(), exception);
-            Thread.sleep(RETRY_INTERVAL * 1000);
-          } catch (Throwable t) {
-            // ignore
+          long startTimeMS = System.currentTimeMillis();
+          addToSolr(outputData, documents);
+          long latencyMS = System.currentTimeMillis() - startTimeMS;
+          addBatchMetrics(documents.size(), latencyMS);
+          batch.adapt(latencyMS);
+        } catch (SolrException exception) {
+          if (!isRejected(exception)) {
+            retryIntervalMS = waitForRetry(exception, retryIntervalMS);
+            continue;
           }
+          // Solr would reject the same documents again, e.g. the ones not matching the schema, so they are dropped
+          String logMessageKey = this.getClass().getSimpleName() + "_SOLR_REJECTED";
+          LogFeederUtil.logErrorMessageByInterval(logMessageKey, "Solr rejected " + documents.size() +
+              " log messages. Dropping them. output=" + getShortDescription(), exception, LOG, Level.ERROR);
+        } catch (IOException exception) {
+          retryIntervalMS = waitForRetry(exception, retryIntervalMS);
+          continue;
         } catch (Throwable serverException) {
           // Something unknown happened. Let's not block because of this error. 
           // Clear the buffer
           String logMessageKey = this.getClass().getSimpleName() + "_SOLR_UPDATE_EXCEPTION";
           LogFeederUtil.logErrorMessageByInterval(logMessageKey, "Error sending log message to server. Dropping logs",
               serverException, LOG, Level.ERROR);
+          acknowledge();
           resetLocalBuffer();
           break;
         }
+        if (documents.size() < localBuffer.size()) {
+          documents.clear();
+          retryIntervalMS = MIN_RETRY_INTERVAL_MS;
+          continue;
+        }
+        addWriteBytes(localBufferBytesSize);
+        checkIn();
+        resetLocalBuffer();
+        //Send successful, will return 
+        result = true;
+        break;
       } 
       return result;
     }
 
+    /**
+     * Client errors are not retried, as the same request would fail again. Authentication and authorization errors
+     * are the exception, as they go away once the credentials or the permissions are fixed, and so does a collection
+     * which is not found yet.
+     */
+    private boolean isRejected(SolrException exception) {
+      int code = exception.code();
+      return code >= 400 && code < 500 && code != SolrException.ErrorCode.UNAUTHORIZED.code &&
+          code != SolrException.ErrorCode.FORBIDDEN.code && code != SolrException.ErrorCode.NOT_FOUND.code;
+    }
+
+    /**
+     * Transient error, lets block till it is available, backing off while it is not.
+     *
+     * @return the next retry interval
+     */
+    private long waitForRetry(Exception exception, long retryIntervalMS) {
+      batch.shrink();
+      try {
+        LOG.warn("Solr is not reachable. Going to retry after " + retryIntervalMS + " ms. " + "output="
+            + getShortDescription(), exception);
+        Thread.sleep(retryIntervalMS);
+      } catch (Throwable t) {
+        // ignore
+      }
+      return Math.min(retryIntervalMS * 2, MAX_RETRY_INTERVAL_MS);
+    }
+
     private OutputData getOutputData(long nextDispatchDuration) throws InterruptedException {
       OutputData outputData = outgoingBuffer.poll();
       if (outputData == null && !isDrain() && nextDispatchDuration > 0) {
         outputData = outgoingBuffer.poll(nextDispatchDuration, TimeUnit.MILLISECONDS);
       }
+      if (outputData != null) {
+        queueTime.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - outputData.createNanoTime));
+      }
       if (outputData != null && outputData.jsonObj.get("id") == null) {
         outputData.jsonObj.put("id", UUID.randomUUID().toString());
       }
@@ -476,7 +693,12 @@ public class OutputSolr extends Output implements CollectionStateWatcher {
               Level.ERROR);
         }
       }
-      latestInputMarkers.put(outputData.inputMarker.base64FileKey, outputData.inputMarker);
+      if (outputData.inputMarker != null) {
+        latestInputMarkers.put(outputData.inputMarker.base64FileKey, outputData.inputMarker);
+      }
+      if (outputData.acknowledgement != null) {
+        acknowledgements.add(outputData.acknowledgement);
+      }
       localBuffer.add(document);
     }
 
@@ -501,18 +723,32 @@ public class OutputSolr extends Output implements CollectionStateWatcher {
       }
     }
 
-    private void addToSolr(OutputData outputData) throws SolrServerException, IOException {
-      UpdateResponse response = solrClient.add(localBuffer);
+    private void addToSolr(OutputData outputData, List<SolrInputDocument> documents)
+        throws SolrServerException, IOException {
+      UpdateResponse response = solrClient.add(documents);
       if (response.getStatus() != 0) {
         String logMessageKey = this.getClass().getSimpleName() + "_SOLR_UPDATE_ERROR";
         LogFeederUtil.logErrorMessageByInterval(logMessageKey,
             String.format("Error writing to Solr. response=%s, log=%s", response, outputData), null, LOG, Level.ERROR);
       }
-      statMetric.value += localBuffer.size();
-      writeBytesMetric.value += localBufferBytesSize;
+    }
+
+    /**
+     * The inputs are checked in, and the events tracked by the spool acknowledged, only once all the pending documents
+     * are sent.
+     */
+    private void checkIn() {
       for (InputMarker inputMarker : latestInputMarkers.values()) {
         inputMarker.input.checkIn(inputMarker);
       }
+      acknowledge();
+    }
+
+    private void acknowledge() {
+      for (Runnable acknowledgement : acknowledgements) {
+        acknowledgement.run();
+      }
+      acknowledgements.clear();
     }
 
     private void closeSolrClient() {
@@ -529,6 +765,7 @@ public class OutputSolr extends Output implements CollectionStateWatcher {
       localBuffer.clear();
       localBufferBytesSize = 0;
       latestInputMarkers.clear();
+      acknowledgements.clear();
     }
 
     public boolean isDone() {
@@ -536,6 +773,55 @@ public class OutputSolr extends Output implements CollectionStateWatcher {
     }
   }
 
+  /**
+   * Adapts the size of the batches sent to Solr, and how long to wait for a batch to fill, to the latency of Solr.
+   * <p>
+   * Batches indexed faster than half the target latency grow by a quarter, up to the flush size, while the ones slower
+   * than the target, or failing, halve the size, so a struggling Solr gets smaller requests. Partial batches are sent
+   * after twice the last latency, between {@link #MIN_LINGER_MS} and the idle flush time: a fast Solr gets the logs
+   * soon, a slow one gets fewer, fuller requests.
+   */
+  static class AdaptiveBatch {
+    static final int MIN_SIZE = 10;
+    static final long MIN_LINGER_MS = 100;
+
+    private final int maxSize;
+    private final long maxLingerMS;
+    private final long targetLatencyMS;
+
+    private int size;
+    private long lingerMS;
+
+    AdaptiveBatch(int maxSize, long maxLingerMS, long targetLatencyMS) {
+      this.maxSize = maxSize;
+      this.maxLingerMS = maxLingerMS;
+      this.targetLatencyMS = targetLatencyMS;
+      this.size = maxSize;
+      this.lingerMS = maxLingerMS;
+    }
+
+    void adapt(long latencyMS) {
+      if (latencyMS > targetLatencyMS) {
+        shrink();
+      } else if (latencyMS < targetLatencyMS / 2) {
+        size = Math.min(maxSize, size + Math.max(1, size / 4));
+      }
+      lingerMS = Math.max(Math.min(MIN_LINGER_MS, maxLingerMS), Math.min(maxLingerMS, latencyMS * 2));
+    }
+
+    void shrink() {
+      size = Math.max(Math.min(MIN_SIZE, maxSize), size / 2);
+    }
+
+    int getSize() {
+      return size;
+    }
+
+    long getLingerMS() {
+      return lingerMS;
+    }
+  }
+
   @Override
   public void write(String block, InputMarker inputMarker) throws Exception {
   }
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ambari.logfeeder.output;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.ambari.logfeeder.input.InputMarker;
+
+/**
+ * Tracks the input markers of the events sent asynchronously, by the sequence number they were sent with, until the
+ * destination acknowledges them. As acknowledgements may arrive out of order, or an event may fail and be retried while
+ * the following ones succeed, a marker is only released for check in once no event sent before it from the same file
+ * is pending any more.
+ */
+class PendingInputMarkers {
+
+  private static class FileMarkers {
+    private final TreeMap<Long, InputMarker> pending = new TreeMap<>();
+    private final TreeMap<Long, InputMarker> acknowledged = new TreeMap<>();
+  }
+
+  private final Map<String, FileMarkers> fileMarkers = new HashMap<>();
+
+  synchronized void add(long sequence, InputMarker inputMarker) {
+    FileMarkers markers = fileMarkers.get(inputMarker.base64FileKey);
+    if (markers == null) {
+      markers = new FileMarkers();
+      fileMarkers.put(inputMarker.base64FileKey, markers);
+    }
+    markers.pending.put(sequence, inputMarker);
+  }
+
+  /**
+   * @return the marker to be checked in, or null if an earlier event of the file is still pending
+   */
+  synchronized InputMarker acknowledge(long sequence, InputMarker inputMarker) {
+    FileMarkers markers = fileMarkers.get(inputMarker.base64FileKey);
+    if (markers == null || markers.pending.remove(sequence) == null) {
+      return null;
+    }
+    markers.acknowledged.put(sequence, inputMarker);
+    return release(inputMarker.base64FileKey, markers);
+  }
+
+  /**
+   * Drops an event which was not sent after all, because it is written again, or spooled.
+   *
+   * @return the marker to be checked in, or null if an earlier event of the file is still pending
+   */
+  synchronized InputMarker remove(long sequence, InputMarker inputMarker) {
+    FileMarkers markers = fileMarkers.get(inputMarker.base64FileKey);
+    if (markers == null || markers.pending.remove(sequence) == null) {
+      return null;
+    }
+    return release(inputMarker.base64FileKey, markers);
+  }
+
+  synchronized int size() {
+    int size = 0;
+    for (FileMarkers markers : fileMarkers.values()) {
+      size += markers.pending.size();
+    }
+    return size;
+  }
+
+  private InputMarker release(String fileKey, FileMarkers markers) {
+    SortedMap<Long, InputMarker> released = markers.pending.isEmpty() ? markers.acknowledged :
+        markers.acknowledged.headMap(markers.pending.firstKey());
+    InputMarker latest = released.isEmpty() ? null : released.get(released.lastKey());
+    released.clear();
+    if (markers.pending.isEmpty()) {
+      fileMarkers.remove(fileKey);
+    }
+    return latest;
+  }
+}
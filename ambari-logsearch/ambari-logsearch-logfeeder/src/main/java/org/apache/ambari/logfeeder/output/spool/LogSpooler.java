@@ -171,7 +171,10 @@ public class LogSpooler {
     }
   }
 
-  private synchronized void tryRollover() {
+  /**
+   * Trigger a rollover of the current spool file, unless one is already in progress.
+   */
+  public synchronized void tryRollover() {
     if (rolloverInProgress.compareAndSet(false, true)) {
       rollover();
     } else {
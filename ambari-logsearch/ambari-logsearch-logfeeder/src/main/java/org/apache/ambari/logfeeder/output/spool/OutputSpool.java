@@ -0,0 +1,370 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ambari.logfeeder.output.spool;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ambari.logfeeder.input.InputMarker;
+import org.apache.ambari.logfeeder.metrics.MetricData;
+import org.apache.ambari.logfeeder.util.LogFeederUtil;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * A durable write ahead spool of an output, which holds its events on the local disk while the destination of the
+ * output is not available, instead of blocking the inputs.
+ * <p>
+ * Events are added to the active spool file of a {@link LogSpooler}, which is rolled over into a numbered segment when
+ * it reaches the segment size, or when the replay thread runs out of segments. A rolled over segment is synced to the
+ * disk before the input markers of its events are checked in, and the events handed to the destination directly,
+ * bypassing the spool, must all be acknowledged first, so a checkpoint never moves past an event which is only held in
+ * memory. Once the spool holds events, all the events of the output go through it, and are replayed to the
+ * destination in order, at most at the configured rate. A segment is deleted when all its events are acknowledged by
+ * the destination; the ones left by a restart are replayed again, so events are delivered at least once.
+ * <p>
+ * Adding events blocks while the spool is full.
+ */
+public class OutputSpool implements RolloverCondition, RolloverHandler {
+  private static final Logger LOG = Logger.getLogger(OutputSpool.class);
+
+  private static final String SEGMENTS_DIR = "segments";
+  private static final long IDLE_WAIT_MS = 1000;
+  private static final int LINE_SEPARATOR_BYTES = System.lineSeparator().length();
+
+  /**
+   * The destination the spooled events are replayed to.
+   */
+  public interface Sink {
+    /**
+     * Hands over a replayed event, blocking while the destination can't take it.
+     *
+     * @param acknowledgement to be run once the destination has acknowledged the event
+     */
+    void replay(String event, Runnable acknowledgement) throws Exception;
+  }
+
+  private final String name;
+  private final File segmentsDir;
+  private final long maxBytes;
+  private final long segmentBytes;
+  private final int replayRate;
+  private final Sink sink;
+
+  private final LogSpooler logSpooler;
+  private final LinkedBlockingDeque<File> segments = new LinkedBlockingDeque<>();
+  private final Map<String, InputMarker> activeInputMarkers = new HashMap<>();
+  private final Map<String, InputMarker> syncedInputMarkers = new HashMap<>();
+  private final Thread replayThread;
+
+  private long nextSegment = 0;
+  private long activeEvents = 0;
+  private long activeBytes = 0;
+  private long spoolBytes = 0;
+  private long directEvents = 0;
+  private volatile boolean closed = false;
+
+  private MetricData spooledMetric = new MetricData("output.spool.spooled_logs", false);
+  private MetricData replayedMetric = new MetricData("output.spool.replayed_logs", false);
+  private MetricData spoolBytesMetric = new MetricData("output.spool.bytes", true, null, true);
+  private final AtomicLong replayedCount = new AtomicLong();
+
+  /**
+   * @param name the name of the spool, used for its thread and logs
+   * @param spoolDir the directory of the spool, which must be unique for each output
+   * @param maxBytes adding events blocks while the spool holds at least this many bytes
+   * @param segmentBytes the active spool file is rolled over once it holds this many bytes
+   * @param replayRate the maximum number of events replayed per second, 0 for no limit
+   */
+  public OutputSpool(String name, File spoolDir, long maxBytes, long segmentBytes, int replayRate, Sink sink) {
+    this.name = name;
+    this.segmentsDir = new File(spoolDir, SEGMENTS_DIR);
+    this.maxBytes = maxBytes;
+    this.segmentBytes = segmentBytes;
+    this.replayRate = replayRate;
+    this.sink = sink;
+
+    loadSegments(spoolDir);
+    logSpooler = new LogSpooler(spoolDir.getAbsolutePath(), "active-", this, this);
+
+    replayThread = new Thread("OutputSpoolReplay," + name) {
+      @Override
+      public void run() {
+        replay();
+      }
+    };
+    replayThread.setDaemon(true);
+    replayThread.start();
+  }
+
+  /**
+   * Loads the segments left by an earlier run. An active spool file left by it is deleted: its events are not synced,
+   * so their input markers were not checked in, and the inputs read them again.
+   */
+  private void loadSegments(File spoolDir) {
+    if (!segmentsDir.isDirectory() && !segmentsDir.mkdirs()) {
+      throw new LogSpoolerException("Could not create spool directory: " + segmentsDir);
+    }
+    File[] activeFiles = spoolDir.listFiles();
+    for (File activeFile : activeFiles == null ? new File[0] : activeFiles) {
+      if (activeFile.isFile()) {
+        LOG.warn("Deleting spool file not synced before the last shutdown: " + activeFile);
+        activeFile.delete();
+      }
+    }
+
+    File[] segmentFiles = segmentsDir.listFiles();
+    if (segmentFiles == null) {
+      return;
+    }
+    Arrays.sort(segmentFiles);
+    for (File segment : segmentFiles) {
+      long number;
+      try {
+        number = Long.parseLong(segment.getName());
+      } catch (NumberFormatException e) {
+        LOG.warn("Ignoring file which is not a spool segment: " + segment);
+        continue;
+      }
+      if (!segment.isFile()) {
+        LOG.warn("Ignoring directory in the spool segments: " + segment);
+        continue;
+      }
+      segments.add(segment);
+      spoolBytes += segment.length();
+      nextSegment = Math.max(nextSegment, number + 1);
+    }
+    if (!segments.isEmpty()) {
+      LOG.info("Replaying " + segments.size() + " spooled segments, bytes=" + spoolBytes + ", spool=" + name);
+    }
+  }
+
+  /**
+   * Adds the event to the spool, blocking while it is full.
+   *
+   * @param inputMarker the marker checked in once the event is synced to the disk, and all the events added directly
+   *        before are acknowledged, or null
+   */
+  public synchronized void add(String event, InputMarker inputMarker) throws InterruptedException {
+    while (spoolBytes >= maxBytes && !closed) {
+      wait(IDLE_WAIT_MS);
+    }
+    // the spool files are written by a FileWriter, in the default charset
+    long eventBytes = event.getBytes(Charset.defaultCharset()).length + LINE_SEPARATOR_BYTES;
+    activeEvents++;
+    activeBytes += eventBytes;
+    spoolBytes += eventBytes;
+    if (inputMarker != null) {
+      activeInputMarkers.put(inputMarker.base64FileKey, inputMarker);
+    }
+    logSpooler.add(event);
+    spooledMetric.value++;
+  }
+
+  /**
+   * Registers an event handed to the destination directly, bypassing the spool. The input markers of the spooled events
+   * are not checked in while such an event is not acknowledged, as it may be older than them.
+   *
+   * @return the acknowledgement to be run once the destination has acknowledged or dropped the event
+   */
+  public synchronized Runnable addDirectEvent() {
+    directEvents++;
+    return new Runnable() {
+      @Override
+      public void run() {
+        directEventAcknowledged();
+      }
+    };
+  }
+
+  private synchronized void directEventAcknowledged() {
+    directEvents--;
+    checkInSyncedInputMarkers();
+  }
+
+  private void checkInSyncedInputMarkers() {
+    if (directEvents > 0) {
+      return;
+    }
+    for (InputMarker inputMarker : syncedInputMarkers.values()) {
+      inputMarker.input.checkIn(inputMarker);
+    }
+    syncedInputMarkers.clear();
+  }
+
+  public synchronized boolean isEmpty() {
+    return activeEvents == 0 && segments.isEmpty();
+  }
+
+  @Override
+  public boolean shouldRollover(LogSpoolerContext currentSpoolerContext) {
+    return activeBytes >= segmentBytes;
+  }
+
+  /**
+   * Called by the {@link LogSpooler} holding the lock of the spool, either from {@link #add(String, InputMarker)} or
+   * from the replay thread.
+   */
+  @Override
+  public void handleRollover(File rolloverFile) {
+    File segment = new File(segmentsDir, String.format("%020d", nextSegment++));
+    try (RandomAccessFile file = new RandomAccessFile(rolloverFile, "rw")) {
+      file.getFD().sync();
+    } catch (IOException e) {
+      throw new LogSpoolerException("Could not sync spool file " + rolloverFile, e);
+    }
+    if (!rolloverFile.renameTo(segment)) {
+      throw new LogSpoolerException("Could not move spool file " + rolloverFile + " to " + segment);
+    }
+    segments.add(segment);
+    spoolBytes += segment.length() - activeBytes;
+
+    syncedInputMarkers.putAll(activeInputMarkers);
+    activeInputMarkers.clear();
+    checkInSyncedInputMarkers();
+    activeEvents = 0;
+    activeBytes = 0;
+  }
+
+  private void replay() {
+    while (!closed) {
+      try {
+        File segment = segments.peek();
+        if (segment == null) {
+          synchronized (this) {
+            if (activeEvents > 0) {
+              logSpooler.tryRollover();
+            } else {
+              wait(IDLE_WAIT_MS);
+            }
+          }
+        } else {
+          replaySegment(segment);
+        }
+      } catch (InterruptedException e) {
+        break;
+      } catch (Throwable t) {
+        String logMessageKey = this.getClass().getSimpleName() + "_REPLAY_ERROR";
+        LogFeederUtil.logErrorMessageByInterval(logMessageKey, "Error replaying spool " + name, t, LOG, Level.ERROR);
+        try {
+          Thread.sleep(IDLE_WAIT_MS);
+        } catch (InterruptedException e) {
+          break;
+        }
+      }
+    }
+    LOG.info("Stopped replaying spool " + name);
+  }
+
+  private void replaySegment(final File segment) throws Exception {
+    final long bytes = segment.length();
+    // one for the reading of the segment, released when it is done
+    final AtomicInteger pending = new AtomicInteger(1);
+    final Runnable acknowledgement = new Runnable() {
+      @Override
+      public void run() {
+        replayedCount.incrementAndGet();
+        if (pending.decrementAndGet() == 0) {
+          deleteSegment(segment, bytes);
+        }
+      }
+    };
+
+    long startTime = System.currentTimeMillis();
+    long count = 0;
+    try (BufferedReader reader = new BufferedReader(new FileReader(segment))) {
+      String event;
+      while ((event = reader.readLine()) != null && !closed) {
+        pending.incrementAndGet();
+        sink.replay(event, acknowledgement);
+        count++;
+        if (replayRate > 0) {
+          long waitMS = count * 1000 / replayRate - (System.currentTimeMillis() - startTime);
+          if (waitMS > 0) {
+            Thread.sleep(waitMS);
+          }
+        }
+      }
+    }
+    if (closed) {
+      return;
+    }
+    if (pending.decrementAndGet() == 0) {
+      deleteSegment(segment, bytes);
+    }
+    synchronized (this) {
+      segments.remove(segment);
+    }
+  }
+
+  private synchronized void deleteSegment(File segment, long bytes) {
+    if (!segment.delete()) {
+      LOG.warn("Could not delete replayed spool segment " + segment);
+    }
+    spoolBytes -= bytes;
+    notifyAll();
+  }
+
+  /**
+   * Stops replaying, and syncs the active spool file, so that its events are replayed after a restart.
+   */
+  public void close() {
+    closed = true;
+    replayThread.interrupt();
+    synchronized (this) {
+      if (activeEvents > 0) {
+        logSpooler.tryRollover();
+      }
+      notifyAll();
+    }
+    logSpooler.close();
+  }
+
+  public void addMetricsContainers(List<MetricData> metricsList) {
+    replayedMetric.value = replayedCount.get();
+    spoolBytesMetric.value = getSpoolBytes();
+    metricsList.add(spooledMetric);
+    metricsList.add(replayedMetric);
+    metricsList.add(spoolBytesMetric);
+  }
+
+  public void logStat(String key) {
+    replayedMetric.value = replayedCount.get();
+    spoolBytesMetric.value = getSpoolBytes();
+    LogFeederUtil.logStatForMetric(spooledMetric, "Stat: Spooled", key);
+    LogFeederUtil.logStatForMetric(replayedMetric, "Stat: Replayed from spool", key);
+    LogFeederUtil.logStatForMetric(spoolBytesMetric, "Stat: Spool Bytes", key);
+  }
+
+  synchronized long getSpoolBytes() {
+    return spoolBytes;
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ambari.logfeeder.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Hashes the fields of an event straight from their values, instead of serializing the event to JSON and hashing that.
+ * <p>
+ * Each field is written to a byte buffer reused by the thread and hashed with {@link MurmurHash#hash64A}. The hashes
+ * of the fields are summed, so the result doesn't depend on the iteration order of the map. Fields with null values are
+ * skipped, like they are left out of the JSON form of the event.
+ */
+public class EventHashUtil {
+  private static final int INITIAL_BUFFER_SIZE = 4 * 1024;
+  private static final int MAX_KEPT_BUFFER_SIZE = 1024 * 1024;
+
+  private static final byte TYPE_STRING = 1;
+  private static final byte TYPE_LONG = 2;
+  private static final byte TYPE_DOUBLE = 3;
+  private static final byte TYPE_BOOLEAN = 4;
+  private static final byte TYPE_DATE = 5;
+  private static final byte TYPE_COLLECTION = 6;
+  private static final byte TYPE_MAP = 7;
+
+  private static final ThreadLocal<FieldBytes> FIELD_BYTES = new ThreadLocal<FieldBytes>() {
+    @Override
+    protected FieldBytes initialValue() {
+      return new FieldBytes();
+    }
+  };
+
+  private EventHashUtil() {
+    throw new UnsupportedOperationException();
+  }
+
+  public static long hash64A(Map<String, Object> fields, int seed) {
+    FieldBytes bytes = FIELD_BYTES.get();
+    long hash = 0;
+    for (Map.Entry<String, Object> field : fields.entrySet()) {
+      if (field.getValue() == null) {
+        continue;
+      }
+      bytes.length = 0;
+      bytes.putString(field.getKey());
+      bytes.putValue(field.getValue());
+      hash += MurmurHash.hash64A(bytes.buffer, 0, bytes.length, seed);
+    }
+    bytes.release();
+    return hash;
+  }
+
+  private static class FieldBytes {
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int length;
+
+    @SuppressWarnings("unchecked")
+    void putValue(Object value) {
+      if (value instanceof String) {
+        putString((String) value);
+      } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+        putByte(TYPE_LONG);
+        putLong(((Number) value).longValue());
+      } else if (value instanceof Double || value instanceof Float) {
+        putByte(TYPE_DOUBLE);
+        putLong(Double.doubleToLongBits(((Number) value).doubleValue()));
+      } else if (value instanceof Boolean) {
+        putByte(TYPE_BOOLEAN);
+        putByte((Boolean) value ? (byte) 1 : (byte) 0);
+      } else if (value instanceof Date) {
+        putByte(TYPE_DATE);
+        putLong(((Date) value).getTime());
+      } else if (value instanceof Collection) {
+        Collection<Object> values = (Collection<Object>) value;
+        putByte(TYPE_COLLECTION);
+        putLong(values.size());
+        for (Object element : values) {
+          putValue(element);
+        }
+      } else if (value instanceof Map) {
+        Map<Object, Object> map = (Map<Object, Object>) value;
+        putByte(TYPE_MAP);
+        putLong(map.size());
+        for (Map.Entry<Object, Object> entry : map.entrySet()) {
+          putValue(entry.getKey());
+          putValue(entry.getValue());
+        }
+      } else {
+        putString(String.valueOf(value));
+      }
+    }
+
+    void putString(String value) {
+      int valueLength = value.length();
+      putByte(TYPE_STRING);
+      putLong(valueLength);
+      ensureCapacity(length + valueLength * 2);
+      for (int i = 0; i < valueLength; i++) {
+        char c = value.charAt(i);
+        buffer[length++] = (byte) c;
+        buffer[length++] = (byte) (c >>> 8);
+      }
+    }
+
+    void putLong(long value) {
+      ensureCapacity(length + 8);
+      for (int i = 0; i < 8; i++) {
+        buffer[length++] = (byte) (value >>> (i * 8));
+      }
+    }
+
+    void putByte(byte value) {
+      ensureCapacity(length + 1);
+      buffer[length++] = value;
+    }
+
+    /**
+     * Drops the buffer if an unusually large event grew it, so the thread doesn't hold on to it.
+     */
+    void release() {
+      if (buffer.length > MAX_KEPT_BUFFER_SIZE) {
+        buffer = new byte[INITIAL_BUFFER_SIZE];
+      }
+    }
+
+    private void ensureCapacity(int capacity) {
+      if (capacity > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+      }
+    }
+  }
+}
@@ -226,6 +226,20 @@ public class LogFeederPropertiesUtil {
     return getStringProperty(CHECKPOINT_FOLDER_PROPERTY);
   }
 
+  private static final String INPUT_READER_THREADS_PROPERTY = "logfeeder.input.reader.threads";
+  private static final int DEFAULT_INPUT_READER_THREADS = 4;
+  
+  @LogSearchPropertyDescription(
+    name = INPUT_READER_THREADS_PROPERTY,
+    description = "The number of threads reading the file inputs. If 0, each input is read by a thread of its own.",
+    examples = {"8"},
+    defaultValue = DEFAULT_INPUT_READER_THREADS + "",
+    sources = {LOGFEEDER_PROPERTIES_FILE}
+  )
+  public static int getInputReaderThreads() {
+    return getIntProperty(INPUT_READER_THREADS_PROPERTY, DEFAULT_INPUT_READER_THREADS, 0, null);
+  }
+
   private static final String CACHE_ENABLED_PROPERTY = "logfeeder.cache.enabled";
   private static final boolean DEFAULT_CACHE_ENABLED = false;
   
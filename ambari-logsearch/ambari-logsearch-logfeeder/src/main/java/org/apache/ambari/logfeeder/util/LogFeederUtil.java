@@ -114,6 +114,21 @@ public class LogFeederUtil {
     return retValue;
   }
 
+  public static long objectToLong(Object objValue, long retValue, String errMessage) {
+    if (objValue == null) {
+      return retValue;
+    }
+    String strValue = objValue.toString();
+    if (StringUtils.isNotEmpty(strValue)) {
+      try {
+        retValue = Long.parseLong(strValue);
+      } catch (Throwable t) {
+        LOG.error("Error parsing long value. str=" + strValue + ", " + errMessage);
+      }
+    }
+    return retValue;
+  }
+
   private static class LogHistory {
     private long lastLogTime = 0;
     private int counter = 0;
@@ -108,6 +108,10 @@ public class S3Util {
    * Get the buffer reader to read s3 file as a stream
    */
   public static BufferedReader getReader(String s3Path, String accessKey, String secretKey) throws IOException {
+    return new BufferedReader(new InputStreamReader(getInputStream(s3Path, accessKey, secretKey)));
+  }
+
+  public static InputStream getInputStream(String s3Path, String accessKey, String secretKey) throws IOException {
     // TODO error handling
     // Compression support
     // read header and decide the compression(auto detection)
@@ -116,9 +120,7 @@ public class S3Util {
     String s3Key = getS3Key(s3Path);
     S3Object fileObj = getS3Client(accessKey, secretKey).getObject(new GetObjectRequest(s3Bucket, s3Key));
     try {
-      GZIPInputStream objectInputStream = new GZIPInputStream(fileObj.getObjectContent());
-      BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(objectInputStream));
-      return bufferedReader;
+      return new GZIPInputStream(fileObj.getObjectContent());
     } catch (IOException e) {
       LOG.error("Error in creating stream reader for s3 file :" + s3Path, e.getCause());
       throw e;
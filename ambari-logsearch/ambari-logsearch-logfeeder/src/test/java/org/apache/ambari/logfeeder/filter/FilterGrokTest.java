@@ -148,6 +148,35 @@ public class FilterGrokTest {
     assertFalse("Something was captured", capture.hasCaptured());
   }
 
+  @Test
+  public void testFilterGrok_notMatchingMessagePatternFallsBackToMultilinePattern() throws Exception {
+    LOG.info("testFilterGrok_notMatchingMessagePatternFallsBackToMultilinePattern()");
+
+    FilterGrokDescriptorImpl filterGrokDescriptor = new FilterGrokDescriptorImpl();
+    filterGrokDescriptor.setMessagePattern("(?m)^%{TIMESTAMP_ISO8601:logtime}%{SPACE}%{LOGLEVEL:level}%{SPACE}" +
+        "\\[%{DATA:thread_name}\\]%{SPACE}-%{SPACE}%{GREEDYDATA:log_message}");
+    filterGrokDescriptor.setMultilinePattern("^(%{TIMESTAMP_ISO8601:logtime})");
+    init(filterGrokDescriptor);
+
+    mockOutputManager.write(EasyMock.capture(capture), EasyMock.anyObject(InputMarker.class));
+    EasyMock.expectLastCall().times(2);
+    EasyMock.replay(mockOutputManager);
+
+    filterGrok.apply("2016-04-08 15:55:23,548 INFO [main] - This is a test", new InputMarker(null, null, 0));
+    filterGrok.apply("\tat org.apache.Test.main(Test.java:10)", new InputMarker(null, null, 0));
+    filterGrok.apply("2016-04-08 15:55:24,548 WARN Next message", new InputMarker(null, null, 0));
+    filterGrok.flush();
+
+    EasyMock.verify(mockOutputManager);
+    Map<String, Object> jsonParams = capture.getValue();
+
+    assertNotNull(jsonParams);
+    assertEquals("Incorrect parsing: log time", "2016-04-08 15:55:24,548", jsonParams.remove("logtime"));
+    assertEquals("Incorrect parsing: log message", "2016-04-08 15:55:24,548 WARN Next message", jsonParams.remove("log_message"));
+    assertNotNull("Parse error is not tagged", jsonParams.remove("tags"));
+    assertTrue("jsonParams are not empty!", jsonParams.isEmpty());
+  }
+
   @After
   public void cleanUp() {
     capture.reset();
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.logfeeder.filter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class GrokPrefilterTest {
+  private static final String HADOOP_PATTERN = "(?m)^%{TIMESTAMP_ISO8601:logtime}%{SPACE}%{LOGLEVEL:level}%{SPACE}" +
+      "%{JAVACLASS:logger_name}%{SPACE}\\(%{JAVAFILE:file}:%{JAVAMETHOD:method}\\(%{INT:line_number}\\)\\)%{SPACE}-" +
+      "%{SPACE}%{GREEDYDATA:log_message}";
+
+  @Test
+  public void testLiteralsOfHadoopPattern() {
+    // WHEN
+    GrokPrefilter prefilter = GrokPrefilter.compile(HADOOP_PATTERN);
+    // THEN
+    assertArrayEquals(new String[] {"(", ":", "(", "))", "-"}, prefilter.getLiterals());
+    assertTrue(prefilter.mayMatch("2017-03-15 10:11:12,123 INFO  datanode.DataNode (DataNode.java:run(2455)) - Started"));
+    assertFalse(prefilter.mayMatch("\tat org.apache.hadoop.hdfs.server.datanode.DataNode.run(DataNode.java:2455)"));
+    assertFalse(prefilter.mayMatch("2017-03-15 10:11:12,123 INFO Started"));
+  }
+
+  @Test
+  public void testLiteralsAreMatchedInOrder() {
+    // GIVEN
+    GrokPrefilter prefilter = GrokPrefilter.compile("%{WORD:a} \\[%{DATA:b}\\]: %{GREEDYDATA:c}");
+    // WHEN / THEN
+    assertArrayEquals(new String[] {" [", "]: "}, prefilter.getLiterals());
+    assertTrue(prefilter.mayMatch("x [y]: z"));
+    assertFalse(prefilter.mayMatch("x ]: y [z"));
+  }
+
+  @Test
+  public void testQuantifiedCharactersAreNotRequired() {
+    // GIVEN
+    GrokPrefilter prefilter = GrokPrefilter.compile("ab?c%{WORD:a}de*f%{WORD:b}gh+i{2,3}%{WORD:c}(xyz)?[klm]+nop");
+    // WHEN / THEN
+    assertArrayEquals(new String[] {"a", "c", "d", "f", "gh", "nop"}, prefilter.getLiterals());
+    assertTrue(prefilter.mayMatch("ac1df2ghhii3nop"));
+  }
+
+  @Test
+  public void testEscapedCharacterClassesAreNotLiterals() {
+    // GIVEN
+    GrokPrefilter prefilter = GrokPrefilter.compile("^%{WORD:a}\\s+\\d+ - %{WORD:b}$");
+    // WHEN / THEN
+    assertArrayEquals(new String[] {" - "}, prefilter.getLiterals());
+  }
+
+  @Test
+  public void testNoPrefilterForUnsupportedPatterns() {
+    // WHEN / THEN
+    assertNull(GrokPrefilter.compile(null));
+    assertNull(GrokPrefilter.compile("^(%{TIMESTAMP_ISO8601:logtime})"));
+    assertNull(GrokPrefilter.compile("%{WORD:a} - %{WORD:b}|%{WORD:c} : %{WORD:d}"));
+    assertNull(GrokPrefilter.compile("(?i)%{WORD:a} error %{WORD:b}"));
+    assertNull(GrokPrefilter.compile("\\Q[x]\\E%{WORD:a}"));
+  }
+
+  @Test
+  public void testNoPrefilterForLongerEscapeSequences() {
+    // GIVEN
+    String[] patterns = {
+        "%{WORD:a} \\x41 - %{WORD:b}",
+        "%{WORD:a} \\u00e9 - %{WORD:b}",
+        "%{WORD:a} \\0101 - %{WORD:b}",
+        "%{WORD:a} \\cX - %{WORD:b}",
+        "(?<name>%{WORD:a}) \\k<name> - %{WORD:b}",
+        "%{WORD:a} \\p{Alpha}+ - %{WORD:b}",
+        "(%{WORD:a}) \\1 - %{WORD:b}"
+    };
+    for (String pattern : patterns) {
+      // WHEN
+      GrokPrefilter prefilter = GrokPrefilter.compile(pattern);
+      // THEN
+      assertNull(pattern, prefilter);
+    }
+  }
+
+  @Test
+  public void testEscapesInGroupsAndClassesAreSkipped() {
+    // GIVEN
+    GrokPrefilter prefilter = GrokPrefilter.compile("%{WORD:a} ([\\x41\\p{Alpha}]+|\\u00e9) - %{WORD:b}");
+    // WHEN / THEN
+    assertArrayEquals(new String[] {" ", " - "}, prefilter.getLiterals());
+    assertTrue(prefilter.mayMatch("x A - y"));
+    assertTrue(prefilter.mayMatch("x \u00e9 - y"));
+  }
+}
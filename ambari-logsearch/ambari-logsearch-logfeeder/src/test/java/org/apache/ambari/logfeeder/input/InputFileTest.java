@@ -22,10 +22,14 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.ambari.logfeeder.filter.Filter;
 import org.apache.ambari.logfeeder.input.InputMarker;
+import org.apache.ambari.logfeeder.metrics.MetricData;
 import org.apache.ambari.logsearch.config.zookeeper.model.inputconfig.impl.InputFileDescriptorImpl;
 import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
@@ -39,6 +43,7 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 public class InputFileTest {
   private static final Logger LOG = Logger.getLogger(InputFileTest.class);
@@ -145,6 +150,8 @@ public class InputFileTest {
 
     inputFile.isReady();
     inputFile.start();
+    assertEquals("Offset of the checkpoint is incorrect", TEST_LOG_FILE_CONTENT.indexOf(TEST_LOG_FILE_ROWS[3]),
+        testInputMarker.offset);
     inputFile.checkIn(testInputMarker);
     inputFile.setDrain(false);
     inputFile.start();
@@ -166,6 +173,33 @@ public class InputFileTest {
     inputFile.isReady();
   }
 
+  @Test
+  public void testInputFile_metricsOfSameTypeHaveDistinctInstanceIds() throws Exception {
+    LOG.info("testInputFile_metricsOfSameTypeHaveDistinctInstanceIds()");
+
+    File testFile1 = createFile("metrics1.log");
+    File testFile2 = createFile("metrics2.log");
+
+    init(testFile1.getAbsolutePath());
+    List<MetricData> metrics1 = new ArrayList<>();
+    inputFile.addMetricsContainers(metrics1);
+
+    init(testFile2.getAbsolutePath());
+    List<MetricData> metrics2 = new ArrayList<>();
+    inputFile.addMetricsContainers(metrics2);
+
+    Set<String> instanceIds = new HashSet<>();
+    for (MetricData metric : metrics1) {
+      if (metric.instanceId != null) {
+        instanceIds.add(metric.instanceId);
+      }
+    }
+    assertEquals(Collections.singleton("hdfs_datanode:" + testFile1.getAbsolutePath()), instanceIds);
+    for (MetricData metric : metrics2) {
+      assertFalse(instanceIds.contains(metric.instanceId));
+    }
+  }
+
   @After
   public void tearDown() throws Exception {
     rows.clear();
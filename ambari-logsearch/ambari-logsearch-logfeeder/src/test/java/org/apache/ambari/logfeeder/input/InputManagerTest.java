@@ -104,6 +104,10 @@ public class InputManagerTest {
     expect(input2.isReady()).andReturn(true);
     expect(input3.isReady()).andReturn(false);
     
+    expect(input1.getLagBytes()).andReturn(100L);
+    expect(input2.getLagBytes()).andReturn(0L);
+    expect(input3.getLagBytes()).andReturn(0L);
+    
     replay(input1, input2, input3);
     
     InputManager manager = new InputManager();
@@ -114,6 +118,7 @@ public class InputManagerTest {
     manager.addMetricsContainers(metrics);
     
     verify(input1, input2, input3);
+    assertEquals(100L, metrics.get(metrics.size() - 1).value);
   }
 
   @Test
@@ -130,6 +135,10 @@ public class InputManagerTest {
     expect(input2.isReady()).andReturn(true);
     expect(input3.isReady()).andReturn(false);
     
+    expect(input1.getLagBytes()).andReturn(100L);
+    expect(input2.getLagBytes()).andReturn(0L);
+    expect(input3.getLagBytes()).andReturn(0L);
+    
     replay(input1, input2, input3);
     
     InputManager manager = new InputManager();
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.ambari.logfeeder.input;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ambari.logfeeder.filter.Filter;
+import org.apache.ambari.logsearch.config.zookeeper.model.inputconfig.impl.InputFileDescriptorImpl;
+import org.apache.commons.io.FileUtils;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class InputSchedulerTest {
+
+  private static final File TEST_DIR = new File(FileUtils.getTempDirectoryPath(), "logfeeder_scheduler_test_dir");
+
+  private InputScheduler underTest;
+  private InputManager inputManager;
+  private List<InputFile> inputFiles = new ArrayList<>();
+
+  @Before
+  public void setUp() throws IOException {
+    FileUtils.deleteDirectory(TEST_DIR);
+    File checkPointDir = new File(TEST_DIR, "checkpoints");
+    checkPointDir.mkdirs();
+
+    inputManager = EasyMock.createNiceMock(InputManager.class);
+    EasyMock.expect(inputManager.getCheckPointFolderFile()).andReturn(checkPointDir).anyTimes();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    for (InputFile inputFile : inputFiles) {
+      inputFile.setDrain(true);
+    }
+    if (underTest != null) {
+      underTest.shutdown();
+    }
+    FileUtils.deleteDirectory(TEST_DIR);
+  }
+
+  @Test
+  public void testReadsAllInputsWithFewThreads() throws Exception {
+    // GIVEN
+    underTest = new InputScheduler(2, 1024);
+    EasyMock.expect(inputManager.getInputScheduler()).andReturn(underTest).anyTimes();
+    EasyMock.replay(inputManager);
+
+    List<List<String>> rows = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      List<String> inputRows = Collections.synchronizedList(new ArrayList<String>());
+      rows.add(inputRows);
+      createInputFile("input" + i + ".log", 100, inputRows);
+    }
+    // WHEN
+    for (InputFile inputFile : inputFiles) {
+      assertTrue(inputFile.monitor());
+    }
+    // THEN
+    for (int i = 0; i < rows.size(); i++) {
+      waitForRows(rows.get(i), 100);
+      for (int line = 0; line < 100; line++) {
+        assertEquals("input" + i + ".log line " + line, rows.get(i).get(line));
+      }
+    }
+
+    // WHEN
+    FileUtils.writeStringToFile(new File(TEST_DIR, "input3.log"), "input3.log line 100\n", Charset.defaultCharset(), true);
+    // THEN
+    waitForRows(rows.get(3), 101);
+    assertEquals("input3.log line 100", rows.get(3).get(100));
+
+    for (InputFile inputFile : inputFiles) {
+      inputFile.setDrain(true);
+    }
+    for (InputFile inputFile : inputFiles) {
+      long timeout = System.currentTimeMillis() + 10000;
+      while (!inputFile.isClosed() && System.currentTimeMillis() < timeout) {
+        Thread.sleep(10);
+      }
+      assertTrue("Drained input is not closed", inputFile.isClosed());
+    }
+  }
+
+  @Test
+  public void testBusyInputDoesNotStarveOthers() throws Exception {
+    // GIVEN
+    underTest = new InputScheduler(1, 1024);
+    EasyMock.expect(inputManager.getInputScheduler()).andReturn(underTest).anyTimes();
+    EasyMock.replay(inputManager);
+
+    final List<String> busyRows = Collections.synchronizedList(new ArrayList<String>());
+    final List<Integer> busyRowsWhenDone = new ArrayList<>();
+    createInputFile("busy.log", 50000, busyRows);
+    createInputFile("small.log", 10, new ArrayList<String>() {
+      @Override
+      public boolean add(String row) {
+        if (size() == 9) {
+          busyRowsWhenDone.add(busyRows.size());
+        }
+        return super.add(row);
+      }
+    });
+    // WHEN
+    for (InputFile inputFile : inputFiles) {
+      inputFile.monitor();
+    }
+    waitForRows(busyRows, 50000);
+    // THEN
+    assertEquals(1, busyRowsWhenDone.size());
+    assertTrue("Small input waited for the busy one, busy rows read: " + busyRowsWhenDone.get(0),
+        busyRowsWhenDone.get(0) < 1000);
+  }
+
+  @Test
+  public void testFailingInputBacksOff() throws Exception {
+    // GIVEN
+    underTest = new InputScheduler(1, 1024);
+    final AtomicInteger reads = new AtomicInteger();
+    final List<Runnable> fileChangeListeners = new ArrayList<>();
+    InputFileDescriptorImpl inputFileDescriptor = new InputFileDescriptorImpl();
+    inputFileDescriptor.setSource("file");
+    inputFileDescriptor.setType("test");
+    InputFile failingInput = new InputFile() {
+      @Override
+      long readChunk(long maxBytes) {
+        reads.incrementAndGet();
+        throw new IllegalStateException("unreadable");
+      }
+
+      @Override
+      void setFileChangeListener(Runnable fileChangeListener) {
+        fileChangeListeners.add(fileChangeListener);
+      }
+    };
+    failingInput.loadConfig(inputFileDescriptor);
+    // WHEN
+    underTest.schedule(failingInput);
+    Thread.sleep(InputScheduler.MIN_ERROR_WAIT_MS * 2);
+    // THEN it is read right away and after the first wait, but not again before the doubled wait elapsed
+    assertEquals(2, reads.get());
+    // WHEN the file changes while the input waits after a failure
+    int readsBeforeChange = reads.get();
+    fileChangeListeners.get(0).run();
+    // THEN it keeps waiting
+    Thread.sleep(100);
+    assertEquals(readsBeforeChange, reads.get());
+  }
+
+  private void createInputFile(String fileName, int lines, final List<String> rows) throws Exception {
+    File logFile = new File(TEST_DIR, fileName);
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < lines; i++) {
+      content.append(fileName).append(" line ").append(i).append('\n');
+    }
+    FileUtils.writeStringToFile(logFile, content.toString(), Charset.defaultCharset());
+
+    InputFileDescriptorImpl inputFileDescriptor = new InputFileDescriptorImpl();
+    inputFileDescriptor.setSource("file");
+    inputFileDescriptor.setTail(true);
+    inputFileDescriptor.setType("test");
+    inputFileDescriptor.setRowtype("service");
+    inputFileDescriptor.setPath(logFile.getAbsolutePath());
+
+    InputFile inputFile = new InputFile();
+    inputFile.loadConfig(inputFileDescriptor);
+    inputFile.addFilter(new Filter() {
+      @Override
+      public void init() {
+      }
+
+      @Override
+      public void apply(String inputStr, InputMarker inputMarker) {
+        rows.add(inputStr);
+      }
+    });
+    inputFile.setInputManager(inputManager);
+    inputFile.init();
+    inputFiles.add(inputFile);
+  }
+
+  private void waitForRows(List<String> rows, int count) throws InterruptedException {
+    long timeout = System.currentTimeMillis() + 10000;
+    while (rows.size() < count && System.currentTimeMillis() < timeout) {
+      Thread.sleep(10);
+    }
+    assertEquals(count, rows.size());
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ambari.logfeeder.input.reader;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LogFileLineReaderTest {
+
+  private File testFile;
+
+  @Before
+  public void setUp() throws IOException {
+    testFile = File.createTempFile("logfeeder_line_reader", ".log");
+  }
+
+  @After
+  public void tearDown() {
+    FileUtils.deleteQuietly(testFile);
+  }
+
+  @Test
+  public void testReadLinesWithOffsets() throws Exception {
+    // GIVEN
+    FileUtils.writeStringToFile(testFile, "first\r\nsecond\n\nunterminated", StandardCharsets.UTF_8);
+    // WHEN
+    try (LogFileLineReader reader = LogsearchReaderFactory.INSTANCE.getLineReader(testFile)) {
+      // THEN
+      assertEquals("first", reader.readLine(false));
+      assertEquals(7, reader.getPosition());
+      assertEquals("second", reader.readLine(false));
+      assertEquals("", reader.readLine(false));
+      assertEquals(15, reader.getPosition());
+      assertNull(reader.readLine(false));
+      assertEquals(15, reader.getPosition());
+      assertEquals("unterminated", reader.readLine(true));
+      assertEquals(testFile.length(), reader.getPosition());
+    }
+  }
+
+  @Test
+  public void testLineCompletedWhileFollowing() throws Exception {
+    // GIVEN
+    FileUtils.writeStringToFile(testFile, "first\nsec", StandardCharsets.UTF_8);
+    try (LogFileLineReader reader = LogsearchReaderFactory.INSTANCE.getLineReader(testFile)) {
+      assertEquals("first", reader.readLine(false));
+      assertNull(reader.readLine(false));
+      // WHEN
+      FileUtils.writeStringToFile(testFile, "ond\nthird\n", StandardCharsets.UTF_8, true);
+      // THEN
+      assertEquals("second", reader.readLine(false));
+      assertEquals("third", reader.readLine(false));
+      assertNull(reader.readLine(false));
+    }
+  }
+
+  @Test
+  public void testLongLineAcrossBuffers() throws Exception {
+    // GIVEN
+    String longLine = StringUtils.repeat("0123456789", 20000);
+    FileUtils.writeStringToFile(testFile, longLine + "\nnext\n", StandardCharsets.UTF_8);
+    // WHEN
+    try (LogFileLineReader reader = LogsearchReaderFactory.INSTANCE.getLineReader(testFile)) {
+      // THEN
+      assertEquals(longLine, reader.readLine(false));
+      assertEquals("next", reader.readLine(false));
+    }
+  }
+
+  @Test
+  public void testSeek() throws Exception {
+    // GIVEN
+    FileUtils.writeStringToFile(testFile, "first\nsecond\nthird\n", StandardCharsets.UTF_8);
+    try (LogFileLineReader reader = LogsearchReaderFactory.INSTANCE.getLineReader(testFile)) {
+      // WHEN
+      assertTrue(reader.seek(6));
+      // THEN
+      assertEquals("second", reader.readLine(false));
+      assertEquals(13, reader.getPosition());
+    }
+    try (LogFileLineReader reader = LogsearchReaderFactory.INSTANCE.getLineReader(testFile)) {
+      assertFalse(reader.seek(testFile.length() + 1));
+    }
+  }
+
+  @Test
+  public void testSeekStream() throws Exception {
+    // GIVEN
+    byte[] content = "first\nsecond\nthird\n".getBytes(StandardCharsets.UTF_8);
+    try (LogFileLineReader reader = new LogFileLineReader(Channels.newChannel(new ByteArrayInputStream(content)))) {
+      // WHEN
+      assertTrue(reader.seek(13));
+      // THEN
+      assertEquals("third", reader.readLine(false));
+      assertEquals(content.length, reader.getPosition());
+    }
+    try (LogFileLineReader reader = new LogFileLineReader(Channels.newChannel(new ByteArrayInputStream(content)))) {
+      assertFalse(reader.seek(content.length + 1));
+    }
+  }
+}
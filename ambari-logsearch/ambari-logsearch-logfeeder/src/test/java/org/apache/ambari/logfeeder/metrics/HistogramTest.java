@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ambari.logfeeder.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class HistogramTest {
+
+  @Test
+  public void testPercentilesAreUpperBoundsOfBuckets() {
+    // GIVEN
+    Histogram histogram = new Histogram();
+    for (int i = 1; i <= 100; i++) {
+      histogram.add(i);
+    }
+    // WHEN
+    Histogram.Snapshot snapshot = histogram.intervalSnapshot();
+    // THEN
+    assertEquals(100, snapshot.getCount());
+    assertEquals(50, snapshot.getMean());
+    assertEquals(63, snapshot.getPercentile(0.5));
+    assertEquals(127, snapshot.getPercentile(0.95));
+    assertEquals(1, snapshot.getPercentile(0.01));
+  }
+
+  @Test
+  public void testIntervalSnapshotOnlyHoldsNewValues() {
+    // GIVEN
+    Histogram histogram = new Histogram();
+    histogram.add(1000);
+    histogram.intervalSnapshot();
+    histogram.add(3);
+    histogram.add(0);
+    // WHEN
+    Histogram.Snapshot snapshot = histogram.intervalSnapshot();
+    // THEN
+    assertEquals(2, snapshot.getCount());
+    assertEquals(3, snapshot.getPercentile(0.99));
+    assertEquals(0, snapshot.getPercentile(0.5));
+    assertEquals(0, histogram.intervalSnapshot().getCount());
+  }
+
+  @Test
+  public void testBuckets() {
+    assertEquals(0, Histogram.bucket(0));
+    assertEquals(1, Histogram.bucket(1));
+    assertEquals(2, Histogram.bucket(3));
+    assertEquals(3, Histogram.bucket(4));
+    assertEquals(63, Histogram.bucket(Long.MAX_VALUE));
+    assertEquals(Long.MAX_VALUE, Histogram.upperBound(63));
+  }
+}
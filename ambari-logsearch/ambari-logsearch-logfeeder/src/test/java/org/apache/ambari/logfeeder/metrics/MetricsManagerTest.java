@@ -24,11 +24,15 @@ import org.easymock.Capture;
 import org.easymock.CaptureType;
 import org.easymock.EasyMock;
 
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.Field;
 import java.util.Arrays;
 import java.util.List;
 import java.util.TreeMap;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import org.apache.ambari.logfeeder.util.LogFeederPropertiesUtil;
 import org.apache.hadoop.metrics2.sink.timeline.TimelineMetric;
 import org.apache.hadoop.metrics2.sink.timeline.TimelineMetrics;
@@ -89,6 +93,54 @@ public class MetricsManagerTest {
     assertEquals(values.firstEntry().getValue(), Double.valueOf(123.0));
   }
   
+  @Test
+  public void testMetricManager_pointInTimeSummed() throws Exception {
+    MetricData metricCount1 = new MetricData("metric1", true, null, true);
+    metricCount1.value = 123;
+    
+    MetricData metricCount2 = new MetricData("metric1", true, null, true);
+    metricCount2.value = 23;
+    
+    manager.useMetrics(Arrays.asList(metricCount1, metricCount2));
+    
+    verify(mockClient);
+    
+    TimelineMetrics metrics = capture.getValue();
+    List<TimelineMetric> metricList = metrics.getMetrics();
+    assertEquals(metricList.size(), 1);
+    
+    TreeMap<Long, Double> values = metricList.get(0).getMetricValues();
+    assertEquals(values.size(), 1);
+    assertEquals(values.firstEntry().getValue(), Double.valueOf(146.0));    
+    MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    ObjectName objectName = new ObjectName(MetricsJmxBean.OBJECT_NAME);
+    assertEquals(mBeanServer.getAttribute(objectName, "metric1"), Long.valueOf(146));
+  }
+  
+  @Test
+  public void testMetricManager_pointInTimeNotSummed() throws Exception {
+    MetricData metricCount1 = new MetricData("metric1.p95", true);
+    metricCount1.value = 123;
+    
+    MetricData metricCount2 = new MetricData("metric1.p95", true);
+    metricCount2.value = 23;
+    
+    manager.useMetrics(Arrays.asList(metricCount1, metricCount2));
+    
+    verify(mockClient);
+    
+    TimelineMetrics metrics = capture.getValue();
+    List<TimelineMetric> metricList = metrics.getMetrics();
+    assertEquals(metricList.size(), 1);
+    
+    TreeMap<Long, Double> values = metricList.get(0).getMetricValues();
+    assertEquals(values.size(), 1);
+    assertEquals(values.firstEntry().getValue(), Double.valueOf(23.0));    
+    MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    ObjectName objectName = new ObjectName(MetricsJmxBean.OBJECT_NAME);
+    assertEquals(mBeanServer.getAttribute(objectName, "metric1.p95"), Long.valueOf(23));
+  }
+  
   @Test
   public void testMetricManager_notPointInTime() throws Exception {
     MetricData metricCount1 = new MetricData("metric1", false);
@@ -123,4 +175,31 @@ public class MetricsManagerTest {
     assertEquals(values.size(), 1);
     assertEquals(values.firstEntry().getValue(), Double.valueOf(146.0));
   }
+
+  @Test
+  public void testMetricManager_instanceId() throws Exception {
+    MetricData metricCount1 = new MetricData("metric1", true, "input1");
+    metricCount1.value = 123;
+    
+    MetricData metricCount2 = new MetricData("metric1", true, "input2");
+    metricCount2.value = 23;
+    
+    manager.useMetrics(Arrays.asList(metricCount1, metricCount2));
+    
+    verify(mockClient);
+    
+    TimelineMetrics metrics = capture.getValue();
+    List<TimelineMetric> metricList = metrics.getMetrics();
+    assertEquals(metricList.size(), 2);
+    for (TimelineMetric metric : metricList) {
+      assertEquals(metric.getMetricName(), "metric1");
+      Double value = metric.getMetricValues().firstEntry().getValue();
+      assertEquals(value, Double.valueOf("input1".equals(metric.getInstanceId()) ? 123.0 : 23.0));
+    }
+    
+    MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    ObjectName objectName = new ObjectName(MetricsJmxBean.OBJECT_NAME);
+    assertEquals(mBeanServer.getAttribute(objectName, "metric1[input1]"), Long.valueOf(123));
+    assertEquals(mBeanServer.getAttribute(objectName, "metric1[input2]"), Long.valueOf(23));
+  }
 }
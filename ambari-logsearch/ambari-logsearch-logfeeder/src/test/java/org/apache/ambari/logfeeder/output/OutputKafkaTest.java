@@ -19,6 +19,7 @@
 package org.apache.ambari.logfeeder.output;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.Future;
@@ -27,9 +28,14 @@ import org.apache.ambari.logfeeder.input.Input;
 import org.apache.ambari.logfeeder.input.InputMarker;
 import org.apache.ambari.logfeeder.output.OutputKafka.KafkaCallBack;
 import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.serialization.StringSerializer;
 import org.apache.log4j.Logger;
+import org.easymock.Capture;
+import org.easymock.CaptureType;
 import org.easymock.EasyMock;
 import org.junit.After;
 import org.junit.Before;
@@ -37,6 +43,9 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
 public class OutputKafkaTest {
   private static final Logger LOG = Logger.getLogger(OutputKafkaTest.class);
 
@@ -120,6 +129,93 @@ public class OutputKafkaTest {
     outputKafka.init();
   }
 
+  @Test
+  public void testOutputKafka_keyedRecordsCheckedInAfterAcknowledgement() throws Exception {
+    LOG.info("testOutputKafka_keyedRecordsCheckedInAfterAcknowledgement()");
+
+    // GIVEN
+    final MockProducer<String, String> mockProducer = new MockProducer<>(false, new StringSerializer(),
+        new StringSerializer());
+    outputKafka = new OutputKafka() {
+      @Override
+      protected Producer<String, String> creteKafkaProducer(Properties props) {
+        return mockProducer;
+      }
+    };
+    Map<String, Object> config = new HashMap<String, Object>();
+    config.put("broker_list", "some broker list");
+    config.put("topic", TEST_TOPIC);
+    outputKafka.loadConfig(config);
+    outputKafka.init();
+
+    Input input = EasyMock.createNiceMock(Input.class);
+    Capture<InputMarker> checkedIn = EasyMock.newCapture(CaptureType.ALL);
+    input.checkIn(EasyMock.capture(checkedIn));
+    EasyMock.expectLastCall().anyTimes();
+    EasyMock.replay(input);
+
+    final InputMarker[] inputMarkers = new InputMarker[4];
+    final Map<String, Object> jsonObj = new HashMap<String, Object>();
+    jsonObj.put("host", "host1");
+    jsonObj.put("type", "component1");
+    for (int i = 0; i < inputMarkers.length; i++) {
+      inputMarkers[i] = new InputMarker(input, "key", i + 1);
+    }
+
+    // WHEN the broker acknowledges the first, synchronous write
+    Thread writer = new Thread() {
+      @Override
+      public void run() {
+        try {
+          outputKafka.write(new OutputEvent(jsonObj), inputMarkers[0]);
+        } catch (Exception e) {
+          LOG.error("Error writing", e);
+        }
+      }
+    };
+    writer.start();
+    waitForRecords(mockProducer, 1);
+    mockProducer.completeNext();
+    writer.join();
+    // THEN
+    assertEquals(1, checkedIn.getValues().size());
+    assertSame(inputMarkers[0], checkedIn.getValues().get(0));
+
+    // WHEN the second write fails, but the later ones succeed
+    for (int i = 1; i < inputMarkers.length; i++) {
+      outputKafka.write(new OutputEvent(jsonObj), inputMarkers[i]);
+    }
+    mockProducer.errorNext(new RuntimeException("test"));
+    mockProducer.completeNext();
+    mockProducer.completeNext();
+    // THEN
+    assertEquals(1, checkedIn.getValues().size());
+
+    // WHEN the retry of the failed write succeeds
+    waitForRecords(mockProducer, 5);
+    mockProducer.completeNext();
+    // THEN
+    long timeout = System.currentTimeMillis() + 10000;
+    while (checkedIn.getValues().size() < 2 && System.currentTimeMillis() < timeout) {
+      Thread.sleep(10);
+    }
+    assertEquals(2, checkedIn.getValues().size());
+    assertSame(inputMarkers[3], checkedIn.getValues().get(1));
+    for (ProducerRecord<String, String> record : mockProducer.history()) {
+      assertEquals("host1/component1", record.key());
+    }
+  }
+
+  private void waitForRecords(MockProducer<String, String> mockProducer, int count) throws InterruptedException {
+    long timeout = System.currentTimeMillis() + 10000;
+    List<ProducerRecord<String, String>> history = mockProducer.history();
+    while (history.size() < count && System.currentTimeMillis() < timeout) {
+      Thread.sleep(10);
+      history = mockProducer.history();
+    }
+    assertEquals(count, history.size());
+  }
+
   @After
   public void cleanUp() {
     EasyMock.reset(mockKafkaProducer);
@@ -33,6 +33,7 @@ import org.apache.ambari.logfeeder.input.Input;
 import org.apache.ambari.logfeeder.input.InputMarker;
 import org.apache.ambari.logfeeder.metrics.MetricData;
 import org.apache.ambari.logsearch.config.zookeeper.model.inputconfig.impl.InputDescriptorImpl;
+import org.easymock.Capture;
 import org.junit.Test;
 
 public class OutputManagerTest {
@@ -106,9 +107,13 @@ public class OutputManagerTest {
     expect(mockInput.getCache()).andReturn(null);
     expect(mockInput.getOutputList()).andReturn(Arrays.asList(output1, output2, output3));
 
-    output1.write(jsonObj, inputMarker); expectLastCall();
-    output2.write(jsonObj, inputMarker); expectLastCall();
-    output3.write(jsonObj, inputMarker); expectLastCall();
+    Capture<OutputEvent> event1 = newCapture();
+    Capture<OutputEvent> event2 = newCapture();
+    Capture<OutputEvent> event3 = newCapture();
+    output1.write(capture(event1), eq(inputMarker)); expectLastCall();
+    output2.write(capture(event2), eq(inputMarker)); expectLastCall();
+    output3.write(capture(event3), eq(inputMarker)); expectLastCall();
+    mockInput.addOutputTime(anyLong()); expectLastCall();
     
     replay(output1, output2, output3, mockInput);
     
@@ -120,6 +125,9 @@ public class OutputManagerTest {
     manager.write(jsonObj, inputMarker);
     
     verify(output1, output2, output3, mockInput);
+    assertSame(jsonObj, event1.getValue().getJsonObj());
+    assertSame(event1.getValue(), event2.getValue());
+    assertSame(event1.getValue(), event3.getValue());
   }
 
   @Test
@@ -140,6 +148,7 @@ public class OutputManagerTest {
     output1.write(jsonString, inputMarker); expectLastCall();
     output2.write(jsonString, inputMarker); expectLastCall();
     output3.write(jsonString, inputMarker); expectLastCall();
+    mockInput.addOutputTime(anyLong()); expectLastCall();
     
     replay(output1, output2, output3, mockInput);
     
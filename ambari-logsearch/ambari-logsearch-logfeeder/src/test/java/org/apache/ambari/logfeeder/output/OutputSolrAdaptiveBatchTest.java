@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.logfeeder.output;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class OutputSolrAdaptiveBatchTest {
+
+  @Test
+  public void testAdaptiveBatch() throws Exception {
+    OutputSolr.AdaptiveBatch batch = new OutputSolr.AdaptiveBatch(1000, 3000, 1000);
+    assertEquals(1000, batch.getSize());
+    assertEquals(3000, batch.getLingerMS());
+
+    batch.adapt(2500);
+    assertEquals(500, batch.getSize());
+    assertEquals(3000, batch.getLingerMS());
+
+    batch.adapt(800);
+    assertEquals(500, batch.getSize());
+    assertEquals(1600, batch.getLingerMS());
+
+    batch.adapt(20);
+    assertEquals(625, batch.getSize());
+    assertEquals(OutputSolr.AdaptiveBatch.MIN_LINGER_MS, batch.getLingerMS());
+
+    for (int i = 0; i < 20; i++) {
+      batch.shrink();
+    }
+    assertEquals(OutputSolr.AdaptiveBatch.MIN_SIZE, batch.getSize());
+
+    for (int i = 0; i < 50; i++) {
+      batch.adapt(20);
+    }
+    assertEquals(1000, batch.getSize());
+  }
+}
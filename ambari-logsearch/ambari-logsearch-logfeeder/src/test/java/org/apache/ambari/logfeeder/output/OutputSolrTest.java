@@ -18,13 +18,19 @@
 
 package org.apache.ambari.logfeeder.output;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.ambari.logfeeder.input.Input;
 import org.apache.ambari.logfeeder.input.InputMarker;
@@ -34,6 +40,7 @@ import org.apache.ambari.logsearch.config.zookeeper.model.outputconfig.impl.Outp
 import org.apache.log4j.Logger;
 import org.apache.solr.client.solrj.impl.CloudSolrClient;
 import org.apache.solr.client.solrj.response.UpdateResponse;
+import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.util.NamedList;
 import org.easymock.EasyMock;
@@ -42,9 +49,11 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 public class OutputSolrTest {
   private static final Logger LOG = Logger.getLogger(OutputSolrTest.class);
@@ -52,6 +61,13 @@ public class OutputSolrTest {
   private OutputSolr outputSolr;
   private LogSearchConfigLogFeeder logSearchConfigMock;
   private Map<Integer, SolrInputDocument> receivedDocs = new ConcurrentHashMap<>();
+  private List<Integer> sentBatchSizes = new CopyOnWriteArrayList<>();
+  private volatile int maxAcceptedBatchSize = Integer.MAX_VALUE;
+  private volatile boolean solrDown = false;
+  private volatile Integer rejectedId = null;
+
+  @Rule
+  public TemporaryFolder testFolder = new TemporaryFolder();
 
   @Rule
   public ExpectedException expectedException = ExpectedException.none();
@@ -66,9 +82,22 @@ public class OutputSolrTest {
           private static final long serialVersionUID = 1L;
 
           @Override
-          public UpdateResponse add(Collection<SolrInputDocument> docs) {
+          public UpdateResponse add(Collection<SolrInputDocument> docs) throws IOException {
+            if (solrDown) {
+              throw new IOException("Solr is down");
+            }
+            sentBatchSizes.add(docs.size());
             for (SolrInputDocument doc : docs) {
-              receivedDocs.put((Integer) doc.getField("id").getValue(), doc);
+              if (doc.getFieldValue("id").equals(rejectedId)) {
+                throw new SolrException(SolrException.ErrorCode.BAD_REQUEST, "Invalid document");
+              }
+            }
+            if (docs.size() > maxAcceptedBatchSize) {
+              throw new IOException("Batch is too large");
+            }
+            for (SolrInputDocument doc : docs) {
+              // the numbers of replayed events are read back from the spool as longs
+              receivedDocs.put(((Number) doc.getField("id").getValue()).intValue(), doc);
             }
 
             UpdateResponse response = new UpdateResponse();
@@ -77,6 +106,11 @@ public class OutputSolrTest {
           }
         };
       }
+
+      @Override
+      File getSpoolDir() {
+        return new File(testFolder.getRoot(), "spool");
+      }
     };
     
     OutputSolrProperties outputSolrProperties = new OutputSolrPropertiesImpl("hadoop_logs", "none");
@@ -154,6 +188,117 @@ public class OutputSolrTest {
     }
   }
 
+  @Test
+  public void testOutputToSolr_failedBatchIsSplit() throws Exception {
+    LOG.info("testOutputToSolr_failedBatchIsSplit()");
+
+    // GIVEN
+    maxAcceptedBatchSize = 20;
+
+    Map<String, Object> config = new HashMap<String, Object>();
+    config.put("zk_connect_string", "some zk_connect_string");
+    config.put("workers", "1");
+    config.put("flush_size", "40");
+    config.put("idle_flush_time_ms", "60000");
+    config.put("type", "service");
+
+    outputSolr.loadConfig(config);
+    outputSolr.init();
+
+    // WHEN
+    for (int i = 0; i < 40; i++) {
+      Map<String, Object> jsonObj = new HashMap<>();
+      jsonObj.put("id", i);
+      outputSolr.write(jsonObj, new InputMarker(EasyMock.mock(Input.class), null, 0));
+    }
+
+    for (int i = 0; i < 100 && receivedDocs.size() < 40; i++) {
+      Thread.sleep(100);
+    }
+
+    // THEN
+    assertEquals(40, receivedDocs.size());
+    assertEquals(Arrays.asList(40, 20, 20), sentBatchSizes);
+  }
+
+  @Test
+  public void testOutputToSolr_rejectedBatchIsDropped() throws Exception {
+    LOG.info("testOutputToSolr_rejectedBatchIsDropped()");
+
+    // GIVEN
+    rejectedId = 3;
+
+    Map<String, Object> config = new HashMap<String, Object>();
+    config.put("zk_connect_string", "some zk_connect_string");
+    config.put("workers", "1");
+    config.put("flush_size", "1");
+    config.put("type", "service");
+
+    outputSolr.loadConfig(config);
+    outputSolr.init();
+
+    // WHEN
+    for (int i = 0; i < 5; i++) {
+      Map<String, Object> jsonObj = new HashMap<>();
+      jsonObj.put("id", i);
+      outputSolr.write(jsonObj, new InputMarker(EasyMock.mock(Input.class), null, 0));
+    }
+
+    for (int i = 0; i < 50 && receivedDocs.size() < 4; i++) {
+      Thread.sleep(100);
+    }
+
+    // THEN
+    assertEquals(new HashSet<>(Arrays.asList(0, 1, 2, 4)), receivedDocs.keySet());
+    assertEquals(5, sentBatchSizes.size());
+  }
+
+  @Test
+  public void testOutputToSolr_spooledEventsKeepTypes() throws Exception {
+    LOG.info("testOutputToSolr_spooledEventsKeepTypes()");
+
+    // GIVEN
+    solrDown = true;
+
+    Map<String, Object> config = new HashMap<String, Object>();
+    config.put("zk_connect_string", "some zk_connect_string");
+    config.put("workers", "1");
+    config.put("flush_size", "1");
+    config.put("durable_spool", "true");
+    config.put("type", "service");
+
+    outputSolr.loadConfig(config);
+    outputSolr.init();
+
+    // WHEN
+    Date logtime = new Date(1500000000123L);
+    for (int i = 0; i < 10; i++) {
+      Map<String, Object> jsonObj = new HashMap<>();
+      jsonObj.put("id", i);
+      jsonObj.put("logtime", logtime);
+      jsonObj.put("log_message", "message " + i);
+      outputSolr.write(jsonObj, new InputMarker(EasyMock.mock(Input.class), null, 0));
+    }
+    solrDown = false;
+
+    for (int i = 0; i < 100 && receivedDocs.size() < 10; i++) {
+      Thread.sleep(100);
+    }
+
+    // THEN
+    assertEquals(10, receivedDocs.size());
+    int replayedDocs = 0;
+    for (Map.Entry<Integer, SolrInputDocument> entry : receivedDocs.entrySet()) {
+      SolrInputDocument doc = entry.getValue();
+      assertEquals(logtime, doc.getFieldValue("logtime"));
+      assertEquals("message " + entry.getKey(), doc.getFieldValue("log_message"));
+      if (doc.getFieldValue("id") instanceof Long) {
+        replayedDocs++;
+      }
+    }
+    assertTrue(replayedDocs > 0);
+  }
+
   @Test
   public void testOutputToSolr_noZkConnectString() throws Exception {
     LOG.info("testOutputToSolr_noUrlOrZkConnectString()");
@@ -172,6 +317,7 @@ public class OutputSolrTest {
   @After
   public void cleanUp() {
     receivedDocs.clear();
+    sentBatchSizes.clear();
     EasyMock.verify(logSearchConfigMock);
   }
 }
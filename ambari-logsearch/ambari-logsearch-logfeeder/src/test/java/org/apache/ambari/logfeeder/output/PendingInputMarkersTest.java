@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.ambari.logfeeder.output;
+
+import org.apache.ambari.logfeeder.input.InputMarker;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class PendingInputMarkersTest {
+
+  @Test
+  public void testReleasesMarkersInOrderPerFile() {
+    // GIVEN
+    PendingInputMarkers underTest = new PendingInputMarkers();
+    InputMarker file1Line1 = new InputMarker(null, "file1", 1);
+    InputMarker file1Line2 = new InputMarker(null, "file1", 2);
+    InputMarker file1Line3 = new InputMarker(null, "file1", 3);
+    InputMarker file2Line1 = new InputMarker(null, "file2", 1);
+    underTest.add(1, file1Line1);
+    underTest.add(2, file1Line2);
+    underTest.add(3, file2Line1);
+    underTest.add(4, file1Line3);
+    // WHEN
+    InputMarker released1 = underTest.acknowledge(2, file1Line2);
+    InputMarker released2 = underTest.acknowledge(3, file2Line1);
+    InputMarker released3 = underTest.acknowledge(4, file1Line3);
+    // THEN
+    assertNull(released1);
+    assertSame(file2Line1, released2);
+    assertNull(released3);
+    assertEquals(1, underTest.size());
+
+    // WHEN
+    InputMarker released4 = underTest.acknowledge(1, file1Line1);
+    // THEN
+    assertSame(file1Line3, released4);
+    assertEquals(0, underTest.size());
+  }
+
+  @Test
+  public void testRemovedMarkerDoesNotHoldBackLaterOnes() {
+    // GIVEN
+    PendingInputMarkers underTest = new PendingInputMarkers();
+    InputMarker line1 = new InputMarker(null, "file1", 1);
+    InputMarker line2 = new InputMarker(null, "file1", 2);
+    underTest.add(1, line1);
+    underTest.add(2, line2);
+    // WHEN
+    InputMarker released1 = underTest.acknowledge(2, line2);
+    InputMarker released2 = underTest.remove(1, line1);
+    // THEN
+    assertNull(released1);
+    assertSame(line2, released2);
+    assertNull(underTest.acknowledge(2, line2));
+  }
+}
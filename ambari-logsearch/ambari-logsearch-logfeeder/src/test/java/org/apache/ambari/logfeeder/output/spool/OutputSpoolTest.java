@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.logfeeder.output.spool;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.ambari.logfeeder.input.Input;
+import org.apache.ambari.logfeeder.input.InputMarker;
+import org.apache.ambari.logfeeder.metrics.MetricData;
+import org.apache.commons.io.FileUtils;
+import org.easymock.Capture;
+import org.easymock.CaptureType;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class OutputSpoolTest {
+
+  @Rule
+  public TemporaryFolder testFolder = new TemporaryFolder();
+
+  private File spoolDir;
+  private OutputSpool underTest;
+  private final List<String> replayed = Collections.synchronizedList(new ArrayList<String>());
+  private final LinkedBlockingQueue<Runnable> acknowledgements = new LinkedBlockingQueue<>();
+
+  private final OutputSpool.Sink sink = new OutputSpool.Sink() {
+    @Override
+    public void replay(String event, Runnable acknowledgement) throws Exception {
+      acknowledgements.put(acknowledgement);
+      replayed.add(event);
+    }
+  };
+
+  @Before
+  public void setUp() {
+    spoolDir = new File(testFolder.getRoot(), "spool");
+  }
+
+  @After
+  public void tearDown() {
+    if (underTest != null) {
+      underTest.close();
+    }
+  }
+
+  @Test
+  public void testReplaysEventsInOrderAndDeletesAcknowledgedSegments() throws Exception {
+    // GIVEN
+    underTest = new OutputSpool("test", spoolDir, 1024 * 1024, 100, 0, sink);
+    // WHEN
+    for (int i = 0; i < 50; i++) {
+      underTest.add("event " + i, null);
+    }
+    // THEN
+    waitFor(50);
+    for (int i = 0; i < 50; i++) {
+      assertEquals("event " + i, replayed.get(i));
+    }
+    waitForEmpty();
+    assertTrue(underTest.getSpoolBytes() > 0);
+
+    // WHEN
+    for (Runnable acknowledgement : acknowledgements) {
+      acknowledgement.run();
+    }
+    // THEN
+    assertEquals(0, underTest.getSpoolBytes());
+    assertEquals(0, new File(spoolDir, "segments").list().length);
+  }
+
+  @Test
+  public void testChecksInInputMarkersOnceSynced() throws Exception {
+    // GIVEN
+    Input input = EasyMock.createNiceMock(Input.class);
+    InputMarker inputMarker1 = new InputMarker(input, "key", 1);
+    InputMarker inputMarker2 = new InputMarker(input, "key", 2);
+    Capture<InputMarker> checkedIn = EasyMock.newCapture(CaptureType.LAST);
+    input.checkIn(EasyMock.capture(checkedIn));
+    EasyMock.expectLastCall().anyTimes();
+    EasyMock.replay(input);
+    underTest = new OutputSpool("test", spoolDir, 1024 * 1024, 15, 0, new OutputSpool.Sink() {
+      @Override
+      public void replay(String event, Runnable acknowledgement) throws Exception {
+        Thread.sleep(Long.MAX_VALUE);
+      }
+    });
+    // WHEN
+    underTest.add("event 1", inputMarker1);
+    underTest.add("event 2", inputMarker2);
+    // THEN
+    assertSame(inputMarker2, checkedIn.getValue());
+    assertFalse(underTest.isEmpty());
+  }
+
+  @Test
+  public void testHoldsBackCheckInUntilDirectEventsAcknowledged() throws Exception {
+    // GIVEN
+    Input input = EasyMock.createNiceMock(Input.class);
+    InputMarker inputMarker = new InputMarker(input, "key", 2);
+    Capture<InputMarker> checkedIn = EasyMock.newCapture(CaptureType.ALL);
+    input.checkIn(EasyMock.capture(checkedIn));
+    EasyMock.expectLastCall().anyTimes();
+    EasyMock.replay(input);
+    underTest = new OutputSpool("test", spoolDir, 1024 * 1024, 1, 0, new OutputSpool.Sink() {
+      @Override
+      public void replay(String event, Runnable acknowledgement) throws Exception {
+        Thread.sleep(Long.MAX_VALUE);
+      }
+    });
+    Runnable directAcknowledgement1 = underTest.addDirectEvent();
+    Runnable directAcknowledgement2 = underTest.addDirectEvent();
+    // WHEN
+    underTest.add("event 2", inputMarker);
+    directAcknowledgement1.run();
+    // THEN
+    assertTrue(checkedIn.getValues().isEmpty());
+
+    // WHEN
+    directAcknowledgement2.run();
+    // THEN
+    assertEquals(Collections.singletonList(inputMarker), checkedIn.getValues());
+  }
+
+  @Test
+  public void testCountsReplayedEvents() throws Exception {
+    // GIVEN
+    underTest = new OutputSpool("test", spoolDir, 1024 * 1024, 100, 0, sink);
+    for (int i = 0; i < 10; i++) {
+      underTest.add("event " + i, null);
+    }
+    waitFor(10);
+    // WHEN
+    for (Runnable acknowledgement : acknowledgements) {
+      acknowledgement.run();
+    }
+    List<MetricData> metrics = new ArrayList<>();
+    underTest.addMetricsContainers(metrics);
+    // THEN
+    assertEquals("output.spool.replayed_logs", metrics.get(1).metricsName);
+    assertEquals(10, metrics.get(1).value);
+  }
+
+  @Test
+  public void testReplaysSegmentsLeftByRestart() throws Exception {
+    // GIVEN
+    File segmentsDir = new File(spoolDir, "segments");
+    FileUtils.writeStringToFile(new File(segmentsDir, String.format("%020d", 7)), "event 1\nevent 2\n",
+        Charset.defaultCharset());
+    FileUtils.writeStringToFile(new File(segmentsDir, String.format("%020d", 12)), "event 3\n", Charset.defaultCharset());
+    File activeFile = new File(spoolDir, "active-2017-01-01-00-00-00");
+    FileUtils.writeStringToFile(activeFile, "not synced\n", Charset.defaultCharset());
+    // WHEN
+    underTest = new OutputSpool("test", spoolDir, 1024 * 1024, 1024, 0, sink);
+    waitFor(3);
+    // THEN
+    assertEquals("event 1", replayed.get(0));
+    assertEquals("event 2", replayed.get(1));
+    assertEquals("event 3", replayed.get(2));
+    assertFalse(activeFile.exists());
+
+    // WHEN
+    underTest.add("event 4", null);
+    waitFor(4);
+    // THEN
+    assertEquals("event 4", replayed.get(3));
+    assertTrue(new File(segmentsDir, String.format("%020d", 13)).exists());
+  }
+
+  @Test
+  public void testIgnoresFilesWhichAreNotSegments() throws Exception {
+    // GIVEN
+    File segmentsDir = new File(spoolDir, "segments");
+    FileUtils.writeStringToFile(new File(segmentsDir, String.format("%020d", 3)), "event 1\n", Charset.defaultCharset());
+    FileUtils.writeStringToFile(new File(segmentsDir, ".nfs0001"), "stray\n", Charset.defaultCharset());
+    // WHEN
+    underTest = new OutputSpool("test", spoolDir, 1024 * 1024, 1024, 0, sink);
+    waitFor(1);
+    underTest.add("event 2", null);
+    waitFor(2);
+    // THEN
+    assertEquals("event 1", replayed.get(0));
+    assertEquals("event 2", replayed.get(1));
+    assertTrue(new File(segmentsDir, String.format("%020d", 4)).exists());
+  }
+
+  @Test
+  public void testCountsEncodedBytes() throws Exception {
+    // GIVEN
+    underTest = new OutputSpool("test", spoolDir, 1024 * 1024, 1024 * 1024, 0, new OutputSpool.Sink() {
+      @Override
+      public void replay(String event, Runnable acknowledgement) throws Exception {
+        Thread.sleep(Long.MAX_VALUE);
+      }
+    });
+    String event = "caf\u00e9 \u65e5\u672c";
+    // WHEN
+    underTest.add(event, null);
+    // THEN
+    assertEquals(event.getBytes(Charset.defaultCharset()).length + System.lineSeparator().length(),
+        underTest.getSpoolBytes());
+  }
+
+  private void waitForEmpty() throws InterruptedException {
+    long timeout = System.currentTimeMillis() + 10000;
+    while (!underTest.isEmpty() && System.currentTimeMillis() < timeout) {
+      Thread.sleep(10);
+    }
+    assertTrue(underTest.isEmpty());
+  }
+
+  private void waitFor(int count) throws InterruptedException {
+    long timeout = System.currentTimeMillis() + 10000;
+    while (replayed.size() < count && System.currentTimeMillis() < timeout) {
+      Thread.sleep(10);
+    }
+    assertEquals(count, replayed.size());
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.logfeeder.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EventHashUtilTest {
+  private static final int SEED = 31174077;
+
+  @Test
+  public void testHashDoesNotDependOnFieldOrder() {
+    // GIVEN
+    Map<String, Object> event1 = new LinkedHashMap<>();
+    event1.put("host", "host1");
+    event1.put("seq_num", 10L);
+    event1.put("tags", Arrays.asList("a", "b"));
+    Map<String, Object> event2 = new LinkedHashMap<>();
+    event2.put("tags", Arrays.asList("a", "b"));
+    event2.put("seq_num", 10L);
+    event2.put("host", "host1");
+    // WHEN
+    long hash1 = EventHashUtil.hash64A(event1, SEED);
+    long hash2 = EventHashUtil.hash64A(event2, SEED);
+    // THEN
+    assertEquals(hash1, hash2);
+  }
+
+  @Test
+  public void testHashDependsOnValues() {
+    // GIVEN
+    Map<String, Object> event1 = event("log_message", "message 1");
+    Map<String, Object> event2 = event("log_message", "message 2");
+    Map<String, Object> event3 = event("log_message2", "message 1");
+    // WHEN / THEN
+    assertTrue(EventHashUtil.hash64A(event1, SEED) != EventHashUtil.hash64A(event2, SEED));
+    assertTrue(EventHashUtil.hash64A(event1, SEED) != EventHashUtil.hash64A(event3, SEED));
+  }
+
+  @Test
+  public void testHashDependsOnValueTypes() {
+    // WHEN / THEN
+    assertTrue(EventHashUtil.hash64A(event("seq_num", "1"), SEED) != EventHashUtil.hash64A(event("seq_num", 1L), SEED));
+    assertEquals(EventHashUtil.hash64A(event("seq_num", 1), SEED), EventHashUtil.hash64A(event("seq_num", 1L), SEED));
+  }
+
+  @Test
+  public void testHashSkipsNullFields() {
+    // GIVEN
+    Map<String, Object> event1 = event("host", "host1");
+    Map<String, Object> event2 = event("host", "host1");
+    event2.put("ip", null);
+    // WHEN / THEN
+    assertEquals(EventHashUtil.hash64A(event1, SEED), EventHashUtil.hash64A(event2, SEED));
+  }
+
+  @Test
+  public void testHashOfLargeEvent() {
+    // GIVEN
+    String largeMessage = StringUtils.repeat("x", 2 * 1024 * 1024);
+    // WHEN
+    long hash1 = EventHashUtil.hash64A(event("log_message", largeMessage), SEED);
+    long hash2 = EventHashUtil.hash64A(event("log_message", largeMessage + "y"), SEED);
+    // THEN
+    assertTrue(hash1 != hash2);
+    assertEquals(hash1, EventHashUtil.hash64A(event("log_message", largeMessage), SEED));
+  }
+
+  private Map<String, Object> event(String key, Object value) {
+    Map<String, Object> event = new HashMap<>();
+    event.put(key, value);
+    return event;
+  }
+}
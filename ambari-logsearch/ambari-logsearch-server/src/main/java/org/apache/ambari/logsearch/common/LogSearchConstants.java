@@ -86,6 +86,7 @@ public class LogSearchConstants {
   public static final String REQUEST_PARAM_TO = "to";
   public static final String REQUEST_PARAM_FIELD = "field";
   public static final String REQUEST_PARAM_FORMAT = "format";
+  public static final String REQUEST_PARAM_COMPRESS = "compress";
   public static final String REQUEST_PARAM_LAST_PAGE = "lastPage";
   public static final String REQUEST_PARAM_I_MESSAGE = "iMessage";
   public static final String REQUEST_PARAM_E_MESSAGE = "eMessage";
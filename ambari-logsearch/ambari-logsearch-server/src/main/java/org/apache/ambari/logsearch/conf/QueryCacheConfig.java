@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ambari.logsearch.conf;
+
+import org.apache.ambari.logsearch.config.api.LogSearchPropertyDescription;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import static org.apache.ambari.logsearch.common.LogSearchConstants.LOGSEARCH_PROPERTIES_FILE;
+
+@Configuration
+public class QueryCacheConfig {
+
+  @LogSearchPropertyDescription(
+    name = "logsearch.query.cache.enabled",
+    description = "Cache the results of the facet and graph queries of the dashboards.",
+    examples = {"true", "false"},
+    defaultValue = "true",
+    sources = {LOGSEARCH_PROPERTIES_FILE}
+  )
+  @Value("${logsearch.query.cache.enabled:true}")
+  private boolean enabled;
+
+  @LogSearchPropertyDescription(
+    name = "logsearch.query.cache.ttl.seconds",
+    description = "Time after which a cached query result expires, should be about the ingest latency of the logs.",
+    examples = {"30", "60"},
+    defaultValue = "30",
+    sources = {LOGSEARCH_PROPERTIES_FILE}
+  )
+  @Value("${logsearch.query.cache.ttl.seconds:30}")
+  private int ttlSeconds;
+
+  @LogSearchPropertyDescription(
+    name = "logsearch.query.cache.time.bucket.seconds",
+    description = "The times of the cached queries are rounded down to this many seconds, so sliding time ranges can " +
+      "reuse earlier results (0 to disable).",
+    examples = {"0", "30", "60"},
+    defaultValue = "30",
+    sources = {LOGSEARCH_PROPERTIES_FILE}
+  )
+  @Value("${logsearch.query.cache.time.bucket.seconds:30}")
+  private int timeBucketSeconds;
+
+  @LogSearchPropertyDescription(
+    name = "logsearch.query.cache.max.entries",
+    description = "Maximum number of cached query results.",
+    examples = {"1000"},
+    defaultValue = "1000",
+    sources = {LOGSEARCH_PROPERTIES_FILE}
+  )
+  @Value("${logsearch.query.cache.max.entries:1000}")
+  private int maxEntries;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public int getTtlSeconds() {
+    return ttlSeconds;
+  }
+
+  public void setTtlSeconds(int ttlSeconds) {
+    this.ttlSeconds = ttlSeconds;
+  }
+
+  public int getTimeBucketSeconds() {
+    return timeBucketSeconds;
+  }
+
+  public void setTimeBucketSeconds(int timeBucketSeconds) {
+    this.timeBucketSeconds = timeBucketSeconds;
+  }
+
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
+  public void setMaxEntries(int maxEntries) {
+    this.maxEntries = maxEntries;
+  }
+}
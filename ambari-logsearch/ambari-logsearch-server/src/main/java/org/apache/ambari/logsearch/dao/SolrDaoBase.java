@@ -46,6 +46,7 @@ import org.springframework.data.solr.core.query.SolrDataQuery;
 
 import javax.inject.Inject;
 import java.io.IOException;
+import java.util.concurrent.Callable;
 
 public abstract class SolrDaoBase {
 
@@ -63,6 +64,9 @@ public abstract class SolrDaoBase {
   @Inject
   private LogSearchConfigConfigurer logSearchConfigConfigurer;
 
+  @Inject
+  private SolrQueryCache solrQueryCache;
+
   protected SolrDaoBase(LogType logType) {
     this.logType = logType;
   }
@@ -94,12 +98,30 @@ public abstract class SolrDaoBase {
     }
   }
 
+  /**
+   * Processes a facet or graph query of the dashboards through the {@link SolrQueryCache}, so the same query of
+   * several users or refreshes hits Solr only once.
+   */
+  public QueryResponse processCached(final SolrQuery solrQuery, final String event) {
+    return solrQueryCache.get(logType.name(), solrQuery, new Callable<QueryResponse>() {
+      @Override
+      public QueryResponse call() {
+        return process(solrQuery, event);
+      }
+    });
+  }
+
+  public QueryResponse processCached(SolrDataQuery solrDataQuery, String event) {
+    return processCached(new DefaultQueryParser().doConstructSolrQuery(solrDataQuery), event);
+  }
+
   public UpdateResponse deleteByQuery(SolrQuery solrQuery, String event) {
     SolrUtil.removeDoubleOrTripleEscapeFromFilters(solrQuery);
     LOG.info("Solr delete query will be processed: " + solrQuery);
     if (getSolrClient() != null) {
       try {
         UpdateResponse updateResponse = getSolrClient().deleteByQuery(solrQuery.getQuery());
+        solrQueryCache.invalidateAll();
         logSolrEvent(event, solrQuery, updateResponse);
         return updateResponse;
       } catch (Exception e) {
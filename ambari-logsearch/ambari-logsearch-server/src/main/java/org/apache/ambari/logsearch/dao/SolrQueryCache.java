@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ambari.logsearch.dao;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.apache.ambari.logsearch.conf.QueryCacheConfig;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.QueryResponse;
+
+/**
+ * Caches the responses of the facet and graph queries of the dashboards, which are repeated on every refresh of the UI,
+ * by many users, for overlapping time ranges.
+ * <p>
+ * The key of an entry is the collection and the parameters of the query, sorted by name. Before that the start times of
+ * the query are rounded down and the end times up to the time bucket, so a sliding time range gives the same query until
+ * it moves to the next bucket, and still covers the newest logs. Entries expire after the TTL, so new logs show up after
+ * about the ingest latency.
+ */
+@Named
+public class SolrQueryCache {
+
+  private static final Pattern SOLR_DATE = Pattern.compile("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}(\\.\\d{1,3})?Z");
+  private static final Pattern RANGE_END = Pattern.compile("\\sTO\\s+$");
+  private static final String RANGE_END_PARAM = "facet.range.end";
+  private static final String EVENT_PARAM = "event";
+
+  @Inject
+  private QueryCacheConfig queryCacheConfig;
+
+  private Cache<String, QueryResponse> cache;
+  private final AtomicLong requestCount = new AtomicLong();
+  private final AtomicLong totalTimeNanos = new AtomicLong();
+
+  @PostConstruct
+  public void init() {
+    cache = CacheBuilder.newBuilder()
+      .maximumSize(queryCacheConfig.getMaxEntries())
+      .expireAfterWrite(queryCacheConfig.getTtlSeconds(), TimeUnit.SECONDS)
+      .recordStats()
+      .build();
+  }
+
+  /**
+   * @param loader runs the query if its response is not cached yet
+   */
+  public QueryResponse get(String collection, SolrQuery solrQuery, Callable<QueryResponse> loader) {
+    if (!queryCacheConfig.isEnabled()) {
+      return call(loader);
+    }
+    long startTime = System.nanoTime();
+    alignTimes(solrQuery, TimeUnit.SECONDS.toMillis(queryCacheConfig.getTimeBucketSeconds()));
+    try {
+      return cache.get(collection + createKey(solrQuery), loader);
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      Throwable cause = e.getCause();
+      throw cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+    } finally {
+      requestCount.incrementAndGet();
+      totalTimeNanos.addAndGet(System.nanoTime() - startTime);
+    }
+  }
+
+  /**
+   * Drops all the cached responses, e.g. after logs are deleted.
+   */
+  public void invalidateAll() {
+    if (cache != null) {
+      cache.invalidateAll();
+    }
+  }
+
+  public Map<String, Object> getStatistics() {
+    CacheStats stats = cache.stats();
+    long requests = requestCount.get();
+    Map<String, Object> statistics = new LinkedHashMap<>();
+    statistics.put("enabled", queryCacheConfig.isEnabled());
+    statistics.put("size", cache.size());
+    statistics.put("hitCount", stats.hitCount());
+    statistics.put("missCount", stats.missCount());
+    statistics.put("hitRate", stats.hitRate());
+    statistics.put("evictionCount", stats.evictionCount());
+    statistics.put("averageSolrQueryTimeMs", stats.averageLoadPenalty() / TimeUnit.MILLISECONDS.toNanos(1));
+    statistics.put("averageResponseTimeMs", requests == 0 ? 0.0 : (double) totalTimeNanos.get() / requests / TimeUnit.MILLISECONDS.toNanos(1));
+    return statistics;
+  }
+
+  /**
+   * Rounds the times in the parameters of the query to the bucket: the ends of ranges up, so that the logs of the last,
+   * still open bucket are not left out, and all other times down.
+   */
+  static void alignTimes(SolrQuery solrQuery, long bucketMillis) {
+    if (bucketMillis <= 0) {
+      return;
+    }
+    for (String name : solrQuery.getParameterNames()) {
+      String[] values = solrQuery.getParams(name);
+      boolean aligned = false;
+      for (int i = 0; i < values.length; i++) {
+        String alignedValue = alignTimes(values[i], bucketMillis, name.endsWith(RANGE_END_PARAM));
+        if (!alignedValue.equals(values[i])) {
+          values[i] = alignedValue;
+          aligned = true;
+        }
+      }
+      if (aligned) {
+        solrQuery.set(name, values);
+      }
+    }
+  }
+
+  private static String alignTimes(String value, long bucketMillis, boolean isRangeEnd) {
+    Matcher matcher = SOLR_DATE.matcher(value);
+    if (!matcher.find()) {
+      return value;
+    }
+    StringBuffer alignedValue = new StringBuffer();
+    do {
+      long time = Instant.parse(matcher.group()).toEpochMilli();
+      long alignedTime = time - time % bucketMillis;
+      if (alignedTime != time && (isRangeEnd || RANGE_END.matcher(value.substring(0, matcher.start())).find())) {
+        alignedTime += bucketMillis;
+      }
+      matcher.appendReplacement(alignedValue, Instant.ofEpochMilli(alignedTime).toString());
+    } while (matcher.find());
+    matcher.appendTail(alignedValue);
+    return alignedValue.toString();
+  }
+
+  static String createKey(SolrQuery solrQuery) {
+    List<String> names = new ArrayList<>(solrQuery.getParameterNames());
+    Collections.sort(names);
+    StringBuilder key = new StringBuilder();
+    for (String name : names) {
+      if (!EVENT_PARAM.equals(name)) {
+        key.append('&').append(name).append('=').append(Arrays.toString(solrQuery.getParams(name)));
+      }
+    }
+    return key.toString();
+  }
+
+  private static QueryResponse call(Callable<QueryResponse> loader) {
+    try {
+      return loader.call();
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+}
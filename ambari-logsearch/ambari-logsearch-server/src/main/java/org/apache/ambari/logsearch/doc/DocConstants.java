@@ -44,6 +44,7 @@ public class DocConstants {
     public static final String IS_LAST_PAGE_D = "Show last page (true/false)";
     public static final String FIELD_D = "Get values for particular field";
     public static final String FORMAT_D = "File Export format, can be 'txt' or 'json'";
+    public static final String COMPRESS_D = "Compress the exported file with gzip (true/false)";
     public static final String TOP = "Number that defines how many top element you would like to see.";
   }
 
@@ -134,5 +135,6 @@ public class DocConstants {
     public static final String SERVICE_LOGS_STATUS_OD = "Get statuses for service log collection (not health state - show true if something already done)";
     public static final String AUDIT_LOGS_STATUS_OD = "Get statuses for collections (not health state - show true if something already done)";
     public static final String EVENT_HISTORY_STATUS_OD = "Get statuses for history collection (not health state - show true if something already done)";
+    public static final String QUERY_CACHE_STATUS_OD = "Get hit rate and latency statistics of the query cache of the dashboards";
   }
 }
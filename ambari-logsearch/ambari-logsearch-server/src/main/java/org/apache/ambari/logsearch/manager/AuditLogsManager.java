@@ -21,13 +21,10 @@ package org.apache.ambari.logsearch.manager;
 
 import javax.inject.Inject;
 import javax.inject.Named;
-import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -132,13 +129,13 @@ public class AuditLogsManager extends ManagerBase<AuditLogData, AuditLogResponse
 
   public BarGraphDataListResponse getAuditBarGraphData(AuditBarGraphRequest request) {
     SolrQuery solrQuery = conversionService.convert(request, SolrQuery.class);
-    QueryResponse response = auditSolrDao.process(solrQuery);
+    QueryResponse response = auditSolrDao.processCached(solrQuery, "/audit/logs/bargraph");
     return responseDataGenerator.generateBarGraphDataResponseWithRanges(response, SolrConstants.AuditLogConstants.AUDIT_COMPONENT, true);
   }
 
   public BarGraphDataListResponse topResources(TopFieldAuditLogRequest request) {
     SimpleFacetQuery facetQuery = conversionService.convert(request, SimpleFacetQuery.class);
-    QueryResponse queryResponse = auditSolrDao.process(facetQuery);
+    QueryResponse queryResponse = auditSolrDao.processCached(facetQuery, "/audit/logs/resources");
     return responseDataGenerator.generateSecondLevelBarGraphDataResponse(queryResponse, 0);
   }
 
@@ -148,7 +145,7 @@ public class AuditLogsManager extends ManagerBase<AuditLogData, AuditLogResponse
 
   public BarGraphDataListResponse getServiceLoad(AuditServiceLoadRequest request) {
     SimpleFacetQuery facetQuery = conversionService.convert(request, SimpleFacetQuery.class);
-    QueryResponse response = auditSolrDao.process(facetQuery);
+    QueryResponse response = auditSolrDao.processCached(facetQuery, "/audit/logs/serviceload");
     return responseDataGenerator.generateBarGraphFromFieldFacet(response, AUDIT_COMPONENT);
   }
 
@@ -162,49 +159,43 @@ public class AuditLogsManager extends ManagerBase<AuditLogData, AuditLogResponse
 
     String dataFormat = request.getFormat();
 
-    FileOutputStream fis = null;
-    try {
-      QueryResponse queryResponse = auditSolrDao.process(facetQuery);
-      if (queryResponse == null) {
-        VResponse response = new VResponse();
-        response.setMsgDesc("Query was not able to execute " + facetQuery);
-        throw RESTErrorUtil.createRESTException(response);
-      }
-      BarGraphDataListResponse vBarUserDataList = responseDataGenerator.generateSecondLevelBarGraphDataResponse(queryResponse, 0);
-      BarGraphDataListResponse vBarResourceDataList = responseDataGenerator.generateSecondLevelBarGraphDataResponse(queryResponse, 1);
-      String data = "";
-      if ("text".equals(dataFormat)) {
-        StringWriter stringWriter = new StringWriter();
-        Template template = freemarkerConfiguration.getTemplate(AUDIT_LOG_TEMPLATE);
-        Map<String, Object> models = new HashMap<>();
-        DownloadUtil.fillUserResourcesModel(models, vBarUserDataList, vBarResourceDataList);
-        template.process(models, stringWriter);
-        data = stringWriter.toString();
-
-      } else {
-        data = "{" + convertObjToString(vBarUserDataList) + "," + convertObjToString(vBarResourceDataList) + "}";
-        dataFormat = "json";
+    QueryResponse queryResponse = auditSolrDao.process(facetQuery);
+    if (queryResponse == null) {
+      VResponse response = new VResponse();
+      response.setMsgDesc("Query was not able to execute " + facetQuery);
+      throw RESTErrorUtil.createRESTException(response);
+    }
+    final BarGraphDataListResponse vBarUserDataList = responseDataGenerator.generateSecondLevelBarGraphDataResponse(queryResponse, 0);
+    final BarGraphDataListResponse vBarResourceDataList = responseDataGenerator.generateSecondLevelBarGraphDataResponse(queryResponse, 1);
+    final Template template;
+    if ("text".equals(dataFormat)) {
+      try {
+        template = freemarkerConfiguration.getTemplate(AUDIT_LOG_TEMPLATE);
+      } catch (IOException e) {
+        logger.error("Error during download file (audit log) " + e);
+        throw RESTErrorUtil.createRESTException(MessageEnums.SOLR_ERROR.getMessage().getMessage(), MessageEnums.ERROR_SYSTEM);
       }
-      String fileName = "Users_Resource" + startTime + endTime + ".";
-      File file = File.createTempFile(fileName, dataFormat);
-      fis = new FileOutputStream(file);
-      fis.write(data.getBytes());
-      return Response
-        .ok(file, MediaType.APPLICATION_OCTET_STREAM)
-        .header("Content-Disposition", "attachment;filename=" + fileName + dataFormat)
-        .build();
-
-    } catch (IOException e) {
-      logger.error("Error during download file (audit log) " + e);
-      throw RESTErrorUtil.createRESTException(MessageEnums.SOLR_ERROR.getMessage().getMessage(), MessageEnums.ERROR_SYSTEM);
-    } finally {
-      if (fis != null) {
-        try {
-          fis.close();
-        } catch (IOException e) {
+    } else {
+      template = null;
+      dataFormat = "json";
+    }
+    String fileName = "Users_Resource" + startTime + endTime + ".";
+    return DownloadUtil.createExportResponse(new DownloadUtil.ExportWriter() {
+      @Override
+      public void write(Writer writer) throws IOException {
+        if (template != null) {
+          Map<String, Object> models = new HashMap<>();
+          DownloadUtil.fillUserResourcesModel(models, vBarUserDataList, vBarResourceDataList);
+          try {
+            template.process(models, writer);
+          } catch (TemplateException e) {
+            throw new IOException("Could not render audit log export", e);
+          }
+        } else {
+          writer.write("{" + convertObjToString(vBarUserDataList) + "," + convertObjToString(vBarResourceDataList) + "}");
         }
       }
-    }
+    }, fileName + dataFormat, request.isCompress());
   }
 
   @Override
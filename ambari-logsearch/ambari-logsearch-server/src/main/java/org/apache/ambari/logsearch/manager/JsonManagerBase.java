@@ -34,6 +34,7 @@ public class JsonManagerBase {
 
   private JsonSerializer<Date> jsonDateSerialiazer = null;
   private JsonDeserializer<Date> jsonDateDeserialiazer = null;
+  private final Gson gson;
 
   public JsonManagerBase() {
     jsonDateSerialiazer = new JsonSerializer<Date>() {
@@ -53,6 +54,10 @@ public class JsonManagerBase {
       }
 
     };
+
+    gson = new GsonBuilder()
+      .registerTypeAdapter(Date.class, jsonDateSerialiazer)
+      .registerTypeAdapter(Date.class, jsonDateDeserialiazer).create();
   }
 
   protected String convertObjToString(Object obj) {
@@ -60,10 +65,6 @@ public class JsonManagerBase {
       return "";
     }
 
-    Gson gson = new GsonBuilder()
-      .registerTypeAdapter(Date.class, jsonDateSerialiazer)
-      .registerTypeAdapter(Date.class, jsonDateDeserialiazer).create();
-
     return gson.toJson(obj);
   }
 }
@@ -18,20 +18,17 @@
  */
 package org.apache.ambari.logsearch.manager;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 
 import javax.inject.Inject;
 import javax.inject.Named;
-import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
 import com.google.common.base.Splitter;
@@ -91,6 +88,7 @@ import org.apache.solr.client.solrj.response.UpdateResponse;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.CursorMarkParams;
 import org.springframework.core.convert.ConversionService;
 import org.springframework.data.solr.core.DefaultQueryParser;
 import org.springframework.data.solr.core.query.Criteria;
@@ -113,6 +111,8 @@ public class ServiceLogsManager extends ManagerBase<ServiceLogData, ServiceLogRe
   private static final Logger logger = Logger.getLogger(ServiceLogsManager.class);
 
   private static final String SERVICE_LOG_TEMPLATE = "service_log_txt.ftl";
+  private static final String EXPORT_EVENT = "/service/logs/export";
+  private static final int EXPORT_PAGE_SIZE = 1000;
 
   @Inject
   private ServiceLogsSolrDao serviceLogsSolrDao;
@@ -171,7 +171,7 @@ public class ServiceLogsManager extends ManagerBase<ServiceLogData, ServiceLogRe
     String hierarchy = String.format("%s,%s,%s", HOST, COMPONENT, LEVEL);
     solrQuery.setQuery("*:*");
     SolrUtil.setFacetPivot(solrQuery, 1, hierarchy);
-    QueryResponse response = serviceLogsSolrDao.process(solrQuery);
+    QueryResponse response = serviceLogsSolrDao.processCached(solrQuery, "/service/logs/aggregated");
     return responseDataGenerator.generateSimpleGraphResponse(response, hierarchy);
   }
 
@@ -228,13 +228,13 @@ public class ServiceLogsManager extends ManagerBase<ServiceLogData, ServiceLogRe
 
   public NameValueDataListResponse getLogsLevelCount(ServiceLogLevelCountRequest request) {
     SimpleFacetQuery facetQuery = conversionService.convert(request, SimpleFacetQuery.class);
-    QueryResponse response = serviceLogsSolrDao.process(facetQuery, "/service/logs/levels/counts");
+    QueryResponse response = serviceLogsSolrDao.processCached(facetQuery, "/service/logs/levels/counts");
     return responseDataGenerator.getNameValueDataListResponseWithDefaults(response, LogSearchConstants.SUPPORTED_LOG_LEVELS, false);
   }
 
   public BarGraphDataListResponse getHistogramData(ServiceGraphRequest request) {
     SolrQuery solrQuery = conversionService.convert(request, SolrQuery.class);
-    QueryResponse response = serviceLogsSolrDao.process(solrQuery, "/service/logs/histogram");
+    QueryResponse response = serviceLogsSolrDao.processCached(solrQuery, "/service/logs/histogram");
     return responseDataGenerator.generateBarGraphDataResponseWithRanges(response, LEVEL, true);
   }
 
@@ -367,13 +367,18 @@ public class ServiceLogsManager extends ManagerBase<ServiceLogData, ServiceLogRe
     return isNext && !timeAscending || !isNext && timeAscending;
   }
 
-  public Response export(ServiceLogExportRequest request) {
+  /**
+   * Streams the matching logs to the client, paging through them with a Solr cursor, so the memory used doesn't depend
+   * on the size of the export. The text format is written line by line after the header, the json one as one document
+   * per line.
+   */
+  public Response export(final ServiceLogExportRequest request) {
     String defaultFormat = "text";
     SimpleQuery solrQuery = conversionService.convert(request, SimpleQuery.class);
     String from = request.getFrom();
     String to = request.getTo();
     String utcOffset = StringUtils.isBlank(request.getUtcOffset()) ? "0" : request.getUtcOffset();
-    String format = request.getFormat() != null && defaultFormat.equalsIgnoreCase(request.getFormat()) ? ".txt" : ".json";
+    final String format = request.getFormat() != null && defaultFormat.equalsIgnoreCase(request.getFormat()) ? ".txt" : ".json";
     String fileName = "Component_Logs_" + DateUtil.getCurrentDateInString();
 
     if (!DateUtil.isDateValid(from) || !DateUtil.isDateValid(to)) {
@@ -392,39 +397,60 @@ public class ServiceLogsManager extends ManagerBase<ServiceLogData, ServiceLogRe
       from = DateUtil.addOffsetToDate(from, Long.parseLong(utcOffset), "yyyy-MM-dd HH:mm:ss,SSS");
     }
 
-    String textToSave = "";
+    final boolean text = format.equals(".txt");
+    final SolrQuery exportQuery = new DefaultQueryParser().doConstructSolrQuery(solrQuery);
+    exportQuery.setStart(0);
+    exportQuery.setRows(EXPORT_PAGE_SIZE);
+    // paging with a cursor needs the unique key as the last sort field
+    exportQuery.addSort(ID, SolrQuery.ORDER.asc);
+    exportQuery.set(CursorMarkParams.CURSOR_MARK_PARAM, CursorMarkParams.CURSOR_MARK_START);
+    if (text) {
+      exportQuery.setFacet(true);
+      exportQuery.setFacetMinCount(1);
+      exportQuery.setFacetLimit(-1);
+      exportQuery.addFacetField(HOST, COMPONENT, LEVEL);
+    }
+
     try {
-      QueryResponse response = serviceLogsSolrDao.process(solrQuery);
-      if (response == null) {
-        throw RESTErrorUtil.createRESTException(MessageEnums.SOLR_ERROR.getMessage().getMessage(), MessageEnums.ERROR_SYSTEM);
-      }
-      SolrDocumentList docList = response.getResults();
-      if (docList == null) {
+      final QueryResponse firstPage = serviceLogsSolrDao.process(exportQuery, EXPORT_EVENT);
+      if (firstPage == null || firstPage.getResults() == null) {
         throw RESTErrorUtil.createRESTException(MessageEnums.SOLR_ERROR.getMessage().getMessage(), MessageEnums.ERROR_SYSTEM);
       }
+      exportQuery.setFacet(false);
 
-      if (format.toLowerCase(Locale.ENGLISH).equals(".txt")) {
+      final String header;
+      if (text) {
         Template template = freemarkerConfiguration.getTemplate(SERVICE_LOG_TEMPLATE);
         Map<String, Object> models = new HashMap<>();
-        DownloadUtil.fillModelsForLogFile(docList, models, request, format, from, to);
+        DownloadUtil.fillModelsForLogFile(firstPage, models, request, format, from, to);
         StringWriter stringWriter = new StringWriter();
         template.process(models, stringWriter);
-        textToSave = stringWriter.toString();
-      } else if (format.toLowerCase(Locale.ENGLISH).equals(".json")) {
-        textToSave = convertObjToString(docList);
+        header = stringWriter.toString();
       } else {
-        throw RESTErrorUtil.createRESTException(
-            "unsoported format either should be json or text",
-            MessageEnums.ERROR_SYSTEM);
+        header = "";
       }
-      File file = File.createTempFile(fileName, format);
-      FileOutputStream fis = new FileOutputStream(file);
-      fis.write(textToSave.getBytes());
-      fis.close();
-      return Response
-        .ok(file, MediaType.APPLICATION_OCTET_STREAM)
-        .header("Content-Disposition", "attachment;filename=" + fileName + format)
-        .build();
+
+      return DownloadUtil.createExportResponse(new DownloadUtil.ExportWriter() {
+        @Override
+        public void write(Writer writer) throws IOException {
+          writer.write(header);
+          QueryResponse page = firstPage;
+          String cursorMark = CursorMarkParams.CURSOR_MARK_START;
+          while (true) {
+            for (SolrDocument doc : page.getResults()) {
+              writer.write(text ? DownloadUtil.formatLogLine(doc) : convertObjToString(doc));
+              writer.write('\n');
+            }
+            String nextCursorMark = page.getNextCursorMark();
+            if (page.getResults().size() < EXPORT_PAGE_SIZE || cursorMark.equals(nextCursorMark)) {
+              break;
+            }
+            cursorMark = nextCursorMark;
+            exportQuery.set(CursorMarkParams.CURSOR_MARK_PARAM, cursorMark);
+            page = serviceLogsSolrDao.process(exportQuery, EXPORT_EVENT);
+          }
+        }
+      }, fileName + format, request.isCompress());
     } catch (SolrException | TemplateException | IOException e) {
       logger.error("Error during solrQuery=" + solrQuery, e);
       throw RESTErrorUtil.createRESTException(MessageEnums.SOLR_ERROR.getMessage().getMessage(), MessageEnums.ERROR_SYSTEM);
@@ -435,7 +461,7 @@ public class ServiceLogsManager extends ManagerBase<ServiceLogData, ServiceLogRe
     SimpleFacetQuery facetQuery = conversionService.convert(request, SimpleFacetQuery.class);
     SolrQuery solrQuery = new DefaultQueryParser().doConstructSolrQuery(facetQuery);
     solrQuery.setFacetSort(StringUtils.isEmpty(request.getSortBy()) ? COMPONENT: request.getSortBy());
-    QueryResponse response = serviceLogsSolrDao.process(facetQuery, "/service/logs/components/levels/counts");
+    QueryResponse response = serviceLogsSolrDao.processCached(facetQuery, "/service/logs/components/levels/counts");
     return responseDataGenerator.generateOneLevelServiceNodeTree(response, String.format("%s,%s", COMPONENT, LEVEL));
   }
 
@@ -19,16 +19,20 @@
 package org.apache.ambari.logsearch.model.request.impl;
 
 import org.apache.ambari.logsearch.common.LogSearchConstants;
+import org.apache.ambari.logsearch.model.request.CompressParamDefinition;
 import org.apache.ambari.logsearch.model.request.FormatParamDefinition;
 import org.apache.ambari.logsearch.model.request.UtcOffsetParamDefinition;
 
 import javax.ws.rs.QueryParam;
 
-public class ServiceLogExportRequest extends ServiceLogRequest implements FormatParamDefinition, UtcOffsetParamDefinition {
+public class ServiceLogExportRequest extends ServiceLogRequest implements FormatParamDefinition, CompressParamDefinition, UtcOffsetParamDefinition {
 
   @QueryParam(LogSearchConstants.REQUEST_PARAM_FORMAT)
   private String format;
 
+  @QueryParam(LogSearchConstants.REQUEST_PARAM_COMPRESS)
+  private boolean compress;
+
   @QueryParam(LogSearchConstants.REQUEST_PARAM_UTC_OFFSET)
   private String utcOffset;
 
@@ -51,4 +55,14 @@ public class ServiceLogExportRequest extends ServiceLogRequest implements Format
   public void setUtcOffset(String utcOffset) {
     this.utcOffset = utcOffset;
   }
+
+  @Override
+  public boolean isCompress() {
+    return compress;
+  }
+
+  @Override
+  public void setCompress(boolean compress) {
+    this.compress = compress;
+  }
 }
@@ -19,15 +19,19 @@
 package org.apache.ambari.logsearch.model.request.impl;
 
 import org.apache.ambari.logsearch.common.LogSearchConstants;
+import org.apache.ambari.logsearch.model.request.CompressParamDefinition;
 import org.apache.ambari.logsearch.model.request.FormatParamDefinition;
 
 import javax.ws.rs.QueryParam;
 
-public class UserExportRequest extends FieldAuditLogRequest implements FormatParamDefinition {
+public class UserExportRequest extends FieldAuditLogRequest implements FormatParamDefinition, CompressParamDefinition {
 
   @QueryParam(LogSearchConstants.REQUEST_PARAM_FORMAT)
   private String format;
 
+  @QueryParam(LogSearchConstants.REQUEST_PARAM_COMPRESS)
+  private boolean compress;
+
   @Override
   public String getFormat() {
     return format;
@@ -37,4 +41,14 @@ public class UserExportRequest extends FieldAuditLogRequest implements FormatPar
   public void setFormat(String format) {
     this.format = format;
   }
+
+  @Override
+  public boolean isCompress() {
+    return compress;
+  }
+
+  @Override
+  public void setCompress(boolean compress) {
+    this.compress = compress;
+  }
 }
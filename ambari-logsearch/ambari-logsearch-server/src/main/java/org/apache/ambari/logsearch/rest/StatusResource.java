@@ -21,6 +21,7 @@ package org.apache.ambari.logsearch.rest;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import org.apache.ambari.logsearch.conf.global.SolrCollectionState;
+import org.apache.ambari.logsearch.dao.SolrQueryCache;
 import org.springframework.context.annotation.Scope;
 
 import javax.inject.Inject;
@@ -35,6 +36,7 @@ import static org.apache.ambari.logsearch.doc.DocConstants.StatusOperationDescri
 import static org.apache.ambari.logsearch.doc.DocConstants.StatusOperationDescriptions.SERVICE_LOGS_STATUS_OD;
 import static org.apache.ambari.logsearch.doc.DocConstants.StatusOperationDescriptions.STATUS_OD;
 import static org.apache.ambari.logsearch.doc.DocConstants.StatusOperationDescriptions.EVENT_HISTORY_STATUS_OD;
+import static org.apache.ambari.logsearch.doc.DocConstants.StatusOperationDescriptions.QUERY_CACHE_STATUS_OD;
 
 @Api(value = "status", description = "Status Operations")
 @Path("status")
@@ -54,6 +56,9 @@ public class StatusResource {
   @Named("solrEventHistoryState")
   private SolrCollectionState solrEventHistoryState;
 
+  @Inject
+  private SolrQueryCache solrQueryCache;
+
   @GET
   @Produces({"application/json"})
   @ApiOperation(STATUS_OD)
@@ -88,4 +93,12 @@ public class StatusResource {
   public SolrCollectionState getSolrEventHistoryStatus() {
     return solrEventHistoryState;
   }
+
+  @GET
+  @Path("/querycache")
+  @Produces({"application/json"})
+  @ApiOperation(QUERY_CACHE_STATUS_OD)
+  public Map<String, Object> getQueryCacheStatus() {
+    return solrQueryCache.getStatistics();
+  }
 }
@@ -18,10 +18,21 @@
  */
 package org.apache.ambari.logsearch.util;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import com.google.common.base.Splitter;
 import org.apache.ambari.logsearch.common.LogSearchConstants;
@@ -31,8 +42,10 @@ import org.apache.ambari.logsearch.model.response.BarGraphDataListResponse;
 import org.apache.ambari.logsearch.model.response.NameValueData;
 import org.apache.ambari.logsearch.model.response.TemplateData;
 import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.apache.solr.client.solrj.response.FacetField;
+import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.common.SolrDocument;
-import org.apache.solr.common.SolrDocumentList;
 
 import static org.apache.ambari.logsearch.solr.SolrConstants.ServiceLogConstants.LINE_NUMBER;
 import static org.apache.ambari.logsearch.solr.SolrConstants.ServiceLogConstants.LOGTIME;
@@ -47,65 +60,66 @@ import static org.apache.ambari.logsearch.solr.SolrConstants.CommonLogConstants.
 
 public class DownloadUtil {
 
+  private static final Logger logger = Logger.getLogger(DownloadUtil.class);
+
+  private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+
   private DownloadUtil() {
     throw new UnsupportedOperationException();
   }
 
-  public static void fillModelsForLogFile(SolrDocumentList docList, Map<String, Object> models, ServiceLogExportRequest request,
-                                          String format, String from, String to) {
-    long numLogs = docList.getNumFound();
-    List<String> hosts = new ArrayList<>();
-    List<String> components = new ArrayList<>();
-    List<String> levels = new ArrayList<>();
-    List<TemplateData> logData = new ArrayList<>();
-    for (SolrDocument doc : docList) {
-      if (doc != null) {
-        String hostname = (String) doc.getFieldValue(HOST);
-        String comp = (String) doc.getFieldValue(COMPONENT);
-        String level = (String) doc.getFieldValue(LEVEL);
-
-        if (!hosts.contains(hostname)) {
-          hosts.add(hostname);
-        }
-
-        if (!components.contains(comp)) {
-          components.add(comp);
-        }
-
-        if (!levels.contains(level)) {
-          levels.add(level);
-        }
-
-        StringBuffer textToWrite = new StringBuffer();
+  /**
+   * Writes the body of an export, called while the response is streamed to the client.
+   */
+  public interface ExportWriter {
+    void write(Writer writer) throws IOException;
+  }
 
-        if (doc.getFieldValue(LOGTIME) != null) {
-          textToWrite.append(doc.getFieldValue(LOGTIME).toString() + " ");
-        }
-        if (doc.getFieldValue(LEVEL) != null) {
-          textToWrite.append(doc.getFieldValue(LEVEL).toString()).append(" ");
+  /**
+   * Creates a download response which streams the export straight to the client, optionally gzip compressed, instead of
+   * building it in memory first.
+   * <p>
+   * The status is sent before the export is written, so a failure while writing it can't turn into an error response.
+   * The export is aborted instead: the buffered rest is neither flushed nor, if compressed, finished, and the failure
+   * is thrown as an {@link IOException}, which makes the container drop the connection instead of ending the response,
+   * so the client doesn't take a truncated export for a complete one.
+   */
+  public static Response createExportResponse(final ExportWriter exportWriter, final String fileName,
+                                              final boolean compress) {
+    StreamingOutput output = new StreamingOutput() {
+      @Override
+      public void write(OutputStream outputStream) throws IOException {
+        OutputStream stream = compress ? new GZIPOutputStream(outputStream, EXPORT_BUFFER_SIZE) : outputStream;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), EXPORT_BUFFER_SIZE);
+        try {
+          exportWriter.write(writer);
+        } catch (IOException | RuntimeException e) {
+          logger.error("Aborting export " + fileName, e);
+          throw new IOException("Export " + fileName + " failed", e);
         }
-        if (doc.getFieldValue(THREAD_NAME) != null) {
-          textToWrite.append(doc.getFieldValue(THREAD_NAME).toString().trim()).append(" ");
+        writer.flush();
+        if (compress) {
+          ((GZIPOutputStream) stream).finish();
         }
-        if (doc.getFieldValue(LOGGER_NAME) != null) {
-          textToWrite.append(doc.getFieldValue(LOGGER_NAME).toString().trim()).append(" ");
-        }
-        if (doc.getFieldValue(FILE) != null && doc.getFieldValue(LINE_NUMBER) != null) {
-          textToWrite
-            .append(doc.getFieldValue(FILE).toString())
-            .append(":")
-            .append(doc.getFieldValue(LINE_NUMBER).toString())
-            .append(" ");
-        }
-        if (doc.getFieldValue(LOG_MESSAGE) != null) {
-          textToWrite.append("- ")
-            .append(doc.getFieldValue(LOG_MESSAGE).toString());
-        }
-        logData.add(new TemplateData((textToWrite.toString())));
       }
-    }
+    };
+    return Response
+      .ok(output, MediaType.APPLICATION_OCTET_STREAM)
+      .header("Content-Disposition", "attachment;filename=" + fileName + (compress ? ".gz" : ""))
+      .build();
+  }
+
+  /**
+   * Fills the models of the header of the service log export, taking the hosts, components and levels from the facets
+   * of the first page of the export.
+   */
+  public static void fillModelsForLogFile(QueryResponse firstPage, Map<String, Object> models, ServiceLogExportRequest request,
+                                          String format, String from, String to) {
+    long numLogs = firstPage.getResults().getNumFound();
+    List<String> hosts = getFacetValues(firstPage, HOST);
+    List<String> components = getFacetValues(firstPage, COMPONENT);
+    List<String> levels = getFacetValues(firstPage, LEVEL);
     models.put("numberOfLogs", numLogs);
-    models.put("logs", logData);
     models.put("hosts", "[ " + StringUtils.join(hosts, " ; ") + " ]");
     models.put("components", "[ " + StringUtils.join(components, " ; ") + " ]");
     models.put("format", format);
@@ -131,6 +145,45 @@ public class DownloadUtil {
     models.put("eString", excludeString);
   }
 
+  public static String formatLogLine(SolrDocument doc) {
+    StringBuilder textToWrite = new StringBuilder();
+    if (doc.getFieldValue(LOGTIME) != null) {
+      textToWrite.append(doc.getFieldValue(LOGTIME).toString()).append(" ");
+    }
+    if (doc.getFieldValue(LEVEL) != null) {
+      textToWrite.append(doc.getFieldValue(LEVEL).toString()).append(" ");
+    }
+    if (doc.getFieldValue(THREAD_NAME) != null) {
+      textToWrite.append(doc.getFieldValue(THREAD_NAME).toString().trim()).append(" ");
+    }
+    if (doc.getFieldValue(LOGGER_NAME) != null) {
+      textToWrite.append(doc.getFieldValue(LOGGER_NAME).toString().trim()).append(" ");
+    }
+    if (doc.getFieldValue(FILE) != null && doc.getFieldValue(LINE_NUMBER) != null) {
+      textToWrite
+        .append(doc.getFieldValue(FILE).toString())
+        .append(":")
+        .append(doc.getFieldValue(LINE_NUMBER).toString())
+        .append(" ");
+    }
+    if (doc.getFieldValue(LOG_MESSAGE) != null) {
+      textToWrite.append("- ")
+        .append(doc.getFieldValue(LOG_MESSAGE).toString());
+    }
+    return textToWrite.toString();
+  }
+
+  private static List<String> getFacetValues(QueryResponse response, String field) {
+    List<String> values = new ArrayList<>();
+    FacetField facetField = response.getFacetField(field);
+    if (facetField != null && facetField.getValues() != null) {
+      for (FacetField.Count count : facetField.getValues()) {
+        values.add(count.getName());
+      }
+    }
+    return values;
+  }
+
   public static void fillUserResourcesModel(Map<String, Object> models, BarGraphDataListResponse vBarUserDataList, BarGraphDataListResponse vBarResourceDataList) {
     List<TemplateData> usersDataList = new ArrayList<>();
     List<TemplateData> resourceDataList = new ArrayList<>();
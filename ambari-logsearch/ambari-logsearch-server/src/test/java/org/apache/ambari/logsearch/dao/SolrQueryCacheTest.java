@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ambari.logsearch.dao;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SolrQueryCacheTest {
+
+  @Test
+  public void testAlignTimes() {
+    // GIVEN
+    SolrQuery solrQuery = new SolrQuery("*:*");
+    solrQuery.addFilterQuery("logtime:[2016-09-13T22:00:01.000Z TO 2016-09-14T22:00:59.999Z]");
+    solrQuery.addFilterQuery("level:(ERROR WARN)");
+    solrQuery.set("f.logtime.facet.range.start", "2016-09-13T22:00:31Z");
+    // WHEN
+    SolrQueryCache.alignTimes(solrQuery, 30000);
+    // THEN
+    assertEquals("logtime:[2016-09-13T22:00:00Z TO 2016-09-14T22:01:00Z]", solrQuery.getFilterQueries()[0]);
+    assertEquals("level:(ERROR WARN)", solrQuery.getFilterQueries()[1]);
+    assertEquals("2016-09-13T22:00:30Z", solrQuery.get("f.logtime.facet.range.start"));
+  }
+
+  @Test
+  public void testAlignTimesRoundsRangeEndsUp() {
+    // GIVEN
+    SolrQuery solrQuery = new SolrQuery("*:*");
+    solrQuery.addFilterQuery("logtime:[2016-09-13T22:00:01.000Z TO 2016-09-13T22:01:00.000Z]");
+    solrQuery.set("f.logtime.facet.range.start", "2016-09-13T22:00:01Z");
+    solrQuery.set("f.logtime.facet.range.end", "2016-09-13T22:00:59.999Z");
+    // WHEN
+    SolrQueryCache.alignTimes(solrQuery, 30000);
+    // THEN
+    assertEquals("logtime:[2016-09-13T22:00:00Z TO 2016-09-13T22:01:00Z]", solrQuery.getFilterQueries()[0]);
+    assertEquals("2016-09-13T22:00:00Z", solrQuery.get("f.logtime.facet.range.start"));
+    assertEquals("2016-09-13T22:01:00Z", solrQuery.get("f.logtime.facet.range.end"));
+  }
+
+  @Test
+  public void testAlignTimesDisabled() {
+    // GIVEN
+    SolrQuery solrQuery = new SolrQuery("*:*");
+    solrQuery.addFilterQuery("logtime:[2016-09-13T22:00:01.000Z TO *]");
+    // WHEN
+    SolrQueryCache.alignTimes(solrQuery, 0);
+    // THEN
+    assertEquals("logtime:[2016-09-13T22:00:01.000Z TO *]", solrQuery.getFilterQueries()[0]);
+  }
+
+  @Test
+  public void testCreateKeyIgnoresParameterOrderAndEvent() {
+    // GIVEN
+    SolrQuery solrQuery1 = new SolrQuery("*:*");
+    solrQuery1.setRows(0);
+    solrQuery1.addFilterQuery("cluster:cl1");
+    solrQuery1.set("event", "/service/logs/histogram");
+    SolrQuery solrQuery2 = new SolrQuery();
+    solrQuery2.addFilterQuery("cluster:cl1");
+    solrQuery2.setRows(0);
+    solrQuery2.setQuery("*:*");
+    // WHEN
+    String key1 = SolrQueryCache.createKey(solrQuery1);
+    String key2 = SolrQueryCache.createKey(solrQuery2);
+    // THEN
+    assertEquals(key1, key2);
+  }
+}
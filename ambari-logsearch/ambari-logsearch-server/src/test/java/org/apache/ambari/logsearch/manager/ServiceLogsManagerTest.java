@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ambari.logsearch.manager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import freemarker.cache.StringTemplateLoader;
+import freemarker.template.Configuration;
+import org.apache.ambari.logsearch.dao.ServiceLogsSolrDao;
+import org.apache.ambari.logsearch.model.request.impl.ServiceLogExportRequest;
+import org.apache.commons.io.IOUtils;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.params.CursorMarkParams;
+import org.apache.solr.common.util.NamedList;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.easymock.IExpectationSetters;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.data.solr.core.query.SimpleQuery;
+import org.springframework.data.solr.core.query.SimpleStringCriteria;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ServiceLogsManagerTest {
+
+  private static final String EXPORT_EVENT = "/service/logs/export";
+  private static final int EXPORT_PAGE_SIZE = 1000;
+
+  private ServiceLogsManager underTest;
+  private ServiceLogsSolrDao serviceLogsSolrDao;
+  private ConversionService conversionService;
+  private final List<String> cursorMarks = new ArrayList<>();
+
+  @Before
+  public void setUp() throws Exception {
+    underTest = new ServiceLogsManager();
+    serviceLogsSolrDao = EasyMock.createMock(ServiceLogsSolrDao.class);
+    conversionService = EasyMock.createMock(ConversionService.class);
+
+    StringTemplateLoader templateLoader = new StringTemplateLoader();
+    templateLoader.putTemplate("service_log_txt.ftl", "Number of logs: ${numberOfLogs}, hosts: ${hosts}\n");
+    Configuration freemarkerConfiguration = new Configuration();
+    freemarkerConfiguration.setTemplateLoader(templateLoader);
+
+    setField("serviceLogsSolrDao", serviceLogsSolrDao);
+    setField("conversionService", conversionService);
+    setField("freemarkerConfiguration", freemarkerConfiguration);
+  }
+
+  @Test
+  public void testExportAsJsonLines() throws Exception {
+    // GIVEN
+    ServiceLogExportRequest request = createRequest("json", false);
+    expectPages(page(0, EXPORT_PAGE_SIZE, "cursor1", false), page(EXPORT_PAGE_SIZE, 2, "cursor2", false));
+    // WHEN
+    Response response = underTest.export(request);
+    String body = new String(write(response), StandardCharsets.UTF_8);
+    // THEN
+    verify(serviceLogsSolrDao, conversionService);
+    String[] lines = body.split("\n");
+    assertEquals(EXPORT_PAGE_SIZE + 2, lines.length);
+    assertEquals("{\"id\":\"0\",\"host\":\"host1\",\"log_message\":\"message 0\"}", lines[0]);
+    assertEquals("{\"id\":\"1001\",\"host\":\"host1\",\"log_message\":\"message 1001\"}", lines[EXPORT_PAGE_SIZE + 1]);
+    assertEquals(Arrays.asList(CursorMarkParams.CURSOR_MARK_START, "cursor1"), cursorMarks);
+    assertTrue(response.getMetadata().getFirst("Content-Disposition").toString().endsWith(".json"));
+  }
+
+  @Test
+  public void testExportAsText() throws Exception {
+    // GIVEN
+    ServiceLogExportRequest request = createRequest("text", false);
+    expectPages(page(0, 2, "cursor1", true));
+    // WHEN
+    Response response = underTest.export(request);
+    String body = new String(write(response), StandardCharsets.UTF_8);
+    // THEN
+    verify(serviceLogsSolrDao, conversionService);
+    assertEquals("Number of logs: 2, hosts: [ host1 ]\n" +
+      "- message 0\n" +
+      "- message 1\n", body);
+    assertTrue(response.getMetadata().getFirst("Content-Disposition").toString().endsWith(".txt"));
+  }
+
+  @Test
+  public void testExportCompressed() throws Exception {
+    // GIVEN
+    ServiceLogExportRequest request = createRequest("json", true);
+    expectPages(page(0, 1, "cursor1", false));
+    // WHEN
+    Response response = underTest.export(request);
+    byte[] body = write(response);
+    // THEN
+    verify(serviceLogsSolrDao, conversionService);
+    String uncompressed = IOUtils.toString(new GZIPInputStream(new ByteArrayInputStream(body)), StandardCharsets.UTF_8);
+    assertEquals("{\"id\":\"0\",\"host\":\"host1\",\"log_message\":\"message 0\"}\n", uncompressed);
+    assertTrue(response.getMetadata().getFirst("Content-Disposition").toString().endsWith(".json.gz"));
+  }
+
+  private ServiceLogExportRequest createRequest(String format, boolean compress) {
+    ServiceLogExportRequest request = new ServiceLogExportRequest();
+    request.setFrom("2017-01-01T00:00:00.000Z");
+    request.setTo("2017-01-02T00:00:00.000Z");
+    request.setFormat(format);
+    request.setCompress(compress);
+    return request;
+  }
+
+  private void expectPages(QueryResponse firstPage, QueryResponse... nextPages) {
+    expect(conversionService.convert(anyObject(ServiceLogExportRequest.class), eq(SimpleQuery.class)))
+      .andReturn(new SimpleQuery(new SimpleStringCriteria("*:*")));
+    recordCursorMark(expect(serviceLogsSolrDao.process(anyObject(SolrQuery.class), eq(EXPORT_EVENT))), firstPage);
+    for (QueryResponse page : nextPages) {
+      recordCursorMark(expect(serviceLogsSolrDao.process(anyObject(SolrQuery.class), eq(EXPORT_EVENT))), page);
+    }
+    replay(serviceLogsSolrDao, conversionService);
+  }
+
+  /**
+   * The export reuses its query for all the pages, so the cursor mark is recorded when a page is queried.
+   */
+  private void recordCursorMark(IExpectationSetters<QueryResponse> expectation, final QueryResponse page) {
+    expectation.andAnswer(new IAnswer<QueryResponse>() {
+      @Override
+      public QueryResponse answer() throws Throwable {
+        SolrQuery query = (SolrQuery) EasyMock.getCurrentArguments()[0];
+        cursorMarks.add(query.get(CursorMarkParams.CURSOR_MARK_PARAM));
+        return page;
+      }
+    });
+  }
+
+  private QueryResponse page(int start, int count, String nextCursorMark, boolean facets) {
+    SolrDocumentList docs = new SolrDocumentList();
+    docs.setNumFound(start + count);
+    for (int i = start; i < start + count; i++) {
+      SolrDocument doc = new SolrDocument();
+      doc.setField("id", String.valueOf(i));
+      doc.setField("host", "host1");
+      doc.setField("log_message", "message " + i);
+      docs.add(doc);
+    }
+    NamedList<Object> response = new NamedList<>();
+    response.add("response", docs);
+    response.add(CursorMarkParams.CURSOR_MARK_NEXT, nextCursorMark);
+    if (facets) {
+      NamedList<Number> hosts = new NamedList<>();
+      hosts.add("host1", count);
+      NamedList<Object> facetFields = new NamedList<>();
+      facetFields.add("host", hosts);
+      NamedList<Object> facetCounts = new NamedList<>();
+      facetCounts.add("facet_fields", facetFields);
+      response.add("facet_counts", facetCounts);
+    }
+    QueryResponse queryResponse = new QueryResponse();
+    queryResponse.setResponse(response);
+    return queryResponse;
+  }
+
+  private byte[] write(Response response) throws Exception {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    ((StreamingOutput) response.getEntity()).write(body);
+    return body.toByteArray();
+  }
+
+  private void setField(String name, Object value) throws Exception {
+    Field field = ServiceLogsManager.class.getDeclaredField(name);
+    field.setAccessible(true);
+    field.set(underTest, value);
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.ambari.logsearch.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.solr.common.SolrDocument;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DownloadUtilTest {
+
+  @Test
+  public void testFormatLogLine() {
+    // GIVEN
+    SolrDocument doc = new SolrDocument();
+    doc.setField("logtime", "2017-01-01 00:00:00,123");
+    doc.setField("level", "ERROR");
+    doc.setField("thread_name", " main ");
+    doc.setField("logger_name", "org.apache.Foo");
+    doc.setField("file", "Foo.java");
+    doc.setField("line_number", 42);
+    doc.setField("log_message", "Something failed");
+    // WHEN
+    String line = DownloadUtil.formatLogLine(doc);
+    // THEN
+    assertEquals("2017-01-01 00:00:00,123 ERROR main org.apache.Foo Foo.java:42 - Something failed", line);
+  }
+
+  @Test
+  public void testFormatLogLineWithoutOptionalFields() {
+    // GIVEN
+    SolrDocument doc = new SolrDocument();
+    doc.setField("level", "INFO");
+    doc.setField("file", "Foo.java");
+    doc.setField("log_message", "Started");
+    // WHEN
+    String line = DownloadUtil.formatLogLine(doc);
+    // THEN
+    assertEquals("INFO - Started", line);
+  }
+
+  @Test
+  public void testCreateExportResponse() throws Exception {
+    // GIVEN
+    Response response = DownloadUtil.createExportResponse(linesWriter(3, false), "export.json", false);
+    // WHEN
+    byte[] body = write(response);
+    // THEN
+    assertEquals("attachment;filename=export.json", response.getMetadata().getFirst("Content-Disposition"));
+    assertEquals("line 0\nline 1\nline 2\n", new String(body, StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testCreateCompressedExportResponse() throws Exception {
+    // GIVEN
+    Response response = DownloadUtil.createExportResponse(linesWriter(3, false), "export.txt", true);
+    // WHEN
+    byte[] body = write(response);
+    // THEN
+    assertEquals("attachment;filename=export.txt.gz", response.getMetadata().getFirst("Content-Disposition"));
+    assertEquals("line 0\nline 1\nline 2\n", gunzip(body));
+  }
+
+  @Test
+  public void testFailedExportIsAborted() throws Exception {
+    // GIVEN
+    Response response = DownloadUtil.createExportResponse(linesWriter(3, true), "export.json", false);
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    // WHEN
+    try {
+      ((StreamingOutput) response.getEntity()).write(body);
+      fail("The export should have failed");
+    } catch (IOException e) {
+      // THEN
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    assertEquals(0, body.size());
+  }
+
+  @Test
+  public void testFailedCompressedExportIsNotFinished() throws Exception {
+    // GIVEN
+    Response response = DownloadUtil.createExportResponse(linesWriter(20000, true), "export.txt", true);
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    // WHEN
+    try {
+      ((StreamingOutput) response.getEntity()).write(body);
+      fail("The export should have failed");
+    } catch (IOException e) {
+      // expected
+    }
+    // THEN
+    assertTrue(body.size() > 0);
+    try {
+      gunzip(body.toByteArray());
+      fail("The truncated export should not be a complete gzip stream");
+    } catch (EOFException e) {
+      // expected
+    }
+  }
+
+  /**
+   * Writes the given number of lines, then fails if requested, like a Solr query failing in the middle of an export.
+   */
+  private DownloadUtil.ExportWriter linesWriter(final int lines, final boolean fail) {
+    return new DownloadUtil.ExportWriter() {
+      @Override
+      public void write(Writer writer) throws IOException {
+        for (int i = 0; i < lines; i++) {
+          writer.write("line " + i + "\n");
+        }
+        if (fail) {
+          throw new IllegalStateException("Solr is not available");
+        }
+      }
+    };
+  }
+
+  private byte[] write(Response response) throws IOException {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    ((StreamingOutput) response.getEntity()).write(body);
+    return body.toByteArray();
+  }
+
+  private String gunzip(byte[] body) throws IOException {
+    return IOUtils.toString(new GZIPInputStream(new ByteArrayInputStream(body)), StandardCharsets.UTF_8);
+  }
+}
@@ -101,7 +101,9 @@ public class SingleValuedTimelineMetric {
     metric.setInstanceId(this.instanceId);
     metric.setStartTime(this.startTime);
     metric.setTimestamp(this.timestamp);
-    metric.getMetricValues().put(timestamp, value);
+    TimelineMetricSeries series = new TimelineMetricSeries();
+    series.put(timestamp, TimelineMetricSeries.fromNullable(value));
+    metric.setMetricSeries(series);
     return metric;
   }
 }
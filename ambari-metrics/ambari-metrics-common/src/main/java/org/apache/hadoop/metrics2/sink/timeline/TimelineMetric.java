@@ -25,9 +25,11 @@ import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
+import org.codehaus.jackson.annotate.JsonIgnore;
 import org.codehaus.jackson.map.annotate.JsonDeserialize;
 
 @XmlRootElement(name = "metric")
@@ -44,7 +46,9 @@ public class TimelineMetric implements Comparable<TimelineMetric> {
   private long startTime;
   private String type;
   private String units;
-  private TreeMap<Long, Double> metricValues = new TreeMap<Long, Double>();
+  // the values are only ever held as a primitive series, the map form is a
+  // copy built on request. Guarded by the lock of the metric.
+  private TimelineMetricSeries metricSeries = new TimelineMetricSeries();
   private HashMap<String, String> metadata = new HashMap<>();
 
   // default
@@ -62,7 +66,9 @@ public class TimelineMetric implements Comparable<TimelineMetric> {
     setInstanceId(metric.getInstanceId());
     setHostName(metric.getHostName());
     setStartTime(metric.getStartTime());
-    setMetricValues(new TreeMap<Long, Double>(metric.getMetricValues()));
+    synchronized (metric) {
+      setMetricSeries(metric.metricSeries.copy());
+    }
   }
 
   @XmlElement(name = "metricname")
@@ -137,17 +143,62 @@ public class TimelineMetric implements Comparable<TimelineMetric> {
     this.units = units;
   }
 
-  @XmlElement(name = "metrics")
-  public TreeMap<Long, Double> getMetricValues() {
-    return metricValues;
+  /**
+   * Returns a copy of the values. Changes to it are not seen by the metric;
+   * use {@link #putMetricValue(long, Double)}, {@link #addMetricValues(Map)} or
+   * {@link #setMetricValues(TreeMap)} instead.
+   */
+  public synchronized TreeMap<Long, Double> getMetricValues() {
+    return metricSeries.toTreeMap();
+  }
+
+  public synchronized void setMetricValues(TreeMap<Long, Double> metricValues) {
+    this.metricSeries = TimelineMetricSeries.fromMap(metricValues);
+  }
+
+  public synchronized void putMetricValue(long timestamp, Double value) {
+    metricSeries.put(timestamp, TimelineMetricSeries.fromNullable(value));
+  }
+
+  public synchronized void addMetricValues(Map<Long, Double> metricValues) {
+    for (Map.Entry<Long, Double> entry : metricValues.entrySet()) {
+      putMetricValue(entry.getKey(), entry.getValue());
+    }
   }
 
-  public void setMetricValues(TreeMap<Long, Double> metricValues) {
-    this.metricValues = metricValues;
+  /**
+   * Returns the values of the metric, which may be modified.
+   */
+  @XmlTransient
+  @JsonIgnore
+  public synchronized TimelineMetricSeries getMetricSeries() {
+    return metricSeries;
   }
 
-  public void addMetricValues(Map<Long, Double> metricValues) {
-    this.metricValues.putAll(metricValues);
+  @XmlTransient
+  @JsonIgnore
+  public synchronized void setMetricSeries(TimelineMetricSeries metricSeries) {
+    this.metricSeries = metricSeries;
+  }
+
+  public synchronized void addMetricValues(TimelineMetricSeries metricSeries) {
+    this.metricSeries.putAll(metricSeries);
+  }
+
+  /**
+   * The values as serialized to JSON, read from a snapshot of the series.
+   */
+  @XmlElement(name = "metrics")
+  private synchronized TimelineMetricSeries.SeriesMap getSeriesMap() {
+    return new TimelineMetricSeries.SeriesMap(metricSeries.copy());
+  }
+
+  /**
+   * The values as deserialized from JSON, straight into a series.
+   */
+  @XmlElement(name = "metrics")
+  private synchronized void setSeriesMap(TimelineMetricSeries.SeriesMap seriesMap) {
+    this.metricSeries = seriesMap.getSeries();
   }
 
   @XmlElement(name = "metadata")
@@ -0,0 +1,285 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.metrics2.sink.timeline;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+
+/**
+ * The values of a {@link TimelineMetric} held in parallel primitive arrays
+ * sorted by timestamp, instead of a {@code TreeMap<Long, Double>} which takes
+ * two boxed objects and a tree node per point.
+ * <p/>
+ * Points are expected to arrive in timestamp order, in which case
+ * {@link #put(long, double)} appends them. Like a map, a point with an
+ * existing timestamp replaces the value and an earlier one is inserted in
+ * place. {@code null} values of the map form are held as {@link #NULL_VALUE},
+ * which keeps them apart from genuine {@link Double#NaN} values.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Unstable
+public class TimelineMetricSeries {
+
+  /**
+   * The bits of {@link #NULL_VALUE}: a quiet NaN with a payload of its own.
+   */
+  private static final long NULL_BITS = 0x7ff8000000000badL;
+
+  /**
+   * Stands in for a {@code null} value of the map form. Use
+   * {@link #isNull(double)} to test for it, as NaNs never compare equal.
+   */
+  public static final double NULL_VALUE = Double.longBitsToDouble(NULL_BITS);
+
+  private long[] timestamps;
+  private double[] values;
+  private int size;
+
+  public TimelineMetricSeries() {
+    this(16);
+  }
+
+  public TimelineMetricSeries(int capacity) {
+    timestamps = new long[Math.max(1, capacity)];
+    values = new double[timestamps.length];
+  }
+
+  /**
+   * Wraps arrays of points sorted by timestamp without copying them.
+   */
+  public TimelineMetricSeries(long[] timestamps, double[] values) {
+    if (timestamps.length != values.length) {
+      throw new IllegalArgumentException("Timestamps and values differ in length: "
+        + timestamps.length + " != " + values.length);
+    }
+    this.timestamps = timestamps;
+    this.values = values;
+    this.size = timestamps.length;
+  }
+
+  public static TimelineMetricSeries fromMap(Map<Long, Double> metricValues) {
+    TimelineMetricSeries series = new TimelineMetricSeries(metricValues.size());
+    for (Map.Entry<Long, Double> entry : metricValues.entrySet()) {
+      series.put(entry.getKey(), fromNullable(entry.getValue()));
+    }
+    return series;
+  }
+
+  /**
+   * @return a series holding copies of the points of this one
+   */
+  public TimelineMetricSeries copy() {
+    return new TimelineMetricSeries(Arrays.copyOf(timestamps, size), Arrays.copyOf(values, size));
+  }
+
+  public void put(long timestamp, double value) {
+    if (size == 0 || timestamp > timestamps[size - 1]) {
+      ensureCapacity(size + 1);
+      timestamps[size] = timestamp;
+      values[size] = value;
+      size++;
+      return;
+    }
+
+    int index = Arrays.binarySearch(timestamps, 0, size, timestamp);
+    if (index >= 0) {
+      values[index] = value;
+      return;
+    }
+
+    int insertAt = -(index + 1);
+    ensureCapacity(size + 1);
+    System.arraycopy(timestamps, insertAt, timestamps, insertAt + 1, size - insertAt);
+    System.arraycopy(values, insertAt, values, insertAt + 1, size - insertAt);
+    timestamps[insertAt] = timestamp;
+    values[insertAt] = value;
+    size++;
+  }
+
+  public void putAll(TimelineMetricSeries other) {
+    ensureCapacity(size + other.size);
+    for (int i = 0; i < other.size; i++) {
+      put(other.timestamps[i], other.values[i]);
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public long getTimestamp(int index) {
+    checkIndex(index);
+    return timestamps[index];
+  }
+
+  public double getValue(int index) {
+    checkIndex(index);
+    return values[index];
+  }
+
+  /**
+   * @return the values keyed by timestamp, with {@link #NULL_VALUE} mapped
+   * back to {@code null}
+   */
+  public TreeMap<Long, Double> toTreeMap() {
+    TreeMap<Long, Double> map = new TreeMap<Long, Double>();
+    for (int i = 0; i < size; i++) {
+      map.put(timestamps[i], toNullable(values[i]));
+    }
+    return map;
+  }
+
+  /**
+   * @return true if the value stands in for {@code null}
+   */
+  public static boolean isNull(double value) {
+    return Double.doubleToRawLongBits(value) == NULL_BITS;
+  }
+
+  /**
+   * @return the value of the series form of the given map value
+   */
+  public static double fromNullable(Double value) {
+    return value == null ? NULL_VALUE : value;
+  }
+
+  /**
+   * @return the value of the map form of the given series value
+   */
+  public static Double toNullable(double value) {
+    return isNull(value) ? null : value;
+  }
+
+  /**
+   * A map form of a series which reads its points and adds the ones put to it,
+   * so that the values of a {@link TimelineMetric} are read from and written
+   * to JSON without building a {@code TreeMap}. Values are mapped from and to
+   * {@code null} like in {@link #toTreeMap()}.
+   */
+  public static class SeriesMap extends AbstractMap<Long, Double> {
+    private final TimelineMetricSeries series;
+
+    /**
+     * Creates a map of a new series, as the JSON deserializer does.
+     */
+    public SeriesMap() {
+      this(new TimelineMetricSeries());
+    }
+
+    public SeriesMap(TimelineMetricSeries series) {
+      this.series = series;
+    }
+
+    public TimelineMetricSeries getSeries() {
+      return series;
+    }
+
+    @Override
+    public int size() {
+      return series.size();
+    }
+
+    /**
+     * Adds the point to the series.
+     *
+     * @return always {@code null}, the value replaced is not looked up
+     */
+    @Override
+    public Double put(Long timestamp, Double value) {
+      series.put(timestamp, fromNullable(value));
+      return null;
+    }
+
+    @Override
+    public Set<Map.Entry<Long, Double>> entrySet() {
+      return new AbstractSet<Map.Entry<Long, Double>>() {
+        @Override
+        public Iterator<Map.Entry<Long, Double>> iterator() {
+          return new Iterator<Map.Entry<Long, Double>>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+              return index < series.size();
+            }
+
+            @Override
+            public Map.Entry<Long, Double> next() {
+              if (!hasNext()) {
+                throw new NoSuchElementException();
+              }
+              Map.Entry<Long, Double> entry = new SimpleImmutableEntry<Long, Double>(
+                series.timestamps[index], toNullable(series.values[index]));
+              index++;
+              return entry;
+            }
+
+            @Override
+            public void remove() {
+              throw new UnsupportedOperationException();
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return series.size();
+        }
+      };
+    }
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > timestamps.length) {
+      int newCapacity = Math.max(capacity, timestamps.length + (timestamps.length >> 1) + 1);
+      timestamps = Arrays.copyOf(timestamps, newCapacity);
+      values = Arrays.copyOf(values, newCapacity);
+    }
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("{");
+    for (int i = 0; i < size; i++) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append(timestamps[i]).append('=').append(values[i]);
+    }
+    return sb.append('}').toString();
+  }
+}
@@ -88,7 +88,7 @@ public class TimelineMetrics {
     }
 
     if (metricToMerge != null) {
-      metricToMerge.addMetricValues(metric.getMetricValues());
+      metricToMerge.addMetricValues(metric.getMetricSeries());
       if (metricToMerge.getTimestamp() > metric.getTimestamp()) {
         metricToMerge.setTimestamp(metric.getTimestamp());
       }
@@ -114,7 +114,8 @@ public class TimelineMetrics {
     }
 
     if (metricToMerge != null) {
-      metricToMerge.getMetricValues().put(metric.getTimestamp(), metric.getValue());
+      metricToMerge.getMetricSeries().put(metric.getTimestamp(),
+        TimelineMetricSeries.fromNullable(metric.getValue()));
       if (metricToMerge.getTimestamp() > metric.getTimestamp()) {
         metricToMerge.setTimestamp(metric.getTimestamp());
       }
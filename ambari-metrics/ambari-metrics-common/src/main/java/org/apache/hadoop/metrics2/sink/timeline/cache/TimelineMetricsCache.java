@@ -94,7 +94,7 @@ public class TimelineMetricsCache {
           metric.getMetricName() + " older than " + newEldestTimestamp +
           " were removed to clean up the cache.");
       }
-      this.timelineMetric.addMetricValues(metric.getMetricValues());
+      this.timelineMetric.addMetricValues(metric.getMetricSeries());
       updateTimeDiff(metric.getStartTime());
     }
 
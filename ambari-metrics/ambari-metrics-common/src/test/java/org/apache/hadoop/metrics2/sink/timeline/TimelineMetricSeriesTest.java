@@ -0,0 +1,173 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.metrics2.sink.timeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.TreeMap;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.xc.JaxbAnnotationIntrospector;
+import org.junit.Test;
+
+public class TimelineMetricSeriesTest {
+
+  @Test
+  public void testPutKeepsTimestampOrder() {
+    TimelineMetricSeries series = new TimelineMetricSeries(2);
+    series.put(3000L, 3.0);
+    series.put(1000L, 1.0);
+    series.put(4000L, 4.0);
+    series.put(2000L, 2.0);
+    series.put(3000L, 3.5);
+
+    assertEquals(4, series.size());
+    for (int i = 0; i < series.size(); i++) {
+      assertEquals((i + 1) * 1000L, series.getTimestamp(i));
+    }
+    assertEquals(3.5, series.getValue(2), 0.0);
+  }
+
+  @Test
+  public void testMapConversion() {
+    TreeMap<Long, Double> metricValues = new TreeMap<Long, Double>();
+    metricValues.put(1000L, 1.0);
+    metricValues.put(2000L, null);
+    metricValues.put(3000L, 3.0);
+
+    TimelineMetricSeries series = TimelineMetricSeries.fromMap(metricValues);
+    assertTrue(TimelineMetricSeries.isNull(series.getValue(1)));
+    assertEquals(metricValues, series.toTreeMap());
+  }
+
+  @Test
+  public void testNaNIsNotNull() {
+    TreeMap<Long, Double> metricValues = new TreeMap<Long, Double>();
+    metricValues.put(1000L, Double.NaN);
+    metricValues.put(2000L, null);
+
+    TimelineMetricSeries series = TimelineMetricSeries.fromMap(metricValues);
+    assertFalse(TimelineMetricSeries.isNull(series.getValue(0)));
+    assertTrue(TimelineMetricSeries.isNull(series.getValue(1)));
+
+    TreeMap<Long, Double> converted = series.toTreeMap();
+    assertTrue(Double.isNaN(converted.get(1000L)));
+    assertTrue(converted.containsKey(2000L));
+    assertNull(converted.get(2000L));
+  }
+
+  @Test
+  public void testMetricValuesAreCopied() {
+    TimelineMetric metric = new TimelineMetric();
+    TimelineMetricSeries series = metric.getMetricSeries();
+    metric.putMetricValue(1000L, 1.0);
+
+    TreeMap<Long, Double> metricValues = metric.getMetricValues();
+    metricValues.put(2000L, 2.0);
+    series.put(3000L, 3.0);
+
+    // the series obtained earlier still holds the values of the metric
+    assertEquals(2, metricValues.size());
+    assertTrue(series == metric.getMetricSeries());
+    assertEquals(2, metric.getMetricValues().size());
+    assertFalse(metric.getMetricValues().containsKey(2000L));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testIndexOutOfBounds() {
+    TimelineMetricSeries series = new TimelineMetricSeries();
+    series.put(1000L, 1.0);
+    series.getValue(1);
+  }
+
+  @Test
+  public void testTimelineMetricStorage() {
+    TimelineMetric metric = new TimelineMetric();
+    metric.putMetricValue(1000L, 1.0);
+
+    TimelineMetricSeries series = metric.getMetricSeries();
+    series.put(2000L, 2.0);
+    metric.addMetricValues(TimelineMetricSeries.fromMap(new TreeMap<Long, Double>() {{
+      put(3000L, 3.0);
+    }}));
+
+    TreeMap<Long, Double> metricValues = metric.getMetricValues();
+    assertEquals(3, metricValues.size());
+    assertEquals(2.0, metricValues.get(2000L), 0.0);
+
+    metric.addMetricValues(series);
+    assertEquals(3, metric.getMetricValues().size());
+
+    TimelineMetric copy = new TimelineMetric(metric);
+    copy.getMetricSeries().put(4000L, 4.0);
+    assertFalse(metric.getMetricValues().containsKey(4000L));
+  }
+
+  @Test
+  public void testMergeSingleValuedMetrics() {
+    TimelineMetrics metrics = new TimelineMetrics();
+    for (long i = 1; i <= 3; i++) {
+      SingleValuedTimelineMetric metric = new SingleValuedTimelineMetric("m1", "a1", null, "h1", i * 1000L, i * 1000L, null);
+      metric.setSingleTimeseriesValue(i * 1000L, i == 2 ? null : (double) i);
+      metrics.addOrMergeTimelineMetric(metric);
+    }
+
+    assertEquals(1, metrics.getMetrics().size());
+    TreeMap<Long, Double> metricValues = metrics.getMetrics().get(0).getMetricValues();
+    assertEquals(3, metricValues.size());
+    assertNull(metricValues.get(2000L));
+    assertEquals(3.0, metricValues.get(3000L), 0.0);
+  }
+
+  @Test
+  public void testJsonSerialization() throws Exception {
+    TimelineMetric metric = new TimelineMetric();
+    metric.setMetricName("m1");
+    metric.getMetricSeries().put(1000L, 1.5);
+
+    ObjectMapper mapper = new ObjectMapper();
+    String json = mapper.writeValueAsString(metric);
+    assertFalse(json.contains("metricSeries"));
+
+    TimelineMetric read = mapper.readValue(json, TimelineMetric.class);
+    assertEquals(1.5, read.getMetricValues().get(1000L), 0.0);
+  }
+
+  @Test
+  public void testJaxbJsonSerialization() throws Exception {
+    TimelineMetric metric = new TimelineMetric();
+    metric.setMetricName("m1");
+    metric.putMetricValue(1000L, 1.5);
+    metric.putMetricValue(2000L, null);
+
+    // the way the collector and its clients map metrics
+    ObjectMapper mapper = new ObjectMapper();
+    mapper.setAnnotationIntrospector(new JaxbAnnotationIntrospector());
+    String json = mapper.writeValueAsString(metric);
+    assertTrue(json.contains("\"metrics\":{\"1000\":1.5,\"2000\":null}"));
+
+    TimelineMetric read = mapper.readValue(json, TimelineMetric.class);
+    assertEquals("m1", read.getMetricName());
+    assertEquals(2, read.getMetricSeries().size());
+    assertEquals(1.5, read.getMetricSeries().getValue(0), 0.0);
+    assertTrue(TimelineMetricSeries.isNull(read.getMetricSeries().getValue(1)));
+  }
+}
@@ -254,7 +254,7 @@ public class FlumeTimelineMetricsSink extends AbstractTimelineMetricsSink implem
       }
       timelineMetric.setAppId("FLUME_HANDLER");
       timelineMetric.setStartTime(currentTimeMillis);
-      timelineMetric.getMetricValues().put(currentTimeMillis, Double.parseDouble(attributeValue));
+      timelineMetric.putMetricValue(currentTimeMillis, Double.parseDouble(attributeValue));
       return timelineMetric;
     }
   }
@@ -341,7 +341,7 @@ public class HadoopTimelineMetricsSink extends AbstractTimelineMetricsSink imple
         }
         timelineMetric.setStartTime(startTime);
         timelineMetric.setType(metric.type() != null ? metric.type().name() : null);
-        timelineMetric.getMetricValues().put(startTime, value.doubleValue());
+        timelineMetric.putMetricValue(startTime, value.doubleValue());
         if (metadata != null) {
           timelineMetric.setMetadata(metadata);
         }
@@ -345,7 +345,7 @@ public class KafkaTimelineMetricsReporter extends AbstractTimelineMetricsSink
       timelineMetric.setAppId(component);
       timelineMetric.setStartTime(currentTimeMillis);
       timelineMetric.setType(ClassUtils.getShortCanonicalName(attributeValue, "Number"));
-      timelineMetric.getMetricValues().put(currentTimeMillis, attributeValue.doubleValue());
+      timelineMetric.putMetricValue(currentTimeMillis, attributeValue.doubleValue());
       return timelineMetric;
     }
 
@@ -221,7 +221,7 @@ public class StormTimelineMetricsReporter extends AbstractTimelineMetricsSink
     }
     timelineMetric.setAppId(component);
     timelineMetric.setStartTime(currentTimeMillis);
-    timelineMetric.getMetricValues().put(currentTimeMillis, Double.parseDouble(attributeValue));
+    timelineMetric.putMetricValue(currentTimeMillis, Double.parseDouble(attributeValue));
     return timelineMetric;
   }
 
@@ -358,7 +358,7 @@ public class StormTimelineMetricsSink extends AbstractTimelineMetricsSink implem
     timelineMetric.setStartTime(currentTimeMillis);
     timelineMetric.setType(ClassUtils.getShortCanonicalName(
         attributeValue, "Number"));
-    timelineMetric.getMetricValues().put(currentTimeMillis, attributeValue);
+    timelineMetric.putMetricValue(currentTimeMillis, attributeValue);
     return timelineMetric;
   }
 
@@ -35,6 +35,7 @@ import org.apache.hadoop.metrics2.sink.timeline.TimelineMetrics;
 import org.apache.hadoop.metrics2.sink.timeline.TopNConfig;
 import org.apache.hadoop.service.AbstractService;
 import org.apache.hadoop.yarn.api.records.timeline.TimelinePutResponse;
+import org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.aggregators.AbstractTimelineAggregator;
 import org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.aggregators.Function;
 import org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.aggregators.TimelineMetricAggregator;
 import org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.aggregators.TimelineMetricAggregatorFactory;
@@ -61,6 +62,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
@@ -79,6 +81,7 @@ public class HBaseTimelineMetricStore extends AbstractService implements Timelin
   private static volatile boolean isInitialized = false;
   private final ScheduledExecutorService watchdogExecutorService = Executors.newSingleThreadScheduledExecutor();
   private final Map<AGGREGATOR_NAME, ScheduledExecutorService> scheduledExecutors = new HashMap<>();
+  private final List<TimelineMetricAggregator> aggregators = new ArrayList<>();
   private TimelineMetricMetadataManager metricMetadataManager;
   private Integer defaultTopNHostsLimit;
   private MetricCollectorHAController haController;
@@ -197,6 +200,13 @@ public class HBaseTimelineMetricStore extends AbstractService implements Timelin
 
   @Override
   protected void serviceStop() throws Exception {
+    for (TimelineMetricAggregator aggregator : aggregators) {
+      ScheduledExecutorService executorService = scheduledExecutors.get(aggregator.getName());
+      if (executorService != null) {
+        executorService.shutdown();
+      }
+      aggregator.shutdown();
+    }
     super.serviceStop();
   }
 
@@ -280,9 +290,13 @@ public class HBaseTimelineMetricStore extends AbstractService implements Timelin
     for (TimelineMetric metric : metricsList){
       String name = metric.getMetricName();
       if (name.contains("._rate")){
-        updateValuesAsRate(metric.getMetricValues(), false);
+        TreeMap<Long, Double> metricValues = metric.getMetricValues();
+        updateValuesAsRate(metricValues, false);
+        metric.setMetricValues(metricValues);
       } else if (name.contains("._diff")) {
-        updateValuesAsRate(metric.getMetricValues(), true);
+        TreeMap<Long, Double> metricValues = metric.getMetricValues();
+        updateValuesAsRate(metricValues, true);
+        metric.setMetricValues(metricValues);
       }
     }
 
@@ -489,6 +503,10 @@ public class HBaseTimelineMetricStore extends AbstractService implements Timelin
   }
 
   private void scheduleAggregatorThread(final TimelineMetricAggregator aggregator) {
+    aggregators.add(aggregator);
+    if (aggregator instanceof AbstractTimelineAggregator) {
+      ((AbstractTimelineAggregator) aggregator).setSelfMetricsMetadataManager(metricMetadataManager);
+    }
     if (!aggregator.isDisabled()) {
       ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor(
         new ThreadFactory() {
@@ -0,0 +1,259 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline;
+
+import java.util.Map;
+
+import javax.xml.bind.DatatypeConverter;
+
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetricSeries;
+
+/**
+ * Compact encoding of the values of a metric series, as stored in the METRICS
+ * column of the precision table.
+ * <p/>
+ * Timestamps are stored as the difference between consecutive deltas and
+ * values as the XOR with the previous value, following the Gorilla time series
+ * compression. Regular reporting intervals and slowly changing values take a
+ * few bits per point instead of the ~30 characters of JSON. Since the column is
+ * a VARCHAR, the bits are Base64 encoded behind {@link #PREFIX}; values which
+ * do not start with it are JSON written by earlier versions.
+ * <p/>
+ * The raw bits of the values are stored, so {@code null} values, held as
+ * {@link TimelineMetricSeries#NULL_VALUE}, stay apart from {@link Double#NaN}.
+ */
+public class MetricValuesCodec {
+
+  /**
+   * Marks encoded values; the digit is the version of the format.
+   */
+  static final String PREFIX = "~1";
+
+  private MetricValuesCodec() {
+  }
+
+  /**
+   * @return true if the stored value was written by this codec rather than
+   * as JSON
+   */
+  public static boolean isEncoded(String stored) {
+    return stored != null && stored.startsWith(PREFIX);
+  }
+
+  public static String encode(Map<Long, Double> metricValues) {
+    return encode(TimelineMetricSeries.fromMap(metricValues));
+  }
+
+  public static String encode(TimelineMetricSeries series) {
+    int length = series.size();
+    BitWriter writer = new BitWriter(length);
+    writer.write(length, 32);
+    if (length > 0) {
+      long previousTimestamp = series.getTimestamp(0);
+      long previousDelta = 0;
+      long previousBits = Double.doubleToRawLongBits(series.getValue(0));
+      int previousLeading = -1;
+      int previousTrailing = 0;
+
+      writer.write(previousTimestamp, 64);
+      writer.write(previousBits, 64);
+
+      for (int i = 1; i < length; i++) {
+        long timestamp = series.getTimestamp(i);
+        long delta = timestamp - previousTimestamp;
+        long deltaOfDelta = delta - previousDelta;
+        if (deltaOfDelta == 0) {
+          writer.write(0, 1);
+        } else if (deltaOfDelta >= -64 && deltaOfDelta < 64) {
+          writer.write(0x2, 2);
+          writer.write(deltaOfDelta, 7);
+        } else if (deltaOfDelta >= -256 && deltaOfDelta < 256) {
+          writer.write(0x6, 3);
+          writer.write(deltaOfDelta, 9);
+        } else if (deltaOfDelta >= -2048 && deltaOfDelta < 2048) {
+          writer.write(0xE, 4);
+          writer.write(deltaOfDelta, 12);
+        } else {
+          writer.write(0xF, 4);
+          writer.write(deltaOfDelta, 64);
+        }
+        previousTimestamp = timestamp;
+        previousDelta = delta;
+
+        long bits = Double.doubleToRawLongBits(series.getValue(i));
+        long xor = bits ^ previousBits;
+        if (xor == 0) {
+          writer.write(0, 1);
+        } else {
+          int leading = Long.numberOfLeadingZeros(xor);
+          int trailing = Long.numberOfTrailingZeros(xor);
+          writer.write(1, 1);
+          if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+            // the meaningful bits fit into those of the previous value
+            writer.write(0, 1);
+            writer.write(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+          } else {
+            int meaningful = 64 - leading - trailing;
+            writer.write(1, 1);
+            writer.write(leading, 6);
+            writer.write(meaningful - 1, 6);
+            writer.write(xor >>> trailing, meaningful);
+            previousLeading = leading;
+            previousTrailing = trailing;
+          }
+        }
+        previousBits = bits;
+      }
+    }
+    return PREFIX + DatatypeConverter.printBase64Binary(writer.toBytes());
+  }
+
+  /**
+   * Decodes a series written by {@link #encode(TimelineMetricSeries)}.
+   *
+   * @throws IllegalArgumentException if the value was not written by this codec
+   */
+  public static TimelineMetricSeries decode(String stored) {
+    if (!isEncoded(stored)) {
+      throw new IllegalArgumentException("Metric values are not encoded: " + stored);
+    }
+    BitReader reader = new BitReader(DatatypeConverter.parseBase64Binary(stored.substring(PREFIX.length())));
+    int length = (int) reader.read(32);
+    long[] timestamps = new long[length];
+    double[] values = new double[length];
+    if (length > 0) {
+      long previousTimestamp = reader.read(64);
+      long previousDelta = 0;
+      long previousBits = reader.read(64);
+      int previousLeading = 0;
+      int previousTrailing = 0;
+      timestamps[0] = previousTimestamp;
+      values[0] = Double.longBitsToDouble(previousBits);
+
+      for (int i = 1; i < length; i++) {
+        long deltaOfDelta;
+        if (reader.read(1) == 0) {
+          deltaOfDelta = 0;
+        } else if (reader.read(1) == 0) {
+          deltaOfDelta = signed(reader.read(7), 7);
+        } else if (reader.read(1) == 0) {
+          deltaOfDelta = signed(reader.read(9), 9);
+        } else if (reader.read(1) == 0) {
+          deltaOfDelta = signed(reader.read(12), 12);
+        } else {
+          deltaOfDelta = reader.read(64);
+        }
+        previousDelta += deltaOfDelta;
+        previousTimestamp += previousDelta;
+        timestamps[i] = previousTimestamp;
+
+        if (reader.read(1) == 1) {
+          if (reader.read(1) == 1) {
+            previousLeading = (int) reader.read(6);
+            previousTrailing = 64 - previousLeading - ((int) reader.read(6) + 1);
+          }
+          long xor = reader.read(64 - previousLeading - previousTrailing) << previousTrailing;
+          previousBits ^= xor;
+        }
+        values[i] = Double.longBitsToDouble(previousBits);
+      }
+    }
+    return new TimelineMetricSeries(timestamps, values);
+  }
+
+  private static long signed(long value, int bits) {
+    return (value << (64 - bits)) >> (64 - bits);
+  }
+
+  /**
+   * Appends bits, most significant first, to a growing array of words.
+   */
+  private static class BitWriter {
+    private long[] words;
+    private int position;
+
+    BitWriter(int points) {
+      // header plus a generous estimate of 16 bits per point
+      words = new long[3 + (points >> 2)];
+    }
+
+    void write(long value, int count) {
+      if (count == 0) {
+        return;
+      }
+      if (position + count > words.length * 64) {
+        long[] grown = new long[Math.max(words.length * 2, (position + count) / 64 + 1)];
+        System.arraycopy(words, 0, grown, 0, words.length);
+        words = grown;
+      }
+      if (count < 64) {
+        value &= (1L << count) - 1;
+      }
+      int index = position >>> 6;
+      int free = 64 - (position & 63);
+      if (count <= free) {
+        words[index] |= value << (free - count);
+      } else {
+        int rest = count - free;
+        words[index] |= value >>> rest;
+        words[index + 1] |= value << (64 - rest);
+      }
+      position += count;
+    }
+
+    byte[] toBytes() {
+      byte[] bytes = new byte[(position + 7) >>> 3];
+      for (int i = 0; i < bytes.length; i++) {
+        bytes[i] = (byte) (words[i >>> 3] >>> (56 - ((i & 7) << 3)));
+      }
+      return bytes;
+    }
+  }
+
+  /**
+   * Reads the bits written by a {@link BitWriter}.
+   */
+  private static class BitReader {
+    private final long[] words;
+    private int position;
+
+    BitReader(byte[] bytes) {
+      words = new long[(bytes.length >>> 3) + 2];
+      for (int i = 0; i < bytes.length; i++) {
+        words[i >>> 3] |= (bytes[i] & 0xFFL) << (56 - ((i & 7) << 3));
+      }
+    }
+
+    long read(int count) {
+      if (count == 0) {
+        return 0;
+      }
+      int index = position >>> 6;
+      int available = 64 - (position & 63);
+      long value;
+      if (count <= available) {
+        value = words[index] >>> (available - count);
+      } else {
+        int rest = count - available;
+        value = (words[index] << rest) | (words[index + 1] >>> (64 - rest));
+      }
+      position += count;
+      return count == 64 ? value : value & ((1L << count) - 1);
+    }
+  }
+}
@@ -37,6 +37,7 @@ import org.apache.hadoop.metrics2.sink.timeline.Precision;
 import org.apache.hadoop.metrics2.sink.timeline.SingleValuedTimelineMetric;
 import org.apache.hadoop.metrics2.sink.timeline.TimelineMetric;
 import org.apache.hadoop.metrics2.sink.timeline.TimelineMetricMetadata;
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetricSeries;
 import org.apache.hadoop.metrics2.sink.timeline.TimelineMetrics;
 import org.apache.hadoop.util.ReflectionUtils;
 import org.apache.hadoop.yarn.api.records.ContainerId;
@@ -89,6 +90,7 @@ import static org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.ti
 import static org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.TimelineMetricConfiguration.TIMELINE_METRICS_HBASE_PRECISION_TABLE_COMPACTION_POLICY_CLASS;
 import static org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.TimelineMetricConfiguration.TIMELINE_METRICS_HBASE_PRECISION_TABLE_COMPACTION_POLICY_KEY;
 import static org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.TimelineMetricConfiguration.TIMELINE_METRICS_PRECISION_TABLE_DURABILITY;
+import static org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.TimelineMetricConfiguration.TIMELINE_METRICS_PRECISION_TABLE_VALUES_ENCODING_ENABLED;
 import static org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.TimelineMetricConfiguration.TIMELINE_METRICS_AGGREGATE_TABLES_DURABILITY;
 import static org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.TimelineMetricConfiguration.HBASE_BLOCKING_STORE_FILES;
 import static org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.TimelineMetricConfiguration.AGGREGATORS_SKIP_BLOCK_CACHE;
@@ -184,6 +186,7 @@ public class PhoenixHBaseAccessor {
   private final boolean skipBlockCacheForAggregatorsEnabled;
   private final String timelineMetricsTablesDurability;
   private final String timelineMetricsPrecisionTableDurability;
+  private final boolean precisionValuesEncodingEnabled;
 
   static final String HSTORE_COMPACTION_CLASS_KEY =
     "hbase.hstore.defaultengine.compactionpolicy.class";
@@ -227,6 +230,7 @@ public class PhoenixHBaseAccessor {
     this.skipBlockCacheForAggregatorsEnabled = metricsConf.getBoolean(AGGREGATORS_SKIP_BLOCK_CACHE, false);
     this.timelineMetricsTablesDurability = metricsConf.get(TIMELINE_METRICS_AGGREGATE_TABLES_DURABILITY, "");
     this.timelineMetricsPrecisionTableDurability = metricsConf.get(TIMELINE_METRICS_PRECISION_TABLE_DURABILITY, "");
+    this.precisionValuesEncodingEnabled = metricsConf.getBoolean(TIMELINE_METRICS_PRECISION_TABLE_VALUES_ENCODING_ENABLED, false);
 
     tableTTL.put(METRICS_RECORD_TABLE_NAME, metricsConf.get(PRECISION_TABLE_TTL, String.valueOf(1 * 86400)));  // 1 day
     tableTTL.put(CONTAINER_METRICS_TABLE_NAME, metricsConf.get(CONTAINER_METRICS_TTL, String.valueOf(30 * 86400)));  // 30 days
@@ -296,13 +300,13 @@ public class PhoenixHBaseAccessor {
 
           metricRecordStmt.clearParameters();
 
+          TimelineMetricSeries metricSeries = metric.getMetricSeries();
           if (LOG.isTraceEnabled()) {
             LOG.trace("host: " + metric.getHostName() + ", " +
                     "metricName = " + metric.getMetricName() + ", " +
-                    "values: " + metric.getMetricValues());
+                    "values: " + metricSeries);
           }
-          double[] aggregates = AggregatorUtils.calculateAggregates(
-                  metric.getMetricValues());
+          double[] aggregates = AggregatorUtils.calculateAggregates(metricSeries);
 
           metricRecordStmt.setString(1, metric.getMetricName());
           metricRecordStmt.setString(2, metric.getHostName());
@@ -315,8 +319,7 @@ public class PhoenixHBaseAccessor {
           metricRecordStmt.setDouble(9, aggregates[1]);
           metricRecordStmt.setDouble(10, aggregates[2]);
           metricRecordStmt.setLong(11, (long) aggregates[3]);
-          String json = TimelineUtils.dumpTimelineRecordtoJSON(metric.getMetricValues());
-          metricRecordStmt.setString(12, json);
+          metricRecordStmt.setString(12, writeMetricValues(metricSeries));
 
           try {
             metricRecordStmt.executeUpdate();
@@ -352,23 +355,49 @@ public class PhoenixHBaseAccessor {
   private static TimelineMetric getLastTimelineMetricFromResultSet(ResultSet rs)
       throws SQLException, IOException {
     TimelineMetric metric = TIMELINE_METRIC_READ_HELPER.getTimelineMetricCommonsFromResultSet(rs);
-    metric.setMetricValues(readLastMetricValueFromJSON(rs.getString("METRICS")));
+    metric.setMetricSeries(readLastMetricValue(rs.getString("METRICS")));
     return metric;
   }
 
-  private static TreeMap<Long, Double> readLastMetricValueFromJSON(String json)
+  private static TimelineMetricSeries readLastMetricValue(String stored)
       throws IOException {
-    TreeMap<Long, Double> values = readMetricFromJSON(json);
-    Long lastTimeStamp = values.lastKey();
+    TimelineMetricSeries values = readMetricSeries(stored);
+    TimelineMetricSeries lastValue = new TimelineMetricSeries(1);
+    int last = values.size() - 1;
+    if (last >= 0) {
+      lastValue.put(values.getTimestamp(last), values.getValue(last));
+    }
+    return lastValue;
+  }
 
-    TreeMap<Long, Double> valueMap = new TreeMap<Long, Double>();
-    valueMap.put(lastTimeStamp, values.get(lastTimeStamp));
-    return valueMap;
+  /**
+   * Reads the values stored in the METRICS column of the precision table,
+   * either encoded by {@link MetricValuesCodec} or as JSON.
+   */
+  public static TreeMap<Long, Double> readMetricValues(String stored) throws IOException {
+    if (MetricValuesCodec.isEncoded(stored)) {
+      return MetricValuesCodec.decode(stored).toTreeMap();
+    }
+    return mapper.readValue(stored, metricValuesTypeRef);
   }
 
-  @SuppressWarnings("unchecked")
-  public static TreeMap<Long, Double>  readMetricFromJSON(String json) throws IOException {
-    return mapper.readValue(json, metricValuesTypeRef);
+  /**
+   * Same as {@link #readMetricValues(String)}, without boxing the encoded
+   * values.
+   */
+  public static TimelineMetricSeries readMetricSeries(String stored) throws IOException {
+    if (MetricValuesCodec.isEncoded(stored)) {
+      return MetricValuesCodec.decode(stored);
+    }
+    TreeMap<Long, Double> metricValues = mapper.readValue(stored, metricValuesTypeRef);
+    return TimelineMetricSeries.fromMap(metricValues);
+  }
+
+  private String writeMetricValues(TimelineMetricSeries metricSeries) throws IOException {
+    if (precisionValuesEncodingEnabled) {
+      return MetricValuesCodec.encode(metricSeries);
+    }
+    return TimelineUtils.dumpTimelineRecordtoJSON(metricSeries.toTreeMap());
   }
 
   private Connection getConnectionRetryingOnException()
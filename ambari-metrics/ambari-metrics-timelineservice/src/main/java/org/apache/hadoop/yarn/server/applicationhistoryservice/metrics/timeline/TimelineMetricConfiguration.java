@@ -248,9 +248,24 @@ public class TimelineMetricConfiguration {
   public static final String TIMELINE_METRICS_CLUSTER_AGGREGATOR_INTERPOLATION_ENABLED =
     "timeline.metrics.cluster.aggregator.interpolation.enabled";
 
+  public static final String CLUSTER_AGGREGATOR_SECOND_PARALLELISM =
+    "timeline.metrics.cluster.aggregator.second.parallelism";
+
+  public static final String TIMELINE_METRICS_AGGREGATOR_SELF_METRICS_ENABLED =
+    "timeline.metrics.aggregator.self.metrics.enabled";
+
   public static final String TIMELINE_METRICS_PRECISION_TABLE_DURABILITY =
     "timeline.metrics.precision.table.durability";
 
+  /**
+   * Writes the precision table values with the compact encoding of
+   * {@link MetricValuesCodec} instead of JSON. Off by default, since older
+   * collectors can't read the encoded rows; enable it once all the collectors
+   * are upgraded.
+   */
+  public static final String TIMELINE_METRICS_PRECISION_TABLE_VALUES_ENCODING_ENABLED =
+    "timeline.metrics.precision.table.values.encoding.enabled";
+
   public static final String TIMELINE_METRICS_AGGREGATE_TABLES_DURABILITY =
       "timeline.metrics.aggregate.tables.durability";
 
@@ -298,6 +313,8 @@ public class TimelineMetricConfiguration {
 
   public static final String HOST_APP_ID = "HOST";
 
+  public static final String COLLECTOR_APP_ID = "timeline_metric_collector";
+
   public static final String DEFAULT_INSTANCE_PORT = "12001";
 
   public static final String AMSHBASE_METRICS_WHITESLIST_FILE = "amshbase_metrics_whitelist";
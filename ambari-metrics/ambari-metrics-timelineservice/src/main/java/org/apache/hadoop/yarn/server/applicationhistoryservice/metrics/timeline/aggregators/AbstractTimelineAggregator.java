@@ -21,10 +21,13 @@ import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetric;
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetrics;
 import org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.PhoenixHBaseAccessor;
 import org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.availability.AggregationTaskRunner;
 import org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.availability.AggregationTaskRunner.AGGREGATOR_NAME;
 import org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.availability.MetricCollectorHAController;
+import org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.discovery.TimelineMetricMetadataManager;
 import org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.query.Condition;
 import org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.query.EmptyCondition;
 import org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.query.PhoenixTransactSQL;
@@ -32,6 +35,8 @@ import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
 import java.io.File;
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -42,7 +47,9 @@ import java.util.List;
 
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.TimelineMetricConfiguration.AGGREGATOR_CHECKPOINT_DELAY;
+import static org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.TimelineMetricConfiguration.COLLECTOR_APP_ID;
 import static org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.TimelineMetricConfiguration.RESULTSET_FETCH_SIZE;
+import static org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.TimelineMetricConfiguration.TIMELINE_METRICS_AGGREGATOR_SELF_METRICS_ENABLED;
 import static org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.availability.AggregationTaskRunner.ACTUAL_AGGREGATOR_NAMES;
 
 /**
@@ -68,6 +75,11 @@ public abstract class AbstractTimelineAggregator implements TimelineMetricAggreg
 
   // Explicitly name aggregators for logging needs
   private final AGGREGATOR_NAME aggregatorName;
+  // Run time and lag of each cycle are stored as metrics of the collector,
+  // of this host which is resolved once; null if they are not stored
+  private final String selfMetricsHostName;
+  // Makes the self metrics discoverable; null if their metadata is not kept
+  private volatile TimelineMetricMetadataManager selfMetricsMetadataManager;
 
   AbstractTimelineAggregator(AGGREGATOR_NAME aggregatorName,
                              PhoenixHBaseAccessor hBaseAccessor,
@@ -80,6 +92,8 @@ public abstract class AbstractTimelineAggregator implements TimelineMetricAggreg
     this.LOG = LoggerFactory.getLogger(ACTUAL_AGGREGATOR_NAMES.get(aggregatorName));
     this.configuredDownSamplers = DownSamplerUtils.getDownSamplers(metricsConf);
     this.downsampleMetricPatterns = DownSamplerUtils.getDownsampleMetricPatterns(metricsConf);
+    this.selfMetricsHostName = metricsConf.getBoolean(TIMELINE_METRICS_AGGREGATOR_SELF_METRICS_ENABLED, true) ?
+      resolveSelfMetricsHostName() : null;
   }
 
   public AbstractTimelineAggregator(AGGREGATOR_NAME aggregatorName,
@@ -136,7 +150,9 @@ public abstract class AbstractTimelineAggregator implements TimelineMetricAggreg
           + ((currentTime - lastCheckPointTime) / 1000)
           + " seconds.");
 
+        long cycleStartTime = System.currentTimeMillis();
         boolean success = doWork(lastCheckPointTime, lastCheckPointTime + SLEEP_INTERVAL);
+        publishSelfMetrics(System.currentTimeMillis() - cycleStartTime, currentTime - lastCheckPointTime);
 
         if (success) {
           try {
@@ -311,6 +327,60 @@ public abstract class AbstractTimelineAggregator implements TimelineMetricAggreg
     return success;
   }
 
+  /**
+   * Store the run time of the last aggregation cycle and how far the
+   * checkpoint lagged behind when it started, as metrics of the collector.
+   */
+  protected void publishSelfMetrics(long runTimeMillis, long lagMillis) {
+    if (selfMetricsHostName == null || hBaseAccessor == null) {
+      return;
+    }
+    long currentTime = System.currentTimeMillis();
+    String prefix = ACTUAL_AGGREGATOR_NAMES.get(aggregatorName);
+
+    TimelineMetrics metrics = new TimelineMetrics();
+    metrics.getMetrics().add(createSelfMetric(prefix + ".runTime", currentTime, runTimeMillis));
+    metrics.getMetrics().add(createSelfMetric(prefix + ".lag", currentTime, lagMillis));
+    try {
+      hBaseAccessor.insertMetricRecordsWithMetadata(selfMetricsMetadataManager, metrics, true);
+    } catch (SQLException | IOException e) {
+      LOG.warn("Unable to store aggregator metrics.", e);
+    }
+  }
+
+  /**
+   * Set the metadata manager through which the metadata of the self metrics
+   * is registered, the same way as for the metrics sent to the collector.
+   */
+  public void setSelfMetricsMetadataManager(TimelineMetricMetadataManager metadataManager) {
+    this.selfMetricsMetadataManager = metadataManager;
+  }
+
+  @Override
+  public void shutdown() {
+  }
+
+  private String resolveSelfMetricsHostName() {
+    try {
+      return System.getProperty("AMS_INSTANCE_NAME", InetAddress.getLocalHost().getHostName());
+    } catch (UnknownHostException e) {
+      LOG.warn("Unable to resolve hostname, skipping aggregator metrics.", e);
+      return null;
+    }
+  }
+
+  private TimelineMetric createSelfMetric(String metricName, long timestamp, long value) {
+    TimelineMetric metric = new TimelineMetric();
+    metric.setMetricName(metricName);
+    metric.setHostName(selfMetricsHostName);
+    metric.setAppId(COLLECTOR_APP_ID);
+    metric.setUnits("ms");
+    metric.setStartTime(timestamp);
+    metric.setTimestamp(timestamp);
+    metric.putMetricValue(timestamp, (double) value);
+    return metric;
+  }
+
   protected abstract Condition prepareMetricQueryCondition(long startTime, long endTime);
 
   protected abstract void aggregate(ResultSet rs, long startTime, long endTime) throws IOException, SQLException;
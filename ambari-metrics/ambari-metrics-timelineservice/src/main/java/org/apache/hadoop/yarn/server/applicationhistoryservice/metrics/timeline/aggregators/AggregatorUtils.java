@@ -21,6 +21,7 @@ package org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline
 import java.util.Map;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetricSeries;
 
 /**
  *
@@ -30,31 +31,38 @@ public class AggregatorUtils {
   private static final Log LOG = LogFactory.getLog(AggregatorUtils.class);
 
   public static double[] calculateAggregates(Map<Long, Double> metricValues) {
+    return calculateAggregates(metricValues == null ? null : TimelineMetricSeries.fromMap(metricValues));
+  }
+
+  /**
+   * Calculates the sum, max, min and count of the values, in that order.
+   * Null and NaN values are left out of the sum, max and min, but counted.
+   */
+  public static double[] calculateAggregates(TimelineMetricSeries metricSeries) {
     double[] values = new double[4];
-    double max = Double.MIN_VALUE;
-    double min = Double.MAX_VALUE;
+    double max = Double.NEGATIVE_INFINITY;
+    double min = Double.POSITIVE_INFINITY;
     double sum = 0.0;
+    int valueCount = 0;
     int metricCount = 0;
 
-    if (metricValues != null && !metricValues.isEmpty()) {
-      for (Double value : metricValues.values()) {
+    if (metricSeries != null) {
+      for (int i = 0; i < metricSeries.size(); i++) {
+        double value = metricSeries.getValue(i);
         // TODO: Some nulls in data - need to investigate null values from host
-        if (value != null) {
-          if (value > max) {
-            max = value;
-          }
-          if (value < min) {
-            min = value;
-          }
+        if (!Double.isNaN(value)) {
+          max = Math.max(max, value);
+          min = Math.min(min, value);
           sum += value;
+          valueCount++;
         }
       }
-      metricCount = metricValues.values().size();
+      metricCount = metricSeries.size();
     }
     // BR: WHY ZERO is a good idea?
     values[0] = sum;
-    values[1] = max != Double.MIN_VALUE ? max : 0.0;
-    values[2] = min != Double.MAX_VALUE ? min : 0.0;
+    values[1] = valueCount > 0 ? max : 0.0;
+    values[2] = valueCount > 0 ? min : 0.0;
     values[3] = metricCount;
 
     return values;
@@ -49,6 +49,11 @@ public interface TimelineMetricAggregator extends Runnable {
    */
   AGGREGATOR_NAME getName();
 
+  /**
+   * Release the resources of the aggregator, once it is no longer scheduled.
+   */
+  void shutdown();
+
   /**
    * Known aggregator types
    */
@@ -86,6 +86,17 @@ public class TimelineMetricAppAggregator {
    */
   public void processTimelineClusterMetric(TimelineClusterMetric clusterMetric,
                                            String hostname, Double metricValue) {
+    processTimelineClusterMetric(aggregateClusterMetrics, clusterMetric, hostname, metricValue);
+  }
+
+  /**
+   * Same as {@link #processTimelineClusterMetric(TimelineClusterMetric, String, Double)},
+   * updating the given app aggregates instead of those of the cycle. Safe to
+   * call from several threads as long as each passes its own aggregates.
+   */
+  public void processTimelineClusterMetric(Map<TimelineClusterMetric, MetricClusterAggregate> aggregateClusterMetrics,
+                                           TimelineClusterMetric clusterMetric,
+                                           String hostname, Double metricValue) {
 
     String appId = clusterMetric.getAppId();
     if (appId == null) {
@@ -96,30 +107,42 @@ public class TimelineMetricAppAggregator {
     if (appId.equalsIgnoreCase(HOST_APP_ID)) {
       // Candidate metric, update app aggregates
       if (hostedAppsMap.containsKey(hostname)) {
-        updateAppAggregatesFromHostMetric(clusterMetric, hostname, metricValue);
+        updateAppAggregatesFromHostMetric(aggregateClusterMetrics, clusterMetric, hostname, metricValue);
       }
     } else {
       // Build the hostedapps map if not a host metric
       // Check app candidacy for host aggregation
       if (appIdsToAggregate.contains(appId)) {
         Set<String> appIds = hostedAppsMap.get(hostname);
-        if (appIds == null) {
-          appIds = new HashSet<>();
-          hostedAppsMap.put(hostname, appIds);
-        }
-        if (!appIds.contains(appId)) {
-          appIds.add(appId);
-          LOG.info("Adding appId to hosted apps: appId = " +
-            clusterMetric.getAppId() + ", hostname = " + hostname);
+        if (appIds == null || !appIds.contains(appId)) {
+          addHostedApp(hostname, appId);
         }
       }
     }
   }
 
+  /**
+   * Other threads may be iterating over the hosted apps of the host, so the
+   * set is replaced rather than modified.
+   */
+  private void addHostedApp(String hostname, String appId) {
+    synchronized (hostedAppsMap) {
+      Set<String> appIds = hostedAppsMap.get(hostname);
+      if (appIds == null || !appIds.contains(appId)) {
+        Set<String> newAppIds = appIds == null ? new HashSet<String>() : new HashSet<>(appIds);
+        newAppIds.add(appId);
+        hostedAppsMap.put(hostname, newAppIds);
+        LOG.info("Adding appId to hosted apps: appId = " +
+          appId + ", hostname = " + hostname);
+      }
+    }
+  }
+
   /**
    * Build a cluster app metric from a host metric
    */
-  private void updateAppAggregatesFromHostMetric(TimelineClusterMetric clusterMetric,
+  private void updateAppAggregatesFromHostMetric(Map<TimelineClusterMetric, MetricClusterAggregate> aggregateClusterMetrics,
+                                                 TimelineClusterMetric clusterMetric,
                                                  String hostname, Double metricValue) {
 
     if (aggregateClusterMetrics == null) {
@@ -18,6 +18,7 @@
 package org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.aggregators;
 
 
+import static org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.TimelineMetricConfiguration.CLUSTER_AGGREGATOR_SECOND_PARALLELISM;
 import static org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.TimelineMetricConfiguration.SERVER_SIDE_TIMESIFT_ADJUSTMENT;
 import static org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.TimelineMetricConfiguration.TIMELINE_METRICS_CLUSTER_AGGREGATOR_INTERPOLATION_ENABLED;
 import static org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.TimelineMetricConfiguration.TIMELINE_METRIC_AGGREGATION_SQL_FILTERS;
@@ -33,6 +34,9 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang.StringUtils;
@@ -42,6 +46,7 @@ import org.apache.hadoop.metrics2.sink.timeline.MetricClusterAggregate;
 import org.apache.hadoop.metrics2.sink.timeline.PostProcessingUtil;
 import org.apache.hadoop.metrics2.sink.timeline.TimelineMetric;
 import org.apache.hadoop.metrics2.sink.timeline.TimelineMetricMetadata;
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetricSeries;
 import org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.PhoenixHBaseAccessor;
 import org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.availability.AggregationTaskRunner.AGGREGATOR_NAME;
 import org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.availability.MetricCollectorHAController;
@@ -55,6 +60,9 @@ import org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.
  * the precision table and saves into the aggregate.
  */
 public class TimelineMetricClusterAggregatorSecond extends AbstractTimelineAggregator {
+  // Number of host metrics of a partition sliced by one task
+  private static final int SLICE_BATCH_SIZE = 500;
+
   public Long timeSliceIntervalMillis;
   private TimelineMetricReadHelper timelineMetricReadHelper = new TimelineMetricReadHelper(true);
   // Aggregator to perform app-level aggregates for host metrics
@@ -64,6 +72,10 @@ public class TimelineMetricClusterAggregatorSecond extends AbstractTimelineAggre
   private final boolean interpolationEnabled;
   private TimelineMetricMetadataManager metadataManagerInstance;
   private String skipAggrPatternStrings;
+  // Slices the host metrics read by the aggregator thread, partitioned by
+  // metric name; null if they are sliced by the aggregator thread itself
+  private final ForkJoinPool slicingPool;
+  private final int partitionCount;
 
   public TimelineMetricClusterAggregatorSecond(AGGREGATOR_NAME aggregatorName,
                                                TimelineMetricMetadataManager metadataManager,
@@ -88,6 +100,16 @@ public class TimelineMetricClusterAggregatorSecond extends AbstractTimelineAggre
     this.serverTimeShiftAdjustment = Long.parseLong(metricsConf.get(SERVER_SIDE_TIMESIFT_ADJUSTMENT, "90000"));
     this.interpolationEnabled = Boolean.parseBoolean(metricsConf.get(TIMELINE_METRICS_CLUSTER_AGGREGATOR_INTERPOLATION_ENABLED, "true"));
     this.skipAggrPatternStrings = metricsConf.get(TIMELINE_METRIC_AGGREGATION_SQL_FILTERS);
+    this.partitionCount = metricsConf.getInt(CLUSTER_AGGREGATOR_SECOND_PARALLELISM,
+      Runtime.getRuntime().availableProcessors());
+    this.slicingPool = partitionCount > 1 ? new ForkJoinPool(partitionCount) : null;
+  }
+
+  @Override
+  public void shutdown() {
+    if (slicingPool != null) {
+      slicingPool.shutdown();
+    }
   }
 
   @Override
@@ -152,50 +174,50 @@ public class TimelineMetricClusterAggregatorSecond extends AbstractTimelineAggre
       throws SQLException, IOException {
     Map<TimelineClusterMetric, MetricClusterAggregate> aggregateClusterMetrics =
       new HashMap<TimelineClusterMetric, MetricClusterAggregate>();
+    Map<TimelineClusterMetric, MetricClusterAggregate> appAggregateClusterMetrics =
+      appAggregator.getAggregateClusterMetrics();
 
-    TimelineMetric metric = null;
+    Slicer slicer = slicingPool != null ?
+      new ParallelSlicer(timeSlices, aggregateClusterMetrics, appAggregateClusterMetrics) :
+      new Slicer(timeSlices, aggregateClusterMetrics, appAggregateClusterMetrics);
     Map<String, MutableInt> hostedAppCounter = new HashMap<>();
-    if (rs.next()) {
-      metric = timelineMetricReadHelper.getTimelineMetricFromResultSet(rs);
-
-      // Call slice after all rows for a host are read
-      while (rs.next()) {
-        TimelineMetric nextMetric = timelineMetricReadHelper.getTimelineMetricFromResultSet(rs);
-        // If rows belong to same host combine them before slicing. This
-        // avoids issues across rows that belong to same hosts but get
-        // counted as coming from different ones.
-        if (metric.equalsExceptTime(nextMetric)) {
-          metric.addMetricValues(nextMetric.getMetricValues());
-        } else {
-          // Process the current metric
-          int numHosts = processAggregateClusterMetrics(aggregateClusterMetrics, metric, timeSlices);
-          if (!hostedAppCounter.containsKey(metric.getAppId())) {
-            hostedAppCounter.put(metric.getAppId(), new MutableInt(numHosts));
-          } else {
-            int currentHostCount = hostedAppCounter.get(metric.getAppId()).intValue();
-            if (currentHostCount < numHosts) {
-              hostedAppCounter.put(metric.getAppId(), new MutableInt(numHosts));
-            }
-          }
-          metric = nextMetric;
+
+    TimelineMetric metric = null;
+    while (rs.next()) {
+      TimelineMetric nextMetric = timelineMetricReadHelper.getTimelineMetricFromResultSet(rs);
+      // If rows belong to same host combine them before slicing. This
+      // avoids issues across rows that belong to same hosts but get
+      // counted as coming from different ones.
+      if (metric != null && metric.equalsExceptTime(nextMetric)) {
+        metric.addMetricValues(nextMetric.getMetricSeries());
+      } else {
+        // Call slice after all rows for a host are read
+        if (metric != null) {
+          slicer.slice(metric);
+        }
+        if (!hostedAppCounter.containsKey(nextMetric.getAppId())) {
+          hostedAppCounter.put(nextMetric.getAppId(), new MutableInt(0));
         }
+        metric = nextMetric;
       }
     }
     // Process last metric
     if (metric != null) {
-      int numHosts = processAggregateClusterMetrics(aggregateClusterMetrics, metric, timeSlices);
-      if (!hostedAppCounter.containsKey(metric.getAppId())) {
-        hostedAppCounter.put(metric.getAppId(), new MutableInt(numHosts));
-      } else {
-        int currentHostCount = hostedAppCounter.get(metric.getAppId()).intValue();
-        if (currentHostCount < numHosts) {
-          hostedAppCounter.put(metric.getAppId(), new MutableInt(numHosts));
-        }
+      slicer.slice(metric);
+    }
+    slicer.finish();
+
+    // The number of hosts of an app is the largest number of hosts
+    // aggregated into one of its metrics
+    for (Map.Entry<TimelineClusterMetric, MetricClusterAggregate> entry : aggregateClusterMetrics.entrySet()) {
+      MutableInt numHosts = hostedAppCounter.get(entry.getKey().getAppId());
+      if (numHosts != null && numHosts.intValue() < entry.getValue().getNumberOfHosts()) {
+        numHosts.setValue(entry.getValue().getNumberOfHosts());
       }
     }
 
     // Add app level aggregates to save
-    aggregateClusterMetrics.putAll(appAggregator.getAggregateClusterMetrics());
+    aggregateClusterMetrics.putAll(appAggregateClusterMetrics);
 
     // Add liveHosts per AppId metrics.
     long timestamp = timeSlices.get(timeSlices.size() - 1)[1];
@@ -204,6 +226,102 @@ public class TimelineMetricClusterAggregatorSecond extends AbstractTimelineAggre
     return aggregateClusterMetrics;
   }
 
+  /**
+   * Slices the host metrics of a cycle on the aggregator thread.
+   */
+  private class Slicer {
+    final List<Long[]> timeSlices;
+    final Map<TimelineClusterMetric, MetricClusterAggregate> aggregateClusterMetrics;
+    final Map<TimelineClusterMetric, MetricClusterAggregate> appAggregateClusterMetrics;
+
+    Slicer(List<Long[]> timeSlices,
+           Map<TimelineClusterMetric, MetricClusterAggregate> aggregateClusterMetrics,
+           Map<TimelineClusterMetric, MetricClusterAggregate> appAggregateClusterMetrics) {
+      this.timeSlices = timeSlices;
+      this.aggregateClusterMetrics = aggregateClusterMetrics;
+      this.appAggregateClusterMetrics = appAggregateClusterMetrics;
+    }
+
+    void slice(TimelineMetric metric) {
+      processAggregateClusterMetrics(aggregateClusterMetrics, appAggregateClusterMetrics, metric, timeSlices);
+    }
+
+    void finish() {
+    }
+  }
+
+  /**
+   * Slices the host metrics of a cycle in batches on the slicing pool. A
+   * batch holds metrics of one partition of metric names, so the aggregates
+   * of different partitions do not overlap. Each task slices its batch into
+   * aggregates of its own, which are merged once all the metrics were read.
+   */
+  private class ParallelSlicer extends Slicer {
+    private final List<List<TimelineMetric>> batches = new ArrayList<>(partitionCount);
+    private final List<ForkJoinTask<Slicer>> tasks = new ArrayList<>();
+
+    ParallelSlicer(List<Long[]> timeSlices,
+                   Map<TimelineClusterMetric, MetricClusterAggregate> aggregateClusterMetrics,
+                   Map<TimelineClusterMetric, MetricClusterAggregate> appAggregateClusterMetrics) {
+      super(timeSlices, aggregateClusterMetrics, appAggregateClusterMetrics);
+      for (int i = 0; i < partitionCount; i++) {
+        batches.add(new ArrayList<TimelineMetric>(SLICE_BATCH_SIZE));
+      }
+    }
+
+    @Override
+    void slice(TimelineMetric metric) {
+      int partition = (metric.getMetricName().hashCode() & Integer.MAX_VALUE) % partitionCount;
+      List<TimelineMetric> batch = batches.get(partition);
+      batch.add(metric);
+      if (batch.size() >= SLICE_BATCH_SIZE) {
+        submit(batch);
+        batches.set(partition, new ArrayList<TimelineMetric>(SLICE_BATCH_SIZE));
+      }
+    }
+
+    @Override
+    void finish() {
+      for (List<TimelineMetric> batch : batches) {
+        if (!batch.isEmpty()) {
+          submit(batch);
+        }
+      }
+      for (ForkJoinTask<Slicer> task : tasks) {
+        Slicer batchSlicer = task.join();
+        mergeAggregates(aggregateClusterMetrics, batchSlicer.aggregateClusterMetrics);
+        mergeAggregates(appAggregateClusterMetrics, batchSlicer.appAggregateClusterMetrics);
+      }
+    }
+
+    private void submit(final List<TimelineMetric> batch) {
+      tasks.add(slicingPool.submit(new Callable<Slicer>() {
+        @Override
+        public Slicer call() {
+          Slicer batchSlicer = new Slicer(timeSlices,
+            new HashMap<TimelineClusterMetric, MetricClusterAggregate>(),
+            new HashMap<TimelineClusterMetric, MetricClusterAggregate>());
+          for (TimelineMetric metric : batch) {
+            batchSlicer.slice(metric);
+          }
+          return batchSlicer;
+        }
+      }));
+    }
+
+    private void mergeAggregates(Map<TimelineClusterMetric, MetricClusterAggregate> aggregates,
+                                 Map<TimelineClusterMetric, MetricClusterAggregate> batchAggregates) {
+      for (Map.Entry<TimelineClusterMetric, MetricClusterAggregate> entry : batchAggregates.entrySet()) {
+        MetricClusterAggregate aggregate = aggregates.get(entry.getKey());
+        if (aggregate == null) {
+          aggregates.put(entry.getKey(), entry.getValue());
+        } else {
+          aggregate.updateAggregates(entry.getValue());
+        }
+      }
+    }
+  }
+
   /**
    * Slice metric values into interval specified by :
    * timeline.metrics.cluster.aggregator.minute.timeslice.interval
@@ -211,6 +329,13 @@ public class TimelineMetricClusterAggregatorSecond extends AbstractTimelineAggre
    */
   protected int processAggregateClusterMetrics(Map<TimelineClusterMetric, MetricClusterAggregate> aggregateClusterMetrics,
                                               TimelineMetric metric, List<Long[]> timeSlices) {
+    return processAggregateClusterMetrics(aggregateClusterMetrics, appAggregator.getAggregateClusterMetrics(),
+      metric, timeSlices);
+  }
+
+  private int processAggregateClusterMetrics(Map<TimelineClusterMetric, MetricClusterAggregate> aggregateClusterMetrics,
+                                             Map<TimelineClusterMetric, MetricClusterAggregate> appAggregateClusterMetrics,
+                                             TimelineMetric metric, List<Long[]> timeSlices) {
     // Create time slices
     TimelineMetricMetadataKey appKey =  new TimelineMetricMetadataKey(metric.getMetricName(), metric.getAppId());
     TimelineMetricMetadata metricMetadata = metadataManagerInstance.getMetadataCacheValue(appKey);
@@ -243,7 +368,8 @@ public class TimelineMetricClusterAggregatorSecond extends AbstractTimelineAggre
 
         numHosts = aggregate.getNumberOfHosts();
         // Update app level aggregates
-        appAggregator.processTimelineClusterMetric(clusterMetric, metric.getHostName(), avgValue);
+        appAggregator.processTimelineClusterMetric(appAggregateClusterMetrics, clusterMetric,
+          metric.getHostName(), avgValue);
       }
     }
     return numHosts;
@@ -252,7 +378,8 @@ public class TimelineMetricClusterAggregatorSecond extends AbstractTimelineAggre
   protected Map<TimelineClusterMetric, Double> sliceFromTimelineMetric(
     TimelineMetric timelineMetric, List<Long[]> timeSlices) {
 
-    if (timelineMetric.getMetricValues().isEmpty()) {
+    TimelineMetricSeries metricSeries = timelineMetric.getMetricSeries();
+    if (metricSeries.isEmpty()) {
       return null;
     }
 
@@ -272,13 +399,14 @@ public class TimelineMetricClusterAggregatorSecond extends AbstractTimelineAggre
     double sum = 0.0;
 
     Map<Long,Double> timeSliceValueMap = new HashMap<>();
-    for (Map.Entry<Long, Double> metric : timelineMetric.getMetricValues().entrySet()) {
+    for (int i = 0; i < metricSeries.size(); i++) {
+      double value = metricSeries.getValue(i);
       // TODO: investigate null values - pre filter
-      if (metric.getValue() == null) {
+      if (TimelineMetricSeries.isNull(value)) {
         continue;
       }
 
-      Long timestamp = getSliceTimeForMetric(timeSlices, Long.parseLong(metric.getKey().toString()));
+      Long timestamp = getSliceTimeForMetric(timeSlices, metricSeries.getTimestamp(i));
       if (timestamp != -1) {
         // Metric is within desired time range
         TimelineClusterMetric clusterMetric = new TimelineClusterMetric(
@@ -289,16 +417,15 @@ public class TimelineMetricClusterAggregatorSecond extends AbstractTimelineAggre
           timelineMetric.getType());
 
         if (prevTimestamp < 0 || timestamp.equals(prevTimestamp)) {
-          Double newValue = metric.getValue();
-          if (newValue > 0.0) {
-            sum += newValue;
+          if (value > 0.0) {
+            sum += value;
             count++;
           }
         } else {
           double metricValue = (count > 0) ? (sum / count) : 0.0;
             timelineClusterMetricMap.put(prevMetric, metricValue);
           timeSliceValueMap.put(prevMetric.getTimestamp(), metricValue);
-          sum = metric.getValue();
+          sum = value;
           count = sum > 0.0 ? 1 : 0;
         }
 
@@ -359,14 +486,15 @@ public class TimelineMetricClusterAggregatorSecond extends AbstractTimelineAggre
       //For other metrics, ok to do only interpolation
 
       Double defaultNextSeenValue = null;
-      if (MapUtils.isEmpty(timeSliceValueMap) && MapUtils.isNotEmpty(timelineMetric.getMetricValues())) {
+      TimelineMetricSeries metricSeries = timelineMetric.getMetricSeries();
+      if (MapUtils.isEmpty(timeSliceValueMap) && !metricSeries.isEmpty()) {
         //If no value was found within the start_time based slices, but the metric has value in the server_time range,
         // use that.
 
         LOG.debug("No value found within range for metric : " + timelineMetric.getMetricName());
-        Map.Entry<Long,Double> firstEntry  = timelineMetric.getMetricValues().firstEntry();
-        defaultNextSeenValue = firstEntry.getValue();
-        LOG.debug("Found a data point outside timeslice range: " + new Date(firstEntry.getKey()) + ": " + defaultNextSeenValue);
+        double firstValue = metricSeries.getValue(0);
+        defaultNextSeenValue = TimelineMetricSeries.toNullable(firstValue);
+        LOG.debug("Found a data point outside timeslice range: " + new Date(metricSeries.getTimestamp(0)) + ": " + defaultNextSeenValue);
       }
 
       for (int sliceNum = 0; sliceNum < timeSlices.size(); sliceNum++) {
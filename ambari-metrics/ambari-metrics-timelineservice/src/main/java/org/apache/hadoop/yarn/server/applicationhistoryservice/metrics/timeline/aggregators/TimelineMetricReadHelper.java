@@ -28,7 +28,6 @@ import java.io.IOException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Map;
-import java.util.TreeMap;
 
 public class TimelineMetricReadHelper {
 
@@ -43,8 +42,7 @@ public class TimelineMetricReadHelper {
   public TimelineMetric getTimelineMetricFromResultSet(ResultSet rs)
       throws SQLException, IOException {
     TimelineMetric metric = getTimelineMetricCommonsFromResultSet(rs);
-    TreeMap<Long, Double> sortedByTimeMetrics = PhoenixHBaseAccessor.readMetricFromJSON(rs.getString("METRICS"));
-    metric.setMetricValues(sortedByTimeMetrics);
+    metric.setMetricSeries(PhoenixHBaseAccessor.readMetricSeries(rs.getString("METRICS")));
     return metric;
   }
 
@@ -0,0 +1,110 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetricSeries;
+import org.junit.Test;
+
+public class MetricValuesCodecTest {
+
+  @Test
+  public void testRegularSeries() {
+    long[] timestamps = new long[120];
+    double[] values = new double[120];
+    for (int i = 0; i < timestamps.length; i++) {
+      timestamps[i] = 1484000000000L + i * 10000L;
+      values[i] = i % 10 == 0 ? 42.5 : 42.0;
+    }
+
+    String encoded = MetricValuesCodec.encode(new TimelineMetricSeries(timestamps, values));
+    assertTrue(MetricValuesCodec.isEncoded(encoded));
+
+    TimelineMetricSeries series = MetricValuesCodec.decode(encoded);
+    assertEquals(timestamps.length, series.size());
+    for (int i = 0; i < timestamps.length; i++) {
+      assertEquals(timestamps[i], series.getTimestamp(i));
+      assertEquals(values[i], series.getValue(i), 0.0);
+    }
+
+    // a regular interval with repeated values takes a few bits per point
+    assertTrue(encoded.length() < 200);
+  }
+
+  @Test
+  public void testIrregularSeries() {
+    Random random = new Random(7L);
+    long[] timestamps = new long[1000];
+    double[] values = new double[1000];
+    long timestamp = 1484000000000L;
+    for (int i = 0; i < timestamps.length; i++) {
+      // jitter of every magnitude handled by the delta-of-delta buckets
+      timestamp += 10000L + random.nextInt(1 << (i % 20));
+      timestamps[i] = timestamp;
+      values[i] = i % 7 == 0 ? random.nextDouble() * 1e9 : random.nextInt(100);
+    }
+    values[3] = Double.MAX_VALUE;
+    values[4] = -0.0;
+    values[5] = Double.MIN_VALUE;
+
+    TimelineMetricSeries series = MetricValuesCodec.decode(
+      MetricValuesCodec.encode(new TimelineMetricSeries(timestamps, values)));
+    for (int i = 0; i < values.length; i++) {
+      assertEquals(timestamps[i], series.getTimestamp(i));
+      assertEquals(Double.doubleToRawLongBits(values[i]), Double.doubleToRawLongBits(series.getValue(i)));
+    }
+  }
+
+  @Test
+  public void testMapWithNullValues() {
+    TreeMap<Long, Double> metricValues = new TreeMap<Long, Double>();
+    metricValues.put(1000L, 1.0);
+    metricValues.put(2000L, null);
+    metricValues.put(3500L, 3.0);
+
+    TreeMap<Long, Double> decoded = MetricValuesCodec.decode(MetricValuesCodec.encode(metricValues)).toTreeMap();
+    assertEquals(metricValues, decoded);
+    assertNull(decoded.get(2000L));
+  }
+
+  @Test
+  public void testEmptySeries() {
+    String encoded = MetricValuesCodec.encode(new TreeMap<Long, Double>());
+    assertEquals(0, MetricValuesCodec.decode(encoded).size());
+  }
+
+  @Test
+  public void testReadJson() throws Exception {
+    String json = "{\"1000\":1.0,\"2000\":2.5}";
+    assertFalse(MetricValuesCodec.isEncoded(json));
+
+    TreeMap<Long, Double> values = PhoenixHBaseAccessor.readMetricValues(json);
+    assertEquals(2, values.size());
+    assertEquals(2.5, values.get(2000L), 0.0);
+
+    TreeMap<Long, Double> encodedValues = PhoenixHBaseAccessor.readMetricValues(MetricValuesCodec.encode(values));
+    assertEquals(values, encodedValues);
+  }
+}
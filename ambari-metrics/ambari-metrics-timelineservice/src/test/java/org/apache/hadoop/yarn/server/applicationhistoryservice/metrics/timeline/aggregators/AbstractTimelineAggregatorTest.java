@@ -28,6 +28,7 @@ import java.sql.SQLException;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
 import static org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.TimelineMetricConfiguration.AGGREGATOR_CHECKPOINT_DELAY;
 import static org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.TimelineMetricConfiguration.RESULTSET_FETCH_SIZE;
 
@@ -38,6 +39,7 @@ public class AbstractTimelineAggregatorTest {
   AtomicLong startTimeInDoWork;
   AtomicLong endTimeInDoWork;
   AtomicLong checkPoint;
+  AtomicLong lagInSelfMetrics;
   int actualRuns;
 
   long sleepIntervalMillis;
@@ -55,6 +57,7 @@ public class AbstractTimelineAggregatorTest {
     startTimeInDoWork = new AtomicLong(0);
     endTimeInDoWork = new AtomicLong(0);
     checkPoint = new AtomicLong(-1);
+    lagInSelfMetrics = new AtomicLong(-1);
     actualRuns = 0;
 
     agg = new AbstractTimelineAggregator(AggregationTaskRunner.AGGREGATOR_NAME.METRIC_AGGREGATE_SECOND, null, metricsConf) {
@@ -106,6 +109,11 @@ public class AbstractTimelineAggregatorTest {
       protected void saveCheckPoint(long checkpointTime) throws IOException {
         checkPoint.set(checkpointTime);
       }
+
+      @Override
+      protected void publishSelfMetrics(long runTimeMillis, long lagMillis) {
+        lagInSelfMetrics.set(lagMillis);
+      }
     };
 
   }
@@ -176,4 +184,16 @@ public class AbstractTimelineAggregatorTest {
 
 
  }
-}
\ No newline at end of file
+
+  @Test
+  public void testSelfMetricsOnRun() throws Exception {
+    long currentTime = System.currentTimeMillis();
+    long checkPointTime = AbstractTimelineAggregator.getRoundedCheckPointTimeMillis(currentTime,
+      sleepIntervalMillis) - sleepIntervalMillis;
+    checkPoint.set(checkPointTime);
+    agg.runOnce(sleepIntervalMillis);
+
+    assertEquals(1, actualRuns);
+    assertTrue(lagInSelfMetrics.get() >= currentTime - checkPointTime);
+  }
+}
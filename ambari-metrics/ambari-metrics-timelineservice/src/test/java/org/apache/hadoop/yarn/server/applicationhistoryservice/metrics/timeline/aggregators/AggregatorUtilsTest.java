@@ -0,0 +1,59 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.aggregators;
+
+import java.util.TreeMap;
+
+import junit.framework.Assert;
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetricSeries;
+import org.junit.Test;
+
+public class AggregatorUtilsTest {
+
+  @Test
+  public void testCalculateAggregatesOfNegativeValues() throws Exception {
+    TreeMap<Long, Double> metricValues = new TreeMap<>();
+    metricValues.put(1000L, -3.0);
+    metricValues.put(2000L, null);
+    metricValues.put(3000L, -1.0);
+
+    double[] aggregates = AggregatorUtils.calculateAggregates(metricValues);
+    Assert.assertEquals(-4.0, aggregates[0], 0.0);
+    Assert.assertEquals(-1.0, aggregates[1], 0.0);
+    Assert.assertEquals(-3.0, aggregates[2], 0.0);
+    Assert.assertEquals(3.0, aggregates[3], 0.0);
+
+    double[] seriesAggregates = AggregatorUtils.calculateAggregates(TimelineMetricSeries.fromMap(metricValues));
+    for (int i = 0; i < aggregates.length; i++) {
+      Assert.assertEquals(aggregates[i], seriesAggregates[i], 0.0);
+    }
+  }
+
+  @Test
+  public void testCalculateAggregatesWithoutValues() throws Exception {
+    TreeMap<Long, Double> metricValues = new TreeMap<>();
+    metricValues.put(1000L, null);
+
+    double[] aggregates = AggregatorUtils.calculateAggregates(metricValues);
+    Assert.assertEquals(0.0, aggregates[0], 0.0);
+    Assert.assertEquals(0.0, aggregates[1], 0.0);
+    Assert.assertEquals(0.0, aggregates[2], 0.0);
+    Assert.assertEquals(1.0, aggregates[3], 0.0);
+  }
+}
@@ -18,12 +18,23 @@
 package org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.aggregators;
 
 
+import static org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.TimelineMetricConfiguration.CLUSTER_AGGREGATOR_SECOND_PARALLELISM;
+import static org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.TimelineMetricConfiguration.COLLECTOR_APP_ID;
 import static org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.availability.AggregationTaskRunner.AGGREGATOR_NAME.METRIC_AGGREGATE_SECOND;
 import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
 import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.same;
+import static org.easymock.EasyMock.verify;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.ResultSet;
 import java.util.HashMap;
 import java.util.List;
@@ -33,9 +44,12 @@ import java.util.TreeMap;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.metrics2.sink.timeline.MetricClusterAggregate;
 import org.apache.hadoop.metrics2.sink.timeline.TimelineMetric;
+import org.apache.hadoop.metrics2.sink.timeline.TimelineMetrics;
+import org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.PhoenixHBaseAccessor;
 import org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.discovery.TimelineMetricMetadataKey;
 import org.apache.hadoop.yarn.server.applicationhistoryservice.metrics.timeline.discovery.TimelineMetricMetadataManager;
 import org.codehaus.jackson.map.ObjectMapper;
+import org.easymock.Capture;
 import org.junit.Test;
 
  import junit.framework.Assert;
@@ -404,4 +418,119 @@ public class TimelineMetricClusterAggregatorSecondTest {
     Assert.assertEquals(2d, a1.getSum());
     Assert.assertEquals(3d, a2.getSum());
   }
+
+  @Test
+  public void testParallelAggregation() throws Exception {
+    long aggregatorInterval = 120000;
+    long sliceInterval = 30000;
+    long now = System.currentTimeMillis();
+    long startTime = now - 120000;
+
+    TimelineMetricMetadataManager metricMetadataManagerMock = createNiceMock(TimelineMetricMetadataManager.class);
+    expect(metricMetadataManagerMock.getMetadataCacheValue((TimelineMetricMetadataKey) anyObject())).andReturn(null).anyTimes();
+    replay(metricMetadataManagerMock);
+
+    Configuration serialConfiguration = new Configuration();
+    serialConfiguration.setInt(CLUSTER_AGGREGATOR_SECOND_PARALLELISM, 1);
+    TimelineMetricClusterAggregatorSecond serialAggregator = new TimelineMetricClusterAggregatorSecond(
+      METRIC_AGGREGATE_SECOND, metricMetadataManagerMock, null, serialConfiguration, null,
+      aggregatorInterval, 2, "false", "", "", aggregatorInterval, sliceInterval, null);
+
+    Configuration parallelConfiguration = new Configuration();
+    parallelConfiguration.setInt(CLUSTER_AGGREGATOR_SECOND_PARALLELISM, 4);
+    TimelineMetricClusterAggregatorSecond parallelAggregator = new TimelineMetricClusterAggregatorSecond(
+      METRIC_AGGREGATE_SECOND, metricMetadataManagerMock, null, parallelConfiguration, null,
+      aggregatorInterval, 2, "false", "", "", aggregatorInterval, sliceInterval, null);
+
+    List<Long[]> slices = serialAggregator.getTimeSlices(startTime, now);
+    Map<TimelineClusterMetric, MetricClusterAggregate> expected =
+      serialAggregator.aggregateMetricsFromResultSet(createResultSet(now, startTime), slices);
+    Map<TimelineClusterMetric, MetricClusterAggregate> actual =
+      parallelAggregator.aggregateMetricsFromResultSet(createResultSet(now, startTime), slices);
+
+    // 100 metrics of 3 apps, in 4 slices, and the live hosts of the apps
+    Assert.assertEquals(403, expected.size());
+    Assert.assertEquals(expected.keySet(), actual.keySet());
+    for (Map.Entry<TimelineClusterMetric, MetricClusterAggregate> entry : expected.entrySet()) {
+      MetricClusterAggregate aggregate = actual.get(entry.getKey());
+      Assert.assertEquals(entry.getValue().getSum(), aggregate.getSum(), 0.0001);
+      Assert.assertEquals(entry.getValue().getNumberOfHosts(), aggregate.getNumberOfHosts());
+      Assert.assertEquals(entry.getValue().getMax(), aggregate.getMax());
+      Assert.assertEquals(entry.getValue().getMin(), aggregate.getMin());
+    }
+
+    serialAggregator.shutdown();
+    parallelAggregator.shutdown();
+  }
+
+  @Test
+  public void testSelfMetricsRegisterMetadata() throws Exception {
+    TimelineMetricMetadataManager metricMetadataManagerMock = createNiceMock(TimelineMetricMetadataManager.class);
+    PhoenixHBaseAccessor hBaseAccessorMock = createMock(PhoenixHBaseAccessor.class);
+    Capture<TimelineMetrics> metricsCapture = new Capture<>();
+    hBaseAccessorMock.insertMetricRecordsWithMetadata(same(metricMetadataManagerMock),
+      capture(metricsCapture), eq(true));
+    expectLastCall().once();
+    replay(metricMetadataManagerMock, hBaseAccessorMock);
+
+    Configuration configuration = new Configuration();
+    configuration.setInt(CLUSTER_AGGREGATOR_SECOND_PARALLELISM, 1);
+    TimelineMetricClusterAggregatorSecond secondAggregator = new TimelineMetricClusterAggregatorSecond(
+      METRIC_AGGREGATE_SECOND, metricMetadataManagerMock, hBaseAccessorMock, configuration, null,
+      120000L, 2, "false", "", "", 120000L, 30000L, null);
+    secondAggregator.setSelfMetricsMetadataManager(metricMetadataManagerMock);
+
+    secondAggregator.publishSelfMetrics(10, 20);
+
+    verify(hBaseAccessorMock);
+    List<TimelineMetric> metrics = metricsCapture.getValue().getMetrics();
+    Assert.assertEquals(2, metrics.size());
+    for (TimelineMetric metric : metrics) {
+      Assert.assertEquals(COLLECTOR_APP_ID, metric.getAppId());
+      Assert.assertNotNull(metric.getHostName());
+    }
+  }
+
+  /**
+   * Rows of 100 metrics reported by 20 hosts each, ordered like the
+   * precision table.
+   */
+  private ResultSet createResultSet(final long now, final long startTime) throws Exception {
+    final ObjectMapper mapper = new ObjectMapper();
+    final int hosts = 20;
+    InvocationHandler handler = new InvocationHandler() {
+      int row = -1;
+
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getName().equals("next")) {
+          return ++row < 100 * hosts;
+        }
+        int metric = row / hosts;
+        int host = row % hosts;
+        String column = String.valueOf(args[0]);
+        switch (column) {
+          case "METRIC_NAME":
+            return "m" + metric;
+          case "HOSTNAME":
+            return "h" + host;
+          case "APP_ID":
+            return "a" + (metric % 3);
+          case "SERVER_TIME":
+          case "START_TIME":
+            return now - 150000;
+          case "METRICS":
+            TreeMap<Long, Double> metricValues = new TreeMap<>();
+            for (int i = 0; i < 12; i++) {
+              metricValues.put(startTime + i * 10000 + 5000, (double) (metric + host + i));
+            }
+            return mapper.writeValueAsString(metricValues);
+          default:
+            return null;
+        }
+      }
+    };
+    return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(),
+      new Class<?>[] { ResultSet.class }, handler);
+  }
 }
@@ -139,6 +139,9 @@ public class ActionDBAccessorImpl implements ActionDBAccessor {
   @Inject
   AuditLogger auditLogger;
 
+  @Inject
+  ExecutionCommandFragmentsCache executionCommandFragmentsCache;
+
   /**
    * Cache for auditlog. It stores a {@link RequestDetails} object for every requests.
    * {@link RequestDetails} contains the previous status of the request and a map for tasks.
@@ -370,6 +373,16 @@ public class ActionDBAccessorImpl implements ActionDBAccessor {
 
     List<HostRoleCommand> hostRoleCommands = new ArrayList<>();
 
+    // hosts and their log prefixes are looked up once per request instead of
+    // once per task
+    Map<Long, HostEntity> hostEntities = new HashMap<>();
+    Map<Long, String> hostLogPrefixes = new HashMap<>();
+
+    // execution commands are written in chunks so that the inserts are
+    // batched by the JDBC driver
+    int chunkSize = configuration.getExecutionCommandPersistenceChunkSize();
+    List<ExecutionCommandEntity> executionCommandEntities = new ArrayList<>(chunkSize);
+
     for (Stage stage : request.getStages()) {
       StageEntity stageEntity = stage.constructNewPersistenceEntity();
       Long stageId = stageEntity.getStageId();
@@ -381,11 +394,17 @@ public class ActionDBAccessorImpl implements ActionDBAccessor {
       List<HostRoleCommand> orderedHostRoleCommands = stage.getOrderedHostRoleCommands();
       List<HostRoleCommandEntity> hostRoleCommandEntities = new ArrayList<>();
 
+      // the parts which are identical for many commands of the stage are
+      // stored once with the stage
+      ExecutionCommandFragments fragments = new ExecutionCommandFragments();
+
       for (HostRoleCommand hostRoleCommand : orderedHostRoleCommands) {
         hostRoleCommand.setRequestId(requestId);
         hostRoleCommand.setStageId(stageId);
         HostRoleCommandEntity hostRoleCommandEntity = hostRoleCommand.constructNewPersistenceEntity();
         hostRoleCommandEntity.setStage(stageEntity);
+
+        // the ID is allocated from the preallocated range of the sequence
         hostRoleCommandDAO.create(hostRoleCommandEntity);
         hostRoleCommandEntities.add(hostRoleCommandEntity);
 
@@ -395,30 +414,23 @@ public class ActionDBAccessorImpl implements ActionDBAccessor {
         String output = "output-" + hostRoleCommandEntity.getTaskId() + ".txt";
         String error = "errors-" + hostRoleCommandEntity.getTaskId() + ".txt";
 
-        HostEntity hostEntity = null;
-        if (null != hostRoleCommandEntity.getHostId()) {
-          hostEntity = hostDAO.findById(hostRoleCommandEntity.getHostId());
-          if (hostEntity == null) {
-            String msg = String.format("Host %s doesn't exist in database", hostRoleCommandEntity.getHostName());
-            LOG.error(msg);
-            throw new AmbariException(msg);
+        Long hostId = hostRoleCommandEntity.getHostId();
+        if (null != hostId) {
+          HostEntity hostEntity = hostEntities.get(hostId);
+          if (null == hostEntity) {
+            hostEntity = hostDAO.findById(hostId);
+            if (hostEntity == null) {
+              String msg = String.format("Host %s doesn't exist in database", hostRoleCommandEntity.getHostName());
+              LOG.error(msg);
+              throw new AmbariException(msg);
+            }
+
+            hostEntities.put(hostId, hostEntity);
+            hostLogPrefixes.put(hostId, getLogPrefix(hostEntity));
           }
 
           hostRoleCommandEntity.setHostEntity(hostEntity);
-
-          try {
-            // Get the in-memory host object and its prefix to construct the output and error log paths.
-            Host hostObject = clusters.getHost(hostEntity.getHostName());
-
-            if (!StringUtils.isBlank(hostObject.getPrefix())) {
-              prefix = hostObject.getPrefix();
-              if (!prefix.endsWith("/")) {
-                prefix = prefix + "/";
-              }
-            }
-          } catch (AmbariException e) {
-            LOG.warn("Exception in getting prefix for host and setting output and error log files.  Using no prefix");
-          }
+          prefix = hostLogPrefixes.get(hostId);
         }
 
         hostRoleCommand.setOutputLog(prefix + output);
@@ -426,18 +438,18 @@ public class ActionDBAccessorImpl implements ActionDBAccessor {
         hostRoleCommandEntity.setOutputLog(hostRoleCommand.getOutputLog());
         hostRoleCommandEntity.setErrorLog(hostRoleCommand.getErrorLog());
 
-        ExecutionCommandEntity executionCommandEntity = hostRoleCommand.constructExecutionCommandEntity();
+        ExecutionCommandEntity executionCommandEntity = hostRoleCommand.constructExecutionCommandEntity(fragments);
         executionCommandEntity.setHostRoleCommand(hostRoleCommandEntity);
 
         executionCommandEntity.setTaskId(hostRoleCommandEntity.getTaskId());
         hostRoleCommandEntity.setExecutionCommand(executionCommandEntity);
 
-        executionCommandDAO.create(hostRoleCommandEntity.getExecutionCommand());
-        hostRoleCommandEntity = hostRoleCommandDAO.mergeWithoutPublishEvent(hostRoleCommandEntity);
-
-        if (null != hostEntity) {
-          hostEntity = hostDAO.merge(hostEntity);
+        executionCommandEntities.add(executionCommandEntity);
+        if (executionCommandEntities.size() >= chunkSize) {
+          executionCommandDAO.createAll(executionCommandEntities);
+          executionCommandEntities.clear();
         }
+
         hostRoleCommands.add(hostRoleCommand);
       }
 
@@ -446,7 +458,13 @@ public class ActionDBAccessorImpl implements ActionDBAccessor {
       }
 
       stageEntity.setHostRoleCommands(hostRoleCommandEntities);
+      stageEntity.setCommandFragments(fragments.toBytes());
       stageEntity = stageDAO.merge(stageEntity);
+      executionCommandFragmentsCache.put(requestId, stageId, fragments);
+    }
+
+    if (!executionCommandEntities.isEmpty()) {
+      executionCommandDAO.createAll(executionCommandEntities);
     }
 
     requestEntity.setStages(stageEntities);
@@ -456,6 +474,29 @@ public class ActionDBAccessorImpl implements ActionDBAccessor {
     taskEventPublisher.publish(taskCreateEvent);
   }
 
+  /**
+   * Gets the prefix of the output and error logs of the tasks on a host.
+   *
+   * @param hostEntity
+   *          the host
+   * @return the prefix, ending with a {@code /}, or an empty string.
+   */
+  private String getLogPrefix(HostEntity hostEntity) {
+    try {
+      // Get the in-memory host object and its prefix to construct the output and error log paths.
+      Host hostObject = clusters.getHost(hostEntity.getHostName());
+
+      String prefix = hostObject.getPrefix();
+      if (!StringUtils.isBlank(prefix)) {
+        return prefix.endsWith("/") ? prefix : prefix + "/";
+      }
+    } catch (AmbariException e) {
+      LOG.warn("Exception in getting prefix for host and setting output and error log files.  Using no prefix");
+    }
+
+    return "";
+  }
+
   @Override
   @Transactional
   public void startRequest(long requestId) {
@@ -28,7 +28,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -55,6 +60,7 @@ import org.apache.ambari.server.events.publishers.JPAEventPublisher;
 import org.apache.ambari.server.metadata.RoleCommandOrder;
 import org.apache.ambari.server.metadata.RoleCommandOrderProvider;
 import org.apache.ambari.server.metadata.RoleCommandPair;
+import org.apache.ambari.server.metrics.system.impl.AmbariServerMetricsSource;
 import org.apache.ambari.server.orm.dao.HostRoleCommandDAO;
 import org.apache.ambari.server.orm.entities.HostRoleCommandEntity;
 import org.apache.ambari.server.orm.entities.RequestEntity;
@@ -76,6 +82,9 @@ import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.base.Function;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
@@ -86,6 +95,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.common.eventbus.Subscribe;
 import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
@@ -160,7 +170,12 @@ class ActionScheduler implements Runnable {
   private final Object wakeupSyncObject = new Object();
   private final ServerActionExecutor serverActionExecutor;
 
-  private final Set<Long> requestsInProgress = new HashSet<>();
+  /**
+   * The requests whose stages are being processed; read by the metrics
+   * reporter while the scheduler thread updates it.
+   */
+  private final Set<Long> requestsInProgress =
+    Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
 
   /**
    * Contains request ids that have been scheduled to be cancelled,
@@ -191,6 +206,24 @@ class ActionScheduler implements Runnable {
   private Cache<String, Map<String, String>> commandParamsStageCache;
   private Cache<String, Map<String, String>> hostParamsStageCache;
 
+  /**
+   * Processes the stages of different requests concurrently when more than
+   * one scheduler thread is configured, otherwise {@code null}.
+   */
+  private ExecutorService requestLanes;
+
+  /**
+   * The {@link EntityManager}s of the request lanes which are currently
+   * processing a stage.
+   */
+  private final Set<EntityManager> laneEntityManagers =
+    Collections.newSetFromMap(new ConcurrentHashMap<EntityManager, Boolean>());
+
+  private final Timer loopTimer = AmbariServerMetricsSource.getMetricRegistry().timer(
+    "action.scheduler.loop");
+  private final Timer requestLagTimer = AmbariServerMetricsSource.getMetricRegistry().timer(
+    "action.scheduler.request.lag");
+
   /**
    * Guice-injected Constructor.
    *
@@ -214,6 +247,7 @@ class ActionScheduler implements Runnable {
     serverActionExecutor = new ServerActionExecutor(db, sleepTime);
 
     initializeCaches();
+    registerMetrics();
   }
 
   /**
@@ -287,6 +321,20 @@ class ActionScheduler implements Runnable {
             null);
   }
 
+  /**
+   * Registers the gauge of the number of requests in progress.
+   */
+  private void registerMetrics() {
+    MetricRegistry registry = AmbariServerMetricsSource.getMetricRegistry();
+    registry.remove("action.scheduler.requests.in.progress");
+    registry.register("action.scheduler.requests.in.progress", new Gauge<Integer>() {
+      @Override
+      public Integer getValue() {
+        return requestsInProgress.size();
+      }
+    });
+  }
+
   /**
    * Initializes the caches.
    */
@@ -305,6 +353,8 @@ class ActionScheduler implements Runnable {
   }
 
   public void start() {
+    startRequestLanes();
+
     schedulerThread = new Thread(this, "ambari-action-scheduler");
     schedulerThread.start();
 
@@ -313,10 +363,26 @@ class ActionScheduler implements Runnable {
     serverActionExecutor.start();
   }
 
+  /**
+   * Creates the threads of the request lanes if more than one scheduler
+   * thread is configured.
+   */
+  void startRequestLanes() {
+    int threads = configuration.getParallelStageExecutionThreads();
+    if (threads > 1) {
+      requestLanes = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat(
+          "ambari-action-scheduler-lane-%d").setDaemon(true).build());
+    }
+  }
+
   public void stop() {
     shouldRun = false;
     schedulerThread.interrupt();
 
+    if (null != requestLanes) {
+      requestLanes.shutdownNow();
+    }
+
     // Stop the ServerActionExecutor. Since it is directly related to the ActionScheduler it should
     // be started and stopped along with it.
     serverActionExecutor.stop();
@@ -361,6 +427,7 @@ class ActionScheduler implements Runnable {
   }
 
   public void doWork() throws AmbariException {
+    long loopStartTime = System.nanoTime();
     try {
       unitOfWork.begin();
 
@@ -418,6 +485,11 @@ class ActionScheduler implements Runnable {
       // parallel
       List<Stage> stages = filterParallelPerHostStages(firstStageInProgressPerRequest);
 
+      // stages of different requests are processed concurrently only if they
+      // are allowed to run in parallel anyway
+      boolean useLanes = null != requestLanes && configuration.getParallelStageExecution();
+      List<RequestLane> lanes = new ArrayList<>();
+
       boolean exclusiveRequestIsGoing = false;
       // This loop greatly depends on the fact that order of stages in
       // a list does not change between invocations
@@ -450,134 +522,212 @@ class ActionScheduler implements Runnable {
           }
         }
 
-        // Commands that will be scheduled in current scheduler wakeup
-        List<ExecutionCommand> commandsToSchedule = new ArrayList<>();
-        Multimap<String, AgentCommand> commandsToEnqueue = ArrayListMultimap.create();
+        if (useLanes) {
+          lanes.add(new RequestLane(stage, loopStartTime));
+        } else if (processStage(stage, request)) {
+          return;
+        }
 
-        Map<String, RoleStats> roleStats =
-          processInProgressStage(stage, commandsToSchedule, commandsToEnqueue);
+        if (!configuration.getParallelStageExecution()) { // If disabled
+          return;
+        }
 
-        // Check if stage is failed
-        boolean failed = false;
-        for (Map.Entry<String, RoleStats> entry : roleStats.entrySet()) {
+        if (exclusiveRequestIsGoing) {
+          // As a result, we will prevent any further stages from being executed
+          LOG.debug("Stage requires exclusive execution, skipping all executing any further stages");
+          break;
+        }
+      }
 
-          String role = entry.getKey();
-          RoleStats stats = entry.getValue();
+      processRequestLanes(lanes);
 
-          if (LOG.isDebugEnabled()) {
-            LOG.debug("Stats for role: {}, stats={}", role, stats);
-          }
+      requestsInProgress.retainAll(runningRequestIds);
 
-          // only fail the request if the role failed and the stage is not
-          // skippable
-          if (stats.isRoleFailed() && !stage.isSkippable()) {
-            LOG.warn("{} failed, request {} will be aborted", role, request.getRequestId());
+    } finally {
+      LOG.debug("Scheduler finished work.");
+      unitOfWork.end();
+      loopTimer.update(System.nanoTime() - loopStartTime, TimeUnit.NANOSECONDS);
+    }
+  }
 
-            failed = true;
-            break;
-          }
-        }
+  /**
+   * Processes the stages of the requests in progress on the request lane
+   * threads and waits for all of them to finish. The lanes are submitted in
+   * request order, so the oldest requests are always picked up first when
+   * there are more requests than threads. All the lanes run to completion
+   * before the failure of any of them is rethrown, so a failing request does
+   * not keep the others from being processed.
+   *
+   * @param lanes
+   *          the lanes to process, one per request (may be empty)
+   */
+  private void processRequestLanes(List<RequestLane> lanes) throws AmbariException {
+    if (lanes.isEmpty()) {
+      return;
+    }
 
-        if (!failed) {
-          // Prior stage may have failed and it may need to fail the whole request
-          failed = hasPreviousStageFailed(stage);
-        }
+    // no need to hand a single request off to another thread
+    if (lanes.size() == 1) {
+      RequestLane lane = lanes.get(0);
+      lane.process(lane.stage, db.getRequestEntity(lane.stage.getRequestId()));
+      return;
+    }
 
-        if (failed) {
-          LOG.error("Operation completely failed, aborting request id: {}", stage.getRequestId());
-          cancelHostRoleCommands(stage.getOrderedHostRoleCommands(), FAILED_TASK_ABORT_REASONING);
-          abortOperationsForStage(stage);
-          return;
+    List<Future<Boolean>> futures;
+    try {
+      futures = requestLanes.invokeAll(lanes);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AmbariException("Interrupted while waiting for the request lanes to finish", e);
+    }
+
+    AmbariException failure = null;
+    for (int i = 0; i < futures.size(); i++) {
+      try {
+        futures.get(i).get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new AmbariException("Interrupted while waiting for the request lanes to finish", e);
+      } catch (ExecutionException e) {
+        long requestId = lanes.get(i).stage.getRequestId();
+        LOG.error("Unable to process the stage of request {}", requestId, e.getCause());
+        if (null == failure) {
+          failure = new AmbariException("Unable to process the stage of request " + requestId, e.getCause());
+        } else {
+          failure.addSuppressed(e.getCause());
         }
+      }
+    }
 
-        List<ExecutionCommand> commandsToStart = new ArrayList<>();
-        List<ExecutionCommand> commandsToUpdate = new ArrayList<>();
+    if (null != failure) {
+      throw failure;
+    }
+  }
 
-        //Schedule what we have so far
+  /**
+   * Processes the next stage in progress of a request: tasks which can be
+   * started are scheduled and queued for their agents, and the request is
+   * aborted if the stage has failed.
+   *
+   * @param stage
+   *          the stage to process
+   * @param request
+   *          the request of the stage
+   * @return {@code true} if the stage failed and the request was aborted,
+   *         {@code false} otherwise.
+   */
+  private boolean processStage(Stage stage, RequestEntity request) throws AmbariException {
+    // Commands that will be scheduled in current scheduler wakeup
+    List<ExecutionCommand> commandsToSchedule = new ArrayList<>();
+    Multimap<String, AgentCommand> commandsToEnqueue = ArrayListMultimap.create();
 
+    Map<String, RoleStats> roleStats =
+      processInProgressStage(stage, commandsToSchedule, commandsToEnqueue);
 
-        for (ExecutionCommand cmd : commandsToSchedule) {
-          ConfigHelper.processHiddenAttribute(cmd.getConfigurations(), cmd.getConfigurationAttributes(), cmd.getRole(), false);
-          processHostRole(request, stage, cmd, commandsToStart, commandsToUpdate);
-        }
+    // Check if stage is failed
+    boolean failed = false;
+    for (Map.Entry<String, RoleStats> entry : roleStats.entrySet()) {
 
-        LOG.debug("==> Commands to start: {}", commandsToStart.size());
-        LOG.debug("==> Commands to update: {}", commandsToUpdate.size());
+      String role = entry.getKey();
+      RoleStats stats = entry.getValue();
 
-        //Multimap is analog of Map<Object, List<Object>> but allows to avoid nested loop
-        ListMultimap<String, ServiceComponentHostEvent> eventMap = formEventMap(stage, commandsToStart);
-        Map<ExecutionCommand, String> commandsToAbort = new HashMap<>();
-        if (!eventMap.isEmpty()) {
-          LOG.debug("==> processing {} serviceComponentHostEvents...", eventMap.size());
-          Cluster cluster = clusters.getCluster(stage.getClusterName());
-          if (cluster != null) {
-            Map<ServiceComponentHostEvent, String> failedEvents = cluster.processServiceComponentHostEvents(eventMap);
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Stats for role: {}, stats={}", role, stats);
+      }
 
-            if (failedEvents.size() > 0) {
-              LOG.error("==> {} events failed.", failedEvents.size());
-            }
+      // only fail the request if the role failed and the stage is not
+      // skippable
+      if (stats.isRoleFailed() && !stage.isSkippable()) {
+        LOG.warn("{} failed, request {} will be aborted", role, request.getRequestId());
 
-            for (Iterator<ExecutionCommand> iterator = commandsToUpdate.iterator(); iterator.hasNext(); ) {
-              ExecutionCommand cmd = iterator.next();
-              for (ServiceComponentHostEvent event : failedEvents.keySet()) {
-                if (StringUtils.equals(event.getHostName(), cmd.getHostname()) &&
-                  StringUtils.equals(event.getServiceComponentName(), cmd.getRole())) {
-                  iterator.remove();
-                  commandsToAbort.put(cmd, failedEvents.get(event));
-                  break;
-                }
-              }
-            }
-          } else {
-            LOG.warn("There was events to process but cluster {} not found", stage.getClusterName());
-          }
-        }
+        failed = true;
+        break;
+      }
+    }
 
-        LOG.debug("==> Scheduling {} tasks...", commandsToUpdate.size());
-        db.bulkHostRoleScheduled(stage, commandsToUpdate);
+    if (!failed) {
+      // Prior stage may have failed and it may need to fail the whole request
+      failed = hasPreviousStageFailed(stage);
+    }
 
-        if (commandsToAbort.size() > 0) { // Code branch may be a bit slow, but is extremely rarely used
-          LOG.debug("==> Aborting {} tasks...", commandsToAbort.size());
-          // Build a list of HostRoleCommands
-          List<Long> taskIds = new ArrayList<>();
-          for (ExecutionCommand command : commandsToAbort.keySet()) {
-            taskIds.add(command.getTaskId());
-          }
-          Collection<HostRoleCommand> hostRoleCommands = db.getTasks(taskIds);
+    if (failed) {
+      LOG.error("Operation completely failed, aborting request id: {}", stage.getRequestId());
+      cancelHostRoleCommands(stage.getOrderedHostRoleCommands(), FAILED_TASK_ABORT_REASONING);
+      abortOperationsForStage(stage);
+      return true;
+    }
+
+    List<ExecutionCommand> commandsToStart = new ArrayList<>();
+    List<ExecutionCommand> commandsToUpdate = new ArrayList<>();
+
+    //Schedule what we have so far
 
-          cancelHostRoleCommands(hostRoleCommands, FAILED_TASK_ABORT_REASONING);
-          db.bulkAbortHostRole(stage, commandsToAbort);
+
+    for (ExecutionCommand cmd : commandsToSchedule) {
+      ConfigHelper.processHiddenAttribute(cmd.getConfigurations(), cmd.getConfigurationAttributes(), cmd.getRole(), false);
+      processHostRole(request, stage, cmd, commandsToStart, commandsToUpdate);
+    }
+
+    LOG.debug("==> Commands to start: {}", commandsToStart.size());
+    LOG.debug("==> Commands to update: {}", commandsToUpdate.size());
+
+    //Multimap is analog of Map<Object, List<Object>> but allows to avoid nested loop
+    ListMultimap<String, ServiceComponentHostEvent> eventMap = formEventMap(stage, commandsToStart);
+    Map<ExecutionCommand, String> commandsToAbort = new HashMap<>();
+    if (!eventMap.isEmpty()) {
+      LOG.debug("==> processing {} serviceComponentHostEvents...", eventMap.size());
+      Cluster cluster = clusters.getCluster(stage.getClusterName());
+      if (cluster != null) {
+        Map<ServiceComponentHostEvent, String> failedEvents = cluster.processServiceComponentHostEvents(eventMap);
+
+        if (failedEvents.size() > 0) {
+          LOG.error("==> {} events failed.", failedEvents.size());
         }
 
-        LOG.debug("==> Adding {} tasks to queue...", commandsToUpdate.size());
-        for (ExecutionCommand cmd : commandsToUpdate) {
-          // Do not queue up server actions; however if we encounter one, wake up the ServerActionExecutor
-          if (Role.AMBARI_SERVER_ACTION.name().equals(cmd.getRole())) {
-            serverActionExecutor.awake();
-          } else {
-            commandsToEnqueue.put(cmd.getHostname(), cmd);
+        for (Iterator<ExecutionCommand> iterator = commandsToUpdate.iterator(); iterator.hasNext(); ) {
+          ExecutionCommand cmd = iterator.next();
+          for (ServiceComponentHostEvent event : failedEvents.keySet()) {
+            if (StringUtils.equals(event.getHostName(), cmd.getHostname()) &&
+              StringUtils.equals(event.getServiceComponentName(), cmd.getRole())) {
+              iterator.remove();
+              commandsToAbort.put(cmd, failedEvents.get(event));
+              break;
+            }
           }
         }
-        actionQueue.enqueueAll(commandsToEnqueue.asMap());
-        LOG.debug("==> Finished.");
+      } else {
+        LOG.warn("There was events to process but cluster {} not found", stage.getClusterName());
+      }
+    }
 
-        if (!configuration.getParallelStageExecution()) { // If disabled
-          return;
-        }
+    LOG.debug("==> Scheduling {} tasks...", commandsToUpdate.size());
+    db.bulkHostRoleScheduled(stage, commandsToUpdate);
 
-        if (exclusiveRequestIsGoing) {
-          // As a result, we will prevent any further stages from being executed
-          LOG.debug("Stage requires exclusive execution, skipping all executing any further stages");
-          break;
-        }
+    if (commandsToAbort.size() > 0) { // Code branch may be a bit slow, but is extremely rarely used
+      LOG.debug("==> Aborting {} tasks...", commandsToAbort.size());
+      // Build a list of HostRoleCommands
+      List<Long> taskIds = new ArrayList<>();
+      for (ExecutionCommand command : commandsToAbort.keySet()) {
+        taskIds.add(command.getTaskId());
       }
+      Collection<HostRoleCommand> hostRoleCommands = db.getTasks(taskIds);
 
-      requestsInProgress.retainAll(runningRequestIds);
+      cancelHostRoleCommands(hostRoleCommands, FAILED_TASK_ABORT_REASONING);
+      db.bulkAbortHostRole(stage, commandsToAbort);
+    }
 
-    } finally {
-      LOG.debug("Scheduler finished work.");
-      unitOfWork.end();
+    LOG.debug("==> Adding {} tasks to queue...", commandsToUpdate.size());
+    for (ExecutionCommand cmd : commandsToUpdate) {
+      // Do not queue up server actions; however if we encounter one, wake up the ServerActionExecutor
+      if (Role.AMBARI_SERVER_ACTION.name().equals(cmd.getRole())) {
+        serverActionExecutor.awake();
+      } else {
+        commandsToEnqueue.put(cmd.getHostname(), cmd);
+      }
     }
+    actionQueue.enqueueAll(commandsToEnqueue.asMap());
+    LOG.debug("==> Finished.");
+    return false;
   }
 
   /**
@@ -1393,11 +1543,69 @@ class ActionScheduler implements Runnable {
       if (null != threadEntityManager && threadEntityManager.isOpen()) {
         threadEntityManager.clear();
       }
+
+      for (EntityManager entityManager : laneEntityManagers) {
+        if (entityManager.isOpen()) {
+          entityManager.clear();
+        }
+      }
     } catch (Throwable throwable) {
       LOG.error("Unable to clear the EntityManager for the scheduler thread", throwable);
     }
   }
 
+  /**
+   * Processes the next stage of a single request in its own unit of work so
+   * that the stages of several requests can be processed concurrently.
+   */
+  private final class RequestLane implements Callable<Boolean> {
+    private final Stage stage;
+    private final long loopStartTime;
+
+    private RequestLane(Stage stage, long loopStartTime) {
+      this.stage = stage;
+      this.loopStartTime = loopStartTime;
+    }
+
+    @Override
+    public Boolean call() throws AmbariException {
+      unitOfWork.begin();
+      EntityManager entityManager = entityManagerProvider.get();
+      laneEntityManagers.add(entityManager);
+      try {
+        // the stage and the request are loaded again since entities can't be
+        // shared between the EntityManagers of different threads
+        Stage laneStage = db.getStage(stage.getActionId());
+        if (null == laneStage) {
+          LOG.warn("Stage {} no longer exists, skipping it", stage.getActionId());
+          return false;
+        }
+
+        return process(laneStage, db.getRequestEntity(stage.getRequestId()));
+      } finally {
+        laneEntityManagers.remove(entityManager);
+        unitOfWork.end();
+      }
+    }
+
+    /**
+     * Processes the stage within the current unit of work.
+     *
+     * @param laneStage
+     *          the stage loaded in the current unit of work
+     * @param request
+     *          the request of the stage
+     * @return {@code true} if the request was aborted.
+     */
+    private boolean process(Stage laneStage, RequestEntity request) throws AmbariException {
+      try {
+        return processStage(laneStage, request);
+      } finally {
+        requestLagTimer.update(System.nanoTime() - loopStartTime, TimeUnit.NANOSECONDS);
+      }
+    }
+  }
+
   static class RoleStats {
     int numInProgress;
     int numQueued = 0;
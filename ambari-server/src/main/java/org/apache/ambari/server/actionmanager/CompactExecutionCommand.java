@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.actionmanager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.io.IOUtils;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * The {@link CompactExecutionCommand} converts execution commands to and from
+ * the compact form in which they are stored in the {@code execution_command}
+ * table.
+ * <p/>
+ * The fields which are usually identical for the commands of a stage (see
+ * {@link #SHARED_FIELDS}) are moved into the {@link ExecutionCommandFragments}
+ * of the stage and replaced by a reference. The remaining JSON is deflated and
+ * prefixed by {@link #HEADER}. Since JSON commands always start with
+ * <code>{</code>, commands persisted before this format was introduced are
+ * still read as plain JSON.
+ */
+public final class CompactExecutionCommand {
+
+  /**
+   * Marks a command stored in the compact form; the last byte is the version
+   * of the format.
+   */
+  static final byte[] HEADER = { 0, 'E', 'C', 1 };
+
+  /**
+   * The JSON member referencing the shared fragments of a command.
+   */
+  static final String FRAGMENTS_MEMBER = "_fragments";
+
+  /**
+   * The serialized names of the {@link org.apache.ambari.server.agent.ExecutionCommand}
+   * fields which are stored as shared fragments.
+   */
+  static final List<String> SHARED_FIELDS = Arrays.asList("configurations", "configuration_attributes",
+      "configurationTags", "configuration_credentials", "clusterHostInfo", "hostLevelParams", "commandParams",
+      "componentVersionMap", "repositoryFile");
+
+  private CompactExecutionCommand() {
+  }
+
+  /**
+   * Determines whether the stored command is in the compact form.
+   *
+   * @param bytes
+   *          the stored command
+   * @return {@code true} if the command is compact, {@code false} if it is
+   *         plain JSON.
+   */
+  public static boolean isCompact(byte[] bytes) {
+    if (null == bytes || bytes.length < HEADER.length) {
+      return false;
+    }
+
+    for (int i = 0; i < HEADER.length; i++) {
+      if (bytes[i] != HEADER[i]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Converts the JSON of a command into the compact form, adding its shared
+   * fields to the fragments of the stage.
+   *
+   * @param command
+   *          the JSON of the command (not {@code null}).
+   * @param fragments
+   *          the fragments of the stage of the command (not {@code null}).
+   * @return the compact command.
+   */
+  public static byte[] encode(JsonObject command, ExecutionCommandFragments fragments) {
+    JsonObject compact = new JsonObject();
+    JsonObject references = new JsonObject();
+
+    for (Map.Entry<String, JsonElement> entry : command.entrySet()) {
+      String name = entry.getKey();
+      JsonElement value = entry.getValue();
+
+      if (SHARED_FIELDS.contains(name) && !value.isJsonNull()) {
+        references.addProperty(name, fragments.add(value.toString()));
+      } else {
+        compact.add(name, value);
+      }
+    }
+
+    compact.add(FRAGMENTS_MEMBER, references);
+
+    byte[] body = deflate(compact.toString());
+    byte[] bytes = new byte[HEADER.length + body.length];
+    System.arraycopy(HEADER, 0, bytes, 0, HEADER.length);
+    System.arraycopy(body, 0, bytes, HEADER.length, body.length);
+    return bytes;
+  }
+
+  /**
+   * Restores the JSON of a command stored in the compact form.
+   *
+   * @param bytes
+   *          the compact command
+   * @param fragments
+   *          the fragments of the stage of the command
+   * @return the JSON of the command, including its shared fields.
+   * @throws IllegalStateException
+   *           if a referenced fragment does not exist
+   */
+  public static JsonObject decode(byte[] bytes, ExecutionCommandFragments fragments) {
+    String body = inflate(Arrays.copyOfRange(bytes, HEADER.length, bytes.length));
+    JsonParser parser = new JsonParser();
+    JsonObject command = parser.parse(body).getAsJsonObject();
+
+    JsonElement references = command.remove(FRAGMENTS_MEMBER);
+    if (null != references) {
+      for (Map.Entry<String, JsonElement> reference : references.getAsJsonObject().entrySet()) {
+        String id = reference.getValue().getAsString();
+        String fragment = fragments.get(id);
+        if (null == fragment) {
+          throw new IllegalStateException("The execution command fragment " + id + " for "
+              + reference.getKey() + " does not exist");
+        }
+
+        command.add(reference.getKey(), parser.parse(fragment));
+      }
+    }
+
+    return command;
+  }
+
+  /**
+   * Deflates a string.
+   *
+   * @param value
+   *          the string to compress
+   * @return the compressed UTF-8 bytes of the string.
+   */
+  static byte[] deflate(String value) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(32, value.length() / 4));
+    try (Writer writer = new OutputStreamWriter(new DeflaterOutputStream(bytes), StandardCharsets.UTF_8)) {
+      writer.write(value);
+    } catch (IOException e) {
+      // not possible when writing to memory
+      throw new IllegalStateException(e);
+    }
+
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Inflates a string compressed by {@link #deflate(String)}.
+   *
+   * @param bytes
+   *          the compressed bytes
+   * @return the string.
+   */
+  static String inflate(byte[] bytes) {
+    try (Reader reader = new InputStreamReader(new InflaterInputStream(new ByteArrayInputStream(bytes)),
+        StandardCharsets.UTF_8)) {
+      return IOUtils.toString(reader);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to inflate the execution command", e);
+    }
+  }
+}
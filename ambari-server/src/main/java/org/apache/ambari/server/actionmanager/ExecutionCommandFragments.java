@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.actionmanager;
+
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * The {@link ExecutionCommandFragments} holds the parts of the execution
+ * commands of a stage which are usually identical for many of its commands,
+ * such as the configurations or the cluster host info. Each distinct fragment
+ * is stored once per stage and is referenced by its ID from the
+ * {@link CompactExecutionCommand}s.
+ */
+public class ExecutionCommandFragments {
+
+  private static final Gson GSON = new Gson();
+
+  private static final Type FRAGMENTS_TYPE = new TypeToken<LinkedHashMap<String, String>>() {}.getType();
+
+  /**
+   * The JSON of the fragments keyed by their ID.
+   */
+  private final Map<String, String> fragments;
+
+  /**
+   * Constructor for the fragments of a new stage.
+   */
+  public ExecutionCommandFragments() {
+    this(new ConcurrentHashMap<String, String>());
+  }
+
+  private ExecutionCommandFragments(Map<String, String> fragments) {
+    this.fragments = fragments;
+  }
+
+  /**
+   * Adds a fragment unless an identical one was already added.
+   *
+   * @param json
+   *          the JSON of the fragment
+   * @return the ID of the fragment, derived from its content.
+   */
+  public String add(String json) {
+    String id = DigestUtils.md5Hex(json);
+    String existing = fragments.get(id);
+    if (null == existing) {
+      fragments.put(id, json);
+    }
+
+    return id;
+  }
+
+  /**
+   * Gets the JSON of a fragment.
+   *
+   * @param id
+   *          the ID of the fragment
+   * @return the JSON of the fragment or {@code null} if there is no such
+   *         fragment.
+   */
+  public String get(String id) {
+    return fragments.get(id);
+  }
+
+  /**
+   * @return the number of distinct fragments.
+   */
+  public int size() {
+    return fragments.size();
+  }
+
+  /**
+   * @return {@code true} if no fragments were added.
+   */
+  public boolean isEmpty() {
+    return fragments.isEmpty();
+  }
+
+  /**
+   * Serializes the fragments to the compressed form stored with the stage.
+   *
+   * @return the serialized fragments.
+   */
+  public byte[] toBytes() {
+    return CompactExecutionCommand.deflate(GSON.toJson(fragments, FRAGMENTS_TYPE));
+  }
+
+  /**
+   * Deserializes the fragments stored with a stage.
+   *
+   * @param bytes
+   *          the serialized fragments or {@code null} for stages persisted
+   *          before fragments were used.
+   * @return the fragments (never {@code null}).
+   */
+  public static ExecutionCommandFragments fromBytes(byte[] bytes) {
+    if (null == bytes || bytes.length == 0) {
+      return new ExecutionCommandFragments(Collections.<String, String> emptyMap());
+    }
+
+    Map<String, String> fragments = GSON.fromJson(CompactExecutionCommand.inflate(bytes), FRAGMENTS_TYPE);
+    return new ExecutionCommandFragments(Collections.unmodifiableMap(fragments));
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.actionmanager;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.orm.dao.StageDAO;
+import org.apache.ambari.server.orm.entities.StageEntity;
+import org.apache.ambari.server.orm.entities.StageEntityPK;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * The {@link ExecutionCommandFragmentsCache} keeps the
+ * {@link ExecutionCommandFragments} of recently used stages, so that all of
+ * the execution commands of a stage share a single copy of them.
+ */
+@Singleton
+public class ExecutionCommandFragmentsCache {
+
+  @Inject
+  private StageDAO stageDAO;
+
+  private final Cache<StageEntityPK, ExecutionCommandFragments> cache = CacheBuilder.newBuilder().
+    expireAfterAccess(5, TimeUnit.MINUTES).
+    build();
+
+  /**
+   * Gets the fragments of a stage, reading them from the database if they are
+   * not cached.
+   *
+   * @param requestId
+   *          the request of the stage
+   * @param stageId
+   *          the stage
+   * @return the fragments of the stage (never {@code null}).
+   */
+  public ExecutionCommandFragments get(long requestId, long stageId) {
+    final StageEntityPK stageEntityPK = createPK(requestId, stageId);
+
+    try {
+      return cache.get(stageEntityPK, new Callable<ExecutionCommandFragments>() {
+        @Override
+        public ExecutionCommandFragments call() throws Exception {
+          StageEntity stageEntity = stageDAO.findByPK(stageEntityPK);
+          if (null == stageEntity) {
+            throw new IllegalStateException("Invalid DB state, there is no stage " + stageEntityPK.getStageId()
+                + " for request " + stageEntityPK.getRequestId());
+          }
+
+          return ExecutionCommandFragments.fromBytes(stageEntity.getCommandFragments());
+        }
+      });
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  /**
+   * Caches the fragments of a stage which has just been persisted.
+   *
+   * @param requestId
+   *          the request of the stage
+   * @param stageId
+   *          the stage
+   * @param fragments
+   *          the fragments of the stage
+   */
+  public void put(long requestId, long stageId, ExecutionCommandFragments fragments) {
+    cache.put(createPK(requestId, stageId), fragments);
+  }
+
+  private static StageEntityPK createPK(long requestId, long stageId) {
+    StageEntityPK stageEntityPK = new StageEntityPK();
+    stageEntityPK.setRequestId(requestId);
+    stageEntityPK.setStageId(stageId);
+    return stageEntityPK;
+  }
+}
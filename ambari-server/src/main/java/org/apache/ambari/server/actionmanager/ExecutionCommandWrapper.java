@@ -20,6 +20,7 @@ package org.apache.ambari.server.actionmanager;
 import static org.apache.ambari.server.agent.ExecutionCommand.KeyNames.HOOKS_FOLDER;
 import static org.apache.ambari.server.agent.ExecutionCommand.KeyNames.SERVICE_PACKAGE_FOLDER;
 
+import java.lang.ref.SoftReference;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeMap;
@@ -34,6 +35,7 @@ import org.apache.ambari.server.agent.ExecutionCommand.KeyNames;
 import org.apache.ambari.server.api.services.AmbariMetaInfo;
 import org.apache.ambari.server.orm.dao.HostRoleCommandDAO;
 import org.apache.ambari.server.orm.entities.RepositoryVersionEntity;
+import org.apache.ambari.server.orm.entities.StageEntityPK;
 import org.apache.ambari.server.orm.entities.UpgradeEntity;
 import org.apache.ambari.server.state.Cluster;
 import org.apache.ambari.server.state.Clusters;
@@ -53,6 +55,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
@@ -63,6 +67,29 @@ public class ExecutionCommandWrapper {
   String jsonExecutionCommand = null;
   ExecutionCommand executionCommand = null;
 
+  /**
+   * The command as stored in the database, see {@link CompactExecutionCommand}.
+   */
+  byte[] compactExecutionCommand = null;
+
+  /**
+   * The stage of the compact command, whose shared fragments are required to
+   * restore it.
+   */
+  private StageEntityPK stage = null;
+
+  /**
+   * The JSON restored from the compact command. It is only softly referenced
+   * since the compact form is much smaller.
+   */
+  private SoftReference<String> inflatedJsonExecutionCommand = null;
+
+  /**
+   * The hash code of the JSON of the command, computed once; 0 if not
+   * computed yet.
+   */
+  private int jsonHashCode = 0;
+
   @Inject
   Clusters clusters;
 
@@ -78,6 +105,9 @@ public class ExecutionCommandWrapper {
   @Inject
   private UpgradeContextFactory upgradeContextFactory;
 
+  @Inject
+  private ExecutionCommandFragmentsCache fragmentsCache;
+
   /**
    * Used for injecting hooks and common-services into the command.
    */
@@ -94,6 +124,12 @@ public class ExecutionCommandWrapper {
     this.executionCommand = executionCommand;
   }
 
+  @AssistedInject
+  public ExecutionCommandWrapper(@Assisted byte[] compactExecutionCommand, @Assisted StageEntityPK stage) {
+    this.compactExecutionCommand = compactExecutionCommand;
+    this.stage = stage;
+  }
+
   /**
    * Gets the execution command by either de-serializing the backing JSON
    * command or returning the encapsulated instance which has already been
@@ -112,13 +148,13 @@ public class ExecutionCommandWrapper {
       return executionCommand;
     }
 
-    if( null == jsonExecutionCommand ){
+    if (null == jsonExecutionCommand && null == compactExecutionCommand) {
       throw new RuntimeException(
           "Invalid ExecutionCommandWrapper, both object and string representations are null");
     }
 
     try {
-      executionCommand = gson.fromJson(jsonExecutionCommand, ExecutionCommand.class);
+      executionCommand = deserialize();
 
       // sanity; if no configurations, just initialize to prevent NPEs
       if (null == executionCommand.getConfigurations()) {
@@ -302,13 +338,12 @@ public class ExecutionCommandWrapper {
       return executionCommand.getCommandType();
     }
 
-    if (null == jsonExecutionCommand) {
+    if (null == jsonExecutionCommand && null == compactExecutionCommand) {
       throw new RuntimeException(
           "Invalid ExecutionCommandWrapper, both object and string" + " representations are null");
     }
 
-    return gson.fromJson(jsonExecutionCommand,
-        ExecutionCommand.class).getCommandType();
+    return deserialize().getCommandType();
   }
 
   public String getJson() {
@@ -317,6 +352,13 @@ public class ExecutionCommandWrapper {
     } else if (executionCommand != null) {
       jsonExecutionCommand = gson.toJson(executionCommand);
       return jsonExecutionCommand;
+    } else if (compactExecutionCommand != null) {
+      String json = null == inflatedJsonExecutionCommand ? null : inflatedJsonExecutionCommand.get();
+      if (null == json) {
+        json = decodeCompactCommand().toString();
+        inflatedJsonExecutionCommand = new SoftReference<>(json);
+      }
+      return json;
     } else {
       throw new RuntimeException(
           "Invalid ExecutionCommandWrapper, both object and string"
@@ -324,6 +366,51 @@ public class ExecutionCommandWrapper {
     }
   }
 
+  /**
+   * Gets the command in the compact form in which it is stored in the
+   * database, adding its shared parts to the fragments of its stage.
+   *
+   * @param stageFragments
+   *          the fragments of the stage of this command
+   * @return the compact command.
+   */
+  public byte[] getCompactCommand(ExecutionCommandFragments stageFragments) {
+    JsonObject json;
+    if (executionCommand != null) {
+      json = gson.toJsonTree(executionCommand).getAsJsonObject();
+    } else if (jsonExecutionCommand != null) {
+      json = new JsonParser().parse(jsonExecutionCommand).getAsJsonObject();
+    } else if (compactExecutionCommand != null) {
+      json = decodeCompactCommand();
+    } else {
+      throw new RuntimeException(
+          "Invalid ExecutionCommandWrapper, both object and string"
+              + " representations are null");
+    }
+
+    return CompactExecutionCommand.encode(json, stageFragments);
+  }
+
+  /**
+   * Restores the JSON of the compact command using the fragments of its stage.
+   */
+  private JsonObject decodeCompactCommand() {
+    ExecutionCommandFragments fragments = fragmentsCache.get(stage.getRequestId(), stage.getStageId());
+    return CompactExecutionCommand.decode(compactExecutionCommand, fragments);
+  }
+
+  /**
+   * De-serializes the command from either its JSON or its compact form.
+   */
+  private ExecutionCommand deserialize() {
+    if (null != jsonExecutionCommand) {
+      return gson.fromJson(jsonExecutionCommand, ExecutionCommand.class);
+    }
+
+    return gson.fromJson(decodeCompactCommand(),
+        ExecutionCommand.class);
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -346,8 +433,13 @@ public class ExecutionCommandWrapper {
   public int hashCode() {
     if (executionCommand != null) {
       return executionCommand.hashCode();
-    } else if (jsonExecutionCommand != null) {
-      return jsonExecutionCommand.hashCode();
+    } else if (jsonExecutionCommand != null || compactExecutionCommand != null) {
+      // the JSON of a command without its object never changes; computing the
+      // hash once keeps hashed collections from inflating compact commands
+      if (0 == jsonHashCode) {
+        jsonHashCode = getJson().hashCode();
+      }
+      return jsonHashCode;
     }
     throw new RuntimeException("Invalid Wrapper object");
   }
@@ -357,5 +449,8 @@ public class ExecutionCommandWrapper {
       throw new RuntimeException("Invalid Wrapper object");
     }
     jsonExecutionCommand = null;
+    compactExecutionCommand = null;
+    inflatedJsonExecutionCommand = null;
+    jsonHashCode = 0;
   }
 }
@@ -18,6 +18,7 @@
 package org.apache.ambari.server.actionmanager;
 
 import org.apache.ambari.server.agent.ExecutionCommand;
+import org.apache.ambari.server.orm.entities.StageEntityPK;
 
 /**
  * The {@link ExecutionCommandWrapperFactory} is used to create instances of
@@ -29,4 +30,6 @@ public interface ExecutionCommandWrapperFactory {
 
   ExecutionCommandWrapper createFromCommand(ExecutionCommand executionCommand);
 
+  ExecutionCommandWrapper createFromCompactCommand(byte[] compactExecutionCommand, StageEntityPK stage);
+
 }
@@ -24,6 +24,7 @@ import org.apache.ambari.server.orm.dao.HostDAO;
 import org.apache.ambari.server.orm.entities.ExecutionCommandEntity;
 import org.apache.ambari.server.orm.entities.HostEntity;
 import org.apache.ambari.server.orm.entities.HostRoleCommandEntity;
+import org.apache.ambari.server.orm.entities.StageEntityPK;
 import org.apache.ambari.server.state.Host;
 import org.apache.ambari.server.state.ServiceComponentHostEvent;
 
@@ -234,9 +235,17 @@ public class HostRoleCommand {
     return hostRoleCommandEntity;
   }
 
-  ExecutionCommandEntity constructExecutionCommandEntity() {
+  /**
+   * Creates the entity storing the execution command of this task.
+   *
+   * @param fragments
+   *          the fragments shared by the execution commands of the stage of
+   *          this task, to which the shared parts of this command are added.
+   * @return the entity to persist.
+   */
+  ExecutionCommandEntity constructExecutionCommandEntity(ExecutionCommandFragments fragments) {
     ExecutionCommandEntity executionCommandEntity = new ExecutionCommandEntity();
-    executionCommandEntity.setCommand(executionCommandWrapper.getJson().getBytes());
+    executionCommandEntity.setCommand(executionCommandWrapper.getCompactCommand(fragments));
     return executionCommandEntity;
   }
 
@@ -419,7 +428,16 @@ public class HostRoleCommand {
         throw new RuntimeException("Invalid DB state, broken one-to-one relation for taskId=" + taskId);
       }
 
-      executionCommandWrapper = ecwFactory.createFromJson(new String(commandEntity.getCommand()));
+      byte[] command = commandEntity.getCommand();
+      if (CompactExecutionCommand.isCompact(command)) {
+        StageEntityPK stageEntityPK = new StageEntityPK();
+        stageEntityPK.setRequestId(requestId);
+        stageEntityPK.setStageId(stageId);
+        executionCommandWrapper = ecwFactory.createFromCompactCommand(command, stageEntityPK);
+      } else {
+        // persisted before commands were stored in the compact form
+        executionCommandWrapper = ecwFactory.createFromJson(new String(command));
+      }
     }
 
     return executionCommandWrapper;
@@ -46,6 +46,12 @@ public class ActionQueue {
 
   HashSet<String> hostsWithPendingTask = new HashSet<>();
 
+  /**
+   * The monitors of the hosts whose heartbeats are waiting for a command to be
+   * enqueued.
+   */
+  private final ConcurrentMap<String, Object> commandWaiters = new ConcurrentHashMap<>();
+
   public ActionQueue() {
     hostQueues = new ConcurrentHashMap<>();
   }
@@ -64,6 +70,7 @@ public class ActionQueue {
     Queue<AgentCommand> q = getHostQueue(hostname);
 
     q.add(cmd);
+    notifyWaiter(hostname);
   }
 
   /**
@@ -76,6 +83,58 @@ public class ActionQueue {
     Queue<AgentCommand> q = getHostQueue(hostname);
 
     q.addAll(commands);
+    notifyWaiter(hostname);
+  }
+
+  /**
+   * Blocks until a command is queued for the given host or the timeout
+   * expires. Used to deliver commands in the response of a heartbeat which is
+   * already waiting instead of the next one.
+   *
+   * @param hostname
+   *          the host to wait for (not {@code null}).
+   * @param timeout
+   *          the maximum time to wait, in milliseconds.
+   * @return {@code true} if there are commands queued for the host
+   * @throws InterruptedException
+   *           if the thread is interrupted while waiting
+   */
+  public boolean awaitCommands(String hostname, long timeout) throws InterruptedException {
+    Object monitor = new Object();
+    if (null != commandWaiters.putIfAbsent(hostname, monitor)) {
+      // only one heartbeat per host can wait at a time
+      return size(hostname) > 0;
+    }
+
+    try {
+      long deadline = System.currentTimeMillis() + timeout;
+      synchronized (monitor) {
+        long remaining = timeout;
+        while (size(hostname) == 0 && remaining > 0) {
+          monitor.wait(remaining);
+          remaining = deadline - System.currentTimeMillis();
+        }
+      }
+    } finally {
+      commandWaiters.remove(hostname, monitor);
+    }
+
+    return size(hostname) > 0;
+  }
+
+  /**
+   * Wakes up the heartbeat of the given host if it is waiting for commands.
+   *
+   * @param hostname
+   *          the host which received commands
+   */
+  private void notifyWaiter(String hostname) {
+    Object monitor = commandWaiters.get(hostname);
+    if (null != monitor) {
+      synchronized (monitor) {
+        monitor.notifyAll();
+      }
+    }
   }
 
   private Queue<AgentCommand> getHostQueue(String hostname) {
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.agent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link ComponentStatusTracker} keeps the last known component statuses
+ * reported by every agent which sends its component statuses as deltas. It
+ * verifies that no delta was lost by checking the sequence number of each
+ * delta and by comparing the hash of the merged statuses with the hash
+ * computed by the agent over all of its component statuses.
+ * <p/>
+ * When the sequence or the hash does not match, the agent is asked to resend
+ * all of its component statuses in the next heartbeat.
+ */
+public class ComponentStatusTracker {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ComponentStatusTracker.class);
+
+  /**
+   * The known statuses per host.
+   */
+  private final ConcurrentMap<String, HostComponentStatuses> hostStatuses = new ConcurrentHashMap<>();
+
+  /**
+   * Applies the component statuses of the heartbeat to the known statuses of
+   * its host.
+   *
+   * @param heartbeat
+   *          the heartbeat received from the agent
+   * @return {@code true} if the statuses known by the server match those of
+   *         the agent, {@code false} if the agent must resend all of its
+   *         component statuses.
+   */
+  public boolean apply(HeartBeat heartbeat) {
+    String hostname = heartbeat.getHostname();
+    String agentHash = heartbeat.getComponentStatusHash();
+
+    // agents not using delta reporting don't send a hash
+    if (null == agentHash) {
+      return true;
+    }
+
+    HostComponentStatuses statuses = hostStatuses.get(hostname);
+    if (null == statuses) {
+      HostComponentStatuses existing = hostStatuses.putIfAbsent(hostname, new HostComponentStatuses());
+      statuses = null == existing ? hostStatuses.get(hostname) : existing;
+    }
+
+    synchronized (statuses) {
+      long sequence = heartbeat.getComponentStatusSequence();
+
+      if (heartbeat.isComponentStatusDelta()) {
+        if (statuses.sequence < 0 || sequence != statuses.sequence + 1) {
+          LOG.info("Component status sequence mismatch for host {} - expected {} but received {}, requesting resync",
+              hostname, statuses.sequence + 1, sequence);
+
+          statuses.invalidate();
+          return false;
+        }
+      } else {
+        statuses.statuses.clear();
+      }
+
+      for (ComponentStatus componentStatus : heartbeat.getComponentStatus()) {
+        statuses.statuses.put(getKey(componentStatus), componentStatus.getStatus());
+      }
+
+      statuses.sequence = sequence;
+
+      String serverHash = computeHash(statuses.statuses);
+      if (!StringUtils.equals(serverHash, agentHash)) {
+        LOG.info("Component status hash mismatch for host {}, requesting resync", hostname);
+        statuses.invalidate();
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Forgets the statuses of the host, for example when the agent registers
+   * again.
+   *
+   * @param hostname
+   *          the host
+   */
+  public void reset(String hostname) {
+    hostStatuses.remove(hostname);
+  }
+
+  /**
+   * Computes the hash of a set of component statuses. The agent computes the
+   * same hash over all of the component statuses it knows: the
+   * {@code cluster/service/component=status} entries are sorted, joined with
+   * new lines and MD5 hashed.
+   *
+   * @param statuses
+   *          the statuses keyed by {@code cluster/service/component}
+   * @return the hex-encoded hash
+   */
+  static String computeHash(Map<String, String> statuses) {
+    List<String> entries = new ArrayList<>(statuses.size());
+    for (Map.Entry<String, String> entry : statuses.entrySet()) {
+      entries.add(entry.getKey() + "=" + entry.getValue());
+    }
+
+    Collections.sort(entries);
+    return DigestUtils.md5Hex(StringUtils.join(entries, "\n"));
+  }
+
+  private static String getKey(ComponentStatus componentStatus) {
+    return componentStatus.getClusterName() + "/" + componentStatus.getServiceName() + "/"
+        + componentStatus.getComponentName();
+  }
+
+  /**
+   * The known component statuses of a host.
+   */
+  private static final class HostComponentStatuses {
+    private final Map<String, String> statuses = new HashMap<>();
+    private long sequence = -1;
+
+    /**
+     * Drops all known statuses; only a full status report is accepted after
+     * this.
+     */
+    private void invalidate() {
+      statuses.clear();
+      sequence = -1;
+    }
+  }
+}
@@ -43,6 +43,9 @@ public class HeartBeat {
   private List<Alert> alerts = null;
   private RecoveryReport recoveryReport;
   private long recoveryTimestamp = -1;
+  private boolean componentStatusDelta = false;
+  private long componentStatusSequence = -1;
+  private String componentStatusHash = null;
 
   public long getResponseId() {
     return responseId;
@@ -130,6 +133,54 @@ public class HeartBeat {
     this.componentStatus = componentStatus;
   }
 
+  /**
+   * Gets whether {@link #getComponentStatus()} only contains the statuses
+   * which changed since the previous status report of the agent.
+   *
+   * @return {@code true} if the component statuses are a delta
+   */
+  @JsonProperty("componentStatusDelta")
+  public boolean isComponentStatusDelta() {
+    return componentStatusDelta;
+  }
+
+  @JsonProperty("componentStatusDelta")
+  public void setComponentStatusDelta(boolean componentStatusDelta) {
+    this.componentStatusDelta = componentStatusDelta;
+  }
+
+  /**
+   * Gets the sequence number of the component status report, incremented by
+   * the agent for every delta it sends.
+   *
+   * @return the sequence number, or {@code -1} if not supplied.
+   */
+  @JsonProperty("componentStatusSequence")
+  public long getComponentStatusSequence() {
+    return componentStatusSequence;
+  }
+
+  @JsonProperty("componentStatusSequence")
+  public void setComponentStatusSequence(long componentStatusSequence) {
+    this.componentStatusSequence = componentStatusSequence;
+  }
+
+  /**
+   * Gets the hash of all of the component statuses known by the agent.
+   *
+   * @return the hash, or {@code null} if the agent doesn't use delta reporting.
+   * @see ComponentStatusTracker#computeHash(java.util.Map)
+   */
+  @JsonProperty("componentStatusHash")
+  public String getComponentStatusHash() {
+    return componentStatusHash;
+  }
+
+  @JsonProperty("componentStatusHash")
+  public void setComponentStatusHash(String componentStatusHash) {
+    this.componentStatusHash = componentStatusHash;
+  }
+
   @JsonProperty("mounts")
   public List<DiskInfo> getMounts() {
     return mounts;
@@ -156,6 +207,8 @@ public class HeartBeat {
             ", hostname='" + hostname + '\'' +
             ", reports=" + reports +
             ", componentStatus=" + componentStatus +
+            ", componentStatusDelta=" + componentStatusDelta +
+            ", componentStatusSequence=" + componentStatusSequence +
             ", nodeStatus=" + nodeStatus +
             ", recoveryReport=" + recoveryReport +
             '}';
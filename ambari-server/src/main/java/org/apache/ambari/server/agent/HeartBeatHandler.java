@@ -31,6 +31,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
 import java.util.regex.Pattern;
 
 import org.apache.ambari.server.AmbariException;
@@ -114,6 +116,24 @@ public class HeartBeatHandler {
 
   private Map<String, HeartBeatResponse> hostResponses = new ConcurrentHashMap<>();
 
+  /**
+   * The cached responses of heartbeats which are still being handled. A
+   * response is removed either when its heartbeat completes or when the agent
+   * resends the heartbeat and gets the incomplete response back.
+   */
+  private final ConcurrentMap<String, HeartBeatResponse> pendingResponses = new ConcurrentHashMap<>();
+
+  /**
+   * Tracks the component statuses of agents reporting them as deltas.
+   */
+  private final ComponentStatusTracker componentStatusTracker = new ComponentStatusTracker();
+
+  /**
+   * Limits the number of agent threads held by heartbeats waiting for
+   * commands.
+   */
+  private final Semaphore commandWaitPermits;
+
   @Inject
   public HeartBeatHandler(Clusters fsm, ActionQueue aq, ActionManager am,
                           Injector injector) {
@@ -123,6 +143,7 @@ public class HeartBeatHandler {
     heartbeatMonitor = new HeartbeatMonitor(fsm, aq, am, 60000, injector);
     heartbeatProcessor = new HeartbeatProcessor(fsm, am, heartbeatMonitor, injector); //TODO modify to match pattern
     injector.injectMembers(this);
+    commandWaitPermits = new Semaphore(Math.max(0, config.getAgentCommandWaitMaxWaiters()));
   }
 
   public void start() {
@@ -163,6 +184,13 @@ public class HeartBeatHandler {
 
     if (heartbeat.getResponseId() == currentResponseId - 1) {
       HeartBeatResponse heartBeatResponse = hostResponses.get(hostname);
+      synchronized (heartBeatResponse) {
+        // if the original heartbeat is still held, the agent gets the
+        // incomplete response and the commands are left for its next heartbeat
+        if (!pendingResponses.remove(hostname, heartBeatResponse)) {
+          heartBeatResponse = hostResponses.get(hostname);
+        }
+      }
 
       LOG.warn("Old responseId={} received form host {} - response was lost - returning cached response with responseId={}",
         heartbeat.getResponseId(),
@@ -202,7 +230,13 @@ public class HeartBeatHandler {
     }
 
     hostResponseIds.put(hostname, currentResponseId);
-    hostResponses.put(hostname, response);
+
+    // the response is cached once complete; until then, an agent resending
+    // this heartbeat gets a response carrying only the new response id
+    HeartBeatResponse pendingResponse = new HeartBeatResponse();
+    pendingResponse.setResponseId(currentResponseId);
+    pendingResponses.put(hostname, pendingResponse);
+    hostResponses.put(hostname, pendingResponse);
 
     // If the host is waiting for component status updates, notify it
     if (heartbeat.componentStatus.size() > 0
@@ -255,12 +289,35 @@ public class HeartBeatHandler {
       }
     }
 
+    // agents reporting component status deltas must resend all statuses if a
+    // delta was lost; the statuses received are still valid and processed
+    if (!componentStatusTracker.apply(heartbeat)) {
+      response.setComponentStatusResync(true);
+    }
+
     heartbeatProcessor.addHeartbeat(heartbeat);
 
     // Send commands if node is active
-    if (hostObject.getState().equals(HostState.HEALTHY)) {
-      sendCommands(hostname, response);
-      annotateResponse(hostname, response);
+    boolean healthy = hostObject.getState().equals(HostState.HEALTHY);
+    if (healthy) {
+      awaitCommands(heartbeat, response);
+    }
+
+    synchronized (pendingResponse) {
+      if (!pendingResponses.remove(hostname, pendingResponse)) {
+        // the agent resent this heartbeat while it was held and already got
+        // the pending response; dequeued commands would never reach it
+        LOG.warn("Heartbeat with responseId={} was resent by host {} while being handled - leaving its commands queued",
+          heartbeat.getResponseId(), hostname);
+        return response;
+      }
+
+      if (healthy) {
+        sendCommands(hostname, response);
+        annotateResponse(hostname, response);
+      }
+
+      hostResponses.put(hostname, response);
     }
 
     return response;
@@ -268,6 +325,42 @@ public class HeartBeatHandler {
 
 
 
+  /**
+   * Holds the heartbeat of an idle agent until commands are queued for its
+   * host or {@link Configuration#AGENT_COMMAND_WAIT_TIMEOUT} expires, so that
+   * commands are delivered without waiting for the next heartbeat. Heartbeats
+   * carrying command reports are never held since the agent cannot report
+   * progress while its heartbeat is pending; neither are heartbeats beyond
+   * {@link Configuration#AGENT_COMMAND_WAIT_MAX_WAITERS}.
+   *
+   * @param heartbeat
+   *          the heartbeat received
+   * @param response
+   *          the response which records the time spent waiting
+   */
+  private void awaitCommands(HeartBeat heartbeat, HeartBeatResponse response) {
+    long timeout = config.getAgentCommandWaitTimeout();
+    String hostname = heartbeat.getHostname();
+    if (timeout <= 0 || actionQueue.size(hostname) > 0
+        || (null != heartbeat.getReports() && !heartbeat.getReports().isEmpty())) {
+      return;
+    }
+
+    if (!commandWaitPermits.tryAcquire()) {
+      return;
+    }
+
+    long start = System.currentTimeMillis();
+    try {
+      actionQueue.awaitCommands(hostname, timeout);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      commandWaitPermits.release();
+      response.setCommandWaitTime(System.currentTimeMillis() - start);
+    }
+  }
+
   protected void processRecoveryReport(RecoveryReport recoveryReport, String hostname) throws AmbariException {
     LOG.debug("Received recovery report: {}", recoveryReport);
     Host host = clusterFsm.getHost(hostname);
@@ -471,6 +564,7 @@ public class HeartBeatHandler {
 
     Long requestId = 0L;
     hostResponseIds.put(hostname, requestId);
+    componentStatusTracker.reset(hostname);
     response.setResponseId(requestId);
     return response;
   }
@@ -75,6 +75,20 @@ public class HeartBeatResponse {
   @SerializedName("clusterSize")
   private int clusterSize = -1;
 
+  /**
+   * Set when the component statuses known by the server no longer match those
+   * of the agent and the agent must send all of its component statuses.
+   */
+  @SerializedName("componentStatusResync")
+  private boolean componentStatusResync = false;
+
+  /**
+   * The time, in milliseconds, the heartbeat was held by the server waiting
+   * for commands. Agents shorten their next heartbeat interval by this amount.
+   */
+  @SerializedName("commandWaitTime")
+  private long commandWaitTime = 0;
+
   public long getResponseId() {
     return responseId;
   }
@@ -170,6 +184,22 @@ public class HeartBeatResponse {
     this.hasMappedComponents = hasMappedComponents;
   }
 
+  public boolean isComponentStatusResync() {
+    return componentStatusResync;
+  }
+
+  public void setComponentStatusResync(boolean componentStatusResync) {
+    this.componentStatusResync = componentStatusResync;
+  }
+
+  public long getCommandWaitTime() {
+    return commandWaitTime;
+  }
+
+  public void setCommandWaitTime(long commandWaitTime) {
+    this.commandWaitTime = commandWaitTime;
+  }
+
   public boolean hasPendingTasks() {
     return hasPendingTasks;
   }
@@ -225,6 +255,7 @@ public class HeartBeatResponse {
     buffer.append(", registrationCommand=").append(registrationCommand);
     buffer.append(", restartAgent=").append(restartAgent);
     buffer.append(", recoveryConfig=").append(recoveryConfig);
+    buffer.append(", componentStatusResync=").append(componentStatusResync);
     buffer.append('}');
     return buffer.toString();
   }
@@ -23,6 +23,8 @@ import static org.apache.ambari.server.controller.KerberosHelperImpl.REMOVE_KEYT
 import static org.apache.ambari.server.controller.KerberosHelperImpl.SET_KEYTAB;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -43,6 +45,7 @@ import org.apache.ambari.server.actionmanager.HostRoleCommand;
 import org.apache.ambari.server.actionmanager.HostRoleStatus;
 import org.apache.ambari.server.agent.ExecutionCommand.KeyNames;
 import org.apache.ambari.server.api.services.AmbariMetaInfo;
+import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.MaintenanceStateHelper;
 import org.apache.ambari.server.events.ActionFinalReportReceivedEvent;
 import org.apache.ambari.server.events.AlertEvent;
@@ -52,6 +55,7 @@ import org.apache.ambari.server.events.publishers.AlertEventPublisher;
 import org.apache.ambari.server.events.publishers.AmbariEventPublisher;
 import org.apache.ambari.server.events.publishers.VersionEventPublisher;
 import org.apache.ambari.server.metadata.ActionMetadata;
+import org.apache.ambari.server.metrics.system.impl.AmbariServerMetricsSource;
 import org.apache.ambari.server.orm.dao.KerberosPrincipalHostDAO;
 import org.apache.ambari.server.state.Alert;
 import org.apache.ambari.server.state.Cluster;
@@ -78,6 +82,9 @@ import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.util.concurrent.AbstractService;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.Gson;
@@ -93,9 +100,15 @@ import com.google.inject.Injector;
 public class HeartbeatProcessor extends AbstractService{
   private static final Logger LOG = LoggerFactory.getLogger(HeartbeatProcessor.class);
 
+  private static final String METRIC_PREFIX = "heartbeat.processor";
+
   private ScheduledExecutorService executor;
 
-  private ConcurrentLinkedQueue<HeartBeat> heartBeatsQueue = new ConcurrentLinkedQueue<>();
+  /**
+   * One queue per processing lane. Heartbeats are assigned to a lane by
+   * hostname so that heartbeats from the same host are processed in order.
+   */
+  private final List<ConcurrentLinkedQueue<HeartBeat>> heartBeatsQueues = new ArrayList<>();
 
   private volatile boolean shouldRun = true;
 
@@ -105,11 +118,24 @@ public class HeartbeatProcessor extends AbstractService{
 
   private int poolSize = 1;
 
+  /**
+   * The maximum number of heartbeats processed by a lane before the command
+   * reports collected from them are persisted.
+   */
+  private int batchSize = 1;
+
   private Clusters clusterFsm;
   private HeartbeatMonitor heartbeatMonitor;
   private Injector injector;
   private ActionManager actionManager;
 
+  private final Timer alertsTimer;
+  private final Timer statusReportsTimer;
+  private final Timer commandReportsTimer;
+  private final Timer hostStatusTimer;
+  private final Timer taskUpdatesTimer;
+  private final Timer heartbeatTimer;
+
   /**
    * Publishes {@link AlertEvent} instances.
    */
@@ -137,6 +163,9 @@ public class HeartbeatProcessor extends AbstractService{
   @Inject
   Gson gson;
 
+  @Inject
+  Configuration configuration;
+
   @Inject
   public HeartbeatProcessor(Clusters clusterFsm, ActionManager am, HeartbeatMonitor heartbeatMonitor,
                             Injector injector) {
@@ -146,6 +175,34 @@ public class HeartbeatProcessor extends AbstractService{
     this.heartbeatMonitor = heartbeatMonitor;
     this.clusterFsm = clusterFsm;
     actionManager = am;
+
+    if (null != configuration) {
+      poolSize = configuration.getHeartbeatProcessorLanes();
+      batchSize = configuration.getHeartbeatProcessorBatchSize();
+    }
+
+    MetricRegistry registry = AmbariServerMetricsSource.getMetricRegistry();
+    for (int i = 0; i < poolSize; i++) {
+      final ConcurrentLinkedQueue<HeartBeat> queue = new ConcurrentLinkedQueue<>();
+      heartBeatsQueues.add(queue);
+
+      String gaugeName = MetricRegistry.name(METRIC_PREFIX, "lane" + i, "queue.size");
+      registry.remove(gaugeName);
+      registry.register(gaugeName, new Gauge<Integer>() {
+        @Override
+        public Integer getValue() {
+          return queue.size();
+        }
+      });
+    }
+
+    alertsTimer = registry.timer(MetricRegistry.name(METRIC_PREFIX, "alerts"));
+    statusReportsTimer = registry.timer(MetricRegistry.name(METRIC_PREFIX, "status.reports"));
+    commandReportsTimer = registry.timer(MetricRegistry.name(METRIC_PREFIX, "command.reports"));
+    hostStatusTimer = registry.timer(MetricRegistry.name(METRIC_PREFIX, "host.status"));
+    taskUpdatesTimer = registry.timer(MetricRegistry.name(METRIC_PREFIX, "task.updates"));
+    heartbeatTimer = registry.timer(MetricRegistry.name(METRIC_PREFIX, "heartbeat"));
+
     ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("ambari-heartbeat-processor-%d").build();
     executor = Executors.newScheduledThreadPool(poolSize, threadFactory);
   }
@@ -154,7 +211,7 @@ public class HeartbeatProcessor extends AbstractService{
   protected void doStart() {
     LOG.info("**** Starting heartbeats processing threads ****");
     for (int i=0; i< poolSize; i++) {
-      executor.scheduleAtFixedRate(new HeartbeatProcessingTask(), delay, period, TimeUnit.MILLISECONDS);
+      executor.scheduleAtFixedRate(new HeartbeatProcessingTask(heartBeatsQueues.get(i)), delay, period, TimeUnit.MILLISECONDS);
     }
   }
 
@@ -166,36 +223,133 @@ public class HeartbeatProcessor extends AbstractService{
   }
 
   public void addHeartbeat(HeartBeat heartBeat) {
-    heartBeatsQueue.add(heartBeat);
+    getQueue(heartBeat.getHostname()).add(heartBeat);
+  }
+
+  /**
+   * Gets the number of heartbeats which are waiting to be processed across all
+   * lanes.
+   *
+   * @return the number of queued heartbeats
+   */
+  public int getQueueSize() {
+    int size = 0;
+    for (ConcurrentLinkedQueue<HeartBeat> queue : heartBeatsQueues) {
+      size += queue.size();
+    }
+    return size;
+  }
+
+  /**
+   * Gets the number of lanes processing heartbeats.
+   *
+   * @return the number of lanes
+   */
+  int getLaneCount() {
+    return heartBeatsQueues.size();
+  }
+
+  /**
+   * Processes the heartbeats queued on the specified lane in the calling
+   * thread, the same way the scheduled task of the lane does.
+   *
+   * @param lane
+   *          the index of the lane
+   */
+  void processLane(int lane) {
+    new HeartbeatProcessingTask(heartBeatsQueues.get(lane)).run();
   }
 
-  private HeartBeat pollHeartbeat() {
-    return heartBeatsQueue.poll();
+  /**
+   * Gets the lane queue for the specified host.
+   *
+   * @param hostname
+   *          the host which sent the heartbeat
+   * @return the queue of the lane which processes heartbeats of the host
+   */
+  private ConcurrentLinkedQueue<HeartBeat> getQueue(String hostname) {
+    int lane = hostname == null ? 0 : (hostname.hashCode() & Integer.MAX_VALUE) % heartBeatsQueues.size();
+    return heartBeatsQueues.get(lane);
   }
 
   /**
-   * Processing task to be scheduled for execution
+   * Processing task to be scheduled for execution. Each task drains the queue
+   * of a single lane, persisting the command reports of up to
+   * {@link #batchSize} heartbeats at once.
    */
   private class HeartbeatProcessingTask implements Runnable {
 
+    private final ConcurrentLinkedQueue<HeartBeat> queue;
+
+    private HeartbeatProcessingTask(ConcurrentLinkedQueue<HeartBeat> queue) {
+      this.queue = queue;
+    }
+
     @Override
     public void run() {
+      CommandReportBatch batch = new CommandReportBatch();
       while (shouldRun) {
         try {
-          HeartBeat heartbeat = pollHeartbeat();
+          HeartBeat heartbeat = queue.poll();
           if (heartbeat == null) {
             break;
           }
-          processHeartbeat(heartbeat);
+
+          // never let two heartbeats of the same host share a batch, the
+          // second one must see the task updates of the first
+          if (batch.size() >= batchSize || batch.containsHost(heartbeat.getHostname())) {
+            flushCommandReports(batch);
+          }
+
+          processHeartbeat(heartbeat, batch);
         } catch (Exception e) {
           LOG.error("Exception received while processing heartbeat", e);
         } catch (Throwable throwable) {
           //catch everything to prevent task suppression
           LOG.error("ERROR: ", throwable);
         }
+      }
 
+      try {
+        flushCommandReports(batch);
+      } catch (Throwable throwable) {
+        LOG.error("Exception received while persisting command reports", throwable);
+      }
+    }
+  }
 
+  /**
+   * Persists the command reports accumulated in the batch and resets it.
+   *
+   * @param batch
+   *          the batch to flush
+   */
+  private void flushCommandReports(CommandReportBatch batch) {
+    if (batch.isEmpty()) {
+      batch.clear();
+      return;
+    }
+
+    Timer.Context context = taskUpdatesTimer.time();
+    try {
+      actionManager.processTaskResponse(batch.getLastHostname(), batch.reports, batch.commands);
+    } catch (RuntimeException e) {
+      if (batch.size() == 1) {
+        throw e;
+      }
+
+      // don't let the reports of one host take down the whole batch
+      LOG.warn("Unable to persist the command reports of {} hosts in one batch, retrying each host", batch.size(), e);
+      for (Map.Entry<String, List<CommandReport>> entry : batch.hostReports.entrySet()) {
+        try {
+          actionManager.processTaskResponse(entry.getKey(), entry.getValue(), batch.commands);
+        } catch (RuntimeException hostException) {
+          LOG.error("Unable to persist the command reports of host {}", entry.getKey(), hostException);
+        }
       }
+    } finally {
+      context.stop();
+      batch.clear();
     }
   }
 
@@ -205,15 +359,56 @@ public class HeartbeatProcessor extends AbstractService{
    * @throws AmbariException
    */
   public void processHeartbeat(HeartBeat heartbeat) throws AmbariException {
+    processHeartbeat(heartbeat, null);
+  }
+
+  /**
+   * Processes the heartbeat, deferring the persistence of its command reports
+   * to the supplied batch.
+   *
+   * @param heartbeat
+   *          Agent heartbeat object
+   * @param batch
+   *          the batch collecting command reports, or {@code null} to persist
+   *          them immediately
+   * @throws AmbariException
+   */
+  void processHeartbeat(HeartBeat heartbeat, CommandReportBatch batch) throws AmbariException {
     long now = System.currentTimeMillis();
+    Timer.Context heartbeatContext = heartbeatTimer.time();
+    try {
+      Timer.Context context = alertsTimer.time();
+      try {
+        processAlerts(heartbeat);
+      } finally {
+        context.stop();
+      }
 
-    processAlerts(heartbeat);
+      //process status reports before command reports to prevent status override immediately after task finish
+      context = statusReportsTimer.time();
+      try {
+        processStatusReports(heartbeat);
+      } finally {
+        context.stop();
+      }
+
+      context = commandReportsTimer.time();
+      try {
+        processCommandReports(heartbeat, now, batch);
+      } finally {
+        context.stop();
+      }
 
-    //process status reports before command reports to prevent status override immediately after task finish
-    processStatusReports(heartbeat);
-    processCommandReports(heartbeat, now);
-    //host status calculation are based on task and status reports, should be performed last
-    processHostStatus(heartbeat);
+      //host status calculation are based on task and status reports, should be performed last
+      context = hostStatusTimer.time();
+      try {
+        processHostStatus(heartbeat);
+      } finally {
+        context.stop();
+      }
+    } finally {
+      heartbeatContext.stop();
+    }
   }
 
 
@@ -356,6 +551,20 @@ public class HeartbeatProcessor extends AbstractService{
   protected void processCommandReports(
       HeartBeat heartbeat, long now)
       throws AmbariException {
+    processCommandReports(heartbeat, now, null);
+  }
+
+  /**
+   * Process reports of tasks executed on agents
+   * @param heartbeat heartbeat to process
+   * @param now cached current time
+   * @param batch the batch which the task updates are added to, or
+   *          {@code null} to persist them immediately
+   * @throws AmbariException
+   */
+  private void processCommandReports(
+      HeartBeat heartbeat, long now, CommandReportBatch batch)
+      throws AmbariException {
     String hostname = heartbeat.getHostname();
     List<CommandReport> reports = heartbeat.getReports();
 
@@ -583,7 +792,16 @@ public class HeartbeatProcessor extends AbstractService{
     }
 
     //Update state machines from reports
-    actionManager.processTaskResponse(hostname, reports, commands);
+    if (null == batch) {
+      Timer.Context context = taskUpdatesTimer.time();
+      try {
+        actionManager.processTaskResponse(hostname, reports, commands);
+      } finally {
+        context.stop();
+      }
+    } else {
+      batch.add(hostname, reports, commands);
+    }
   }
 
   /**
@@ -696,6 +914,55 @@ public class HeartbeatProcessor extends AbstractService{
     }
   }
 
+  /**
+   * Collects the command reports of several heartbeats so that the task updates
+   * are written to the database in one pass.
+   */
+  static class CommandReportBatch {
+    private final Map<String, List<CommandReport>> hostReports = new LinkedHashMap<>();
+    private final List<CommandReport> reports = new ArrayList<>();
+    private final Map<Long, HostRoleCommand> commands = new HashMap<>();
+    private String lastHostname;
+
+    void add(String hostname, List<CommandReport> reports, Map<Long, HostRoleCommand> hostCommands) {
+      List<CommandReport> pending = hostReports.get(hostname);
+      if (pending == null) {
+        pending = new ArrayList<>();
+        hostReports.put(hostname, pending);
+      }
+      pending.addAll(reports);
+      lastHostname = hostname;
+      this.reports.addAll(reports);
+      commands.putAll(hostCommands);
+    }
+
+    boolean containsHost(String hostname) {
+      return hostReports.containsKey(hostname);
+    }
+
+    String getLastHostname() {
+      return lastHostname;
+    }
+
+    /**
+     * @return the number of heartbeats added to the batch
+     */
+    int size() {
+      return hostReports.size();
+    }
+
+    boolean isEmpty() {
+      return reports.isEmpty();
+    }
+
+    void clear() {
+      hostReports.clear();
+      reports.clear();
+      commands.clear();
+      lastHostname = null;
+    }
+  }
+
   /**
    * This class is used for mapping json of structured output for keytab distribution actions.
    */
@@ -18,13 +18,23 @@
 
 package org.apache.ambari.server.api.query;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.ambari.server.api.query.render.DefaultRenderer;
 import org.apache.ambari.server.api.query.render.Renderer;
@@ -37,6 +47,7 @@ import org.apache.ambari.server.api.services.Result;
 import org.apache.ambari.server.api.services.ResultImpl;
 import org.apache.ambari.server.api.util.TreeNode;
 import org.apache.ambari.server.api.util.TreeNodeImpl;
+import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.internal.QueryResponseImpl;
 import org.apache.ambari.server.controller.predicate.AndPredicate;
 import org.apache.ambari.server.controller.predicate.EqualsPredicate;
@@ -61,6 +72,11 @@ import org.apache.ambari.server.controller.utilities.PropertyHelper;
 import org.apache.ambari.server.security.authorization.AuthorizationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.persist.UnitOfWork;
 
 /**
  * Default read query.
@@ -169,6 +185,42 @@ public class QueryImpl implements Query, ResourceInstance {
   private final static Logger LOG =
       LoggerFactory.getLogger(QueryImpl.class);
 
+  /**
+   * The executor querying the sub-resources of a query in parallel; null if they are queried one after the other.
+   */
+  private static ExecutorService subResourceExecutor;
+
+  /**
+   * The unit of work of the sub-resource queries run by the executor.
+   */
+  private static UnitOfWork unitOfWork;
+
+  private static final long SUB_RESOURCE_THREAD_TIMEOUT_MILLIS = 30000L;
+
+
+  // ----- Static initialization ---------------------------------------------
+
+  /**
+   * Creates the executor querying the sub-resources of a query in parallel,
+   * unless the configured thread pool size is 0.
+   *
+   * @param configuration  the configuration
+   * @param unitOfWork     the unit of work of the queries run by the executor
+   */
+  public static void init(Configuration configuration, UnitOfWork unitOfWork) {
+    int threadPoolSize = configuration.getSubResourceQueryThreadPoolSize();
+    ThreadPoolExecutor threadPoolExecutor = null;
+    if (threadPoolSize > 0) {
+      threadPoolExecutor = new ThreadPoolExecutor(threadPoolSize, threadPoolSize,
+          SUB_RESOURCE_THREAD_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+          new ThreadFactoryBuilder().setDaemon(true).setNameFormat("ambari-sub-resource-query-thread-%d").build());
+      threadPoolExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    QueryImpl.unitOfWork = unitOfWork;
+    QueryImpl.subResourceExecutor = threadPoolExecutor;
+  }
+
 
   // ----- Constructor -------------------------------------------------------
 
@@ -457,6 +509,13 @@ public class QueryImpl implements Query, ResourceInstance {
   /**
    * Query the cluster controller for the sub-resources associated with
    * this query object.
+   * <p/>
+   * If the executor is enabled, the sub-resources are queried in parallel.
+   * Each one only reads the resources of this query, which are fully
+   * populated at this point, and only writes its own results and the
+   * resources its providers create. The resources, which are not
+   * synchronized, are therefore never written by two threads at once.
+   * The shared state of the cluster controller is held in concurrent maps.
    */
   private void queryForSubResources()
       throws UnsupportedPropertyException,
@@ -464,44 +523,118 @@ public class QueryImpl implements Query, ResourceInstance {
       NoSuchResourceException,
       NoSuchParentResourceException {
 
-    for (Map.Entry<String, QueryImpl> entry : requestedSubResources.entrySet()) {
-      QueryImpl     subResource         = entry.getValue();
-      Resource.Type resourceType        = subResource.getResourceDefinition().getType();
-      Request       request             = subResource.createRequest();
-      Set<Resource> providerResourceSet = new HashSet<>();
-
-      for (QueryResult queryResult : populatedQueryResults.values()) {
-        for (Resource resource : queryResult.getQueryResponse().getResources()) {
-          Map<Resource.Type, String> map = getKeyValueMap(resource, queryResult.getKeyValueMap());
-
-          Predicate     queryPredicate = subResource.createPredicate(map, subResource.processedPredicate);
-          Set<Resource> resourceSet    = new LinkedHashSet<>();
-
-          try {
-            Set<Resource> queryResources =
-                subResource.doQuery(resourceType, request, queryPredicate, false).getResources();
-
-            providerResourceSet.addAll(queryResources);
-            resourceSet.addAll(queryResources);
-          } catch (NoSuchResourceException e) {
-            // do nothing ...
-          } catch (AuthorizationException e) {
-            // do nothing, since the user does not have access to the data ...
-            LOG.debug("User does not have authorization to get {} resources. The data will not be added to the response.", resourceType.name());
-          }
-          subResource.queryResults.put(resource,
-              new QueryResult(request, queryPredicate, subResourcePredicate, map, new QueryResponseImpl(resourceSet)));
-          subResource.populatedQueryResults.put(resource,
-            new QueryResult(request, queryPredicate, subResourcePredicate, map, new QueryResponseImpl(resourceSet)));
-        }
+    Collection<QueryImpl> subResources = requestedSubResources.values();
+    if (subResourceExecutor == null || subResources.size() < 2) {
+      for (QueryImpl subResource : subResources) {
+        queryForSubResource(subResource);
       }
+      return;
+    }
 
-      if (renderer.requiresPropertyProviderInput()) {
-        clusterController.populateResources(resourceType, providerResourceSet, request, subResourcePredicate);
+    // the sub-resources are independent of each other, each one only adds the results to its own query
+    List<FutureTask<Void>> tasks = new ArrayList<>();
+    for (QueryImpl subResource : subResources) {
+      FutureTask<Void> task = new FutureTask<>(
+          new SubResourceQuery(subResource, Thread.currentThread(), SecurityContextHolder.getContext()));
+      tasks.add(task);
+      subResourceExecutor.execute(task);
+    }
+
+    // run the tasks not started by the executor yet in this thread, so that
+    // nested sub-resource queries can't wait for each other on a busy executor
+    Throwable failure = null;
+    for (FutureTask<Void> task : tasks) {
+      if (failure != null) {
+        task.cancel(false);
+        continue;
+      }
+      task.run();
+      try {
+        task.get();
+      } catch (ExecutionException e) {
+        failure = e.getCause();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        failure = e;
       }
+    }
+    if (failure != null) {
+      rethrowQueryException(failure);
+    }
+  }
 
-      subResource.queryForSubResources();
+  /**
+   * Query the cluster controller for the given sub-resource of each of the
+   * resources of this query object, and then for its own sub-resources.
+   *
+   * @param subResource  the sub-resource query
+   */
+  private void queryForSubResource(QueryImpl subResource)
+      throws UnsupportedPropertyException,
+      SystemException,
+      NoSuchResourceException,
+      NoSuchParentResourceException {
+
+    Resource.Type resourceType        = subResource.getResourceDefinition().getType();
+    Request       request             = subResource.createRequest();
+    Set<Resource> providerResourceSet = new HashSet<>();
+
+    for (QueryResult queryResult : populatedQueryResults.values()) {
+      for (Resource resource : queryResult.getQueryResponse().getResources()) {
+        Map<Resource.Type, String> map = getKeyValueMap(resource, queryResult.getKeyValueMap());
+
+        Predicate     queryPredicate = subResource.createPredicate(map, subResource.processedPredicate);
+        Set<Resource> resourceSet    = new LinkedHashSet<>();
+
+        try {
+          Set<Resource> queryResources =
+              subResource.doQuery(resourceType, request, queryPredicate, false).getResources();
+
+          providerResourceSet.addAll(queryResources);
+          resourceSet.addAll(queryResources);
+        } catch (NoSuchResourceException e) {
+          // do nothing ...
+        } catch (AuthorizationException e) {
+          // do nothing, since the user does not have access to the data ...
+          LOG.debug("User does not have authorization to get {} resources. The data will not be added to the response.", resourceType.name());
+        }
+        subResource.queryResults.put(resource,
+            new QueryResult(request, queryPredicate, subResourcePredicate, map, new QueryResponseImpl(resourceSet)));
+        subResource.populatedQueryResults.put(resource,
+          new QueryResult(request, queryPredicate, subResourcePredicate, map, new QueryResponseImpl(resourceSet)));
+      }
     }
+
+    if (renderer.requiresPropertyProviderInput()) {
+      clusterController.populateResources(resourceType, providerResourceSet, request, subResourcePredicate);
+    }
+
+    subResource.queryForSubResources();
+  }
+
+  /**
+   * Rethrow the failure of a sub-resource query run by a task.
+   */
+  private static void rethrowQueryException(Throwable failure)
+      throws UnsupportedPropertyException,
+      SystemException,
+      NoSuchResourceException,
+      NoSuchParentResourceException {
+
+    if (failure instanceof UnsupportedPropertyException) {
+      throw (UnsupportedPropertyException) failure;
+    } else if (failure instanceof SystemException) {
+      throw (SystemException) failure;
+    } else if (failure instanceof NoSuchResourceException) {
+      throw (NoSuchResourceException) failure;
+    } else if (failure instanceof NoSuchParentResourceException) {
+      throw (NoSuchParentResourceException) failure;
+    } else if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+    throw new SystemException("Caught exception querying sub-resources", failure);
   }
 
   /**
@@ -1077,6 +1210,41 @@ public class QueryImpl implements Query, ResourceInstance {
         resource.getSingularName();
   }
 
+  // ----- inner class : SubResourceQuery ------------------------------------
+
+  /**
+   * A sub-resource query, run by the executor with the security context of the
+   * request, or by the thread of the request itself.
+   */
+  private class SubResourceQuery implements Callable<Void> {
+    private final QueryImpl subResource;
+    private final Thread requestThread;
+    private final SecurityContext securityContext;
+
+    private SubResourceQuery(QueryImpl subResource, Thread requestThread, SecurityContext securityContext) {
+      this.subResource = subResource;
+      this.requestThread = requestThread;
+      this.securityContext = securityContext;
+    }
+
+    @Override
+    public Void call() throws Exception {
+      if (Thread.currentThread() == requestThread) {
+        queryForSubResource(subResource);
+        return null;
+      }
+      SecurityContextHolder.setContext(securityContext);
+      unitOfWork.begin();
+      try {
+        queryForSubResource(subResource);
+      } finally {
+        unitOfWork.end();
+        SecurityContextHolder.clearContext();
+      }
+      return null;
+    }
+  }
+
   // ----- inner class : QueryResult -----------------------------------------
 
   /**
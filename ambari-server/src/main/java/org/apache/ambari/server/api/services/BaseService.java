@@ -25,6 +25,7 @@ import java.util.Set;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
 import org.apache.ambari.server.api.resources.ResourceInstance;
@@ -231,7 +232,9 @@ public abstract class BaseService {
       return new ResultSerializer() {
         @Override
         public Object serialize(Result result) {
-          return serializer.serialize(result).toString();
+          Object serialized = serializer.serialize(result);
+          // streamed as it is, the JSON serializer produces text
+          return serialized instanceof StreamingOutput ? serialized : serialized.toString();
         }
 
         @Override
@@ -50,4 +50,19 @@ public class GetRequest extends BaseRequest {
   protected RequestHandler getRequestHandler() {
     return new ReadHandler();
   }
+
+  @Override
+  public Result process() {
+    ReadRequestCoalescer coalescer = ReadRequestCoalescer.getInstance();
+    return coalescer == null ? processRequest() : coalescer.process(this);
+  }
+
+  /**
+   * Process the request, without sharing the result of identical requests.
+   *
+   * @return the result of the request
+   */
+  Result processRequest() {
+    return super.process();
+  }
 }
@@ -0,0 +1,303 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.api.services;
+
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.metrics.system.impl.AmbariServerMetricsSource;
+import org.apache.ambari.server.security.authorization.AuthorizationHelper;
+import org.apache.commons.lang.StringUtils;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Coalesces identical concurrent GET requests of a user, and serves their
+ * result from a short lived snapshot.
+ * <p/>
+ * The first of the identical requests is processed, and the requests arriving
+ * while it is in progress wait for its result.  The result is then kept as a
+ * snapshot for the configured time, serving the identical requests which
+ * arrive in the meantime without querying the resources again.  Requests are
+ * identical if they are made by the same user for the same URI, ignoring the
+ * "_" cache buster parameter of the UI, so the hrefs of a shared result
+ * carry the cache buster of the request which was processed.
+ * <p/>
+ * Each request gets its own copy of the result tree, sharing the resources of
+ * the snapshot, as the serializers release the tree while writing it.
+ */
+public class ReadRequestCoalescer {
+
+  /**
+   * The name of the cache buster parameter added by the UI.
+   */
+  private static final String CACHE_BUSTER = "_";
+
+  private static final String METRIC_PREFIX = "api.read";
+
+  /**
+   * The coalescer of the GET requests; null if they are processed one by one.
+   */
+  private static volatile ReadRequestCoalescer instance;
+
+  /**
+   * The time, in milliseconds, that the result of a request is shared.
+   */
+  private final long snapshotTimeout;
+
+  /**
+   * The in progress and recent requests, by user and URI.
+   */
+  private final ConcurrentMap<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+  private volatile long lastEviction = 0;
+
+  private final Counter requestsCounter;
+  private final Counter queriesCounter;
+  private final Counter coalescedCounter;
+  private final Counter snapshotHitsCounter;
+
+
+  // ----- Constructors ------------------------------------------------------
+
+  /**
+   * Constructor.
+   *
+   * @param snapshotTimeout  the time, in milliseconds, that the result of a request is shared
+   */
+  ReadRequestCoalescer(long snapshotTimeout) {
+    this.snapshotTimeout = snapshotTimeout;
+
+    MetricRegistry registry = AmbariServerMetricsSource.getMetricRegistry();
+    requestsCounter = registry.counter(MetricRegistry.name(METRIC_PREFIX, "requests"));
+    queriesCounter = registry.counter(MetricRegistry.name(METRIC_PREFIX, "queries"));
+    coalescedCounter = registry.counter(MetricRegistry.name(METRIC_PREFIX, "coalesced"));
+    snapshotHitsCounter = registry.counter(MetricRegistry.name(METRIC_PREFIX, "snapshot.hits"));
+  }
+
+
+  // ----- Static initialization ---------------------------------------------
+
+  /**
+   * Enables coalescing the GET requests, unless the configured snapshot
+   * timeout is 0.
+   *
+   * @param configuration  the configuration
+   */
+  public static void init(Configuration configuration) {
+    long snapshotTimeout = configuration.getApiReadSnapshotTimeout();
+    instance = snapshotTimeout > 0 ? new ReadRequestCoalescer(snapshotTimeout) : null;
+  }
+
+  /**
+   * @return the coalescer of the GET requests; null if they are processed one by one
+   */
+  static ReadRequestCoalescer getInstance() {
+    return instance;
+  }
+
+
+  // ----- ReadRequestCoalescer ----------------------------------------------
+
+  /**
+   * Process the given GET request, or share the result of an identical one.
+   *
+   * @param request  the request
+   *
+   * @return the result of the request
+   */
+  public Result process(final GetRequest request) {
+    String key = getKey(request);
+    if (key == null) {
+      return request.processRequest();
+    }
+    return process(key, new Callable<Result>() {
+      @Override
+      public Result call() {
+        return request.processRequest();
+      }
+    });
+  }
+
+  /**
+   * Get the result of the identical requests, running the query if there is no
+   * request in progress, and no snapshot.
+   *
+   * @param key    identifies the identical requests
+   * @param query  processes the request
+   *
+   * @return a copy of the shared result
+   */
+  Result process(String key, Callable<Result> query) {
+    requestsCounter.inc();
+    long now = System.currentTimeMillis();
+    evictSnapshots(now);
+
+    Snapshot snapshot = snapshots.get(key);
+    if (snapshot != null && snapshot.isExpired(now)) {
+      snapshots.remove(key, snapshot);
+      snapshot = null;
+    }
+
+    if (snapshot == null) {
+      Snapshot created = new Snapshot();
+      snapshot = snapshots.putIfAbsent(key, created);
+      if (snapshot == null) {
+        queriesCounter.inc();
+        return copy(created.run(key, query));
+      }
+    }
+
+    if (snapshot.isDone()) {
+      snapshotHitsCounter.inc();
+    } else {
+      coalescedCounter.inc();
+    }
+    return copy(snapshot.await());
+  }
+
+  /**
+   * @return the number of in progress and recent requests
+   */
+  int getSnapshotCount() {
+    return snapshots.size();
+  }
+
+
+  // ----- helper methods ----------------------------------------------------
+
+  /**
+   * Get the key of the identical requests, or null if the request can't be
+   * coalesced.
+   *
+   * @param request  the request
+   *
+   * @return the user and the URI of the request without the cache buster
+   */
+  static String getKey(Request request) {
+    RequestBody body = request.getBody();
+    if (body != null && StringUtils.isNotBlank(body.getBody())) {
+      return null;
+    }
+    String userName = AuthorizationHelper.getAuthenticatedName();
+    if (userName == null) {
+      return null;
+    }
+
+    String uri = request.getURI();
+    int queryStart = uri.indexOf('?');
+    if (queryStart == -1) {
+      return userName + '\n' + uri;
+    }
+
+    StringBuilder key = new StringBuilder(userName).append('\n').append(uri, 0, queryStart);
+    char separator = '?';
+    for (String parameter : uri.substring(queryStart + 1).split("&")) {
+      if (!parameter.equals(CACHE_BUSTER) && !parameter.startsWith(CACHE_BUSTER + "=")) {
+        key.append(separator).append(parameter);
+        separator = '&';
+      }
+    }
+    return key.toString();
+  }
+
+  /**
+   * Remove the expired snapshots, at most once per snapshot timeout.
+   */
+  private void evictSnapshots(long now) {
+    if (now - lastEviction < snapshotTimeout) {
+      return;
+    }
+    lastEviction = now;
+    for (Iterator<Snapshot> iterator = snapshots.values().iterator(); iterator.hasNext(); ) {
+      if (iterator.next().isExpired(now)) {
+        iterator.remove();
+      }
+    }
+  }
+
+  private static Result copy(Result result) {
+    return result instanceof ResultImpl ? new ResultImpl((ResultImpl) result) : result;
+  }
+
+  /**
+   * The result of identical requests, once their query is done.
+   */
+  private class Snapshot {
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile Result result;
+    private volatile RuntimeException failure;
+    private volatile long expiration = Long.MAX_VALUE;
+
+    private Result run(String key, Callable<Result> query) {
+      try {
+        result = query.call();
+      } catch (RuntimeException e) {
+        failure = e;
+        throw e;
+      } catch (Exception e) {
+        failure = new RuntimeException(e);
+        throw failure;
+      } finally {
+        // errors are only shared with the requests waiting for them
+        if (result == null || result.getStatus() == null || result.getStatus().isErrorState()) {
+          snapshots.remove(key, this);
+        }
+        expiration = System.currentTimeMillis() + snapshotTimeout;
+        done.countDown();
+      }
+      return result;
+    }
+
+    private boolean isDone() {
+      return done.getCount() == 0;
+    }
+
+    private boolean isExpired(long now) {
+      return now >= expiration;
+    }
+
+    private Result await() {
+      boolean interrupted = false;
+      try {
+        while (true) {
+          try {
+            done.await();
+            break;
+          } catch (InterruptedException e) {
+            interrupted = true;
+          }
+        }
+      } finally {
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      if (failure != null) {
+        throw failure;
+      }
+      return result;
+    }
+  }
+}
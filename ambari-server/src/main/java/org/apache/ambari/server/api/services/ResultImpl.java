@@ -68,6 +68,19 @@ public class ResultImpl implements Result {
     m_status = status;
   }
 
+  /**
+   * Copy constructor.  The result tree is copied, sharing the resources of
+   * the given result.
+   *
+   * @param result  the result to copy
+   */
+  ResultImpl(ResultImpl result) {
+    m_synchronous = result.m_synchronous;
+    m_status = result.m_status;
+    m_resultMetadata = result.m_resultMetadata;
+    m_tree = new TreeNodeImpl<>(null, (TreeNodeImpl<Resource>) result.m_tree);
+  }
+
   @Override
   public TreeNode<Resource> getResultTree() {
     return m_tree;
@@ -18,13 +18,19 @@
 
 package org.apache.ambari.server.api.services.serializers;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.Charset;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+import javax.ws.rs.core.StreamingOutput;
+
 import org.apache.ambari.server.api.services.DeleteResultMetadata;
 import org.apache.ambari.server.api.services.Result;
 import org.apache.ambari.server.api.services.ResultMetadata;
@@ -35,14 +41,32 @@ import org.apache.ambari.server.controller.spi.Resource;
 import org.codehaus.jackson.JsonFactory;
 import org.codehaus.jackson.JsonGenerator;
 import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.SerializationConfig;
 import org.codehaus.jackson.util.DefaultPrettyPrinter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * JSON serializer.
  * Responsible for representing a result as JSON.
+ * <p>
+ * A result is serialized into a {@link StreamingOutput}, which JAX-RS writes directly to the response stream, instead of
+ * being rendered into an in-memory string first. The resources are released from the result tree once they are written,
+ * so the response of a large collection is never held on the heap in its serialized form.
+ * <p>
+ * The first {@link #RESPONSE_BUFFER_SIZE} bytes are buffered, so a small result which fails to serialize is reported as
+ * an error. If a larger result fails once part of it is sent, the failure is logged and rethrown to the container, which
+ * aborts the connection rather than ending a truncated response normally.
  */
 public class JsonSerializer implements ResultSerializer {
 
+  private final static Logger LOG = LoggerFactory.getLogger(JsonSerializer.class);
+
+  /**
+   * The number of bytes of a response which are held back before anything is sent.
+   */
+  static final int RESPONSE_BUFFER_SIZE = 64 * 1024;
+
   /**
    * Factory used to create JSON generator.
    */
@@ -50,42 +74,33 @@ public class JsonSerializer implements ResultSerializer {
 
   ObjectMapper m_mapper = new ObjectMapper(m_factory);
 
+  public JsonSerializer() {
+    // the generator is flushed once, when the whole result is written
+    m_mapper.configure(SerializationConfig.Feature.FLUSH_AFTER_WRITE_VALUE, false);
+  }
+
   /**
-   * Generator which writes JSON.
+   * @return a {@link StreamingOutput} writing the result, whose {@code toString()} returns the JSON form of the result;
+   *         or the serialized error, if the result is in an error state
    */
-  JsonGenerator m_generator;
-
-
   @Override
   public Object serialize(Result result) {
-    try {
-      ByteArrayOutputStream bytesOut = init();
-
-      if (result.getStatus().isErrorState()) {
-        return serializeError(result.getStatus());
-      }
-
-      TreeNode<Resource> treeNode = result.getResultTree();
-      processNode(treeNode);
-      processResultMetadata(result.getResultMetadata());
-      m_generator.close();
-      return bytesOut.toString("UTF-8");
-    } catch (IOException e) {
-      //todo: exception handling.  Create ResultStatus 500 and call serializeError
-      throw new RuntimeException("Unable to serialize to json: " + e, e);
+    if (result.getStatus().isErrorState()) {
+      return serializeError(result.getStatus());
     }
+    return new JsonStreamingOutput(result);
   }
 
   @Override
   public Object serializeError(ResultStatus error) {
     try {
-      ByteArrayOutputStream bytesOut = init();
-      //m_mapper.writeValue(m_generator, error);
-      m_generator.writeStartObject();
-      m_generator.writeNumberField("status", error.getStatus().getStatus());
-      m_generator.writeStringField("message", error.getMessage());
-      m_generator.writeEndObject();
-      m_generator.close();
+      ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+      JsonGenerator generator = createJsonGenerator(new OutputStreamWriter(bytesOut, Charset.forName("UTF-8").newEncoder()));
+      generator.writeStartObject();
+      generator.writeNumberField("status", error.getStatus().getStatus());
+      generator.writeStringField("message", error.getMessage());
+      generator.writeEndObject();
+      generator.close();
       return bytesOut.toString("UTF-8");
 
     } catch (IOException e) {
@@ -94,86 +109,135 @@ public class JsonSerializer implements ResultSerializer {
     }
   }
 
-  private ByteArrayOutputStream init() throws IOException {
-    ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
-    m_generator = createJsonGenerator(bytesOut);
+  /**
+   * Writes the result to the stream.
+   *
+   * @param result   the result
+   * @param release  whether to remove the nodes of the result tree once they are written
+   */
+  private void writeResult(Result result, Writer writer, boolean release) throws IOException {
+    JsonGenerator generator = createJsonGenerator(writer);
+    processNode(generator, result.getResultTree(), release);
+    processResultMetadata(generator, result.getResultMetadata());
+    generator.close();
+    writer.flush();
+  }
 
-    DefaultPrettyPrinter p = new DefaultPrettyPrinter();
-    p.indentArraysWith(new DefaultPrettyPrinter.Lf2SpacesIndenter());
-    m_generator.setPrettyPrinter(p);
+  /**
+   * The JSON form of a result, written to the response stream by JAX-RS.
+   */
+  private class JsonStreamingOutput implements StreamingOutput {
+    private final Result result;
+
+    private JsonStreamingOutput(Result result) {
+      this.result = result;
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException {
+      // not flushed on a failure, so that a buffered response is discarded
+      OutputStream bufferedOutput = new BufferedOutputStream(output, RESPONSE_BUFFER_SIZE);
+      try {
+        writeResult(result, new OutputStreamWriter(bufferedOutput, Charset.forName("UTF-8").newEncoder()), true);
+      } catch (IOException | RuntimeException e) {
+        LOG.error("Unable to serialize the result to json, aborting the response", e);
+        throw e;
+      }
+    }
 
-    return bytesOut;
+    /**
+     * @return the JSON form of the result, for callers which need it as a string
+     */
+    @Override
+    public String toString() {
+      try {
+        ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+        writeResult(result, new OutputStreamWriter(bytesOut, Charset.forName("UTF-8").newEncoder()), false);
+        return bytesOut.toString("UTF-8");
+      } catch (IOException e) {
+        throw new RuntimeException("Unable to serialize to json: " + e, e);
+      }
+    }
   }
 
-  private void processResultMetadata(ResultMetadata resultMetadata) throws IOException {
+  private void processResultMetadata(JsonGenerator generator, ResultMetadata resultMetadata) throws IOException {
     if (resultMetadata == null) {
       return;
     }
 
     if (resultMetadata.getClass() == DeleteResultMetadata.class) {
-      processResultMetadata((DeleteResultMetadata) resultMetadata);
+      processResultMetadata(generator, (DeleteResultMetadata) resultMetadata);
     } else {
       throw new IllegalArgumentException("ResultDetails is not of type DeleteResultDetails, cannot parse");
     }
   }
 
-  private void processResultMetadata(DeleteResultMetadata deleteResultMetadata) throws IOException {
-    m_generator.writeStartObject();
-    m_generator.writeArrayFieldStart("deleteResult");
+  private void processResultMetadata(JsonGenerator generator, DeleteResultMetadata deleteResultMetadata)
+      throws IOException {
+    generator.writeStartObject();
+    generator.writeArrayFieldStart("deleteResult");
     //write successfully deleted keys
     for (String key : deleteResultMetadata.getDeletedKeys()) {
-      m_generator.writeStartObject();
-      m_generator.writeObjectFieldStart("deleted");
-      m_generator.writeStringField("key", key);
-      m_generator.writeEndObject();
-      m_generator.writeEndObject();
+      generator.writeStartObject();
+      generator.writeObjectFieldStart("deleted");
+      generator.writeStringField("key", key);
+      generator.writeEndObject();
+      generator.writeEndObject();
     }
 
     //write exceptions
     for (Map.Entry<String, ResultStatus> entry : deleteResultMetadata.getExcptions().entrySet()) {
       ResultStatus resultStatus = entry.getValue();
-      m_generator.writeStartObject();
-      m_generator.writeObjectFieldStart("error");
-      m_generator.writeStringField("key", entry.getKey());
-      m_generator.writeNumberField("code", resultStatus.getStatusCode());
-      m_generator.writeStringField("message", resultStatus.getMessage());
-      m_generator.writeEndObject();
-      m_generator.writeEndObject();
+      generator.writeStartObject();
+      generator.writeObjectFieldStart("error");
+      generator.writeStringField("key", entry.getKey());
+      generator.writeNumberField("code", resultStatus.getStatusCode());
+      generator.writeStringField("message", resultStatus.getMessage());
+      generator.writeEndObject();
+      generator.writeEndObject();
     }
-    m_generator.writeEndArray();
-    m_generator.writeEndObject();
+    generator.writeEndArray();
+    generator.writeEndObject();
   }
 
-  private void processNode(TreeNode<Resource> node) throws IOException {
-    if (isObject(node)) {
-      m_generator.writeStartObject();
+  private void processNode(JsonGenerator generator, TreeNode<Resource> node, boolean release) throws IOException {
+    // determined up front, as released children change the outcome
+    boolean isObject = isObject(node);
+    boolean isArray = isArray(node);
 
-      writeHref(node);
-      writeItemCount(node);
+    if (isObject) {
+      generator.writeStartObject();
+
+      writeHref(generator, node);
+      writeItemCount(generator, node);
 
       Resource r = node.getObject();
       if (r != null) {
-        handleResourceProperties(getTreeProperties(r.getPropertiesMap()));
+        handleResourceProperties(generator, getTreeProperties(r.getPropertiesMap()));
       }
     }
 
-    if (isArray(node)) {
+    if (isArray) {
       if (node.getName() != null)
-        m_generator.writeArrayFieldStart(node.getName());
+        generator.writeArrayFieldStart(node.getName());
       else
-        m_generator.writeStartArray();
+        generator.writeStartArray();
     }
 
-    for (TreeNode<Resource> child : node.getChildren()) {
-      processNode(child);
+    Iterator<TreeNode<Resource>> children = node.getChildren().iterator();
+    while (children.hasNext()) {
+      processNode(generator, children.next(), release);
+      if (release) {
+        children.remove();
+      }
     }
 
-    if (isArray(node)) {
-      m_generator.writeEndArray();
+    if (isArray) {
+      generator.writeEndArray();
     }
 
-    if (isObject(node)) {
-      m_generator.writeEndObject();
+    if (isObject) {
+      generator.writeEndObject();
     }
   }
 
@@ -222,31 +286,33 @@ public class JsonSerializer implements ResultSerializer {
     return treeProperties;
   }
 
-  private void handleResourceProperties(TreeNode<Map<String, Object>> node) throws IOException {
+  private void handleResourceProperties(JsonGenerator generator, TreeNode<Map<String, Object>> node)
+      throws IOException {
     String category = node.getName();
 
     if (category != null) {
-      m_generator.writeFieldName(category);
-      m_generator.writeStartObject();
+      generator.writeFieldName(category);
+      generator.writeStartObject();
     }
 
     for (Map.Entry<String, Object> entry : node.getObject().entrySet()) {
-      m_generator.writeFieldName(entry.getKey());
-      m_mapper.writeValue(m_generator, entry.getValue());
+      generator.writeFieldName(entry.getKey());
+      m_mapper.writeValue(generator, entry.getValue());
     }
 
     for (TreeNode<Map<String, Object>> n : node.getChildren()) {
-      handleResourceProperties(n);
+      handleResourceProperties(generator, n);
     }
 
     if (category != null) {
-      m_generator.writeEndObject();
+      generator.writeEndObject();
     }
   }
 
-  private JsonGenerator createJsonGenerator(ByteArrayOutputStream baos) throws IOException {
-    JsonGenerator generator = m_factory.createJsonGenerator(new OutputStreamWriter(baos,
-        Charset.forName("UTF-8").newEncoder()));
+  private JsonGenerator createJsonGenerator(Writer writer) throws IOException {
+    JsonGenerator generator = m_factory.createJsonGenerator(writer);
+    // the response stream is closed by the container
+    generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
 
     DefaultPrettyPrinter p = new DefaultPrettyPrinter();
     p.indentArraysWith(new DefaultPrettyPrinter.Lf2SpacesIndenter());
@@ -255,19 +321,17 @@ public class JsonSerializer implements ResultSerializer {
     return generator;
   }
 
-  private void writeHref(TreeNode<Resource> node) throws IOException {
+  private void writeHref(JsonGenerator generator, TreeNode<Resource> node) throws IOException {
     String hrefProp = node.getStringProperty("href");
     if (hrefProp != null) {
-      m_generator.writeStringField("href", hrefProp);
+      generator.writeStringField("href", hrefProp);
     }
   }
 
-  private void writeItemCount(TreeNode<Resource> node) throws IOException {
+  private void writeItemCount(JsonGenerator generator, TreeNode<Resource> node) throws IOException {
     String countProp = node.getStringProperty("count");
     if (countProp != null) {
-      m_generator.writeStringField("itemTotal", countProp);
-      // Write once
-      node.setProperty("count", null);
+      generator.writeStringField("itemTotal", countProp);
     }
   }
 }
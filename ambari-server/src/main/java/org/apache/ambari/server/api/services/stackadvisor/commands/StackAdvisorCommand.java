@@ -366,12 +366,12 @@ public abstract class StackAdvisorCommand<T extends StackAdvisorResponse> extend
     if (response.getStatus() != Status.OK.getStatusCode()) {
       String message = String.format(
           "Error occured during hosts information retrieving, status=%s, response=%s",
-          response.getStatus(), (String) response.getEntity());
+          response.getStatus(), String.valueOf(response.getEntity()));
       LOG.warn(message);
       throw new StackAdvisorException(message);
     }
 
-    String hostsJSON = (String) response.getEntity();
+    String hostsJSON = String.valueOf(response.getEntity());
     if (LOG.isDebugEnabled()) {
       LOG.debug("Hosts information: {}", hostsJSON);
     }
@@ -420,12 +420,12 @@ public abstract class StackAdvisorCommand<T extends StackAdvisorResponse> extend
     if (response.getStatus() != Status.OK.getStatusCode()) {
       String message = String.format(
           "Error occured during services information retrieving, status=%s, response=%s",
-          response.getStatus(), (String) response.getEntity());
+          response.getStatus(), String.valueOf(response.getEntity()));
       LOG.warn(message);
       throw new StackAdvisorException(message);
     }
 
-    String servicesJSON = (String) response.getEntity();
+    String servicesJSON = String.valueOf(response.getEntity());
     if (LOG.isDebugEnabled()) {
       LOG.debug("Services information: {}", servicesJSON);
     }
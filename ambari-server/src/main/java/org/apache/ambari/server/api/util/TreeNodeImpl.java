@@ -65,6 +65,25 @@ public class TreeNodeImpl<T> implements TreeNode<T> {
     m_name = name;
   }
 
+  /**
+   * Copy constructor.  Copies the given node and its descendants, sharing
+   * their associated objects and property values.
+   *
+   * @param parent parent node
+   * @param node   the node to copy
+   */
+  public TreeNodeImpl(TreeNode<T> parent, TreeNodeImpl<T> node) {
+    this(parent, node.m_object, node.m_name);
+    if (node.m_mapNodeProps != null) {
+      m_mapNodeProps = new LinkedHashMap<>(node.m_mapNodeProps);
+    }
+    for (Map.Entry<String, TreeNode<T>> entry : node.m_mapChildren.entrySet()) {
+      TreeNode<T> child = entry.getValue();
+      m_mapChildren.put(entry.getKey(),
+          child instanceof TreeNodeImpl ? new TreeNodeImpl<>(this, (TreeNodeImpl<T>) child) : child);
+    }
+  }
+
   @Override
   public TreeNode<T> getParent() {
     return m_parent;
@@ -501,6 +501,16 @@ public class Configuration {
   public static final ConfigurationProperty<String> API_GZIP_MIN_COMPRESSION_SIZE = new ConfigurationProperty<>(
       "api.gzip.compression.min.size", "10240");
 
+  /**
+   * The time, in {@link TimeUnit#MILLISECONDS}, that the result of a GET
+   * request is shared with the identical requests of the same user.
+   */
+  @Markdown(description = "The time, in milliseconds, that the result of a REST API GET request is shared with the identical requests of the same user, "
+      + "such as the polling of several open browser tabs. Identical requests arriving while one is in progress wait for its result. "
+      + "A value of `0` processes every request on its own.")
+  public static final ConfigurationProperty<Long> API_READ_SNAPSHOT_TIMEOUT = new ConfigurationProperty<>(
+      "api.read.snapshot.timeout", 0L);
+
   /**
    * Determiens whether communication with the Ambari Agents should have the
    * JSON payloads compressed with GZIP.
@@ -910,6 +920,15 @@ public class Configuration {
   @Markdown(description = "The timeout, used by the `timeout` command in linux, when checking mounts for free capacity.")
   public static final ConfigurationProperty<String> CHECK_MOUNTS_TIMEOUT = new ConfigurationProperty<>(
       "agent.check.mounts.timeout", "0");
+
+  /**
+   * Determines whether the Ambari Agents send only the component statuses which changed since their
+   * previous heartbeat, along with a hash of all of their component statuses.
+   */
+  @Markdown(description = "Determines whether the Ambari Agents send only the component statuses which changed since their previous report. "
+      + "The server verifies each delta using a sequence number and a hash of all component statuses and asks the agent for a full report when they don't match.")
+  public static final ConfigurationProperty<String> AGENT_COMPONENT_STATUS_DELTA_ENABLED = new ConfigurationProperty<>(
+      "agent.component.status.delta.enabled", "false");
   /**
    * The path of the file which lists the properties that should be masked from the api that returns ambari.properties
    */
@@ -1973,6 +1992,25 @@ public class Configuration {
   public static final ConfigurationProperty<Boolean> PARALLEL_STAGE_EXECUTION = new ConfigurationProperty<>(
       "server.stages.parallel", Boolean.TRUE);
 
+  /**
+   * The number of threads used to process the stages of different requests
+   * concurrently. Only applies when {@link #PARALLEL_STAGE_EXECUTION} is
+   * enabled.
+   */
+  @Markdown(
+      relatedTo = "server.stages.parallel",
+      description = "The number of threads used by the action scheduler to process the stages of different requests concurrently. A value of `1` processes all requests on the scheduler thread.")
+  public static final ConfigurationProperty<Integer> PARALLEL_STAGE_EXECUTION_THREADS = new ConfigurationProperty<>(
+      "server.stages.parallel.threads", 1);
+
+  /**
+   * The number of execution commands written to the database at a time when a
+   * request is persisted.
+   */
+  @Markdown(description = "The number of execution commands which are written to the database together when a new request is persisted. Larger values reduce the number of database round trips for requests spanning many hosts at the cost of memory.")
+  public static final ConfigurationProperty<Integer> EXECUTION_COMMAND_PERSISTENCE_CHUNK_SIZE = new ConfigurationProperty<>(
+      "server.stages.persistence.chunk.size", 500);
+
   /**
    *
    * Property driving the view extraction.
@@ -2106,6 +2144,48 @@ public class Configuration {
   public static final ConfigurationProperty<Integer> AGENT_THREADPOOL_SIZE = new ConfigurationProperty<>(
       "agent.threadpool.size.max", 25);
 
+  /**
+   * The number of lanes used to process agent heartbeats in the background.
+   * Heartbeats are assigned to a lane by hostname so that the heartbeats of a
+   * single host are always processed in order.
+   */
+  @Markdown(description = "The number of threads (lanes) which process heartbeats received from the Ambari Agents. Heartbeats from the same host are always handled by the same lane in the order they were received. The value should be increased as the size of the cluster increases.")
+  public static final ConfigurationProperty<Integer> AGENT_HEARTBEAT_PROCESSOR_LANES = new ConfigurationProperty<>(
+      "agent.heartbeat.processor.lanes", 1);
+
+  /**
+   * The maximum number of heartbeats a lane processes before persisting the
+   * accumulated command reports in a single database update. Batching is
+   * disabled by default.
+   */
+  @Markdown(
+      relatedTo = "agent.heartbeat.processor.lanes",
+      description = "The maximum number of queued heartbeats a heartbeat processing lane handles before the command reports they contain are written to the database in a single batch. If a batch cannot be written, the command reports of each host are retried on their own. A value of `1` disables batching.")
+  public static final ConfigurationProperty<Integer> AGENT_HEARTBEAT_PROCESSOR_BATCH_SIZE = new ConfigurationProperty<>(
+      "agent.heartbeat.processor.batch.size", 1);
+
+  /**
+   * The time, in {@link TimeUnit#MILLISECONDS}, that the heartbeat of an idle
+   * agent is held by the server waiting for commands to be queued for the
+   * host.
+   */
+  @Markdown(description = "The time, in milliseconds, that the server holds the heartbeat of an idle agent waiting for commands to be scheduled on its host. "
+      + "Commands queued while the heartbeat is held are sent immediately instead of with the next heartbeat. "
+      + "This value should be lower than the agent heartbeat interval. A value of `0` disables waiting.")
+  public static final ConfigurationProperty<Long> AGENT_COMMAND_WAIT_TIMEOUT = new ConfigurationProperty<>(
+      "agent.command.wait.timeout", 0L);
+
+  /**
+   * The maximum number of agent heartbeats which can wait for commands at the
+   * same time.
+   */
+  @Markdown(
+      relatedTo = "agent.command.wait.timeout",
+      description = "The maximum number of agent heartbeats which can wait for commands at the same time. "
+          + "Heartbeats are answered immediately when this limit is reached. This value should be smaller than `agent.threadpool.size.max`.")
+  public static final ConfigurationProperty<Integer> AGENT_COMMAND_WAIT_MAX_WAITERS = new ConfigurationProperty<>(
+      "agent.command.wait.max.waiters", 10);
+
   /**
    * The maximum number of threads used to extract Ambari Views when Ambari
    * Server is starting up.
@@ -2185,6 +2265,15 @@ public class Configuration {
   public static final ConfigurationProperty<Long> PROPERTY_PROVIDER_THREADPOOL_COMPLETION_TIMEOUT = new ConfigurationProperty<>(
       "server.property-provider.threadpool.completion.timeout", 5000L);
 
+  /**
+   * The number of threads that will be used to query the independent
+   * sub-resources of a REST API request in parallel. Disabled by default.
+   */
+  @Markdown(description = "The number of threads that will be used to query the independent sub-resources of a REST API request in parallel, "
+      + "such as the services and hosts of a cluster. A value of `0` queries them one after the other.")
+  public static final ConfigurationProperty<Integer> SUBRESOURCE_QUERY_THREADPOOL_SIZE = new ConfigurationProperty<>(
+      "server.query.subresource.threadpool.size", 0);
+
   /**
    * The time, in {@link TimeUnit#SECONDS}, that HTTP requests remain valid when
    * inactive.
@@ -2641,6 +2730,37 @@ public class Configuration {
   public static final ConfigurationProperty<Integer> METRIC_RETRIEVAL_SERVICE_REQUEST_TTL = new ConfigurationProperty<>(
       "metrics.retrieval-service.request.ttl", 5);
 
+  /**
+   * {@code true} to send the requests of the {@link MetricsRetrievalService}
+   * to plain HTTP endpoints with a non-blocking client. Disabled by default.
+   */
+  @Markdown(description = "Determines whether JMX and REST metrics are retrieved from plain HTTP endpoints by a non-blocking client, "
+      + "which keeps the connections to the endpoints alive. Metrics from HTTPS endpoints, and from endpoints which require authentication, "
+      + "are always retrieved by the threads of the service.")
+  public static final ConfigurationProperty<Boolean> METRIC_RETRIEVAL_SERVICE_ASYNC_CLIENT_ENABLED = new ConfigurationProperty<>(
+      "server.metrics.retrieval-service.async.enabled", Boolean.FALSE);
+
+  /**
+   * The number of threads of the non-blocking client of the
+   * {@link MetricsRetrievalService}.
+   */
+  @Markdown(
+      relatedTo = "server.metrics.retrieval-service.async.enabled",
+      description = "The number of threads used by the non-blocking client which retrieves JMX and REST metrics from plain HTTP endpoints.")
+  public static final ConfigurationProperty<Integer> METRIC_RETRIEVAL_SERVICE_ASYNC_CLIENT_THREADPOOL_SIZE = new ConfigurationProperty<>(
+      "server.metrics.retrieval-service.async.threadpool.size", 4);
+
+  /**
+   * The maximum number of concurrent connections of the non-blocking client
+   * of the {@link MetricsRetrievalService} to the same endpoint.
+   */
+  @Markdown(
+      relatedTo = "server.metrics.retrieval-service.async.enabled",
+      description = "The maximum number of concurrent connections to the same endpoint used by the non-blocking client which retrieves JMX and REST metrics. "
+          + "Requests to an endpoint which has no idle connection wait for one.")
+  public static final ConfigurationProperty<Integer> METRIC_RETRIEVAL_SERVICE_ASYNC_CLIENT_CONNECTIONS_PER_ENDPOINT = new ConfigurationProperty<>(
+      "server.metrics.retrieval-service.async.connections.per.endpoint", 2);
+
   /**
    * The number of tasks that can be queried from the database at once In the
    * case of more tasks, multiple queries are issued
@@ -2906,6 +3026,7 @@ public class Configuration {
     agentConfigsMap.put(CHECK_REMOTE_MOUNTS.getKey(), getProperty(CHECK_REMOTE_MOUNTS));
     agentConfigsMap.put(CHECK_MOUNTS_TIMEOUT.getKey(), getProperty(CHECK_MOUNTS_TIMEOUT));
     agentConfigsMap.put(ENABLE_AUTO_AGENT_CACHE_UPDATE.getKey(), getProperty(ENABLE_AUTO_AGENT_CACHE_UPDATE));
+    agentConfigsMap.put(AGENT_COMPONENT_STATUS_DELTA_ENABLED.getKey(), getProperty(AGENT_COMPONENT_STATUS_DELTA_ENABLED));
     agentConfigsMap.put(JAVA_HOME.getKey(), getProperty(JAVA_HOME));
 
     configsMap = new HashMap<>();
@@ -4692,6 +4813,26 @@ public class Configuration {
     return Boolean.parseBoolean(configsMap.get(PARALLEL_STAGE_EXECUTION.getKey()));
   }
 
+  /**
+   * Gets the number of threads used to process the stages of different
+   * requests concurrently.
+   *
+   * @return the number of threads (always at least 1)
+   */
+  public int getParallelStageExecutionThreads() {
+    return Math.max(1, Integer.parseInt(getProperty(PARALLEL_STAGE_EXECUTION_THREADS)));
+  }
+
+  /**
+   * Gets the number of execution commands written to the database at a time
+   * when a request is persisted.
+   *
+   * @return the chunk size (always at least 1)
+   */
+  public int getExecutionCommandPersistenceChunkSize() {
+    return Math.max(1, Integer.parseInt(getProperty(EXECUTION_COMMAND_PERSISTENCE_CHUNK_SIZE)));
+  }
+
   public String getCustomActionDefinitionPath() {
     return getProperty(CUSTOM_ACTION_DEFINITION);
   }
@@ -4783,6 +4924,36 @@ public class Configuration {
     return Integer.parseInt(getProperty(AGENT_THREADPOOL_SIZE));
   }
 
+  /**
+   * @return the number of heartbeat processing lanes, default 1
+   */
+  public int getHeartbeatProcessorLanes() {
+    return Math.max(1, Integer.parseInt(getProperty(AGENT_HEARTBEAT_PROCESSOR_LANES)));
+  }
+
+  /**
+   * @return the number of heartbeats processed per command report batch,
+   *         default 25
+   */
+  public int getHeartbeatProcessorBatchSize() {
+    return Math.max(1, Integer.parseInt(getProperty(AGENT_HEARTBEAT_PROCESSOR_BATCH_SIZE)));
+  }
+
+  /**
+   * @return the time, in milliseconds, an idle agent heartbeat waits for
+   *         commands, default 0 (disabled)
+   */
+  public long getAgentCommandWaitTimeout() {
+    return Long.parseLong(getProperty(AGENT_COMMAND_WAIT_TIMEOUT));
+  }
+
+  /**
+   * @return the maximum number of heartbeats waiting for commands, default 10
+   */
+  public int getAgentCommandWaitMaxWaiters() {
+    return Integer.parseInt(getProperty(AGENT_COMMAND_WAIT_MAX_WAITERS));
+  }
+
   /**
    * Get the view extraction thread pool max size.
    *
@@ -4868,6 +5039,27 @@ public class Configuration {
     return Long.parseLong(getProperty(PROPERTY_PROVIDER_THREADPOOL_COMPLETION_TIMEOUT));
   }
 
+  /**
+   * Get the size of the thread pool querying the sub-resources of a REST API
+   * request in parallel.
+   *
+   * @return the sub-resource query thread pool size, 0 if sub-resources are
+   *         queried one after the other
+   */
+  public int getSubResourceQueryThreadPoolSize() {
+    return Integer.parseInt(getProperty(SUBRESOURCE_QUERY_THREADPOOL_SIZE));
+  }
+
+  /**
+   * Get the time that the result of a GET request is shared with the
+   * identical requests of the same user.
+   *
+   * @return the snapshot timeout, in millis, 0 if requests are not coalesced
+   */
+  public long getApiReadSnapshotTimeout() {
+    return Long.parseLong(getProperty(API_READ_SNAPSHOT_TIMEOUT));
+  }
+
   /**
    * Get the view extraction thread pool timeout.
    *
@@ -5563,6 +5755,36 @@ public class Configuration {
     return Boolean.parseBoolean(getProperty(METRIC_RETRIEVAL_SERVICE_REQUEST_TTL_ENABLED));
   }
 
+  /**
+   * Gets whether the {@link MetricsRetrievalService} sends its requests to
+   * plain HTTP endpoints with a non-blocking client.
+   *
+   * @return {@code true} if enabled, {@code false} otherwise.
+   */
+  public boolean isMetricsServiceAsyncClientEnabled() {
+    return Boolean.parseBoolean(getProperty(METRIC_RETRIEVAL_SERVICE_ASYNC_CLIENT_ENABLED));
+  }
+
+  /**
+   * Gets the number of threads of the non-blocking client of the
+   * {@link MetricsRetrievalService}.
+   *
+   * @return the number of threads, defaulting to 4.
+   */
+  public int getMetricsServiceAsyncClientThreadPoolSize() {
+    return Integer.parseInt(getProperty(METRIC_RETRIEVAL_SERVICE_ASYNC_CLIENT_THREADPOOL_SIZE));
+  }
+
+  /**
+   * Gets the maximum number of concurrent connections of the non-blocking
+   * client of the {@link MetricsRetrievalService} to the same endpoint.
+   *
+   * @return the number of connections, defaulting to 2.
+   */
+  public int getMetricsServiceAsyncClientConnectionsPerEndpoint() {
+    return Integer.parseInt(getProperty(METRIC_RETRIEVAL_SERVICE_ASYNC_CLIENT_CONNECTIONS_PER_ENDPOINT));
+  }
+
   /**
    * Returns the number of tasks that can be queried from the database at once
    * In the case of more tasks, multiple queries are issued
@@ -19,6 +19,7 @@ package org.apache.ambari.server.controller.internal;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -263,6 +264,61 @@ public class CalculatedStatus {
     return counters;
   }
 
+  /**
+   * Returns counts of tasks that are in various states, like
+   * {@link #calculateStatusCounts(Collection)} but from the number of tasks in
+   * each status rather than from the status of every task.
+   *
+   * @param taskCounts  the number of tasks keyed by their status
+   *
+   * @return a map of counts of tasks keyed by the task status
+   */
+  public static Map<HostRoleStatus, Integer> calculateStatusCounts(Map<HostRoleStatus, Integer> taskCounts) {
+    Map<HostRoleStatus, Integer> counters = new HashMap<>();
+    // initialize
+    for (HostRoleStatus hostRoleStatus : HostRoleStatus.values()) {
+      counters.put(hostRoleStatus, 0);
+    }
+
+    int total = 0;
+    for (Map.Entry<HostRoleStatus, Integer> entry : taskCounts.entrySet()) {
+      HostRoleStatus status = entry.getKey();
+      int count = null == entry.getValue() ? 0 : entry.getValue();
+
+      // count tasks where isCompletedState() == true as COMPLETED
+      // but don't count tasks with COMPLETED status twice
+      if (status.isCompletedState() && status != HostRoleStatus.COMPLETED) {
+        counters.put(HostRoleStatus.COMPLETED, counters.get(HostRoleStatus.COMPLETED) + count);
+      }
+      counters.put(status, counters.get(status) + count);
+      total += count;
+    }
+
+    // We overwrite the value to have the sum converged
+    counters.put(HostRoleStatus.IN_PROGRESS,
+        total -
+            counters.get(HostRoleStatus.COMPLETED) -
+            counters.get(HostRoleStatus.QUEUED) -
+            counters.get(HostRoleStatus.PENDING));
+
+    return counters;
+  }
+
+  /**
+   * Adds the number of tasks in each status to a running total.
+   *
+   * @param totals  the running total, keyed by status
+   * @param counts  the counts to add, keyed by status
+   */
+  private static void addCounts(Map<HostRoleStatus, Integer> totals, Map<HostRoleStatus, Integer> counts) {
+    for (Map.Entry<HostRoleStatus, Integer> entry : counts.entrySet()) {
+      if (null != entry.getValue()) {
+        Integer total = totals.get(entry.getKey());
+        totals.put(entry.getKey(), (null == total ? 0 : total) + entry.getValue());
+      }
+    }
+  }
+
   /**
    * Returns counts of tasks that are in various states.
    *
@@ -408,7 +464,7 @@ public class CalculatedStatus {
   public static Map<HostRoleStatus, Integer> calculateTaskStatusCounts(
       Map<Long, HostRoleCommandStatusSummaryDTO> stageDto, Set<Long> stageIds) {
 
-    List<HostRoleStatus> status = new ArrayList<>();
+    Map<HostRoleStatus, Integer> taskCounts = new EnumMap<>(HostRoleStatus.class);
 
     for (Long stageId : stageIds) {
       if (!stageDto.containsKey(stageId)) {
@@ -417,10 +473,10 @@ public class CalculatedStatus {
 
       HostRoleCommandStatusSummaryDTO dto = stageDto.get(stageId);
 
-      status.addAll(dto.getTaskStatuses());
+      addCounts(taskCounts, dto.getCounts());
     }
 
-    return calculateStatusCounts(status);
+    return calculateStatusCounts(taskCounts);
   }
 
   /**
@@ -445,7 +501,8 @@ public class CalculatedStatus {
 
     Collection<HostRoleStatus> stageStatuses = new HashSet<>();
     Collection<HostRoleStatus> stageDisplayStatuses = new HashSet<>();
-    Collection<HostRoleStatus> taskStatuses = new ArrayList<>();
+    Map<HostRoleStatus, Integer> taskCounts = new EnumMap<>(HostRoleStatus.class);
+    int taskTotal = 0;
 
     for (Long stageId : stageIds) {
       if (!stageDto.containsKey(stageId)) {
@@ -456,13 +513,14 @@ public class CalculatedStatus {
 
       int total = summary.getTaskTotal();
       boolean skip = summary.isStageSkippable();
-      Map<HostRoleStatus, Integer> counts = calculateStatusCounts(summary.getTaskStatuses());
+      Map<HostRoleStatus, Integer> counts = calculateStatusCounts(summary.getCounts());
       HostRoleStatus stageStatus = calculateSummaryStatus(counts, total, skip);
       HostRoleStatus stageDisplayStatus = calculateSummaryDisplayStatus(counts, total, skip);
 
       stageStatuses.add(stageStatus);
       stageDisplayStatuses.add(stageDisplayStatus);
-      taskStatuses.addAll(summary.getTaskStatuses());
+      addCounts(taskCounts, summary.getCounts());
+      taskTotal += total;
     }
 
     // calculate the overall status from the stage statuses
@@ -472,7 +530,7 @@ public class CalculatedStatus {
     HostRoleStatus status = calculateSummaryStatusOfUpgrade(counts, stageStatuses.size());
     HostRoleStatus displayStatus = calculateSummaryDisplayStatus(displayCounts, stageDisplayStatuses.size(), false);
 
-    double progressPercent = calculateProgressPercent(calculateStatusCounts(taskStatuses), taskStatuses.size());
+    double progressPercent = calculateProgressPercent(calculateStatusCounts(taskCounts), taskTotal);
 
     return new CalculatedStatus(status, displayStatus, progressPercent);
   }
@@ -20,7 +20,6 @@ package org.apache.ambari.server.controller.internal;
 
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
@@ -30,6 +29,7 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.ambari.server.controller.spi.ClusterController;
 import org.apache.ambari.server.controller.spi.ExtendedResourceProvider;
@@ -75,19 +75,19 @@ public class ClusterControllerImpl implements ClusterController {
    * Map of resource providers keyed by resource type.
    */
   private final Map<Resource.Type, ExtendedResourceProviderWrapper> resourceProviders =
-    new HashMap<>();
+    new ConcurrentHashMap<>();
 
   /**
    * Map of property provider lists keyed by resource type.
    */
   private final Map<Resource.Type, List<PropertyProvider>> propertyProviders =
-    new HashMap<>();
+    new ConcurrentHashMap<>();
 
   /**
    * Map of schemas keyed by resource type.
    */
   private final Map<Resource.Type, Schema> schemas =
-    new HashMap<>();
+    new ConcurrentHashMap<>();
 
   /**
    * Resource comparator.
@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.controller.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ambari.server.controller.spi.Resource;
+import org.apache.ambari.server.controller.utilities.PropertyHelper;
+
+/**
+ * The property slots of a resource type. Each distinct property, i.e. category and name, set on a resource of the type
+ * is given a slot, an index into the value array of {@link ResourceImpl}, so the resources of a type share the split
+ * property ids, and hold only their values.
+ * <p>
+ * Slots are only ever added. The current slots are published as an immutable {@link Layout}, so they are looked up
+ * without locking. Types with an open ended set of properties, like the properties of a configuration, stop getting new
+ * slots once they have {@link #MAX_SLOTS}; further properties are held by the resources themselves. The limit is kept low,
+ * as a resource allocates its value array up to the highest slot it uses, and walks the slots of a category to list its
+ * properties.
+ */
+class PropertySlots {
+
+  /**
+   * The maximum number of slots of a resource type.
+   */
+  static final int MAX_SLOTS = 256;
+
+  /**
+   * The maximum number of property ids mapped to their slots, as different ids may map to the same slot.
+   */
+  private static final int MAX_CACHED_IDS = 4 * MAX_SLOTS;
+
+  private static final ConcurrentMap<Resource.Type, PropertySlots> SLOTS = new ConcurrentHashMap<>();
+
+  private static final Comparator<Slot> BY_NAME = new Comparator<Slot>() {
+    @Override
+    public int compare(Slot slot1, Slot slot2) {
+      return slot1.name.compareTo(slot2.name);
+    }
+  };
+
+  private final int maxSlots;
+
+  private final ConcurrentMap<String, Slot> slotsById = new ConcurrentHashMap<>();
+
+  private volatile Layout layout = new Layout();
+
+  /**
+   * @param maxSlots  the maximum number of slots
+   */
+  PropertySlots(int maxSlots) {
+    this.maxSlots = maxSlots;
+  }
+
+  /**
+   * @return the property slots of the resource type
+   */
+  static PropertySlots forType(Resource.Type type) {
+    PropertySlots slots = SLOTS.get(type);
+    if (slots == null) {
+      slots = new PropertySlots(MAX_SLOTS);
+      PropertySlots existing = SLOTS.putIfAbsent(type, slots);
+      if (existing != null) {
+        slots = existing;
+      }
+    }
+    return slots;
+  }
+
+  /**
+   * A property of the type, i.e. a category and a name.
+   */
+  static final class Slot {
+    final int index;
+    final String category;
+    final String name;
+
+    private Slot(int index, String category, String name) {
+      this.index = index;
+      this.category = category;
+      this.name = name;
+    }
+  }
+
+  /**
+   * An immutable snapshot of the slots of the type.
+   */
+  static final class Layout {
+    /**
+     * The categories of the slots, sorted.
+     */
+    final String[] categories;
+
+    /**
+     * The number of slots.
+     */
+    final int size;
+
+    private final Map<String, Slot[]> slotsByCategory;
+
+    private Layout() {
+      categories = new String[0];
+      size = 0;
+      slotsByCategory = Collections.emptyMap();
+    }
+
+    private Layout(Layout layout, Slot slot) {
+      size = layout.size + 1;
+      slotsByCategory = new HashMap<>(layout.slotsByCategory);
+      Slot[] categorySlots = slotsByCategory.get(slot.category);
+      if (categorySlots == null) {
+        categories = Arrays.copyOf(layout.categories, layout.categories.length + 1);
+        categories[categories.length - 1] = slot.category;
+        Arrays.sort(categories);
+        categorySlots = new Slot[] {slot};
+      } else {
+        categories = layout.categories;
+        categorySlots = Arrays.copyOf(categorySlots, categorySlots.length + 1);
+        categorySlots[categorySlots.length - 1] = slot;
+        Arrays.sort(categorySlots, BY_NAME);
+      }
+      slotsByCategory.put(slot.category, categorySlots);
+    }
+
+    /**
+     * @return the slots of the category, sorted by name, or null if it has none
+     */
+    Slot[] getSlots(String category) {
+      return slotsByCategory.get(category);
+    }
+
+    /**
+     * @return the slot of the property, or null if it has none
+     */
+    Slot getSlot(String category, String name) {
+      Slot[] categorySlots = slotsByCategory.get(category);
+      if (categorySlots == null) {
+        return null;
+      }
+      int low = 0;
+      int high = categorySlots.length - 1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        int comparison = categorySlots[middle].name.compareTo(name);
+        if (comparison < 0) {
+          low = middle + 1;
+        } else if (comparison > 0) {
+          high = middle - 1;
+        } else {
+          return categorySlots[middle];
+        }
+      }
+      return null;
+    }
+  }
+
+  Layout getLayout() {
+    return layout;
+  }
+
+  /**
+   * @param create  whether to add a slot for the property, if it has none yet
+   *
+   * @return the slot of the property, or null if it has none, and it is not created or the type is out of slots
+   */
+  Slot getSlot(String propertyId, boolean create) {
+    Slot slot = slotsById.get(propertyId);
+    if (slot != null) {
+      return slot;
+    }
+    String category = ResourceImpl.getCategoryKey(PropertyHelper.getPropertyCategory(propertyId));
+    String name = PropertyHelper.getPropertyName(propertyId);
+    slot = getSlot(category, name, create);
+    if (slot != null && slotsById.size() < MAX_CACHED_IDS) {
+      slotsById.put(propertyId, slot);
+    }
+    return slot;
+  }
+
+  /**
+   * @param create  whether to add a slot for the property, if it has none yet
+   *
+   * @return the slot of the property, or null if it has none, and it is not created or the type is out of slots
+   */
+  Slot getSlot(String category, String name, boolean create) {
+    Slot slot = layout.getSlot(category, name);
+    if (slot != null || !create) {
+      return slot;
+    }
+    synchronized (this) {
+      slot = layout.getSlot(category, name);
+      if (slot == null) {
+        if (layout.size >= maxSlots) {
+          return null;
+        }
+        slot = new Slot(layout.size, category, name);
+        layout = new Layout(layout, slot);
+      }
+      return slot;
+    }
+  }
+}
@@ -18,30 +18,71 @@
 
 package org.apache.ambari.server.controller.internal;
 
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
 
 import org.apache.ambari.server.controller.spi.Resource;
 import org.apache.ambari.server.controller.utilities.PropertyHelper;
 
 /**
  * Simple resource implementation.
+ * <p>
+ * The property values are held in an array indexed by the {@link PropertySlots} of the resource type, and are exposed
+ * by {@link #getPropertiesMap()} as a live view, sorted by category and property name. A resource is not synchronized:
+ * it is populated by one thread at a time, and handed over between threads by thread safe means, like the executors of
+ * the property providers. Once populated, it may be read by several threads at once; the sub-resource queries that
+ * {@link org.apache.ambari.server.api.query.QueryImpl} runs in parallel only read the resources of their parent query,
+ * and each one writes only the resources its own providers create. The {@link PropertySlots} shared by the resources of
+ * a type are thread safe.
  */
 public class ResourceImpl implements Resource {
 
+  /**
+   * The value held for a property set to null.
+   */
+  private static final Object NULL_VALUE = new Object();
+
+  private static final Object[] NO_VALUES = new Object[0];
+
   /**
    * The resource type.
    */
   private final Type type;
 
+  /**
+   * The property slots of the resource type.
+   */
+  private final PropertySlots slots;
+
+  /**
+   * The property values indexed by their slots, null for the properties which are not set.
+   */
+  private Object[] values = NO_VALUES;
+
+  /**
+   * The properties which didn't get a slot, keyed by category and name; null if there are none.
+   */
+  private Map<String, Map<String, Object>> overflow = null;
+
+  /**
+   * The categories added by {@link #addCategory(String)}, which are kept even without properties; null if there are
+   * none.
+   */
+  private Set<String> categories = null;
+
   /**
    * The map of property maps keyed by property category.
    */
-  private final Map<String, Map<String, Object>> propertiesMap =
-      Collections.synchronizedMap(new TreeMap<String, Map<String, Object>>());
+  private final Map<String, Map<String, Object>> propertiesMap = new PropertiesMap();
 
   // ----- Constructors ------------------------------------------------------
 
@@ -51,7 +92,18 @@ public class ResourceImpl implements Resource {
    * @param type the resource type
    */
   public ResourceImpl(Type type) {
+    this(type, PropertySlots.forType(type));
+  }
+
+  /**
+   * Create a resource of the given type, with the given property slots.
+   *
+   * @param type   the resource type
+   * @param slots  the property slots
+   */
+  ResourceImpl(Type type, PropertySlots slots) {
     this.type = type;
+    this.slots = slots;
   }
 
   /**
@@ -71,7 +123,21 @@ public class ResourceImpl implements Resource {
    * @param propertyIds the set of requested property and category ids
    */
   public ResourceImpl(Resource resource, Set<String> propertyIds) {
-    this.type = resource.getType();
+    this(resource.getType());
+
+    if ((propertyIds == null || propertyIds.isEmpty()) && resource instanceof ResourceImpl &&
+        ((ResourceImpl) resource).slots == slots) {
+      ResourceImpl source = (ResourceImpl) resource;
+      values = source.values.clone();
+      if (source.overflow != null) {
+        for (Map.Entry<String, Map<String, Object>> categoryEntry : source.overflow.entrySet()) {
+          for (Map.Entry<String, Object> propertyEntry : categoryEntry.getValue().entrySet()) {
+            setOverflowProperty(categoryEntry.getKey(), propertyEntry.getKey(), propertyEntry.getValue());
+          }
+        }
+      }
+      return;
+    }
 
     for (Map.Entry<String, Map<String, Object>> categoryEntry :
         resource.getPropertiesMap().entrySet()) {
@@ -104,33 +170,31 @@ public class ResourceImpl implements Resource {
 
   @Override
   public void setProperty(String id, Object value) {
-    String categoryKey = getCategoryKey(PropertyHelper.getPropertyCategory(id));
-
-    Map<String, Object> properties = propertiesMap.get(categoryKey);
-    if (properties == null) {
-      properties = Collections.synchronizedMap(new TreeMap<String, Object>());
-      propertiesMap.put(categoryKey, properties);
+    PropertySlots.Slot slot = slots.getSlot(id, true);
+    if (slot != null) {
+      setValue(slot, value);
+    } else {
+      setOverflowProperty(getCategoryKey(PropertyHelper.getPropertyCategory(id)), PropertyHelper.getPropertyName(id),
+          value);
     }
-    properties.put(PropertyHelper.getPropertyName(id), value);
   }
 
   @Override
   public void addCategory(String id) {
-    String categoryKey = getCategoryKey(id);
-
-    if (!propertiesMap.containsKey(categoryKey)) {
-      propertiesMap.put(categoryKey, new HashMap<>());
+    if (categories == null) {
+      categories = new HashSet<>();
     }
+    categories.add(getCategoryKey(id));
   }
 
   @Override
   public Object getPropertyValue(String id) {
-    String categoryKey = getCategoryKey(PropertyHelper.getPropertyCategory(id));
-
-    Map<String, Object> properties = propertiesMap.get(categoryKey);
-
-    return properties == null ?
-        null : properties.get(PropertyHelper.getPropertyName(id));
+    PropertySlots.Slot slot = slots.getSlot(id, false);
+    if (slot != null) {
+      return unmask(getValue(slot));
+    }
+    return overflow == null ?
+        null : getOverflowProperty(getCategoryKey(PropertyHelper.getPropertyCategory(id)), PropertyHelper.getPropertyName(id));
   }
 
 
@@ -165,7 +229,340 @@ public class ResourceImpl implements Resource {
 
   // ----- utility methods ---------------------------------------------------
 
-  private String getCategoryKey(String category) {
+  static String getCategoryKey(String category) {
     return category == null ? "" : category;
   }
+
+  private Object getValue(PropertySlots.Slot slot) {
+    return slot.index < values.length ? values[slot.index] : null;
+  }
+
+  private void setValue(PropertySlots.Slot slot, Object value) {
+    if (slot.index >= values.length) {
+      values = Arrays.copyOf(values, Math.max(slot.index + 1, values.length + (values.length >> 1)));
+    }
+    values[slot.index] = value == null ? NULL_VALUE : value;
+  }
+
+  private static Object unmask(Object value) {
+    return value == NULL_VALUE ? null : value;
+  }
+
+  private Object getOverflowProperty(String category, String name) {
+    Map<String, Object> properties = overflow.get(category);
+    return properties == null ? null : properties.get(name);
+  }
+
+  private void setOverflowProperty(String category, String name, Object value) {
+    if (overflow == null) {
+      overflow = new TreeMap<>();
+    }
+    Map<String, Object> properties = overflow.get(category);
+    if (properties == null) {
+      properties = new TreeMap<>();
+      overflow.put(category, properties);
+    }
+    properties.put(name, value);
+  }
+
+  private boolean containsProperty(String category, String name) {
+    PropertySlots.Slot slot = slots.getSlot(category, name, false);
+    if (slot != null) {
+      return getValue(slot) != null;
+    }
+    if (overflow == null) {
+      return false;
+    }
+    Map<String, Object> properties = overflow.get(category);
+    return properties != null && properties.containsKey(name);
+  }
+
+  private Object getProperty(String category, String name) {
+    PropertySlots.Slot slot = slots.getSlot(category, name, false);
+    if (slot != null) {
+      return unmask(getValue(slot));
+    }
+    return overflow == null ? null : getOverflowProperty(category, name);
+  }
+
+  private void setProperty(String category, String name, Object value) {
+    PropertySlots.Slot slot = slots.getSlot(category, name, true);
+    if (slot != null) {
+      setValue(slot, value);
+    } else {
+      setOverflowProperty(category, name, value);
+    }
+  }
+
+  private void removeProperty(String category, String name) {
+    PropertySlots.Slot slot = slots.getSlot(category, name, false);
+    if (slot != null) {
+      if (slot.index < values.length) {
+        values[slot.index] = null;
+      }
+    } else if (overflow != null) {
+      Map<String, Object> properties = overflow.get(category);
+      if (properties != null) {
+        properties.remove(name);
+        if (properties.isEmpty()) {
+          overflow.remove(category);
+        }
+      }
+    }
+  }
+
+  private void removeCategory(String category) {
+    for (String name : getNames(category)) {
+      removeProperty(category, name);
+    }
+    if (categories != null) {
+      categories.remove(category);
+    }
+  }
+
+  private boolean containsCategory(String category) {
+    return (categories != null && categories.contains(category)) || countProperties(category) > 0;
+  }
+
+  private int countProperties(String category) {
+    int count = 0;
+    PropertySlots.Slot[] categorySlots = slots.getLayout().getSlots(category);
+    if (categorySlots != null) {
+      for (PropertySlots.Slot slot : categorySlots) {
+        if (getValue(slot) != null) {
+          count++;
+        }
+      }
+    }
+    if (overflow != null) {
+      Map<String, Object> properties = overflow.get(category);
+      if (properties != null) {
+        count += properties.size();
+      }
+    }
+    return count;
+  }
+
+  /**
+   * @return the categories with properties, and the ones added by {@link #addCategory(String)}, sorted
+   */
+  private List<String> getCategories() {
+    PropertySlots.Layout layout = slots.getLayout();
+    List<String> categoryKeys = new ArrayList<>();
+    for (String category : layout.categories) {
+      for (PropertySlots.Slot slot : layout.getSlots(category)) {
+        if (getValue(slot) != null) {
+          categoryKeys.add(category);
+          break;
+        }
+      }
+    }
+    if (overflow == null && categories == null) {
+      return categoryKeys;
+    }
+    Set<String> sortedKeys = new TreeSet<>(categoryKeys);
+    if (overflow != null) {
+      sortedKeys.addAll(overflow.keySet());
+    }
+    if (categories != null) {
+      sortedKeys.addAll(categories);
+    }
+    return new ArrayList<>(sortedKeys);
+  }
+
+  /**
+   * @return the names of the properties of the category, sorted
+   */
+  private List<String> getNames(String category) {
+    List<String> names = new ArrayList<>();
+    PropertySlots.Slot[] categorySlots = slots.getLayout().getSlots(category);
+    if (categorySlots != null) {
+      for (PropertySlots.Slot slot : categorySlots) {
+        if (getValue(slot) != null) {
+          names.add(slot.name);
+        }
+      }
+    }
+    Map<String, Object> properties = overflow == null ? null : overflow.get(category);
+    if (properties == null) {
+      return names;
+    }
+    Set<String> sortedNames = new TreeSet<>(names);
+    sortedNames.addAll(properties.keySet());
+    return new ArrayList<>(sortedNames);
+  }
+
+  /**
+   * Iterates over a snapshot of the keys of a view, removing from the resource.
+   */
+  private abstract static class ViewIterator<V> implements Iterator<Map.Entry<String, V>> {
+    private final Iterator<String> keys;
+    private String lastKey = null;
+
+    private ViewIterator(List<String> keys) {
+      this.keys = keys.iterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return keys.hasNext();
+    }
+
+    @Override
+    public Map.Entry<String, V> next() {
+      lastKey = keys.next();
+      return getEntry(lastKey);
+    }
+
+    @Override
+    public void remove() {
+      if (lastKey == null) {
+        throw new IllegalStateException();
+      }
+      remove(lastKey);
+      lastKey = null;
+    }
+
+    abstract Map.Entry<String, V> getEntry(String key);
+
+    abstract void remove(String key);
+  }
+
+  /**
+   * The view of the properties of the resource, keyed by category.
+   */
+  private class PropertiesMap extends AbstractMap<String, Map<String, Object>> {
+
+    @Override
+    public Map<String, Object> get(Object key) {
+      return key instanceof String && containsCategory((String) key) ? new CategoryMap((String) key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return key instanceof String && containsCategory((String) key);
+    }
+
+    @Override
+    public Map<String, Object> put(String category, Map<String, Object> properties) {
+      Map<String, Object> previous = remove(category);
+      if (properties.isEmpty()) {
+        addCategory(category);
+      }
+      for (Map.Entry<String, Object> entry : properties.entrySet()) {
+        setProperty(category, entry.getKey(), entry.getValue());
+      }
+      return previous;
+    }
+
+    @Override
+    public Map<String, Object> remove(Object key) {
+      if (!containsKey(key)) {
+        return null;
+      }
+      String category = (String) key;
+      Map<String, Object> previous = new TreeMap<>(new CategoryMap(category));
+      removeCategory(category);
+      return previous;
+    }
+
+    @Override
+    public Set<Map.Entry<String, Map<String, Object>>> entrySet() {
+      return new AbstractSet<Map.Entry<String, Map<String, Object>>>() {
+        @Override
+        public Iterator<Map.Entry<String, Map<String, Object>>> iterator() {
+          return new ViewIterator<Map<String, Object>>(getCategories()) {
+            @Override
+            Map.Entry<String, Map<String, Object>> getEntry(String category) {
+              return new SimpleImmutableEntry<String, Map<String, Object>>(category, new CategoryMap(category));
+            }
+
+            @Override
+            void remove(String category) {
+              removeCategory(category);
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return getCategories().size();
+        }
+      };
+    }
+  }
+
+  /**
+   * The view of the properties of a category of the resource, keyed by name.
+   */
+  private class CategoryMap extends AbstractMap<String, Object> {
+    private final String category;
+
+    private CategoryMap(String category) {
+      this.category = category;
+    }
+
+    @Override
+    public Object get(Object key) {
+      return key instanceof String ? getProperty(category, (String) key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return key instanceof String && containsProperty(category, (String) key);
+    }
+
+    @Override
+    public Object put(String name, Object value) {
+      Object previous = getProperty(category, name);
+      setProperty(category, name, value);
+      return previous;
+    }
+
+    @Override
+    public Object remove(Object key) {
+      if (!containsKey(key)) {
+        return null;
+      }
+      Object previous = getProperty(category, (String) key);
+      removeProperty(category, (String) key);
+      return previous;
+    }
+
+    @Override
+    public int size() {
+      return countProperties(category);
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+      return new AbstractSet<Map.Entry<String, Object>>() {
+        @Override
+        public Iterator<Map.Entry<String, Object>> iterator() {
+          return new ViewIterator<Object>(getNames(category)) {
+            @Override
+            Map.Entry<String, Object> getEntry(final String name) {
+              return new SimpleEntry<String, Object>(name, getProperty(category, name)) {
+                @Override
+                public Object setValue(Object value) {
+                  setProperty(category, name, value);
+                  return super.setValue(value);
+                }
+              };
+            }
+
+            @Override
+            void remove(String name) {
+              removeProperty(category, name);
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return countProperties(category);
+        }
+      };
+    }
+  }
 }
@@ -109,6 +109,20 @@ public class URLStreamProvider implements StreamProvider {
     return this.setupTruststoreForHttps;
   }
 
+  /**
+   * @return the time, in milliseconds, to attempt a connection
+   */
+  public int getConnectionTimeout() {
+    return connTimeout;
+  }
+
+  /**
+   * @return the read timeout in milliseconds
+   */
+  public int getReadTimeout() {
+    return readTimeout;
+  }
+
   // ----- StreamProvider ----------------------------------------------------
 
   @Override
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.controller.jmx;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Selects the JMX beans which are parsed from a JMX response, by their name.
+ * <p/>
+ * A filter is built from the categories of the metric definitions, which are
+ * either bean names or, for definitions with arguments, regular expressions
+ * matching bean names.  The RPC beans of a port, e.g.
+ * "Hadoop:service=NameNode,name=RpcActivityForPort8020", are reported under a
+ * tagged category such as "Hadoop:service=NameNode,name=RpcActivity,tag=client",
+ * so the port and the tag are ignored when matching.
+ */
+public final class JMXBeanFilter {
+
+  /**
+   * The filter accepting all the beans.
+   */
+  public static final JMXBeanFilter ALL = new JMXBeanFilter(null);
+
+  private static final Pattern PORT_PATTERN = Pattern.compile("ForPort\\d+");
+  private static final Pattern TAG_PATTERN = Pattern.compile(",tag=[^,]*");
+
+  /**
+   * The regular expressions of the accepted categories; null if all the beans are accepted.
+   */
+  private final Set<String> categories;
+
+  /**
+   * The pattern matching any of the categories.
+   */
+  private final Pattern pattern;
+
+
+  // ----- Constructors ------------------------------------------------------
+
+  private JMXBeanFilter(Set<String> categories) {
+    this.categories = categories;
+    this.pattern = categories == null ? null : compile(categories);
+  }
+
+
+  // ----- JMXBeanFilter -----------------------------------------------------
+
+  /**
+   * Create a filter accepting the beans of the given categories.
+   *
+   * @param categories        the names of the categories
+   * @param categoryPatterns  the regular expressions of the categories with arguments
+   *
+   * @return the filter; {@link #ALL} if a category is not a valid regular expression
+   */
+  public static JMXBeanFilter forCategories(Collection<String> categories,
+                                            Collection<String> categoryPatterns) {
+    Set<String> expressions = new HashSet<>();
+    for (String category : categories) {
+      expressions.add(Pattern.quote(TAG_PATTERN.matcher(category).replaceAll("")));
+    }
+    for (String categoryPattern : categoryPatterns) {
+      expressions.add(TAG_PATTERN.matcher(categoryPattern).replaceAll(""));
+    }
+    try {
+      return new JMXBeanFilter(Collections.unmodifiableSet(expressions));
+    } catch (PatternSyntaxException e) {
+      return ALL;
+    }
+  }
+
+  /**
+   * Determine whether the bean with the given name is accepted.
+   *
+   * @param beanName  the name of the bean
+   *
+   * @return true if the bean is accepted
+   */
+  public boolean accept(String beanName) {
+    return pattern == null || pattern.matcher(PORT_PATTERN.matcher(beanName).replaceAll("")).matches();
+  }
+
+  /**
+   * @return true if all the beans are accepted, including the ones without a name
+   */
+  public boolean isAll() {
+    return categories == null;
+  }
+
+  /**
+   * Get the filter accepting the beans accepted by either this or the given filter.
+   *
+   * @param other  the other filter
+   *
+   * @return the union of the filters
+   */
+  public JMXBeanFilter union(JMXBeanFilter other) {
+    if (other == this || isAll() || (!other.isAll() && categories.containsAll(other.categories))) {
+      return this;
+    }
+    if (other.isAll() || other.categories.containsAll(categories)) {
+      return other;
+    }
+    Set<String> union = new HashSet<>(categories);
+    union.addAll(other.categories);
+    return new JMXBeanFilter(Collections.unmodifiableSet(union));
+  }
+
+
+  // ----- helper methods ----------------------------------------------------
+
+  private static Pattern compile(Set<String> categories) {
+    StringBuilder regex = new StringBuilder();
+    for (String category : categories) {
+      if (regex.length() > 0) {
+        regex.append('|');
+      }
+      regex.append("(?:").append(category).append(')');
+    }
+    return Pattern.compile(regex.toString());
+  }
+}
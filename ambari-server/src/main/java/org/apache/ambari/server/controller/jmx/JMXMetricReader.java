@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.controller.jmx;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.jackson.JsonParseException;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.DeserializationConfig;
+import org.codehaus.jackson.map.ObjectMapper;
+
+/**
+ * Reads the JSON response of a JMX endpoint into a {@link JMXMetricHolder}.
+ * <p/>
+ * The response is read bean by bean, and the attributes of the beans which
+ * are not accepted by the {@link JMXBeanFilter} are skipped without being
+ * parsed into maps.  Large beans which no metric refers to, like the thread
+ * ids or the system properties of the JVM, are never materialized.
+ */
+public class JMXMetricReader {
+
+  private static final String BEANS_KEY = "beans";
+  private static final String NAME_KEY = "name";
+
+  private final ObjectMapper objectMapper;
+
+
+  // ----- Constructors ------------------------------------------------------
+
+  public JMXMetricReader() {
+    objectMapper = new ObjectMapper();
+    objectMapper.configure(DeserializationConfig.Feature.USE_ANNOTATIONS, false);
+  }
+
+
+  // ----- JMXMetricReader ---------------------------------------------------
+
+  /**
+   * Read the beans accepted by the given filter from the given stream.
+   *
+   * @param inputStream  the JSON response of the JMX endpoint
+   * @param filter       the filter of the beans; null to read all the beans
+   *
+   * @return the holder of the accepted beans
+   *
+   * @throws IOException if the response can't be read or parsed
+   */
+  public JMXMetricHolder read(InputStream inputStream, JMXBeanFilter filter) throws IOException {
+    if (filter == null) {
+      filter = JMXBeanFilter.ALL;
+    }
+
+    List<Map<String, Object>> beans = new ArrayList<>();
+    JsonParser parser = objectMapper.getJsonFactory().createJsonParser(inputStream);
+    try {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new JsonParseException("Expected a JSON object", parser.getCurrentLocation());
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        if (parser.nextToken() == JsonToken.START_ARRAY && BEANS_KEY.equals(field)) {
+          readBeans(parser, filter, beans);
+        } else {
+          parser.skipChildren();
+        }
+      }
+    } finally {
+      parser.close();
+    }
+
+    JMXMetricHolder metricHolder = new JMXMetricHolder();
+    metricHolder.setBeans(beans);
+    return metricHolder;
+  }
+
+
+  // ----- helper methods ----------------------------------------------------
+
+  private void readBeans(JsonParser parser, JMXBeanFilter filter, List<Map<String, Object>> beans)
+      throws IOException {
+    JsonToken token;
+    while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+      if (token == JsonToken.START_OBJECT) {
+        Map<String, Object> bean = readBean(parser, filter);
+        if (bean != null) {
+          beans.add(bean);
+        }
+      } else {
+        parser.skipChildren();
+      }
+    }
+  }
+
+  /**
+   * Read the bean the parser is positioned at, skipping its remaining
+   * attributes as soon as its name is known not to be accepted.
+   *
+   * @return the bean; null if it is not accepted
+   */
+  private Map<String, Object> readBean(JsonParser parser, JMXBeanFilter filter) throws IOException {
+    Map<String, Object> bean = new LinkedHashMap<>();
+    boolean accepted = true;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      if (!accepted) {
+        parser.skipChildren();
+        continue;
+      }
+      Object value = objectMapper.readValue(parser, Object.class);
+      if (NAME_KEY.equals(field)) {
+        accepted = filter.isAll() || (value instanceof String && filter.accept((String) value));
+      }
+      bean.put(field, value);
+    }
+    // a bean without a name can't be referred to by a metric
+    if (!accepted || (!filter.isAll() && !bean.containsKey(NAME_KEY))) {
+      return null;
+    }
+    return bean;
+  }
+}
@@ -26,6 +26,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -136,6 +137,11 @@ public class JMXPropertyProvider extends ThreadPoolEnabledPropertyProvider {
 
   private final Map<String, String> clusterComponentPortsMap;
 
+  /**
+   * The filters of the JMX beans referred to by the metrics of a component, by component name.
+   */
+  private final Map<String, JMXBeanFilter> beanFilters = new ConcurrentHashMap<>();
+
   /**
    * Used to submit asynchronous requests for remote metrics as well as querying
    * cached metrics.
@@ -250,6 +256,8 @@ public class JMXPropertyProvider extends ThreadPoolEnabledPropertyProvider {
       return resource;
     }
 
+    JMXBeanFilter beanFilter = getBeanFilter(componentName);
+
     String spec = null;
     for (String hostName : hostNames) {
       try {
@@ -265,7 +273,7 @@ public class JMXPropertyProvider extends ThreadPoolEnabledPropertyProvider {
         String jmxUrl = getSpec(protocol, hostName, port, "/jmx");
 
         // always submit a request to cache the latest data
-        metricsRetrievalService.submitRequest(MetricSourceType.JMX, streamProvider, jmxUrl);
+        metricsRetrievalService.submitRequest(MetricSourceType.JMX, streamProvider, jmxUrl, beanFilter);
 
         // check to see if there is a cached value and use it if there is
         JMXMetricHolder jmxMetricHolder = metricsRetrievalService.getCachedJMXMetric(jmxUrl);
@@ -275,7 +283,7 @@ public class JMXPropertyProvider extends ThreadPoolEnabledPropertyProvider {
           String publicJmxUrl = getSpec(protocol, publicHostName, port, "/jmx");
 
           // always submit a request to cache the latest data
-          metricsRetrievalService.submitRequest(MetricSourceType.JMX, streamProvider, publicJmxUrl);
+          metricsRetrievalService.submitRequest(MetricSourceType.JMX, streamProvider, publicJmxUrl, beanFilter);
 
           // check to see if there is a cached value and use it if there is
           jmxMetricHolder = metricsRetrievalService.getCachedJMXMetric(publicJmxUrl);
@@ -300,7 +308,7 @@ public class JMXPropertyProvider extends ThreadPoolEnabledPropertyProvider {
               }
               if (queryURL != null) {
                 String adHocUrl = getSpec(protocol, hostName, port, queryURL);
-                metricsRetrievalService.submitRequest(MetricSourceType.JMX, streamProvider, adHocUrl);
+                metricsRetrievalService.submitRequest(MetricSourceType.JMX, streamProvider, adHocUrl, beanFilter);
                 JMXMetricHolder adHocJMXMetricHolder = metricsRetrievalService.getCachedJMXMetric(adHocUrl);
 
                 if( adHocJMXMetricHolder == null && !hostName.equalsIgnoreCase(publicHostName)) {
@@ -308,7 +316,7 @@ public class JMXPropertyProvider extends ThreadPoolEnabledPropertyProvider {
                   String publicAdHocUrl = getSpec(protocol, publicHostName, port, queryURL);
 
                   // always submit a request to cache the latest data
-                  metricsRetrievalService.submitRequest(MetricSourceType.JMX, streamProvider, publicAdHocUrl);
+                  metricsRetrievalService.submitRequest(MetricSourceType.JMX, streamProvider, publicAdHocUrl, beanFilter);
 
                   // check to see if there is a cached value and use it if there is
                   adHocJMXMetricHolder = metricsRetrievalService.getCachedJMXMetric(publicAdHocUrl);
@@ -452,6 +460,46 @@ public class JMXPropertyProvider extends ThreadPoolEnabledPropertyProvider {
     }
   }
 
+  /**
+   * Get the filter of the JMX beans referred to by the metrics of the given
+   * component.  The categories are derived the same way as when the values
+   * are read from the beans.
+   *
+   * @param componentName  the component name
+   *
+   * @return the bean filter
+   */
+  private JMXBeanFilter getBeanFilter(String componentName) {
+    JMXBeanFilter beanFilter = beanFilters.get(componentName);
+    if (beanFilter == null) {
+      Set<String> categories = new HashSet<>();
+      Set<String> categoryPatterns = new HashSet<>();
+
+      for (Map.Entry<String, PropertyInfo> entry : getComponentMetrics().get(componentName).entrySet()) {
+        String property = entry.getValue().getPropertyId();
+        if (property == null) {
+          continue;
+        }
+        int keyStartIndex = property.indexOf('[');
+        if (!containsArguments(entry.getKey())) {
+          int dotIndex = property.indexOf('.', property.indexOf('='));
+          if (-1 != dotIndex) {
+            categories.add(property.substring(0, dotIndex));
+          }
+        } else {
+          int firstKeyIndex = keyStartIndex > -1 ? keyStartIndex : property.length();
+          int dotIndex = property.lastIndexOf('.', firstKeyIndex);
+          if (dotIndex != -1) {
+            categoryPatterns.add(property.substring(0, dotIndex));
+          }
+        }
+      }
+      beanFilter = JMXBeanFilter.forCategories(categories, categoryPatterns);
+      beanFilters.put(componentName, beanFilter);
+    }
+    return beanFilter;
+  }
+
   private String getPort(String clusterName, String componentName, String hostName, boolean httpsEnabled) throws SystemException {
     String portMapKey = String.format("%s-%s-%s", clusterName, componentName, httpsEnabled);
     String port = clusterComponentPortsMap.get(portMapKey);
@@ -225,7 +225,7 @@ public class TimelineMetricCacheEntryFactory implements UpdatingCacheEntryFactor
 
         if (existingMetric != null) {
           // Add new ones
-          existingMetric.getMetricValues().putAll(timelineMetric.getMetricValues());
+          existingMetric.addMetricValues(timelineMetric.getMetricSeries());
 
           if (LOG.isTraceEnabled()) {
             TreeMap<Long, Double> sortedMetrics = new TreeMap<>(existingMetric.getMetricValues());
@@ -253,6 +253,7 @@ public class TimelineMetricCacheEntryFactory implements UpdatingCacheEntryFactor
         // Retain only the values that are within the [requestStartTime, requestedEndTime] window
         existingMetricValues.headMap(requestedStartTime,false).clear();
         existingMetricValues.tailMap(requestedEndTime, false).clear();
+        existingMetric.setMetricValues(existingMetricValues);
       }
     }
   }
@@ -20,6 +20,7 @@ package org.apache.ambari.server.events.listeners.tasks;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -38,7 +39,10 @@ import org.apache.ambari.server.controller.internal.CalculatedStatus;
 import org.apache.ambari.server.events.TaskCreateEvent;
 import org.apache.ambari.server.events.TaskUpdateEvent;
 import org.apache.ambari.server.events.publishers.TaskEventPublisher;
+import org.apache.ambari.server.orm.AmbariJpaLocalTxnInterceptor;
+import org.apache.ambari.server.orm.dao.HostRoleCommandStatusSummaryDTO;
 import org.apache.ambari.server.orm.dao.RequestDAO;
+import org.apache.ambari.server.orm.dao.RunningRequestStatusSummaries;
 import org.apache.ambari.server.orm.dao.StageDAO;
 import org.apache.ambari.server.orm.entities.RequestEntity;
 import org.apache.ambari.server.orm.entities.RoleSuccessCriteriaEntity;
@@ -63,7 +67,7 @@ import com.google.inject.Singleton;
  */
 @Singleton
 @EagerSingleton
-public class TaskStatusListener {
+public class TaskStatusListener implements RunningRequestStatusSummaries {
   /**
    * Logger.
    */
@@ -111,6 +115,38 @@ public class TaskStatusListener {
     return activeStageMap;
   }
 
+  /**
+   * Gets the task counts of the stages of a running request. The counts are
+   * maintained as the tasks are created and updated, so this does not depend
+   * on the number of tasks of the request. They only reflect task changes
+   * which have been committed.
+   *
+   * @param requestId
+   *          the request
+   * @return the summaries keyed by stage id, or {@code null} if the request is
+   *         not being tracked as running.
+   */
+  @Override
+  public Map<Long, HostRoleCommandStatusSummaryDTO> getStageSummaries(Long requestId) {
+    ActiveRequest request = activeRequestMap.get(requestId);
+    if (null == request || !request.isLoaded()) {
+      return null;
+    }
+
+    Map<Long, HostRoleCommandStatusSummaryDTO> summaries = new HashMap<>();
+    for (StageEntityPK stageEntityPK : request.getStageEntityPks()) {
+      ActiveStage activeStage = activeStageMap.get(stageEntityPK);
+      if (null == activeStage) {
+        // the request has just finished and is no longer tracked
+        return null;
+      }
+
+      summaries.put(stageEntityPK.getStageId(), activeStage.getSummary(stageEntityPK.getStageId()));
+    }
+
+    return summaries;
+  }
+
   /**
    * On receiving task update event, update related entries of the running request, stage and task in the maps
    * Event containing newly created tasks is expected to contain complete set of all tasks for a request
@@ -157,13 +193,48 @@ public class TaskStatusListener {
     LOG.debug("Received task create event {}", event);
     List<HostRoleCommand> hostRoleCommandListAll = event.getHostRoleCommands();
 
+    Set<Long> requestIds = new HashSet<>();
     for (HostRoleCommand hostRoleCommand : hostRoleCommandListAll) {
       activeTasksMap.put(hostRoleCommand.getTaskId(), hostRoleCommand);
       addStagePK(hostRoleCommand);
       addRequestId(hostRoleCommand);
+      requestIds.add(hostRoleCommand.getRequestId());
+    }
+
+    // the task counts of the requests are complete only once all of their
+    // tasks were added and committed
+    for (Long requestId : requestIds) {
+      final ActiveRequest request = activeRequestMap.get(requestId);
+      if (null != request) {
+        AmbariJpaLocalTxnInterceptor.runAfterCommit(new Runnable() {
+          @Override
+          public void run() {
+            request.setLoaded();
+          }
+        });
+      }
     }
   }
 
+  /**
+   * Counts the reported state of a task in its stage once the transaction
+   * which reported it has committed, so that a rollback doesn't leave the
+   * counts wrong.
+   *
+   * @param activeStage
+   *          the stage of the task
+   * @param hostRoleCommand
+   *          the created or updated task
+   */
+  private void updateTaskCounts(final ActiveStage activeStage, final HostRoleCommand hostRoleCommand) {
+    AmbariJpaLocalTxnInterceptor.runAfterCommit(new Runnable() {
+      @Override
+      public void run() {
+        activeStage.updateTask(hostRoleCommand);
+      }
+    });
+  }
+
 
   /**
    * update changed host role command status
@@ -173,6 +244,14 @@ public class TaskStatusListener {
     for (HostRoleCommand hostRoleCommand : hostRoleCommandWithReceivedStatus) {
       Long taskId = hostRoleCommand.getTaskId();
       activeTasksMap.put(taskId , hostRoleCommand);
+
+      StageEntityPK stageEntityPK = new StageEntityPK();
+      stageEntityPK.setRequestId(hostRoleCommand.getRequestId());
+      stageEntityPK.setStageId(hostRoleCommand.getStageId());
+      ActiveStage activeStage = activeStageMap.get(stageEntityPK);
+      if (null != activeStage) {
+        updateTaskCounts(activeStage, hostRoleCommand);
+      }
     }
   }
 
@@ -186,7 +265,9 @@ public class TaskStatusListener {
     stageEntityPK.setRequestId(hostRoleCommand.getRequestId());
     stageEntityPK.setStageId(hostRoleCommand.getStageId());
     if (activeStageMap.containsKey(stageEntityPK)) {
-      activeStageMap.get(stageEntityPK).addTaskId(hostRoleCommand.getTaskId());
+      ActiveStage activeStage = activeStageMap.get(stageEntityPK);
+      activeStage.addTaskId(hostRoleCommand.getTaskId());
+      updateTaskCounts(activeStage, hostRoleCommand);
     } else {
       StageEntity stageEntity = stageDAO.findByPK(stageEntityPK);
       // Stage entity of the hostrolecommand should be persisted before publishing task create event
@@ -200,6 +281,7 @@ public class TaskStatusListener {
 
       ActiveStage reportedStage = new ActiveStage(stageEntity.getStatus(), stageEntity.getDisplayStatus(),
           successFactors, stageEntity.isSkippable(), taskIdSet);
+      updateTaskCounts(reportedStage, hostRoleCommand);
       activeStageMap.put(stageEntityPK, reportedStage);
     }
   }
@@ -505,6 +587,7 @@ public class TaskStatusListener {
     private HostRoleStatus status;
     private HostRoleStatus displayStatus;
     private Set <StageEntityPK> stageEntityPks;
+    private volatile boolean loaded = false;
 
     public ActiveRequest(HostRoleStatus status, HostRoleStatus displayStatus, Set<StageEntityPK> stageEntityPks) {
       this.status = status;
@@ -540,6 +623,18 @@ public class TaskStatusListener {
       stageEntityPks.add(stageEntityPK);
     }
 
+    /**
+     * @return {@code true} if all of the tasks of the request were added, so
+     *         that the task counts of its stages are complete
+     */
+    public boolean isLoaded() {
+      return loaded;
+    }
+
+    public void setLoaded() {
+      loaded = true;
+    }
+
   }
 
   /**
@@ -552,6 +647,15 @@ public class TaskStatusListener {
     private Boolean skippable;
     private Set <Long> taskIds;
 
+    // the last reported status of each task and the number of tasks in each status
+    private final Map<Long, HostRoleStatus> taskStatuses = new HashMap<>();
+    private final Map<HostRoleStatus, Integer> statusCounts = new EnumMap<>(HostRoleStatus.class);
+
+    // the tasks which have started, the earliest start time and the latest end time
+    private final Set<Long> startedTaskIds = new HashSet<>();
+    private long minStartTime = Long.MAX_VALUE;
+    private long maxEndTime = -1L;
+
     //Map of roles to successFactors for this stage. Default is 1 i.e. 100%
     private Map<Role, Float> successFactors = new HashMap<>();
 
@@ -604,5 +708,45 @@ public class TaskStatusListener {
       taskIds.add(taskId);
     }
 
+    /**
+     * Updates the task counts of the stage with the reported state of one of
+     * its tasks.
+     *
+     * @param hostRoleCommand the created or updated task
+     */
+    public synchronized void updateTask(HostRoleCommand hostRoleCommand) {
+      Long taskId = hostRoleCommand.getTaskId();
+      HostRoleStatus status = hostRoleCommand.getStatus();
+
+      HostRoleStatus previousStatus = taskStatuses.put(taskId, status);
+      if (null != previousStatus) {
+        statusCounts.put(previousStatus, statusCounts.get(previousStatus) - 1);
+      }
+
+      Integer count = statusCounts.get(status);
+      statusCounts.put(status, null == count ? 1 : count + 1);
+
+      if (hostRoleCommand.getStartTime() > 0) {
+        startedTaskIds.add(taskId);
+        minStartTime = Math.min(minStartTime, hostRoleCommand.getStartTime());
+      }
+
+      maxEndTime = Math.max(maxEndTime, hostRoleCommand.getEndTime());
+    }
+
+    /**
+     * Creates the summary of the stage from its task counts.
+     *
+     * @param stageId the stage
+     * @return the summary of the stage
+     */
+    public synchronized HostRoleCommandStatusSummaryDTO getSummary(long stageId) {
+      // like MIN(start_time), a stage with tasks which have not started yet has not started either
+      long startTime = startedTaskIds.size() < taskStatuses.size() ? -1L : minStartTime;
+
+      return new HostRoleCommandStatusSummaryDTO(stageId, Boolean.TRUE.equals(skippable), startTime, maxEndTime,
+          statusCounts);
+    }
+
   }
 }
\ No newline at end of file
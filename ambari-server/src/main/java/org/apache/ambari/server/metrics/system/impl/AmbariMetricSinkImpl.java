@@ -341,7 +341,7 @@ public class AmbariMetricSinkImpl extends AbstractTimelineMetricsSink implements
     timelineMetric.setAppId(component);
     timelineMetric.setStartTime(currentTimeMillis);
 
-    timelineMetric.getMetricValues().put(currentTimeMillis, attributeValue.doubleValue());
+    timelineMetric.putMetricValue(currentTimeMillis, attributeValue.doubleValue());
     return timelineMetric;
   }
 }
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.metrics.system.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ambari.server.metrics.system.MetricsSink;
+import org.apache.ambari.server.metrics.system.SingleMetric;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+
+/**
+ * {@link AmbariServerMetricsSource} publishes the internal performance metrics
+ * of Ambari Server components (heartbeat processing, scheduling, etc.) to the
+ * Metrics Sink. Components register their gauges, counters and timers in the
+ * shared {@link #getMetricRegistry()} regardless of whether this source is
+ * enabled.
+ */
+public class AmbariServerMetricsSource extends AbstractMetricsSource {
+  private static final Logger LOG = LoggerFactory.getLogger(AmbariServerMetricsSource.class);
+  private static final MetricRegistry registry = new MetricRegistry();
+  private static String SERVER_PREFIX = "server";
+  private ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
+  private int interval = 10;
+
+  /**
+   * Gets the registry in which server components register their metrics.
+   *
+   * @return the shared metric registry (never {@code null}).
+   */
+  public static MetricRegistry getMetricRegistry() {
+    return registry;
+  }
+
+  @Override
+  public void init(MetricsConfiguration configuration, MetricsSink sink) {
+    super.init(configuration, sink);
+    interval = Integer.parseInt(configuration.getProperty("interval", "10"));
+    LOG.info("Initialized Ambari Server Metrics source...");
+  }
+
+  @Override
+  public void start() {
+    try {
+      executor.scheduleWithFixedDelay(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            LOG.debug("Publishing Ambari Server metrics to sink");
+            sink.publish(getMetrics());
+          } catch (Exception e) {
+            LOG.debug("Error in publishing Ambari Server metrics to sink.");
+          }
+        }
+      }, interval, interval, TimeUnit.SECONDS);
+      LOG.info("Started Ambari Server Metrics source...");
+    } catch (Exception e) {
+      LOG.info("Throwing exception when starting metric source", e);
+    }
+  }
+
+  /**
+   * Converts the registered metrics into {@link SingleMetric}s. Timers are
+   * reported as their mean, 95th percentile and max durations in
+   * milliseconds, as well as their count.
+   *
+   * @return the current values of all registered metrics.
+   */
+  public List<SingleMetric> getMetrics() {
+    List<SingleMetric> metrics = new ArrayList<>();
+    long now = System.currentTimeMillis();
+
+    for (Map.Entry<String, Gauge> entry : registry.getGauges().entrySet()) {
+      Object value = entry.getValue().getValue();
+      if (value instanceof Number) {
+        metrics.add(new SingleMetric(SERVER_PREFIX + "." + entry.getKey(), ((Number) value).doubleValue(), now));
+      }
+    }
+
+    for (Map.Entry<String, Counter> entry : registry.getCounters().entrySet()) {
+      metrics.add(new SingleMetric(SERVER_PREFIX + "." + entry.getKey(), entry.getValue().getCount(), now));
+    }
+
+    for (Map.Entry<String, Timer> entry : registry.getTimers().entrySet()) {
+      String name = SERVER_PREFIX + "." + entry.getKey();
+      Timer timer = entry.getValue();
+      Snapshot snapshot = timer.getSnapshot();
+      metrics.add(new SingleMetric(name + ".count", timer.getCount(), now));
+      metrics.add(new SingleMetric(name + ".mean", toMillis(snapshot.getMean()), now));
+      metrics.add(new SingleMetric(name + ".p95", toMillis(snapshot.get95thPercentile()), now));
+      metrics.add(new SingleMetric(name + ".max", toMillis(snapshot.getMax()), now));
+    }
+
+    return metrics;
+  }
+
+  private static double toMillis(double nanos) {
+    return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+}
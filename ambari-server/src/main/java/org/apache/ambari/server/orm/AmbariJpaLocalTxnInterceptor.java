@@ -20,8 +20,10 @@ package org.apache.ambari.server.orm;
 
 import java.lang.reflect.Method;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 
@@ -77,6 +79,13 @@ public class AmbariJpaLocalTxnInterceptor implements MethodInterceptor {
     }
   };
 
+  /**
+   * The tasks to run once the outer-most transaction of the thread has
+   * committed, or {@code null} if the thread is not in a transaction started
+   * by this interceptor.
+   */
+  private static final ThreadLocal<List<Runnable>> s_afterCommitTasks = new ThreadLocal<>();
+
   /**
    * Used to ensure that methods which rely on the completion of
    * {@link Transactional} can detect when they are able to run.
@@ -122,6 +131,7 @@ public class AmbariJpaLocalTxnInterceptor implements MethodInterceptor {
       // this is the outer-most transactional, begin a transaction
       final EntityTransaction txn = em.getTransaction();
       txn.begin();
+      s_afterCommitTasks.set(new ArrayList<Runnable>());
 
       Object result;
       try {
@@ -131,6 +141,7 @@ public class AmbariJpaLocalTxnInterceptor implements MethodInterceptor {
         // commit transaction only if rollback didn't occur
         if (rollbackIfNecessary(transactional, e, txn)) {
           txn.commit();
+          runAfterCommitTasks();
         }
 
         detailedLogForPersistenceError(e);
@@ -162,14 +173,58 @@ public class AmbariJpaLocalTxnInterceptor implements MethodInterceptor {
         }
       }
 
+      runAfterCommitTasks();
+
       // or return result
       return result;
     } finally {
+      // tasks of a transaction which was rolled back are dropped
+      s_afterCommitTasks.remove();
+
       // unlock all lock areas for this transaction
       unlockTransaction();
     }
   }
 
+  /**
+   * Runs the given task once the outer-most {@link Transactional} method of
+   * the current thread has committed its transaction, or right away if the
+   * thread is not in such a transaction. The task is dropped if the
+   * transaction is rolled back. This is used to keep in-memory state, which
+   * can't be rolled back, in line with what was actually committed.
+   *
+   * @param task
+   *          the task to run
+   */
+  public static void runAfterCommit(Runnable task) {
+    List<Runnable> tasks = s_afterCommitTasks.get();
+    if (null == tasks) {
+      task.run();
+    } else {
+      tasks.add(task);
+    }
+  }
+
+  /**
+   * Runs the tasks registered with {@link #runAfterCommit(Runnable)} during
+   * the transaction which has just committed.
+   */
+  private static void runAfterCommitTasks() {
+    List<Runnable> tasks = s_afterCommitTasks.get();
+    s_afterCommitTasks.remove();
+    if (null == tasks) {
+      return;
+    }
+
+    for (Runnable task : tasks) {
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        LOG.error("Unable to run a task after the transaction was committed", e);
+      }
+    }
+  }
+
   private void detailedLogForPersistenceError(Exception e) {
     if (e instanceof PersistenceException) {
       PersistenceException rbe = (PersistenceException) e;
@@ -18,6 +18,7 @@
 
 package org.apache.ambari.server.orm.dao;
 
+import java.util.Collection;
 import java.util.List;
 
 import javax.persistence.EntityManager;
@@ -53,6 +54,24 @@ public class ExecutionCommandDAO {
     entityManagerProvider.get().persist(executionCommand);
   }
 
+  /**
+   * Persists the execution commands and flushes them, so that they are
+   * written using batched inserts instead of being kept until the end of the
+   * transaction.
+   *
+   * @param executionCommands
+   *          the commands to persist
+   */
+  @Transactional
+  public void createAll(Collection<ExecutionCommandEntity> executionCommands) {
+    EntityManager entityManager = entityManagerProvider.get();
+    for (ExecutionCommandEntity executionCommand : executionCommands) {
+      entityManager.persist(executionCommand);
+    }
+
+    entityManager.flush();
+  }
+
   @Transactional
   public ExecutionCommandEntity merge(ExecutionCommandEntity executionCommand) {
     return entityManagerProvider.get().merge(executionCommand);
@@ -160,6 +160,13 @@ public class HostRoleCommandDAO {
   @Inject
   private TaskEventPublisher taskEventPublisher;
 
+  /**
+   * The task counts of the stages of running requests, if they are maintained
+   * in memory.
+   */
+  @Inject(optional = true)
+  private RunningRequestStatusSummaries runningRequestStatusSummaries;
+
   /**
    * Used to ensure that methods which rely on the completion of
    * {@link Transactional} can detect when they are able to run.
@@ -749,9 +756,11 @@ public class HostRoleCommandDAO {
 
 
   /**
-   * Finds the counts of tasks for a request and groups them by stage id. If
-   * caching is enabled, this will first consult the cache. Cache misses will
-   * then defer to loading the data from the database and then caching the
+   * Finds the counts of tasks for a request and groups them by stage id. The
+   * counts of running requests are taken from the
+   * {@link RunningRequestStatusSummaries}, if any. For other requests,
+   * if caching is enabled, this will first consult the cache. Cache misses
+   * will then defer to loading the data from the database and then caching the
    * result.
    *
    * @param requestId
@@ -760,6 +769,14 @@ public class HostRoleCommandDAO {
    */
   @RequiresSession
   public Map<Long, HostRoleCommandStatusSummaryDTO> findAggregateCounts(Long requestId) {
+    if (null != runningRequestStatusSummaries) {
+      Map<Long, HostRoleCommandStatusSummaryDTO> summaries = runningRequestStatusSummaries.getStageSummaries(
+          requestId);
+      if (null != summaries) {
+        return summaries;
+      }
+    }
+
     if (!hostRoleCommandStatusSummaryCacheEnabled) {
       return loadAggregateCounts(requestId);
     }
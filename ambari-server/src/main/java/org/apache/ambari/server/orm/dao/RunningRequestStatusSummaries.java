@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.orm.dao;
+
+import java.util.Map;
+
+/**
+ * The {@link RunningRequestStatusSummaries} provides the task counts of the
+ * stages of running requests which are maintained in memory, so that
+ * {@link HostRoleCommandDAO#findAggregateCounts(Long)} doesn't need to
+ * aggregate the tasks of these requests in the database.
+ */
+public interface RunningRequestStatusSummaries {
+
+  /**
+   * Gets the task counts of the stages of a running request.
+   *
+   * @param requestId
+   *          the request
+   * @return the summaries keyed by stage id, or {@code null} if the counts of
+   *         the request are not known.
+   */
+  Map<Long, HostRoleCommandStatusSummaryDTO> getStageSummaries(Long requestId);
+}
@@ -48,6 +48,14 @@ import org.apache.ambari.server.RoleCommand;
 import org.apache.ambari.server.actionmanager.HostRoleStatus;
 import org.apache.commons.lang.ArrayUtils;
 
+/**
+ * Models a single task of a {@link StageEntity}.
+ * <p/>
+ * Since {@link HostRoleCommandEntity} instances are created in bulk (one per
+ * host for most operations), the {@link TableGenerator} preallocates a large
+ * range of IDs. This keeps large requests from repeatedly locking the sequence
+ * ID table while they are being persisted.
+ */
 @Entity
 @Table(name = "host_role_command"
        , indexes = {
@@ -58,6 +66,7 @@ import org.apache.commons.lang.ArrayUtils;
     table = "ambari_sequences", pkColumnName = "sequence_name", valueColumnName = "sequence_value"
     , pkColumnValue = "host_role_command_id_seq"
     , initialValue = 1
+    , allocationSize = 1000
 )
 @NamedQueries({
     @NamedQuery(name = "HostRoleCommandEntity.findTaskIdsByRequestStageIds", query = "SELECT command.taskId FROM HostRoleCommandEntity command WHERE command.stageId = :stageId AND command.requestId = :requestId"),
@@ -104,6 +104,15 @@ public class StageEntity {
   @Column(name = "host_params")
   private byte[] hostParamsStage;
 
+  /**
+   * The configuration fragments shared by the execution commands of this
+   * stage. Execution commands only store references to them. This is lazily
+   * loaded since the fragments are cached once they have been read.
+   */
+  @Column(name = "command_fragments")
+  @Basic(fetch = FetchType.LAZY)
+  private byte[] commandFragments;
+
   /**
    * This status informs if the advanced criteria for the stage success
    * as established at the time of stage creation has been accomplished or not
@@ -193,6 +202,14 @@ public class StageEntity {
     this.hostParamsStage = hostParamsStage.getBytes();
   }
 
+  public byte[] getCommandFragments() {
+    return commandFragments;
+  }
+
+  public void setCommandFragments(byte[] commandFragments) {
+    this.commandFragments = commandFragments;
+  }
+
   public void setRequestContext(String requestContext) {
     if (requestContext != null) {
       this.requestContext = requestContext;
@@ -18,15 +18,20 @@
 package org.apache.ambari.server.state.services;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.lang.Thread.UncaughtExceptionHandler;
 import java.lang.reflect.Type;
+import java.net.SocketTimeoutException;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadFactory;
@@ -35,13 +40,18 @@ import java.util.concurrent.TimeUnit;
 
 import org.apache.ambari.server.AmbariService;
 import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.controller.internal.URLStreamProvider;
+import org.apache.ambari.server.controller.jmx.JMXBeanFilter;
 import org.apache.ambari.server.controller.jmx.JMXMetricHolder;
+import org.apache.ambari.server.controller.jmx.JMXMetricReader;
 import org.apache.ambari.server.controller.utilities.ScalingThreadPoolExecutor;
 import org.apache.ambari.server.controller.utilities.StreamProvider;
 import org.apache.commons.io.IOUtils;
-import org.codehaus.jackson.map.DeserializationConfig;
-import org.codehaus.jackson.map.ObjectMapper;
-import org.codehaus.jackson.map.ObjectReader;
+import org.apache.http.HttpStatus;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.HttpExchange;
+import org.eclipse.jetty.io.Buffer;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -60,6 +70,8 @@ import com.google.inject.Inject;
  * which encapsulates:
  * <ul>
  * <li>An {@link ExecutorService} for fullfilling remote metric URL requests
+ * <li>A non-blocking {@link HttpClient} for fullfilling remote metric URL
+ * requests to plain HTTP endpoints
  * <li>A cache for JMX metrics
  * <li>A cache for REST metrics
  * </ul>
@@ -79,6 +91,14 @@ import com.google.inject.Inject;
  * In order to control throttling requests to the same endpoint,
  * {@link Configuration#isMetricsServiceRequestTTLCacheEnabled()} can be enabled
  * to allow for a fixed interval of time to pass between requests.
+ * <p/>
+ * When {@link Configuration#isMetricsServiceAsyncClientEnabled()} is
+ * {@code true}, requests to plain HTTP endpoints are sent by a non-blocking
+ * {@link HttpClient}, which keeps the connections to an endpoint alive and
+ * limits the number of connections per endpoint, so that slow endpoints don't
+ * hold on to the threads of the {@link ExecutorService}. Requests to HTTPS
+ * endpoints, and to endpoints which require authentication or redirect, are
+ * read by the {@link StreamProvider} on the {@link ExecutorService}.
  */
 @AmbariService
 public class MetricsRetrievalService extends AbstractService {
@@ -147,9 +167,30 @@ public class MetricsRetrievalService extends AbstractService {
   private ThreadPoolExecutor m_threadPoolExecutor;
 
   /**
-   * Used to parse remote JMX JSON into a {@link Map}.
+   * Used to parse remote JMX JSON into a {@link JMXMetricHolder}.
+   */
+  private final JMXMetricReader m_jmxMetricReader;
+
+  /**
+   * The non-blocking client which sends the requests to plain HTTP endpoints,
+   * or {@code null} if all requests are read on the {@link Executor}.
+   */
+  private HttpClient m_httpClient;
+
+  /**
+   * The endpoints, as {@code host:port}, whose responses the
+   * {@link HttpClient} can't handle. These are always read by the
+   * {@link StreamProvider} on the {@link Executor}.
+   */
+  private final Set<String> m_blockingEndpoints = Sets.newConcurrentHashSet();
+
+  /**
+   * The JMX beans to parse from the next response of a URL, which is the union
+   * of the bean filters submitted for that URL since its last response was
+   * parsed. A filter is taken out when a response is parsed, so the beans of a
+   * URL narrow again once no caller asks for them.
    */
-  private final ObjectReader m_jmxObjectReader;
+  private final ConcurrentMap<String, JMXBeanFilter> m_jmxBeanFilters = new ConcurrentHashMap<>();
 
   /**
    * A thread-safe collection of all of the URL endpoints queued for processing.
@@ -180,9 +221,7 @@ public class MetricsRetrievalService extends AbstractService {
    *
    */
   public MetricsRetrievalService() {
-    ObjectMapper jmxObjectMapper = new ObjectMapper();
-    jmxObjectMapper.configure(DeserializationConfig.Feature.USE_ANNOTATIONS, false);
-    m_jmxObjectReader = jmxObjectMapper.reader(JMXMetricHolder.class);
+    m_jmxMetricReader = new JMXMetricReader();
   }
 
   /**
@@ -232,6 +271,35 @@ public class MetricsRetrievalService extends AbstractService {
       LOG.info("Metrics Retrieval Service request TTL cache is enabled and set to {} seconds",
           ttlSeconds);
     }
+
+    // start the non-blocking client if configured; otherwise leave it as null
+    if (m_configuration.isMetricsServiceAsyncClientEnabled()) {
+      int asyncPoolSize = m_configuration.getMetricsServiceAsyncClientThreadPoolSize();
+      int connectionsPerEndpoint = m_configuration.getMetricsServiceAsyncClientConnectionsPerEndpoint();
+
+      // one of the threads runs the selector
+      QueuedThreadPool asyncThreadPool = new QueuedThreadPool(Math.max(2, asyncPoolSize));
+      asyncThreadPool.setMinThreads(1);
+      asyncThreadPool.setName("ambari-metrics-retrieval-service-async");
+      asyncThreadPool.setDaemon(true);
+      asyncThreadPool.setThreadsPriority(threadPriority);
+
+      HttpClient httpClient = new HttpClient();
+      httpClient.setConnectorType(HttpClient.CONNECTOR_SELECT_CHANNEL);
+      httpClient.setThreadPool(asyncThreadPool);
+      httpClient.setMaxConnectionsPerAddress(connectionsPerEndpoint);
+
+      try {
+        httpClient.start();
+        m_httpClient = httpClient;
+
+        LOG.info(
+            "Metrics Retrieval Service asynchronous client is enabled with threads={}, connectionsPerEndpoint={}",
+            asyncThreadPool.getMaxThreads(), connectionsPerEndpoint);
+      } catch (Exception exception) {
+        LOG.error("Unable to start the asynchronous client of the Metrics Retrieval Service", exception);
+      }
+    }
   }
 
   /**
@@ -256,7 +324,18 @@ public class MetricsRetrievalService extends AbstractService {
     }
 
     m_queuedUrls.clear();
+    m_blockingEndpoints.clear();
+    m_jmxBeanFilters.clear();
     m_threadPoolExecutor.shutdownNow();
+
+    if (null != m_httpClient) {
+      try {
+        m_httpClient.stop();
+      } catch (Exception exception) {
+        LOG.warn("Unable to stop the asynchronous client of the Metrics Retrieval Service", exception);
+      }
+      m_httpClient = null;
+    }
   }
 
   /**
@@ -287,6 +366,41 @@ public class MetricsRetrievalService extends AbstractService {
    * @see #getCachedJMXMetric(String)
    */
   public void submitRequest(MetricSourceType type, StreamProvider streamProvider, String url) {
+    submitRequest(type, streamProvider, url, JMXBeanFilter.ALL);
+  }
+
+  /**
+   * Submit a request which retrieves metric data from the supplied endpoint,
+   * parsing only the JMX beans accepted by the given filter.
+   * <p/>
+   * The beans parsed from the next response of a URL are the union of the
+   * filters submitted for it since its last response was parsed, so that
+   * callers interested in different beans of the same endpoint can share the
+   * cached value.
+   *
+   * @param type
+   *          the type of service hosting the metric (not {@code null}).
+   * @param streamProvider
+   *          the {@link StreamProvider} to use to read from the remote
+   *          endpoint.
+   * @param url
+   *          the URL to read from
+   * @param beanFilter
+   *          the JMX beans needed by the caller; ignored for
+   *          {@link MetricSourceType#REST} metrics.
+   *
+   * @see #submitRequest(MetricSourceType, StreamProvider, String)
+   */
+  public void submitRequest(MetricSourceType type, StreamProvider streamProvider, String url,
+      JMXBeanFilter beanFilter) {
+    if (type == MetricSourceType.JMX) {
+      JMXBeanFilter filter = null == beanFilter ? JMXBeanFilter.ALL : beanFilter;
+      JMXBeanFilter existing = m_jmxBeanFilters.putIfAbsent(url, filter);
+      while (null != existing && !m_jmxBeanFilters.replace(url, existing, existing.union(filter))) {
+        existing = m_jmxBeanFilters.get(url);
+      }
+    }
+
     // check to ensure that the request isn't already queued
     if (m_queuedUrls.contains(url)) {
       return;
@@ -308,11 +422,11 @@ public class MetricsRetrievalService extends AbstractService {
     // enqueue this URL
     m_queuedUrls.add(url);
 
-    Runnable runnable = null;
+    MetricRunnable runnable = null;
     switch (type) {
       case JMX:
-        runnable = new JMXRunnable(m_jmxCache, m_queuedUrls, m_ttlUrlCache, m_jmxObjectReader,
-            streamProvider, url);
+        runnable = new JMXRunnable(m_jmxCache, m_queuedUrls, m_ttlUrlCache, m_jmxMetricReader,
+            m_jmxBeanFilters, streamProvider, url);
         break;
       case REST:
         runnable = new RESTRunnable(m_restCache, m_queuedUrls, m_ttlUrlCache, m_gson,
@@ -324,7 +438,11 @@ public class MetricsRetrievalService extends AbstractService {
     }
 
     if (null != runnable) {
-      m_threadPoolExecutor.execute(runnable);
+      if (isAsyncRequest(streamProvider, url)) {
+        sendAsyncRequest(runnable, (URLStreamProvider) streamProvider);
+      } else {
+        m_threadPoolExecutor.execute(runnable);
+      }
     }
   }
 
@@ -362,6 +480,63 @@ public class MetricsRetrievalService extends AbstractService {
     return m_restCache.getIfPresent(restUrl);
   }
 
+  /**
+   * Determines whether the request can be sent by the non-blocking
+   * {@link HttpClient}. Only plain HTTP endpoints which are read without
+   * authentication can be.
+   *
+   * @param streamProvider
+   *          the stream provider which would read the URL
+   * @param url
+   *          the URL to read from
+   * @return {@code true} if the request is sent by the {@link HttpClient}
+   */
+  private boolean isAsyncRequest(StreamProvider streamProvider, String url) {
+    if (null == m_httpClient || !(streamProvider instanceof URLStreamProvider)
+        || !url.startsWith("http://") || m_blockingEndpoints.contains(getEndpoint(url))) {
+      return false;
+    }
+
+    // Kerberos protected endpoints are read with the cookie of the stream provider
+    URLStreamProvider urlStreamProvider = (URLStreamProvider) streamProvider;
+    return null == urlStreamProvider.getAppCookieManager().getCachedAppCookie(url);
+  }
+
+  /**
+   * Sends the request of the {@link MetricRunnable} with the non-blocking
+   * {@link HttpClient}; the response is then processed by the runnable on a
+   * thread of the client.
+   *
+   * @param runnable
+   *          the runnable which processes the response
+   * @param streamProvider
+   *          the stream provider which holds the timeouts of the request
+   */
+  private void sendAsyncRequest(MetricRunnable runnable, URLStreamProvider streamProvider) {
+    MetricExchange exchange = new MetricExchange(runnable,
+        streamProvider.getConnectionTimeout() + streamProvider.getReadTimeout());
+
+    try {
+      m_httpClient.send(exchange);
+    } catch (IOException exception) {
+      runnable.processFailure(exception);
+      runnable.complete();
+    }
+  }
+
+  /**
+   * Gets the endpoint of a URL.
+   *
+   * @param url
+   *          the URL
+   * @return the {@code host:port} of the URL
+   */
+  private static String getEndpoint(String url) {
+    int start = url.indexOf("://") + 3;
+    int end = url.indexOf('/', start);
+    return -1 == end ? url.substring(start) : url.substring(start, end);
+  }
+
   /**
    * Encapsulates the common logic for all metric {@link Runnable} instnaces.
    */
@@ -436,29 +611,55 @@ public class MetricsRetrievalService extends AbstractService {
 
         // read the stream and process it
         inputStream = m_streamProvider.readFrom(m_url);
-        processInputStreamAndCacheResult(inputStream);
-
-        // cache the URL, but only after successful parsing of the response
-        if (null != m_ttlUrlCache) {
-          m_ttlUrlCache.put(m_url, m_url);
-        }
-      } catch (IOException exception)
-      {
-        LOG.debug("Removing cached values for url {}", m_url);
-        // need to ensure old values are removed because they could be not valid if the state have changed.
-        removeCachedMetricsForCurrentURL();
-        logException(exception, m_url);
+        processResponse(inputStream);
       } catch (Exception exception) {
-        logException(exception, m_url);
+        processFailure(exception);
       } finally {
         IOUtils.closeQuietly(inputStream);
+        complete();
+      }
+    }
+
+    /**
+     * Processes the response read from the URL, either by this runnable or by
+     * the non-blocking {@link HttpClient}.
+     *
+     * @param inputStream
+     *          the response
+     * @throws Exception
+     */
+    final void processResponse(InputStream inputStream) throws Exception {
+      processInputStreamAndCacheResult(inputStream);
 
-        // remove this URL from the list of queued URLs to ensure it will be
-        // requested again
-        m_queuedUrls.remove(m_url);
+      // cache the URL, but only after successful parsing of the response
+      if (null != m_ttlUrlCache) {
+        m_ttlUrlCache.put(m_url, m_url);
       }
     }
 
+    /**
+     * Handles a failure to read or process the response of the URL.
+     *
+     * @param exception
+     *          the failure (not {@code null}).
+     */
+    final void processFailure(Exception exception) {
+      if (exception instanceof IOException) {
+        LOG.debug("Removing cached values for url {}", m_url);
+        // need to ensure old values are removed because they could be not valid if the state have changed.
+        removeCachedMetricsForCurrentURL();
+      }
+      logException(exception, m_url);
+    }
+
+    /**
+     * Removes this URL from the list of queued URLs to ensure it will be
+     * requested again.
+     */
+    final void complete() {
+      m_queuedUrls.remove(m_url);
+    }
+
     /**
      * Removes metric values for current URL from cache.
      */
@@ -522,7 +723,8 @@ public class MetricsRetrievalService extends AbstractService {
    */
   private static final class JMXRunnable extends MetricRunnable {
 
-    private final ObjectReader m_jmxObjectReader;
+    private final JMXMetricReader m_jmxMetricReader;
+    private final Map<String, JMXBeanFilter> m_beanFilters;
     private final Cache<String, JMXMetricHolder> m_cache;
 
     /**
@@ -531,16 +733,18 @@ public class MetricsRetrievalService extends AbstractService {
      * @param cache
      * @param queuedUrls
      * @param ttlUrlCache
-     * @param jmxObjectReader
+     * @param jmxMetricReader
+     * @param beanFilters
      * @param streamProvider
      * @param jmxUrl
      */
     private JMXRunnable(Cache<String, JMXMetricHolder> cache, Set<String> queuedUrls,
-        Cache<String, String> ttlUrlCache, ObjectReader jmxObjectReader,
-        StreamProvider streamProvider, String jmxUrl) {
+        Cache<String, String> ttlUrlCache, JMXMetricReader jmxMetricReader,
+        Map<String, JMXBeanFilter> beanFilters, StreamProvider streamProvider, String jmxUrl) {
       super(streamProvider, jmxUrl, queuedUrls, ttlUrlCache);
       m_cache = cache;
-      m_jmxObjectReader = jmxObjectReader;
+      m_jmxMetricReader = jmxMetricReader;
+      m_beanFilters = beanFilters;
     }
 
     /**
@@ -556,7 +760,8 @@ public class MetricsRetrievalService extends AbstractService {
      */
     @Override
     protected void processInputStreamAndCacheResult(InputStream inputStream) throws Exception {
-      JMXMetricHolder jmxMetricHolder = m_jmxObjectReader.readValue(inputStream);
+      // the filters submitted from now on apply to the next response
+      JMXMetricHolder jmxMetricHolder = m_jmxMetricReader.read(inputStream, m_beanFilters.remove(m_url));
       m_cache.put(m_url, jmxMetricHolder);
     }
   }
@@ -613,6 +818,105 @@ public class MetricsRetrievalService extends AbstractService {
     }
   }
 
+  /**
+   * An {@link HttpExchange} which reads the response of a
+   * {@link MetricRunnable} URL without blocking a thread while waiting for
+   * it, and hands the response over to the runnable once it is complete.
+   */
+  private final class MetricExchange extends HttpExchange {
+
+    private final MetricRunnable m_runnable;
+    private final ByteArrayOutputStream m_content = new ByteArrayOutputStream();
+    private volatile int m_status;
+
+    /**
+     * Constructor.
+     *
+     * @param runnable
+     *          the runnable which processes the response
+     * @param timeout
+     *          the time, in milliseconds, the request may take
+     */
+    private MetricExchange(MetricRunnable runnable, long timeout) {
+      m_runnable = runnable;
+      setURL(runnable.m_url);
+      setTimeout(timeout);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onResponseStatus(Buffer version, int status, Buffer reason) throws IOException {
+      m_status = status;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onResponseContent(Buffer content) throws IOException {
+      content.writeTo(m_content);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onResponseComplete() throws IOException {
+      // authentication and redirects are only handled by the stream provider
+      if (m_status == HttpStatus.SC_UNAUTHORIZED
+          || (m_status >= HttpStatus.SC_MULTIPLE_CHOICES && m_status < HttpStatus.SC_BAD_REQUEST)) {
+        m_blockingEndpoints.add(getEndpoint(m_runnable.m_url));
+        m_threadPoolExecutor.execute(m_runnable);
+        return;
+      }
+
+      try {
+        if (m_status >= HttpStatus.SC_BAD_REQUEST) {
+          throw new IOException(
+              "Server returned HTTP response code: " + m_status + " for URL: " + m_runnable.m_url);
+        }
+
+        m_runnable.processResponse(new ByteArrayInputStream(m_content.toByteArray()));
+      } catch (Exception exception) {
+        m_runnable.processFailure(exception);
+      } finally {
+        m_runnable.complete();
+      }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onConnectionFailed(Throwable throwable) {
+      fail(throwable);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onException(Throwable throwable) {
+      fail(throwable);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void onExpire() {
+      fail(new SocketTimeoutException("Timed out retrieving metrics from " + m_runnable.m_url));
+    }
+
+    private void fail(Throwable throwable) {
+      m_runnable.processFailure(
+          throwable instanceof Exception ? (Exception) throwable : new IOException(throwable));
+      m_runnable.complete();
+    }
+  }
+
   /**
    * A default exception handler.
    */
@@ -63,6 +63,7 @@ public class UpgradeCatalog300 extends AbstractUpgradeCatalog {
   protected static final String STAGE_TABLE = "stage";
   protected static final String STAGE_STATUS_COLUMN = "status";
   protected static final String STAGE_DISPLAY_STATUS_COLUMN = "display_status";
+  protected static final String STAGE_COMMAND_FRAGMENTS_COLUMN = "command_fragments";
   protected static final String REQUEST_TABLE = "request";
   protected static final String REQUEST_DISPLAY_STATUS_COLUMN = "display_status";
   protected static final String CLUSTER_CONFIG_TABLE = "clusterconfig";
@@ -129,6 +130,8 @@ public class UpgradeCatalog300 extends AbstractUpgradeCatalog {
         new DBAccessor.DBColumnInfo(STAGE_STATUS_COLUMN, String.class, 255, HostRoleStatus.PENDING, false));
     dbAccessor.addColumn(STAGE_TABLE,
         new DBAccessor.DBColumnInfo(STAGE_DISPLAY_STATUS_COLUMN, String.class, 255, HostRoleStatus.PENDING, false));
+    dbAccessor.addColumn(STAGE_TABLE,
+        new DBAccessor.DBColumnInfo(STAGE_COMMAND_FRAGMENTS_COLUMN, byte[].class, null, null, true));
     dbAccessor.addColumn(REQUEST_TABLE,
         new DBAccessor.DBColumnInfo(REQUEST_DISPLAY_STATUS_COLUMN, String.class, 255, HostRoleStatus.PENDING, false));
   }
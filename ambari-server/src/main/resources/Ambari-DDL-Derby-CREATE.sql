@@ -338,6 +338,7 @@ CREATE TABLE stage (
   request_context VARCHAR(255),
   command_params BLOB,
   host_params BLOB,
+  command_fragments BLOB,
   command_execution_type VARCHAR(32) NOT NULL DEFAULT 'STAGE',
   status VARCHAR(255) NOT NULL DEFAULT 'PENDING',
   display_status VARCHAR(255) NOT NULL DEFAULT 'PENDING',
@@ -358,6 +358,7 @@ CREATE TABLE stage (
   request_context VARCHAR(255),
   command_params LONGBLOB,
   host_params LONGBLOB,
+  command_fragments LONGBLOB,
   command_execution_type VARCHAR(32) NOT NULL DEFAULT 'STAGE',
   status VARCHAR(255) NOT NULL DEFAULT 'PENDING',
   display_status VARCHAR(255) NOT NULL DEFAULT 'PENDING',
@@ -338,6 +338,7 @@ CREATE TABLE stage (
   request_context VARCHAR2(255) NULL,
   command_params BLOB,
   host_params BLOB,
+  command_fragments BLOB,
   command_execution_type VARCHAR2(32) DEFAULT 'STAGE' NOT NULL,
   status VARCHAR(255) DEFAULT 'PENDING' NOT NULL,
   display_status VARCHAR(255) DEFAULT 'PENDING' NOT NULL,
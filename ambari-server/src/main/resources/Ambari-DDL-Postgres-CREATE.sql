@@ -337,6 +337,7 @@ CREATE TABLE stage (
   request_context VARCHAR(255),
   command_params BYTEA,
   host_params BYTEA,
+  command_fragments BYTEA,
   command_execution_type VARCHAR(32) DEFAULT 'STAGE' NOT NULL,
   status VARCHAR(255) NOT NULL DEFAULT 'PENDING',
   display_status VARCHAR(255) NOT NULL DEFAULT 'PENDING',
@@ -335,6 +335,7 @@ CREATE TABLE stage (
   request_context VARCHAR(255),
   command_params IMAGE,
   host_params IMAGE,
+  command_fragments IMAGE,
   command_execution_type VARCHAR(32) NOT NULL DEFAULT 'STAGE',
   status VARCHAR(255) NOT NULL DEFAULT 'PENDING',
   display_status VARCHAR(255) NOT NULL DEFAULT 'PENDING',
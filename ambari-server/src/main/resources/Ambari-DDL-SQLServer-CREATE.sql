@@ -340,6 +340,7 @@ CREATE TABLE stage (
   request_context VARCHAR(255),
   command_params VARBINARY(MAX),
   host_params VARBINARY(MAX),
+  command_fragments VARBINARY(MAX),
   command_execution_type VARCHAR(32) NOT NULL DEFAULT 'STAGE',
   status VARCHAR(255) NOT NULL DEFAULT 'PENDING',
   display_status VARCHAR(255) NOT NULL DEFAULT 'PENDING',
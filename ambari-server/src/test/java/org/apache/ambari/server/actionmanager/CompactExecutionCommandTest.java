@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.actionmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.ambari.server.agent.ExecutionCommand;
+import org.junit.Test;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+/**
+ * Tests {@link CompactExecutionCommand} and {@link ExecutionCommandFragments}.
+ */
+public class CompactExecutionCommandTest {
+
+  private final Gson gson = new Gson();
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    ExecutionCommand command = createCommand("c6401.ambari.apache.org", 1L);
+    ExecutionCommandFragments fragments = new ExecutionCommandFragments();
+
+    byte[] bytes = CompactExecutionCommand.encode(gson.toJsonTree(command).getAsJsonObject(), fragments);
+    assertTrue(CompactExecutionCommand.isCompact(bytes));
+
+    // the fragments are read back from the stage
+    fragments = ExecutionCommandFragments.fromBytes(fragments.toBytes());
+
+    JsonObject json = CompactExecutionCommand.decode(bytes, fragments);
+    assertEquals(gson.toJsonTree(command), json);
+
+    ExecutionCommand decoded = gson.fromJson(json, ExecutionCommand.class);
+    assertEquals("c6401.ambari.apache.org", decoded.getHostname());
+    assertEquals("v1", decoded.getConfigurations().get("hdfs-site").get("dfs.replication"));
+  }
+
+  @Test
+  public void testFragmentsAreShared() throws Exception {
+    ExecutionCommandFragments fragments = new ExecutionCommandFragments();
+
+    int largestCommand = 0;
+    for (int i = 0; i < 100; i++) {
+      ExecutionCommand command = createCommand("c64" + i + ".ambari.apache.org", i);
+      byte[] bytes = CompactExecutionCommand.encode(gson.toJsonTree(command).getAsJsonObject(), fragments);
+      largestCommand = Math.max(largestCommand, bytes.length);
+    }
+
+    // configurations, tags and cluster host info are the same for all of the
+    // commands; the command params differ
+    assertEquals(103, fragments.size());
+
+    String json = gson.toJson(createCommand("c6401.ambari.apache.org", 1L));
+    assertTrue(largestCommand * 10 < json.length());
+  }
+
+  @Test
+  public void testJsonIsNotCompact() throws Exception {
+    String json = gson.toJson(createCommand("c6401.ambari.apache.org", 1L));
+    assertFalse(CompactExecutionCommand.isCompact(json.getBytes()));
+    assertFalse(CompactExecutionCommand.isCompact(null));
+  }
+
+  @Test
+  public void testEmptyFragments() throws Exception {
+    assertTrue(ExecutionCommandFragments.fromBytes(null).isEmpty());
+  }
+
+  private ExecutionCommand createCommand(String hostname, long taskId) {
+    ExecutionCommand command = new ExecutionCommand();
+    command.setHostname(hostname);
+    command.setTaskId(taskId);
+    command.setClusterName("c1");
+    command.setRole("DATANODE");
+    command.setServiceName("HDFS");
+
+    Map<String, Map<String, String>> configurations = new TreeMap<>();
+    Map<String, String> hdfsSite = new TreeMap<>();
+    for (int i = 0; i < 200; i++) {
+      hdfsSite.put("dfs.property." + i, "value-" + i);
+    }
+    hdfsSite.put("dfs.replication", "v1");
+    configurations.put("hdfs-site", hdfsSite);
+    command.setConfigurations(configurations);
+
+    Map<String, Map<String, String>> configurationTags = new TreeMap<>();
+    Map<String, String> tag = new HashMap<>();
+    tag.put("tag", "version1");
+    configurationTags.put("hdfs-site", tag);
+    command.setConfigurationTags(configurationTags);
+
+    Map<String, String> commandParams = new HashMap<>();
+    commandParams.put("command_timeout", String.valueOf(600 + taskId));
+    command.setCommandParams(commandParams);
+
+    return command;
+  }
+}
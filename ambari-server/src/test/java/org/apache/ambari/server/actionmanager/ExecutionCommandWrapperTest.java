@@ -38,6 +38,7 @@ import org.apache.ambari.server.orm.GuiceJpaInitializer;
 import org.apache.ambari.server.orm.InMemoryDefaultTestModule;
 import org.apache.ambari.server.orm.OrmTestHelper;
 import org.apache.ambari.server.orm.entities.RepositoryVersionEntity;
+import org.apache.ambari.server.orm.entities.StageEntityPK;
 import org.apache.ambari.server.state.Cluster;
 import org.apache.ambari.server.state.Clusters;
 import org.apache.ambari.server.state.ConfigFactory;
@@ -52,6 +53,7 @@ import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.google.gson.JsonParser;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 
@@ -401,6 +403,45 @@ public class ExecutionCommandWrapperTest {
     Assert.assertEquals("0.1-0000", commandParams.get(KeyNames.VERSION));
   }
 
+  /**
+   * Tests that the JSON of a compact command is restored once, and that
+   * hashing the wrapper doesn't restore it again.
+   */
+  @Test
+  public void testCompactCommandIsInflatedOnce() throws Exception {
+    ExecutionCommand executionCommand = new ExecutionCommand();
+    executionCommand.setClusterName(CLUSTER1);
+    executionCommand.setTaskId(1);
+    executionCommand.setRequestAndStage(99, 99);
+    executionCommand.setHostname(HOST1);
+    executionCommand.setRole("NAMENODE");
+    executionCommand.setRoleCommand(RoleCommand.START);
+    executionCommand.setServiceName("HDFS");
+    executionCommand.setCommandType(AgentCommandType.EXECUTION_COMMAND);
+    executionCommand.setCommandParams(Collections.singletonMap("command_timeout", "600"));
+
+    ExecutionCommandFragments fragments = new ExecutionCommandFragments();
+    String json = StageUtils.getGson().toJson(executionCommand, ExecutionCommand.class);
+    byte[] compactCommand = CompactExecutionCommand.encode(
+        new JsonParser().parse(json).getAsJsonObject(), fragments);
+    injector.getInstance(ExecutionCommandFragmentsCache.class).put(99, 99, fragments);
+
+    StageEntityPK stage = new StageEntityPK();
+    stage.setRequestId(99L);
+    stage.setStageId(99L);
+    ExecutionCommandWrapperFactory factory = injector.getInstance(ExecutionCommandWrapperFactory.class);
+    ExecutionCommandWrapper compactWrapper = factory.createFromCompactCommand(compactCommand, stage);
+    ExecutionCommandWrapper jsonWrapper = factory.createFromJson(compactWrapper.getJson());
+
+    Assert.assertSame(compactWrapper.getJson(), compactWrapper.getJson());
+    Assert.assertEquals(jsonWrapper, compactWrapper);
+    Assert.assertEquals(jsonWrapper.hashCode(), compactWrapper.hashCode());
+
+    Set<ExecutionCommandWrapper> wrappers = new HashSet<>();
+    wrappers.add(compactWrapper);
+    Assert.assertTrue(wrappers.contains(jsonWrapper));
+  }
+
   @AfterClass
   public static void tearDown() throws AmbariException, SQLException {
     H2DatabaseCleaner.clearDatabaseAndStopPersistenceService(injector);
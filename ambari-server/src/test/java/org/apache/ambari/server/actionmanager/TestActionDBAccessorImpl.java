@@ -26,6 +26,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NamedQuery;
@@ -56,6 +57,7 @@ import org.apache.ambari.server.utils.StageUtils;
 import org.easymock.EasyMock;
 import org.junit.After;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
 import org.slf4j.Logger;
@@ -300,6 +302,59 @@ public class TestActionDBAccessorImpl {
     }
   }
 
+  @Test
+  public void testPersistActionsInChunks() throws AmbariException {
+    // fewer commands per chunk than commands in the request
+    injector.getInstance(Configuration.class).setProperty(
+        Configuration.EXECUTION_COMMAND_PERSISTENCE_CHUNK_SIZE.getKey(), "7");
+
+    List<String> hostNames = addHosts(25);
+    db.persistActions(createRequest(requestId, 2, hostNames));
+
+    List<Stage> stages = db.getAllStages(requestId);
+    assertEquals(2, stages.size());
+    for (Stage stage : stages) {
+      List<HostRoleCommand> commands = stage.getOrderedHostRoleCommands();
+      assertEquals(hostNames.size(), commands.size());
+
+      for (HostRoleCommand command : commands) {
+        assertTrue(command.getTaskId() > 0);
+        assertEquals("output-" + command.getTaskId() + ".txt", command.getOutputLog());
+        assertNotNull(executionCommandDAO.findByPK(command.getTaskId()));
+        assertEquals(command.getHostName(),
+            command.getExecutionCommandWrapper().getExecutionCommand().getHostname());
+      }
+    }
+  }
+
+  /**
+   * Measures how long it takes to persist a request with a single command per
+   * host for 100, 1,000 and 5,000 hosts. This is not run as part of the build;
+   * run it with
+   * {@code mvn test -Dtest=TestActionDBAccessorImpl#testPersistActionsBenchmark -Dambari.benchmark=true}.
+   */
+  @Test
+  public void testPersistActionsBenchmark() throws AmbariException {
+    Assume.assumeTrue(Boolean.getBoolean("ambari.benchmark"));
+
+    int[] hostCounts = { 100, 1000, 5000 };
+    List<String> hostNames = addHosts(hostCounts[hostCounts.length - 1]);
+
+    // warm up
+    db.persistActions(createRequest(requestId, 1, hostNames.subList(0, 100)));
+
+    for (int i = 0; i < hostCounts.length; i++) {
+      Request request = createRequest(requestId + 1 + i, 1, hostNames.subList(0, hostCounts[i]));
+
+      long start = System.nanoTime();
+      db.persistActions(request);
+      long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+      log.info("Persisted a request for {} hosts in {}ms", hostCounts[i], duration);
+      assertEquals(hostCounts[i], db.getRequestTasks(requestId + 1 + i).size());
+    }
+  }
+
   @Test
   public void testHostRoleScheduled() throws InterruptedException, AmbariException {
     populateActionDB(db, hostName, requestId, stageId, false);
@@ -779,6 +834,36 @@ public class TestActionDBAccessorImpl {
     db.persistActions(request);
   }
 
+  private List<String> addHosts(int count) throws AmbariException {
+    List<String> hostNames = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      String hostName = "c64-" + i;
+      clusters.addHost(hostName);
+      hostNames.add(hostName);
+    }
+
+    return hostNames;
+  }
+
+  private Request createRequest(long requestId, int stageCount, List<String> hostNames) {
+    List<Stage> stages = new ArrayList<>();
+    for (int i = 0; i < stageCount; i++) {
+      Stage stage = stageFactory.createNew(requestId, "/a/b", "cluster1", 1L, "action db accessor test",
+          "commandParamsStage", "hostParamsStage");
+      stage.setStageId(stageId + i);
+
+      for (String hostName : hostNames) {
+        stage.addHostRoleExecutionCommand(hostName, Role.DATANODE, RoleCommand.START,
+            new ServiceComponentHostStartEvent(Role.DATANODE.toString(), hostName, System.currentTimeMillis()),
+            "cluster1", "HDFS", false, false);
+      }
+
+      stages.add(stage);
+    }
+
+    return new Request(stages, "", clusters);
+  }
+
   private Stage createStubStage(String hostname, long requestId, long stageId, boolean retryAllowed) {
     Stage s = stageFactory.createNew(requestId, "/a/b", "cluster1", 1L, "action db accessor test",
       "commandParamsStage", "hostParamsStage");
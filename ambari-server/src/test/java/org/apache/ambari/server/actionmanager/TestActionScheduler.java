@@ -54,6 +54,7 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -1371,6 +1372,117 @@ public class TestActionScheduler {
     Assert.assertFalse(stages.get(0).getExecutionCommands(hostname1).get(0).getExecutionCommand().
             getConfigurations().containsKey("javax.jdo.option.ConnectionPassword"));
   }
+  /**
+   * Verifies that the stages of concurrent requests are processed on the
+   * request lanes in the same iteration, while the stages of each request are
+   * still processed one after the other.
+   */
+  @Test
+  public void testRequestLanesKeepStageOrderPerRequest() throws Exception {
+    ActionQueue aq = new ActionQueue();
+    Clusters fsm = mock(Clusters.class);
+    Cluster oneClusterMock = mock(Cluster.class);
+    Service serviceObj = mock(Service.class);
+    ServiceComponent scomp = mock(ServiceComponent.class);
+    ServiceComponentHost sch = mock(ServiceComponentHost.class);
+    UnitOfWork unitOfWork = mock(UnitOfWork.class);
+    when(fsm.getCluster(anyString())).thenReturn(oneClusterMock);
+    when(oneClusterMock.getService(anyString())).thenReturn(serviceObj);
+    when(serviceObj.getServiceComponent(anyString())).thenReturn(scomp);
+    when(scomp.getServiceComponentHost(anyString())).thenReturn(sch);
+    when(serviceObj.getCluster()).thenReturn(oneClusterMock);
+
+    String hostname1 = "ahost.ambari.apache.org";
+    String hostname2 = "bhost.ambari.apache.org";
+    HashMap<String, ServiceComponentHost> hosts = new HashMap<>();
+    hosts.put(hostname1, sch);
+    hosts.put(hostname2, sch);
+    when(scomp.getServiceComponentHosts()).thenReturn(hosts);
+
+    // two requests of two stages each, every request on its own host
+    Stage request1Stage1 = getStageWithSingleTask(hostname1, "cluster1", Role.DATANODE,
+        RoleCommand.START, Service.Type.HDFS, 1, 1, 1);
+    Stage request1Stage2 = getStageWithSingleTask(hostname1, "cluster1", Role.GANGLIA_MONITOR,
+        RoleCommand.START, Service.Type.GANGLIA, 2, 2, 1);
+    Stage request2Stage1 = getStageWithSingleTask(hostname2, "cluster1", Role.DATANODE,
+        RoleCommand.START, Service.Type.HDFS, 3, 1, 2);
+    Stage request2Stage2 = getStageWithSingleTask(hostname2, "cluster1", Role.GANGLIA_MONITOR,
+        RoleCommand.START, Service.Type.GANGLIA, 4, 2, 2);
+
+    final Map<String, Stage> stagesByActionId = new HashMap<>();
+    for (Stage stage : Arrays.asList(request1Stage1, request1Stage2, request2Stage1, request2Stage2)) {
+      stagesByActionId.put(stage.getActionId(), stage);
+    }
+
+    ActionDBAccessor db = mock(ActionDBAccessor.class);
+    HostRoleCommandDAO hostRoleCommandDAOMock = mock(HostRoleCommandDAO.class);
+    Mockito.doNothing().when(hostRoleCommandDAOMock).publishTaskCreateEvent(anyListOf(HostRoleCommand.class));
+
+    RequestEntity request = mock(RequestEntity.class);
+    when(request.isExclusive()).thenReturn(false);
+    when(request.getClusterHostInfo()).thenReturn(CLUSTER_HOST_INFO);
+    when(db.getRequestEntity(anyLong())).thenReturn(request);
+
+    // the lanes load their stage again in their own unit of work
+    final Set<String> laneThreads = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    when(db.getStage(anyString())).thenAnswer(new Answer<Stage>() {
+      @Override
+      public Stage answer(InvocationOnMock invocation) throws Throwable {
+        laneThreads.add(Thread.currentThread().getName());
+        return stagesByActionId.get(invocation.getArguments()[0]);
+      }
+    });
+
+    // the second stages are only in progress once the first ones are done
+    when(db.getCommandsInProgressCount()).thenReturn(2);
+    when(db.getFirstStageInProgressPerRequest()).thenReturn(
+        Arrays.asList(request1Stage1, request2Stage1),
+        Arrays.asList(request1Stage2, request2Stage2));
+
+    Provider<EntityManager> entityManagerProvider = mock(Provider.class);
+    when(entityManagerProvider.get()).thenReturn(mock(EntityManager.class));
+
+    Properties properties = new Properties();
+    properties.put(Configuration.PARALLEL_STAGE_EXECUTION_THREADS.getKey(), "2");
+    Configuration conf = new Configuration(properties);
+    ActionScheduler scheduler = spy(new ActionScheduler(100, 50, db, aq, fsm, 3,
+        new HostsMap((String) null), unitOfWork, null, conf, entityManagerProvider,
+        hostRoleCommandDAOMock, (HostRoleCommandFactory)null));
+
+    doReturn(false).when(scheduler).wasAgentRestartedDuringOperation(any(Host.class), any(Stage.class), anyString());
+
+    scheduler.startRequestLanes();
+    scheduler.doWork();
+
+    Assert.assertEquals(HostRoleStatus.QUEUED, request1Stage1.getHostRoleStatus(hostname1, "DATANODE"));
+    Assert.assertEquals(HostRoleStatus.QUEUED, request2Stage1.getHostRoleStatus(hostname2, "DATANODE"));
+    Assert.assertEquals(HostRoleStatus.PENDING, request1Stage2.getHostRoleStatus(hostname1, "GANGLIA_MONITOR"));
+    Assert.assertEquals(HostRoleStatus.PENDING, request2Stage2.getHostRoleStatus(hostname2, "GANGLIA_MONITOR"));
+
+    scheduler.doWork();
+
+    Assert.assertEquals(HostRoleStatus.QUEUED, request1Stage2.getHostRoleStatus(hostname1, "GANGLIA_MONITOR"));
+    Assert.assertEquals(HostRoleStatus.QUEUED, request2Stage2.getHostRoleStatus(hostname2, "GANGLIA_MONITOR"));
+
+    // both requests were processed on the lanes
+    for (String thread : laneThreads) {
+      Assert.assertTrue(thread, thread.startsWith("ambari-action-scheduler-lane-"));
+    }
+    Assert.assertFalse(laneThreads.isEmpty());
+
+    // the commands of each request reached its host in stage order
+    assertEquals(Arrays.asList(1L, 2L), getQueuedTaskIds(aq, hostname1));
+    assertEquals(Arrays.asList(3L, 4L), getQueuedTaskIds(aq, hostname2));
+  }
+
+  private List<Long> getQueuedTaskIds(ActionQueue aq, String hostname) {
+    List<Long> taskIds = new ArrayList<>();
+    for (AgentCommand command : aq.dequeueAll(hostname)) {
+      taskIds.add(((ExecutionCommand) command).getTaskId());
+    }
+    return taskIds;
+  }
+
   /**
    * Verifies that ActionScheduler allows to execute background tasks in parallel
    */
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ambari.server.agent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link ComponentStatusTracker}.
+ */
+public class ComponentStatusTrackerTest {
+
+  private static final String HOST = "c6401.ambari.apache.org";
+
+  @Test
+  public void testHashMatchesAgent() throws Exception {
+    Map<String, String> statuses = new HashMap<>();
+    statuses.put("cc/HDFS/NAMENODE", "STARTED");
+    statuses.put("cc/HDFS/DATANODE", "STARTED");
+
+    // the value computed by Heartbeat.py for the same statuses
+    assertEquals("a335dd1b5bae35b236edd09b2fd6a6a3", ComponentStatusTracker.computeHash(statuses));
+  }
+
+  @Test
+  public void testHeartbeatWithoutHashIsAccepted() throws Exception {
+    ComponentStatusTracker tracker = new ComponentStatusTracker();
+    HeartBeat heartbeat = new HeartBeat();
+    heartbeat.setHostname(HOST);
+    heartbeat.setComponentStatus(Arrays.asList(createStatus("NAMENODE", "STARTED")));
+
+    assertTrue(tracker.apply(heartbeat));
+  }
+
+  @Test
+  public void testDeltas() throws Exception {
+    ComponentStatusTracker tracker = new ComponentStatusTracker();
+    Map<String, String> agentStatuses = new HashMap<>();
+
+    // full report
+    assertTrue(tracker.apply(createHeartbeat(agentStatuses, false, 1,
+        createStatus("NAMENODE", "STARTED"), createStatus("DATANODE", "STARTED"))));
+
+    // only the changed component
+    assertTrue(tracker.apply(createHeartbeat(agentStatuses, true, 2, createStatus("DATANODE", "INSTALLED"))));
+
+    // nothing changed
+    assertTrue(tracker.apply(createHeartbeat(agentStatuses, true, 3)));
+  }
+
+  @Test
+  public void testLostDeltaRequestsResync() throws Exception {
+    ComponentStatusTracker tracker = new ComponentStatusTracker();
+    Map<String, String> agentStatuses = new HashMap<>();
+
+    assertTrue(tracker.apply(createHeartbeat(agentStatuses, false, 1,
+        createStatus("NAMENODE", "STARTED"), createStatus("DATANODE", "STARTED"))));
+
+    // delta 2 never reached the server
+    createHeartbeat(agentStatuses, true, 2, createStatus("DATANODE", "INSTALLED"));
+    assertFalse(tracker.apply(createHeartbeat(agentStatuses, true, 3)));
+
+    // deltas are refused until a full report is received
+    assertFalse(tracker.apply(createHeartbeat(agentStatuses, true, 4)));
+    assertTrue(tracker.apply(createHeartbeat(agentStatuses, false, 5,
+        createStatus("NAMENODE", "STARTED"), createStatus("DATANODE", "INSTALLED"))));
+  }
+
+  @Test
+  public void testHashMismatchRequestsResync() throws Exception {
+    ComponentStatusTracker tracker = new ComponentStatusTracker();
+
+    HeartBeat heartbeat = new HeartBeat();
+    heartbeat.setHostname(HOST);
+    heartbeat.setComponentStatusDelta(false);
+    heartbeat.setComponentStatusSequence(1);
+    heartbeat.setComponentStatus(Arrays.asList(createStatus("NAMENODE", "STARTED")));
+    heartbeat.setComponentStatusHash("invalid");
+
+    assertFalse(tracker.apply(heartbeat));
+  }
+
+  @Test
+  public void testResetAfterRegistration() throws Exception {
+    ComponentStatusTracker tracker = new ComponentStatusTracker();
+    Map<String, String> agentStatuses = new HashMap<>();
+
+    assertTrue(tracker.apply(createHeartbeat(agentStatuses, false, 1, createStatus("NAMENODE", "STARTED"))));
+    tracker.reset(HOST);
+    assertFalse(tracker.apply(createHeartbeat(agentStatuses, true, 2)));
+  }
+
+  /**
+   * Creates a heartbeat the way the agent does, updating the statuses known by
+   * the agent and hashing all of them.
+   */
+  private HeartBeat createHeartbeat(Map<String, String> agentStatuses, boolean delta, long sequence,
+      ComponentStatus... statuses) {
+    List<ComponentStatus> componentStatuses = new ArrayList<>(Arrays.asList(statuses));
+    for (ComponentStatus status : componentStatuses) {
+      agentStatuses.put(status.getClusterName() + "/" + status.getServiceName() + "/" + status.getComponentName(),
+          status.getStatus());
+    }
+
+    HeartBeat heartbeat = new HeartBeat();
+    heartbeat.setHostname(HOST);
+    heartbeat.setComponentStatus(componentStatuses);
+    heartbeat.setComponentStatusDelta(delta);
+    heartbeat.setComponentStatusSequence(sequence);
+    heartbeat.setComponentStatusHash(ComponentStatusTracker.computeHash(agentStatuses));
+    return heartbeat;
+  }
+
+  private ComponentStatus createStatus(String componentName, String status) {
+    ComponentStatus componentStatus = new ComponentStatus();
+    componentStatus.setClusterName("cc");
+    componentStatus.setServiceName("HDFS");
+    componentStatus.setComponentName(componentName);
+    componentStatus.setStatus(status);
+    return componentStatus;
+  }
+}
@@ -30,18 +30,29 @@ import static org.apache.ambari.server.agent.DummyHeartbeatConstants.HDFS;
 import static org.apache.ambari.server.agent.DummyHeartbeatConstants.HDFS_CLIENT;
 import static org.apache.ambari.server.agent.DummyHeartbeatConstants.NAMENODE;
 import static org.apache.ambari.server.agent.DummyHeartbeatConstants.SECONDARY_NAMENODE;
+import static org.easymock.EasyMock.anyString;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
 import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArguments;
 import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.ambari.server.AmbariException;
 import org.apache.ambari.server.H2DatabaseCleaner;
@@ -84,6 +95,7 @@ import org.apache.ambari.server.utils.CommandUtils;
 import org.apache.ambari.server.utils.EventBusSynchronizer;
 import org.apache.ambari.server.utils.StageUtils;
 import org.easymock.EasyMock;
+import org.easymock.IAnswer;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -1296,6 +1308,235 @@ public class HeartbeatProcessorTest {
     assertEquals(State.STOPPING, componentState2);
   }
 
+  @Test
+  public void testHeartbeatsQueuedPerHost() throws Exception {
+    ActionManager am = actionManagerTestHelper.getMockActionManager();
+    replay(am);
+
+    HeartbeatProcessor heartbeatProcessor = heartbeatTestHelper.getHeartBeatHandler(am, new ActionQueue())
+        .getHeartbeatProcessor();
+    assertEquals(0, heartbeatProcessor.getQueueSize());
+
+    for (String hostname : new String[] { DummyHostname1, "host2", DummyHostname1 }) {
+      HeartBeat hb = new HeartBeat();
+      hb.setHostname(hostname);
+      heartbeatProcessor.addHeartbeat(hb);
+    }
+
+    assertEquals(3, heartbeatProcessor.getQueueSize());
+  }
+
+  @Test
+  public void testCommandReportBatch() throws Exception {
+    HeartbeatProcessor.CommandReportBatch batch = new HeartbeatProcessor.CommandReportBatch();
+    assertTrue(batch.isEmpty());
+
+    CommandReport cr = new CommandReport();
+    cr.setTaskId(1);
+    HostRoleCommand command = hostRoleCommandFactory.create(DummyHostname1, Role.DATANODE, null, null);
+
+    batch.add(DummyHostname1, Collections.singletonList(cr), Collections.singletonMap(1L, command));
+    batch.add("host2", Collections.<CommandReport>emptyList(), Collections.<Long, HostRoleCommand>emptyMap());
+
+    assertFalse(batch.isEmpty());
+    assertEquals(2, batch.size());
+    assertTrue(batch.containsHost(DummyHostname1));
+    assertEquals("host2", batch.getLastHostname());
+
+    batch.clear();
+    assertTrue(batch.isEmpty());
+    assertFalse(batch.containsHost(DummyHostname1));
+  }
+
+  @Test
+  public void testCommandReportsFlushedInBatches() throws Exception {
+    config.setProperty(Configuration.AGENT_HEARTBEAT_PROCESSOR_LANES.getKey(), "1");
+    config.setProperty(Configuration.AGENT_HEARTBEAT_PROCESSOR_BATCH_SIZE.getKey(), "3");
+
+    final List<List<Long>> flushes = new ArrayList<>();
+    ActionManager am = createRecordingActionManager(flushes);
+    replay(am);
+
+    HeartbeatProcessor heartbeatProcessor = createReportingHeartbeatProcessor(am,
+        new ConcurrentHashMap<String, List<Long>>(), new ConcurrentHashMap<String, Set<String>>());
+    assertEquals(1, heartbeatProcessor.getLaneCount());
+
+    // the second heartbeat of h1 must not share the batch of the first one
+    String[] hostnames = { "h1", "h2", "h1", "h3", "h4", "h5", "h6" };
+    for (int i = 0; i < hostnames.length; i++) {
+      heartbeatProcessor.addHeartbeat(createHeartbeat(hostnames[i], i));
+    }
+
+    heartbeatProcessor.processLane(0);
+
+    assertEquals(0, heartbeatProcessor.getQueueSize());
+    assertEquals(3, flushes.size());
+    assertEquals(Arrays.asList(0L, 1L), flushes.get(0));
+    assertEquals(Arrays.asList(2L, 3L, 4L), flushes.get(1));
+    assertEquals(Arrays.asList(5L, 6L), flushes.get(2));
+    verify(am);
+  }
+
+  @Test
+  public void testFailedBatchRetriedPerHost() throws Exception {
+    config.setProperty(Configuration.AGENT_HEARTBEAT_PROCESSOR_LANES.getKey(), "1");
+    config.setProperty(Configuration.AGENT_HEARTBEAT_PROCESSOR_BATCH_SIZE.getKey(), "3");
+
+    final List<String> persisted = new ArrayList<>();
+    ActionManager am = createMock(ActionManager.class);
+    am.processTaskResponse(anyString(), EasyMock.<List<CommandReport>>anyObject(),
+        EasyMock.<Map<Long, HostRoleCommand>>anyObject());
+    expectLastCall().andAnswer(new IAnswer<Object>() {
+      @Override
+      public Object answer() throws Throwable {
+        List<?> reports = (List<?>) getCurrentArguments()[1];
+        for (Object report : reports) {
+          // the report of h2 can never be written
+          if (((CommandReport) report).getTaskId() == 1L) {
+            throw new RuntimeException("unable to persist task 1");
+          }
+        }
+        persisted.add(getCurrentArguments()[0] + ":" + reports.size());
+        return null;
+      }
+    }).anyTimes();
+    replay(am);
+
+    HeartbeatProcessor heartbeatProcessor = createReportingHeartbeatProcessor(am,
+        new ConcurrentHashMap<String, List<Long>>(), new ConcurrentHashMap<String, Set<String>>());
+
+    String[] hostnames = { "h1", "h2", "h3" };
+    for (int i = 0; i < hostnames.length; i++) {
+      heartbeatProcessor.addHeartbeat(createHeartbeat(hostnames[i], i));
+    }
+
+    heartbeatProcessor.processLane(0);
+
+    // the reports of h1 and h3 survive the failure of h2
+    assertEquals(Arrays.asList("h1:1", "h3:1"), persisted);
+    verify(am);
+  }
+
+  @Test
+  public void testHeartbeatsOfHostProcessedInOrderAcrossLanes() throws Exception {
+    config.setProperty(Configuration.AGENT_HEARTBEAT_PROCESSOR_LANES.getKey(), "4");
+    config.setProperty(Configuration.AGENT_HEARTBEAT_PROCESSOR_BATCH_SIZE.getKey(), "5");
+
+    final List<List<Long>> flushes = Collections.synchronizedList(new ArrayList<List<Long>>());
+    ActionManager am = createRecordingActionManager(flushes);
+    replay(am);
+
+    ConcurrentMap<String, List<Long>> processed = new ConcurrentHashMap<>();
+    ConcurrentMap<String, Set<String>> threads = new ConcurrentHashMap<>();
+    final HeartbeatProcessor heartbeatProcessor = createReportingHeartbeatProcessor(am, processed, threads);
+    assertEquals(4, heartbeatProcessor.getLaneCount());
+
+    int hostCount = 16;
+    int heartbeatsPerHost = 50;
+    for (int responseId = 0; responseId < heartbeatsPerHost; responseId++) {
+      for (int host = 0; host < hostCount; host++) {
+        heartbeatProcessor.addHeartbeat(createHeartbeat("host" + host, responseId));
+      }
+    }
+
+    List<Thread> lanes = new ArrayList<>();
+    for (int i = 0; i < heartbeatProcessor.getLaneCount(); i++) {
+      final int lane = i;
+      Thread thread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          heartbeatProcessor.processLane(lane);
+        }
+      }, "lane-" + lane);
+      lanes.add(thread);
+      thread.start();
+    }
+    for (Thread thread : lanes) {
+      thread.join(TimeUnit.SECONDS.toMillis(30));
+      assertFalse(thread.isAlive());
+    }
+
+    assertEquals(0, heartbeatProcessor.getQueueSize());
+    assertEquals(hostCount, processed.size());
+    for (int host = 0; host < hostCount; host++) {
+      String hostname = "host" + host;
+      assertEquals(1, threads.get(hostname).size());
+
+      List<Long> responseIds = processed.get(hostname);
+      assertEquals(heartbeatsPerHost, responseIds.size());
+      for (int i = 0; i < heartbeatsPerHost; i++) {
+        assertEquals(Long.valueOf(i), responseIds.get(i));
+      }
+    }
+
+    // every report was persisted exactly once
+    int reportCount = 0;
+    for (List<Long> flush : flushes) {
+      reportCount += flush.size();
+    }
+    assertEquals(hostCount * heartbeatsPerHost, reportCount);
+    verify(am);
+  }
+
+  /**
+   * Creates a heartbeat of the host carrying a single command report, whose
+   * task id is the response id of the heartbeat.
+   */
+  private HeartBeat createHeartbeat(String hostname, long responseId) {
+    CommandReport report = new CommandReport();
+    report.setTaskId(responseId);
+
+    HeartBeat hb = new HeartBeat();
+    hb.setHostname(hostname);
+    hb.setResponseId(responseId);
+    hb.setReports(Collections.singletonList(report));
+    return hb;
+  }
+
+  /**
+   * Creates an action manager recording the task ids of the command reports
+   * of every flushed batch.
+   */
+  private ActionManager createRecordingActionManager(final List<List<Long>> flushes) {
+    ActionManager am = createMock(ActionManager.class);
+    am.processTaskResponse(anyString(), EasyMock.<List<CommandReport>>anyObject(),
+        EasyMock.<Map<Long, HostRoleCommand>>anyObject());
+    expectLastCall().andAnswer(new IAnswer<Object>() {
+      @Override
+      public Object answer() throws Throwable {
+        // the batch is cleared once flushed, record the task ids right away
+        List<Long> taskIds = new ArrayList<>();
+        for (Object report : (List<?>) getCurrentArguments()[1]) {
+          taskIds.add(((CommandReport) report).getTaskId());
+        }
+        flushes.add(taskIds);
+        return null;
+      }
+    }).anyTimes();
+    return am;
+  }
+
+  /**
+   * Creates a heartbeat processor which only adds the command reports of the
+   * heartbeats to the batch, recording the response ids of every host and the
+   * threads processing them.
+   */
+  private HeartbeatProcessor createReportingHeartbeatProcessor(ActionManager am,
+      final ConcurrentMap<String, List<Long>> processed, final ConcurrentMap<String, Set<String>> threads) {
+    return new HeartbeatProcessor(clusters, am, createNiceMock(HeartbeatMonitor.class), injector) {
+      @Override
+      void processHeartbeat(HeartBeat heartbeat, CommandReportBatch batch) {
+        String hostname = heartbeat.getHostname();
+        processed.putIfAbsent(hostname, Collections.synchronizedList(new ArrayList<Long>()));
+        processed.get(hostname).add(heartbeat.getResponseId());
+        threads.putIfAbsent(hostname, Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>()));
+        threads.get(hostname).add(Thread.currentThread().getName());
+
+        batch.add(hostname, heartbeat.getReports(), Collections.<Long, HostRoleCommand>emptyMap());
+      }
+    };
+  }
+
 
   /**
    * Adds the service to the cluster using the current cluster version as the
@@ -379,4 +379,40 @@ public class TestActionQueue {
     assertEquals(4, queue.size(c6401));
     assertEquals(3, queue.size(c6402));
   }
+
+  @Test
+  public void testAwaitCommands() throws Exception {
+    final ActionQueue queue = new ActionQueue();
+    final String c6401 = "c6401.ambari.apache.org";
+
+    // nothing is queued, the wait times out
+    long start = System.currentTimeMillis();
+    assertFalse(queue.awaitCommands(c6401, 100));
+    assertTrue(System.currentTimeMillis() - start >= 100);
+
+    // a queued command is returned immediately
+    queue.enqueue(c6401, EasyMock.createMockBuilder(StatusCommand.class).createNiceMock());
+    assertTrue(queue.awaitCommands(c6401, 10000));
+    queue.dequeueAll(c6401);
+
+    // a command queued while waiting wakes up the waiter
+    Thread enqueuer = new Thread() {
+      @Override
+      public void run() {
+        try {
+          Thread.sleep(100);
+        } catch (InterruptedException e) {
+          return;
+        }
+        queue.enqueue(c6401, EasyMock.createMockBuilder(ExecutionCommand.class).createNiceMock());
+      }
+    };
+
+    start = System.currentTimeMillis();
+    enqueuer.start();
+    assertTrue(queue.awaitCommands(c6401, 10000));
+    assertTrue(System.currentTimeMillis() - start < 10000);
+    enqueuer.join();
+    assertEquals(1, queue.size(c6401));
+  }
 }
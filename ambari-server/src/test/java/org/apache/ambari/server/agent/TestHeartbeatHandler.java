@@ -54,6 +54,11 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.xml.bind.JAXBException;
 
@@ -750,6 +755,104 @@ public class TestHeartbeatHandler {
     return heartBeat;
   }
 
+  @Test
+  public void testHeartbeatWaitsForCommands() throws Exception {
+    long timeout = TimeUnit.SECONDS.toMillis(30);
+    config.setProperty(Configuration.AGENT_COMMAND_WAIT_TIMEOUT.getKey(), String.valueOf(timeout));
+
+    ActionManager am = actionManagerTestHelper.getMockActionManager();
+    replay(am);
+
+    heartbeatTestHelper.getDummyCluster();
+    ActionQueue aq = new ActionQueue();
+    final HeartBeatHandler handler = heartbeatTestHelper.getHeartBeatHandler(am, aq);
+    clusters.getHost(DummyHostname1).setState(HostState.HEALTHY);
+    final HeartBeat hb = constructHeartBeat(DummyHostname1, 0, Status.HEALTHY);
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      long start = System.currentTimeMillis();
+      Future<HeartBeatResponse> future = executor.submit(new Callable<HeartBeatResponse>() {
+        @Override
+        public HeartBeatResponse call() throws Exception {
+          return handler.handleHeartBeat(hb);
+        }
+      });
+
+      // the idle heartbeat is held until a command is queued for its host
+      Thread.sleep(500);
+      assertFalse(future.isDone());
+
+      StatusCommand statusCommand = new StatusCommand();
+      statusCommand.setClusterName(DummyCluster);
+      aq.enqueue(DummyHostname1, statusCommand);
+
+      HeartBeatResponse response = future.get(timeout / 2, TimeUnit.MILLISECONDS);
+      assertTrue(System.currentTimeMillis() - start < timeout);
+      assertEquals(1L, response.getResponseId());
+      assertEquals(1, response.getStatusCommands().size());
+      assertTrue(response.getCommandWaitTime() > 0);
+      assertTrue(response.getCommandWaitTime() < timeout);
+
+      // a resent heartbeat gets the complete response back
+      HeartBeatResponse cachedResponse = handler.handleHeartBeat(hb);
+      assertTrue(cachedResponse == response);
+      assertEquals(1, cachedResponse.getStatusCommands().size());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testHeartbeatResentWhileWaitingForCommands() throws Exception {
+    long timeout = TimeUnit.SECONDS.toMillis(30);
+    config.setProperty(Configuration.AGENT_COMMAND_WAIT_TIMEOUT.getKey(), String.valueOf(timeout));
+
+    ActionManager am = actionManagerTestHelper.getMockActionManager();
+    replay(am);
+
+    heartbeatTestHelper.getDummyCluster();
+    ActionQueue aq = new ActionQueue();
+    final HeartBeatHandler handler = heartbeatTestHelper.getHeartBeatHandler(am, aq);
+    clusters.getHost(DummyHostname1).setState(HostState.HEALTHY);
+    final HeartBeat hb = constructHeartBeat(DummyHostname1, 0, Status.HEALTHY);
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<HeartBeatResponse> future = executor.submit(new Callable<HeartBeatResponse>() {
+        @Override
+        public HeartBeatResponse call() throws Exception {
+          return handler.handleHeartBeat(hb);
+        }
+      });
+
+      Thread.sleep(500);
+      assertFalse(future.isDone());
+
+      // the long-poll was cut off and the agent resends the same heartbeat
+      HeartBeatResponse resentResponse = handler.handleHeartBeat(hb);
+      assertEquals(1L, resentResponse.getResponseId());
+      assertTrue(resentResponse.getStatusCommands().isEmpty());
+
+      StatusCommand statusCommand = new StatusCommand();
+      statusCommand.setClusterName(DummyCluster);
+      aq.enqueue(DummyHostname1, statusCommand);
+
+      // the held heartbeat must leave the command for the agent's next one
+      HeartBeatResponse heldResponse = future.get(timeout / 2, TimeUnit.MILLISECONDS);
+      assertTrue(heldResponse.getStatusCommands().isEmpty());
+      assertEquals(1, aq.size(DummyHostname1));
+
+      HeartBeatResponse nextResponse = handler.handleHeartBeat(
+          constructHeartBeat(DummyHostname1, 1, Status.HEALTHY));
+      assertEquals(2L, nextResponse.getResponseId());
+      assertEquals(1, nextResponse.getStatusCommands().size());
+      assertEquals(0, aq.size(DummyHostname1));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   @Test
   public void testStateCommandsAtRegistration() throws Exception, InvalidStateTransitionException {
     List<StatusCommand> dummyCmds = new ArrayList<>();
@@ -54,6 +54,7 @@ import org.apache.ambari.server.api.resources.SubResourceDefinition;
 import org.apache.ambari.server.api.services.Result;
 import org.apache.ambari.server.api.util.TreeNode;
 import org.apache.ambari.server.api.util.TreeNodeImpl;
+import org.apache.ambari.server.configuration.Configuration;
 import org.apache.ambari.server.controller.internal.ClusterControllerImpl;
 import org.apache.ambari.server.controller.internal.ClusterControllerImplTest;
 import org.apache.ambari.server.controller.internal.PageRequestImpl;
@@ -79,6 +80,8 @@ import org.easymock.EasyMockSupport;
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.google.inject.persist.UnitOfWork;
+
 
 /**
  * QueryImpl unit tests.
@@ -494,6 +497,112 @@ public class QueryImplTest {
     Assert.assertEquals(Resource.Type.StackArtifact, artifactNode.getObject().getType());
   }
 
+  @Test
+  public void testExecute__Stack_instance_specifiedSubResources_parallel() throws Exception {
+    Configuration configuration = createNiceMock(Configuration.class);
+    expect(configuration.getSubResourceQueryThreadPoolSize()).andReturn(4).anyTimes();
+    Configuration sequentialConfiguration = createNiceMock(Configuration.class);
+    UnitOfWork unitOfWork = createNiceMock(UnitOfWork.class);
+    replay(configuration, sequentialConfiguration, unitOfWork);
+
+    QueryImpl.init(sequentialConfiguration, unitOfWork);
+    Result sequentialResult = executeStackSubResourceQuery(
+        new ClusterControllerImpl(new ClusterControllerImplTest.TestProviderModule()));
+
+    QueryImpl.init(configuration, unitOfWork);
+    try {
+      Result result = executeStackSubResourceQuery(
+          new ClusterControllerImpl(new ClusterControllerImplTest.TestProviderModule()));
+
+      TreeNode<Resource> versionsNode = result.getResultTree().getChild("Stack:1").getChild("versions");
+      Assert.assertEquals(3, versionsNode.getChildren().size());
+
+      TreeNode<Resource> versionNode = versionsNode.getChild("StackVersion:1");
+      TreeNode<Resource> opSystemsNode = versionNode.getChild("operating_systems");
+      Assert.assertEquals(3, opSystemsNode.getChildren().size());
+
+      TreeNode<Resource> repositoriesNode = opSystemsNode.getChild("OperatingSystem:1").getChild("repositories");
+      Assert.assertEquals(2, repositoriesNode.getChildren().size());
+      Resource repositoryResource = repositoriesNode.getChild("Repository:1").getObject();
+      Assert.assertEquals("repo1", repositoryResource.getPropertyValue("Repositories/repo_id"));
+
+      TreeNode<Resource> artifactsNode = versionNode.getChild("artifacts");
+      Assert.assertEquals(1, artifactsNode.getChildren().size());
+      Assert.assertEquals(Resource.Type.StackArtifact, artifactsNode.getChild("StackArtifact:1").getObject().getType());
+
+      // the same resources are found as when the sub-resources are queried one after the other
+      Assert.assertEquals(getResultNodes(sequentialResult), getResultNodes(result));
+    } finally {
+      QueryImpl.init(sequentialConfiguration, unitOfWork);
+    }
+  }
+
+  @Test
+  public void testExecute__Stack_instance_specifiedSubResources_parallelFailure() throws Exception {
+    Configuration configuration = createNiceMock(Configuration.class);
+    expect(configuration.getSubResourceQueryThreadPoolSize()).andReturn(4).anyTimes();
+    Configuration sequentialConfiguration = createNiceMock(Configuration.class);
+    UnitOfWork unitOfWork = createNiceMock(UnitOfWork.class);
+    replay(configuration, sequentialConfiguration, unitOfWork);
+
+    // the artifacts are queried in parallel with the operating systems of each version
+    ClusterController clusterController =
+        new ClusterControllerImpl(new ClusterControllerImplTest.TestProviderModule()) {
+          @Override
+          public QueryResponse getResources(Resource.Type type, Request request, Predicate predicate)
+              throws UnsupportedPropertyException, NoSuchResourceException,
+              NoSuchParentResourceException, SystemException {
+            if (type == Resource.Type.StackArtifact) {
+              throw new SystemException("Unable to query the artifacts");
+            }
+            return super.getResources(type, request, predicate);
+          }
+        };
+
+    QueryImpl.init(configuration, unitOfWork);
+    try {
+      executeStackSubResourceQuery(clusterController);
+      fail("Expected the failure of the sub-resource query to be rethrown");
+    } catch (SystemException e) {
+      Assert.assertEquals("Unable to query the artifacts", e.getMessage());
+    } finally {
+      QueryImpl.init(sequentialConfiguration, unitOfWork);
+    }
+  }
+
+  private Result executeStackSubResourceQuery(ClusterController clusterController) throws Exception {
+    ResourceDefinition resourceDefinition = new StackResourceDefinition();
+
+    Map<Resource.Type, String> mapIds = new HashMap<>();
+    mapIds.put(Resource.Type.Stack, "HDP");
+
+    QueryImpl instance = new TestQuery(mapIds, resourceDefinition, clusterController);
+
+    instance.addProperty("versions/*", null);
+    instance.addProperty("versions/operating_systems/repositories/*", null);
+    instance.addProperty("versions/artifacts/*", null);
+
+    return instance.execute();
+  }
+
+  /**
+   * Get the properties of the resources of a result, keyed by the path of their nodes.
+   */
+  private Map<String, Map<String, Map<String, Object>>> getResultNodes(Result result) {
+    Map<String, Map<String, Map<String, Object>>> nodes = new HashMap<>();
+    addResultNodes(result.getResultTree(), "", nodes);
+    return nodes;
+  }
+
+  private void addResultNodes(TreeNode<Resource> node, String parentPath,
+                              Map<String, Map<String, Map<String, Object>>> nodes) {
+    String path = parentPath + "/" + node.getName();
+    nodes.put(path, node.getObject() == null ? null : node.getObject().getPropertiesMap());
+    for (TreeNode<Resource> child : node.getChildren()) {
+      addResultNodes(child, path, nodes);
+    }
+  }
+
   @Test
   public void testExecute_StackVersionPageResourcePredicate()
     throws NoSuchParentResourceException, UnsupportedPropertyException,
@@ -0,0 +1,370 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.ambari.server.api.services;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriInfo;
+
+import org.apache.ambari.server.api.handlers.RequestHandler;
+import org.apache.ambari.server.api.query.render.DefaultRenderer;
+import org.apache.ambari.server.api.resources.ResourceDefinition;
+import org.apache.ambari.server.api.resources.ResourceInstance;
+import org.apache.ambari.server.api.services.serializers.JsonSerializer;
+import org.apache.ambari.server.api.util.TreeNode;
+import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.controller.internal.ResourceImpl;
+import org.apache.ambari.server.controller.spi.Resource;
+import org.apache.ambari.server.controller.utilities.PropertyHelper;
+import org.apache.ambari.server.security.TestAuthenticationFactory;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.sun.jersey.core.util.MultivaluedMapImpl;
+
+/**
+ * ReadRequestCoalescer unit tests.
+ */
+public class ReadRequestCoalescerTest {
+
+  private final AtomicInteger queries = new AtomicInteger();
+
+  @After
+  public void tearDown() {
+    SecurityContextHolder.getContext().setAuthentication(null);
+    ReadRequestCoalescer.init(createConfiguration(0L));
+  }
+
+  @Test
+  public void testCoalescesRequestsInProgress() throws Exception {
+    final ReadRequestCoalescer coalescer = new ReadRequestCoalescer(60000L);
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<Result> first = executor.submit(new Callable<Result>() {
+        @Override
+        public Result call() {
+          return coalescer.process("admin\n/api/v1/clusters", new Callable<Result>() {
+            @Override
+            public Result call() throws Exception {
+              started.countDown();
+              release.await();
+              return createResult(ResultStatus.STATUS.OK);
+            }
+          });
+        }
+      });
+      started.await();
+
+      Future<Result> second = executor.submit(new Callable<Result>() {
+        @Override
+        public Result call() {
+          return coalescer.process("admin\n/api/v1/clusters", new CountingQuery(ResultStatus.STATUS.OK));
+        }
+      });
+      Thread.sleep(100);
+      assertFalse(second.isDone());
+
+      release.countDown();
+      Result result1 = first.get(10, TimeUnit.SECONDS);
+      Result result2 = second.get(10, TimeUnit.SECONDS);
+
+      assertEquals(0, queries.get());
+      TreeNode<Resource> node1 = result1.getResultTree().getChild("Cluster:1");
+      TreeNode<Resource> node2 = result2.getResultTree().getChild("Cluster:1");
+      assertNotSame(node1, node2);
+      assertSame(node1.getObject(), node2.getObject());
+      assertEquals("true", result2.getResultTree().getStringProperty("isCollection"));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testServesSnapshot() throws Exception {
+    ReadRequestCoalescer coalescer = new ReadRequestCoalescer(60000L);
+
+    Result result1 = coalescer.process("admin\n/api/v1/clusters", new CountingQuery(ResultStatus.STATUS.OK));
+    // the tree of a result is released while it is serialized
+    result1.getResultTree().removeChild("Cluster:1");
+    Result result2 = coalescer.process("admin\n/api/v1/clusters", new CountingQuery(ResultStatus.STATUS.OK));
+    Result result3 = coalescer.process("user\n/api/v1/clusters", new CountingQuery(ResultStatus.STATUS.OK));
+
+    assertEquals(2, queries.get());
+    assertEquals(1, result2.getResultTree().getChildren().size());
+    assertEquals(1, result3.getResultTree().getChildren().size());
+    assertEquals(2, coalescer.getSnapshotCount());
+  }
+
+  @Test
+  public void testSnapshotExpires() throws Exception {
+    ReadRequestCoalescer coalescer = new ReadRequestCoalescer(1L);
+
+    coalescer.process("admin\n/api/v1/clusters", new CountingQuery(ResultStatus.STATUS.OK));
+    Thread.sleep(10);
+    coalescer.process("admin\n/api/v1/clusters", new CountingQuery(ResultStatus.STATUS.OK));
+
+    assertEquals(2, queries.get());
+  }
+
+  @Test
+  public void testDoesNotKeepErrors() throws Exception {
+    ReadRequestCoalescer coalescer = new ReadRequestCoalescer(60000L);
+
+    coalescer.process("admin\n/api/v1/clusters", new CountingQuery(ResultStatus.STATUS.SERVER_ERROR));
+    coalescer.process("admin\n/api/v1/clusters", new CountingQuery(ResultStatus.STATUS.SERVER_ERROR));
+
+    assertEquals(2, queries.get());
+    assertEquals(0, coalescer.getSnapshotCount());
+  }
+
+  @Test
+  public void testGetRequestsSerializedConcurrently() throws Exception {
+    ReadRequestCoalescer.init(createConfiguration(60000L));
+    final HostsRequestHandler handler = new HostsRequestHandler();
+    final UriInfo uriInfo = createNiceMock(UriInfo.class);
+    expect(uriInfo.getRequestUri()).andReturn(new URI("http://host:8080/api/v1/clusters/c1/hosts")).anyTimes();
+    expect(uriInfo.getQueryParameters()).andReturn(new MultivaluedMapImpl()).anyTimes();
+    final ResourceInstance resourceInstance = createNiceMock(ResourceInstance.class);
+    ResourceDefinition resourceDefinition = createNiceMock(ResourceDefinition.class);
+    expect(resourceInstance.getResourceDefinition()).andReturn(resourceDefinition).anyTimes();
+    expect(resourceDefinition.getRenderer(null)).andReturn(new DefaultRenderer()).anyTimes();
+    final ResultPostProcessor processor = createNiceMock(ResultPostProcessor.class);
+    replay(uriInfo, resourceInstance, resourceDefinition, processor);
+
+    final int requestCount = 8;
+    final CyclicBarrier processing = new CyclicBarrier(requestCount);
+    final CyclicBarrier serializing = new CyclicBarrier(requestCount);
+    ExecutorService executor = Executors.newFixedThreadPool(requestCount);
+    List<Future<String>> responses = new ArrayList<>();
+    try {
+      for (int i = 0; i < requestCount; i++) {
+        responses.add(executor.submit(new Callable<String>() {
+          @Override
+          public String call() throws Exception {
+            SecurityContextHolder.getContext().setAuthentication(TestAuthenticationFactory.createAdministrator("admin"));
+            try {
+              Request request = createGetRequest(uriInfo, resourceInstance, handler, processor);
+              processing.await(10, TimeUnit.SECONDS);
+              Result result = request.process();
+
+              // all the copies of the shared result are streamed at once, each one released while it is written
+              StreamingOutput output = (StreamingOutput) new JsonSerializer().serialize(result);
+              serializing.await(10, TimeUnit.SECONDS);
+              ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+              output.write(bytes);
+
+              assertEquals(0, result.getResultTree().getChildren().size());
+              return bytes.toString("UTF-8");
+            } finally {
+              SecurityContextHolder.clearContext();
+            }
+          }
+        }));
+      }
+
+      List<String> bodies = new ArrayList<>();
+      for (Future<String> response : responses) {
+        bodies.add(response.get(30, TimeUnit.SECONDS));
+      }
+
+      assertEquals(1, queries.get());
+      for (String body : bodies) {
+        assertEquals(bodies.get(0), body);
+      }
+
+      // the snapshot still holds the whole tree, and the same, unchanged resources
+      SecurityContextHolder.getContext().setAuthentication(TestAuthenticationFactory.createAdministrator("admin"));
+      Result result = createGetRequest(uriInfo, resourceInstance, handler, processor).process();
+      assertEquals(1, queries.get());
+      assertEquals(bodies.get(0), new JsonSerializer().serialize(result).toString());
+      for (int i = 0; i < HostsRequestHandler.HOST_COUNT; i++) {
+        Resource host = result.getResultTree().getChild("Host:" + i).getObject();
+        assertSame(handler.hosts.get(i), host);
+        assertEquals("host" + i, host.getPropertyValue(PropertyHelper.getPropertyId("Hosts", "host_name")));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testGetKey() throws Exception {
+    Request request = createNiceMock(Request.class);
+    expect(request.getURI()).andReturn("http://host:8080/api/v1/clusters?fields=*&_=1508235466&minimal_response=true").anyTimes();
+    replay(request);
+
+    assertNull(ReadRequestCoalescer.getKey(request));
+
+    SecurityContextHolder.getContext().setAuthentication(TestAuthenticationFactory.createAdministrator("admin"));
+    assertEquals("admin\nhttp://host:8080/api/v1/clusters?fields=*&minimal_response=true",
+        ReadRequestCoalescer.getKey(request));
+
+    Request requestWithBody = createNiceMock(Request.class);
+    RequestBody body = new RequestBody();
+    body.setBody("{\"fields\":\"*\"}");
+    expect(requestWithBody.getBody()).andReturn(body).anyTimes();
+    expect(requestWithBody.getURI()).andReturn("http://host:8080/api/v1/clusters").anyTimes();
+    replay(requestWithBody);
+
+    assertNull(ReadRequestCoalescer.getKey(requestWithBody));
+  }
+
+  private static Configuration createConfiguration(long snapshotTimeout) {
+    Configuration configuration = createNiceMock(Configuration.class);
+    expect(configuration.getApiReadSnapshotTimeout()).andReturn(snapshotTimeout).anyTimes();
+    replay(configuration);
+    return configuration;
+  }
+
+  private static Request createGetRequest(UriInfo uriInfo, ResourceInstance resourceInstance,
+                                          final RequestHandler handler, final ResultPostProcessor processor) {
+    return new GetRequest(null, new RequestBody(), uriInfo, resourceInstance) {
+      @Override
+      protected RequestHandler getRequestHandler() {
+        return handler;
+      }
+
+      @Override
+      public ResultPostProcessor getResultPostProcessor() {
+        return processor;
+      }
+    };
+  }
+
+  private static Result createResult(ResultStatus.STATUS status) {
+    Result result = new ResultImpl(new ResultStatus(status));
+    result.getResultTree().setProperty("isCollection", "true");
+    result.getResultTree().addChild(new ResourceImpl(Resource.Type.Cluster), "Cluster:1");
+    return result;
+  }
+
+  private class CountingQuery implements Callable<Result> {
+    private final ResultStatus.STATUS status;
+
+    private CountingQuery(ResultStatus.STATUS status) {
+      this.status = status;
+    }
+
+    @Override
+    public Result call() {
+      queries.incrementAndGet();
+      return createResult(status);
+    }
+  }
+
+  /**
+   * Queries the hosts of a cluster, which can't be changed once they are returned.
+   */
+  private class HostsRequestHandler implements RequestHandler {
+    private static final int HOST_COUNT = 20;
+
+    private final List<Resource> hosts = new ArrayList<>();
+
+    @Override
+    public Result handleRequest(Request request) {
+      queries.incrementAndGet();
+      Result result = new ResultImpl(new ResultStatus(ResultStatus.STATUS.OK));
+      TreeNode<Resource> tree = result.getResultTree();
+      tree.setName("items");
+      tree.setProperty("isCollection", "true");
+      for (int i = 0; i < HOST_COUNT; i++) {
+        ReadOnlyResource host = new ReadOnlyResource(Resource.Type.Host);
+        host.setProperty(PropertyHelper.getPropertyId("Hosts", "cluster_name"), "c1");
+        host.setProperty(PropertyHelper.getPropertyId("Hosts", "host_name"), "host" + i);
+        host.setProperty(PropertyHelper.getPropertyId("Hosts", "cpu_count"), i % 4 + 1);
+        host.setProperty(PropertyHelper.getPropertyId("metrics/cpu", "cpu_user"), i * 1.5);
+        host.share();
+        hosts.add(host);
+        tree.addChild(host, "Host:" + i).setProperty("href", "http://host:8080/api/v1/clusters/c1/hosts/host" + i);
+      }
+      return result;
+    }
+  }
+
+  /**
+   * A resource which fails on any change once it is shared.
+   */
+  private static class ReadOnlyResource extends ResourceImpl {
+    private volatile boolean shared = false;
+
+    private ReadOnlyResource(Resource.Type type) {
+      super(type);
+    }
+
+    private void share() {
+      shared = true;
+    }
+
+    @Override
+    public void setProperty(String id, Object value) {
+      if (shared) {
+        throw new UnsupportedOperationException("The resource is shared");
+      }
+      super.setProperty(id, value);
+    }
+
+    @Override
+    public void addCategory(String id) {
+      if (shared) {
+        throw new UnsupportedOperationException("The resource is shared");
+      }
+      super.addCategory(id);
+    }
+
+    @Override
+    public Map<String, Map<String, Object>> getPropertiesMap() {
+      if (!shared) {
+        return super.getPropertiesMap();
+      }
+      Map<String, Map<String, Object>> propertiesMap = new LinkedHashMap<>();
+      for (Map.Entry<String, Map<String, Object>> entry : super.getPropertiesMap().entrySet()) {
+        propertiesMap.put(entry.getKey(), Collections.unmodifiableMap(entry.getValue()));
+      }
+      return Collections.unmodifiableMap(propertiesMap);
+    }
+  }
+}
@@ -23,10 +23,15 @@ import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
 import org.apache.ambari.server.api.services.DeleteResultMetadata;
@@ -214,6 +219,135 @@ public class JsonSerializerTest {
     verify(uriInfo, resource/*, resource2*/);
   }
 
+  @Test
+  public void testSerializeStreaming() throws Exception {
+    Resource resource1 = createMock(Resource.class);
+    Resource resource2 = createMock(Resource.class);
+
+    Result result = new ResultImpl(true);
+    result.setResultStatus(new ResultStatus(ResultStatus.STATUS.OK));
+    TreeNode<Resource> tree = result.getResultTree();
+    TreeNode<Resource> resourcesNode = tree.addChild(null, "resources");
+    resourcesNode.addChild(resource1, "resource1");
+    resourcesNode.addChild(resource2, "resource2");
+
+    Map<String, Map<String, Object>> propertyMap1 = new LinkedHashMap<>();
+    propertyMap1.put(null, Collections.<String, Object>singletonMap("prop1", "value1"));
+    Map<String, Map<String, Object>> propertyMap2 = new LinkedHashMap<>();
+    propertyMap2.put(null, Collections.<String, Object>singletonMap("prop1", "value2"));
+
+    //expectations
+    expect(resource1.getPropertiesMap()).andReturn(propertyMap1).anyTimes();
+    expect(resource2.getPropertiesMap()).andReturn(propertyMap2).anyTimes();
+
+    replay(resource1, resource2);
+
+    //execute test
+    Object serialized = new JsonSerializer().serialize(result);
+    assertTrue(serialized instanceof StreamingOutput);
+    String rendered = serialized.toString();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ((StreamingOutput) serialized).write(out);
+
+    String expected = "{\n" +
+        "  \"resources\" : [\n" +
+        "    {\n" +
+        "      \"prop1\" : \"value1\"\n" +
+        "    },\n" +
+        "    {\n" +
+        "      \"prop1\" : \"value2\"\n" +
+        "    }\n" +
+        "  ]\n" +
+        "}";
+
+    assertEquals(expected, rendered.replace("\r", ""));
+    assertEquals(rendered, out.toString("UTF-8"));
+    // the written resources are released
+    assertTrue(resourcesNode.getChildren().isEmpty());
+
+    verify(resource1, resource2);
+  }
+
+  @Test
+  public void testSerializeItemTotalTwice() throws Exception {
+    Resource resource = createMock(Resource.class);
+
+    Result result = new ResultImpl(true);
+    result.setResultStatus(new ResultStatus(ResultStatus.STATUS.OK));
+    TreeNode<Resource> tree = result.getResultTree();
+    TreeNode<Resource> resourcesNode = tree.addChild(null, "resources");
+    resourcesNode.setProperty("count", "1");
+    resourcesNode.addChild(resource, "resource1");
+
+    Map<String, Map<String, Object>> propertyMap = new LinkedHashMap<>();
+    propertyMap.put(null, Collections.<String, Object>singletonMap("prop1", "value1"));
+
+    //expectations
+    expect(resource.getPropertiesMap()).andReturn(propertyMap).anyTimes();
+
+    replay(resource);
+
+    //execute test
+    Object serialized = new JsonSerializer().serialize(result);
+    String rendered = serialized.toString();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ((StreamingOutput) serialized).write(out);
+
+    String expected = "{\n" +
+        "  \"itemTotal\" : \"1\",\n" +
+        "  \"resources\" : [\n" +
+        "    {\n" +
+        "      \"prop1\" : \"value1\"\n" +
+        "    }\n" +
+        "  ]\n" +
+        "}";
+
+    assertEquals(expected, rendered.replace("\r", ""));
+    // the count is still written by the second render
+    assertEquals(rendered, out.toString("UTF-8"));
+
+    verify(resource);
+  }
+
+  @Test
+  public void testSerializeStreamingFailure() throws Exception {
+    Resource resource1 = createMock(Resource.class);
+    Resource resource2 = createMock(Resource.class);
+
+    Result result = new ResultImpl(true);
+    result.setResultStatus(new ResultStatus(ResultStatus.STATUS.OK));
+    TreeNode<Resource> tree = result.getResultTree();
+    TreeNode<Resource> resourcesNode = tree.addChild(null, "resources");
+    resourcesNode.addChild(resource1, "resource1");
+    resourcesNode.addChild(resource2, "resource2");
+
+    Map<String, Map<String, Object>> propertyMap = new LinkedHashMap<>();
+    propertyMap.put(null, Collections.<String, Object>singletonMap("prop1", "value1"));
+
+    //expectations
+    expect(resource1.getPropertiesMap()).andReturn(propertyMap).anyTimes();
+    expect(resource2.getPropertiesMap()).andThrow(new IllegalStateException("failed")).anyTimes();
+
+    replay(resource1, resource2);
+
+    //execute test
+    StreamingOutput serialized = (StreamingOutput) new JsonSerializer().serialize(result);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      serialized.write(out);
+      fail("Expected the failure to be rethrown");
+    } catch (IllegalStateException e) {
+      assertEquals("failed", e.getMessage());
+    }
+
+    // nothing of the small, buffered result is sent
+    assertEquals(0, out.size());
+
+    verify(resource1, resource2);
+  }
+
   @Test
   public void testDeleteResultMetadata() throws Exception {
     Result result = new ResultImpl(true);
@@ -34,7 +34,6 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
-import java.io.StringReader;
 import java.lang.reflect.Type;
 import java.text.MessageFormat;
 import java.util.ArrayList;
@@ -65,6 +64,9 @@ import org.apache.ambari.server.StackAccessException;
 import org.apache.ambari.server.actionmanager.ActionDBAccessor;
 import org.apache.ambari.server.actionmanager.ActionManager;
 import org.apache.ambari.server.actionmanager.ActionType;
+import org.apache.ambari.server.actionmanager.CompactExecutionCommand;
+import org.apache.ambari.server.actionmanager.ExecutionCommandFragments;
+import org.apache.ambari.server.actionmanager.ExecutionCommandFragmentsCache;
 import org.apache.ambari.server.actionmanager.ExecutionCommandWrapper;
 import org.apache.ambari.server.actionmanager.HostRoleCommand;
 import org.apache.ambari.server.actionmanager.HostRoleStatus;
@@ -4491,9 +4493,13 @@ public class AmbariManagementControllerTest {
     ExecutionCommandDAO executionCommandDAO = injector.getInstance(ExecutionCommandDAO.class);
     ExecutionCommandEntity commandEntity = executionCommandDAO.findByPK(task.getTaskId());
 
+    assertTrue(CompactExecutionCommand.isCompact(commandEntity.getCommand()));
+    ExecutionCommandFragments fragments = injector.getInstance(ExecutionCommandFragmentsCache.class).get(
+        stage.getRequestId(), stage.getStageId());
+
     Gson gson = new Gson();
-    ExecutionCommand executionCommand = gson.fromJson(new StringReader(
-        new String(commandEntity.getCommand())), ExecutionCommand.class);
+    ExecutionCommand executionCommand = gson.fromJson(
+        CompactExecutionCommand.decode(commandEntity.getCommand(), fragments), ExecutionCommand.class);
 
     assertFalse(executionCommand.getConfigurationTags().isEmpty());
     assertTrue(executionCommand.getConfigurations() == null || executionCommand.getConfigurations().isEmpty());
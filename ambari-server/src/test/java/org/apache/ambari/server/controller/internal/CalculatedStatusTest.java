@@ -601,8 +601,8 @@ public class CalculatedStatusTest {
     expect(summary1.isStageSkippable()).andReturn(true).anyTimes();
     expect(summary2.isStageSkippable()).andReturn(true).anyTimes();
 
-    expect(summary1.getTaskStatuses()).andReturn(taskStatuses1).anyTimes();
-    expect(summary2.getTaskStatuses()).andReturn(taskStatuses2).anyTimes();
+    expect(summary1.getCounts()).andReturn(toCounts(taskStatuses1)).anyTimes();
+    expect(summary2.getCounts()).andReturn(toCounts(taskStatuses2)).anyTimes();
 
     replay(summary1, summary2);
 
@@ -654,8 +654,8 @@ public class CalculatedStatusTest {
     expect(summary1.isStageSkippable()).andReturn(true).anyTimes();
     expect(summary2.isStageSkippable()).andReturn(true).anyTimes();
 
-    expect(summary1.getTaskStatuses()).andReturn(taskStatuses1).anyTimes();
-    expect(summary2.getTaskStatuses()).andReturn(taskStatuses2).anyTimes();
+    expect(summary1.getCounts()).andReturn(toCounts(taskStatuses1)).anyTimes();
+    expect(summary2.getCounts()).andReturn(toCounts(taskStatuses2)).anyTimes();
 
     replay(summary1, summary2);
 
@@ -696,6 +696,15 @@ public class CalculatedStatusTest {
     assertEquals(HostRoleStatus.COMPLETED, hostRoleDisplayStatus);
   }
 
+  private Map<HostRoleStatus, Integer> toCounts(Collection<HostRoleStatus> statuses) {
+    Map<HostRoleStatus, Integer> counts = new HashMap<>();
+    for (HostRoleStatus status : statuses) {
+      Integer count = counts.get(status);
+      counts.put(status, null == count ? 1 : count + 1);
+    }
+    return counts;
+  }
+
   private Collection<HostRoleCommandEntity> getTaskEntities(HostRoleStatus... statuses) {
     Collection<HostRoleCommandEntity> entities = new LinkedList<>();
 
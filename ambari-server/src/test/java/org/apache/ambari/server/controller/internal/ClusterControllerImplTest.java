@@ -929,6 +929,49 @@ public class ClusterControllerImplTest {
     verify(providerModule, resourceProvider, pageRequest, sortRequest);
   }
 
+  /**
+   * Reads every property of a large number of synthetic hosts through
+   * {@link ClusterControllerImpl#getResources}, as the renderers do.
+   */
+  @Test
+  public void testGetResources_manySyntheticHosts() throws Exception {
+    final int hostCount = 1000;
+    final ResourceProvider hostProvider = new SyntheticHostResourceProvider(hostCount);
+    ProviderModule providerModule = new ProviderModule() {
+      @Override
+      public ResourceProvider getResourceProvider(Resource.Type type) {
+        return hostProvider;
+      }
+
+      @Override
+      public List<PropertyProvider> getPropertyProviders(Resource.Type type) {
+        return propertyProviders;
+      }
+    };
+    ClusterControllerImpl controller = new ClusterControllerImpl(providerModule);
+    Request request = PropertyHelper.getReadRequest(Collections.<String>emptySet());
+
+    List<Resource> resources = new ArrayList<>();
+    int propertyCount = 0;
+    for (Resource resource : controller.getResourceIterable(Resource.Type.Host, request, null)) {
+      for (Map<String, Object> properties : resource.getPropertiesMap().values()) {
+        propertyCount += properties.size();
+      }
+      resources.add(resource);
+    }
+
+    Assert.assertEquals(hostCount, resources.size());
+    Assert.assertEquals(hostCount * (SyntheticHostResourceProvider.PROPERTY_COUNT + 4), propertyCount);
+    Assert.assertEquals("host0000", resources.get(0).getPropertyValue(
+        PropertyHelper.getPropertyId("Hosts", "host_name")));
+    Assert.assertEquals(String.format("host%04d", hostCount - 1), resources.get(hostCount - 1).getPropertyValue(
+        PropertyHelper.getPropertyId("Hosts", "host_name")));
+    Assert.assertEquals((hostCount - 1) * 5, resources.get(hostCount - 1).getPropertyValue(
+        PropertyHelper.getPropertyId("metrics/cpu", "p5")));
+    Assert.assertEquals("monkey", resources.get(hostCount - 1).getPropertyValue(
+        PropertyHelper.getPropertyId("c4", "p7")));
+  }
+
   public static class TestProviderModule implements ProviderModule {
     private Map<Resource.Type, ResourceProvider> providers = new HashMap<>();
 
@@ -1141,6 +1184,45 @@ public class ClusterControllerImplTest {
   }
 
 
+  private static class SyntheticHostResourceProvider extends TestResourceProvider {
+    private static final int PROPERTY_COUNT = 40;
+    private static final String[] CATEGORIES = {"Hosts", "metrics/cpu", "metrics/memory", "metrics/disk"};
+
+    private final int hostCount;
+
+    private SyntheticHostResourceProvider(int hostCount) {
+      super(resourceProviderProperties, keyPropertyIds);
+      this.hostCount = hostCount;
+    }
+
+    @Override
+    public Set<Resource> getResources(Request request, Predicate predicate) {
+      Set<Resource> resources = new LinkedHashSet<>();
+      for (int host = 0; host < hostCount; host++) {
+        ResourceImpl resource = new ResourceImpl(Resource.Type.Host);
+
+        resource.setProperty(PropertyHelper.getPropertyId("Hosts", "cluster_name"), "cluster");
+        resource.setProperty(PropertyHelper.getPropertyId("Hosts", "host_name"), String.format("host%04d", host));
+        for (int i = 2; i < PROPERTY_COUNT; i++) {
+          resource.setProperty(PropertyHelper.getPropertyId(CATEGORIES[i % CATEGORIES.length], "p" + i),
+              i % 3 == 0 ? "value" + i : host * i);
+        }
+        resources.add(resource);
+      }
+      return resources;
+    }
+
+    @Override
+    public Set<String> checkPropertyIds(Set<String> propertyIds) {
+      return Collections.emptySet();
+    }
+
+    @Override
+    public Map<Resource.Type, String> getKeyPropertyIds() {
+      return keyPropertyIds;
+    }
+  }
+
   private static class TestStackResourceProvider extends TestResourceProvider {
     private TestStackResourceProvider() {
       super(Resource.Type.Stack);
@@ -18,7 +18,15 @@
 
 package org.apache.ambari.server.controller.internal;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.ambari.server.controller.spi.Resource;
 import org.apache.ambari.server.controller.utilities.PropertyHelper;
@@ -162,6 +170,155 @@ public class ResourceImplTest {
     }
   }
 
+  @Test
+  public void testCopyConstructorWithPropertyIds() {
+    Resource resource = new ResourceImpl(Resource.Type.Cluster);
+
+    String p1 = PropertyHelper.getPropertyId(null, "p1");
+    String p2 = PropertyHelper.getPropertyId("c1", "p2");
+    String p3 = PropertyHelper.getPropertyId("c1/c2", "p3");
+
+    resource.setProperty(p1, "foo");
+    resource.setProperty(p2, 1);
+    resource.setProperty(p3, 1.99);
+
+    Resource copy = new ResourceImpl(resource, Collections.singleton("c1"));
+
+    Assert.assertNull(copy.getPropertyValue(p1));
+    Assert.assertEquals(1, copy.getPropertyValue(p2));
+    Assert.assertEquals(1.99, copy.getPropertyValue(p3));
+    Assert.assertFalse(copy.getPropertiesMap().containsKey(""));
+  }
+
+  @Test
+  public void testNullPropertyValue() {
+    Resource resource = new ResourceImpl(Resource.Type.Cluster);
+
+    String p1 = PropertyHelper.getPropertyId("c1", "p1");
+    resource.setProperty(p1, null);
+
+    Assert.assertNull(resource.getPropertyValue(p1));
+    Assert.assertTrue(resource.getPropertiesMap().get("c1").containsKey("p1"));
+    Assert.assertNull(resource.getPropertiesMap().get("c1").get("p1"));
+    Assert.assertEquals(1, resource.getPropertiesMap().get("c1").size());
+  }
+
+  @Test
+  public void testGetPropertiesMapRemove() {
+    Resource resource = new ResourceImpl(Resource.Type.Cluster);
+
+    String p1 = PropertyHelper.getPropertyId(null, "p1");
+    String p2 = PropertyHelper.getPropertyId("c1", "p2");
+    String p3 = PropertyHelper.getPropertyId("c1", "p3");
+    String p4 = PropertyHelper.getPropertyId("c2", "p4");
+
+    resource.setProperty(p1, "foo");
+    resource.setProperty(p2, 1);
+    resource.setProperty(p3, 2);
+    resource.setProperty(p4, 3);
+
+    Map<String, Map<String, Object>> map = resource.getPropertiesMap();
+
+    Iterator<Map.Entry<String, Object>> propertyIterator = map.get("c1").entrySet().iterator();
+    Assert.assertEquals("p2", propertyIterator.next().getKey());
+    propertyIterator.remove();
+    Assert.assertNull(resource.getPropertyValue(p2));
+    Assert.assertEquals(2, resource.getPropertyValue(p3));
+
+    Iterator<Map.Entry<String, Map<String, Object>>> categoryIterator = map.entrySet().iterator();
+    Assert.assertEquals("", categoryIterator.next().getKey());
+    Assert.assertEquals("c1", categoryIterator.next().getKey());
+    categoryIterator.remove();
+    Assert.assertEquals("c2", categoryIterator.next().getKey());
+    Assert.assertFalse(categoryIterator.hasNext());
+
+    Assert.assertNull(resource.getPropertyValue(p3));
+    Assert.assertFalse(map.containsKey("c1"));
+    Assert.assertEquals(2, map.size());
+
+    map.get("c2").put("p5", 4);
+    Assert.assertEquals(4, resource.getPropertyValue(PropertyHelper.getPropertyId("c2", "p5")));
+
+    Assert.assertEquals("foo", map.remove("").get("p1"));
+    Assert.assertNull(resource.getPropertyValue(p1));
+  }
+
+  @Test
+  public void testPropertiesWithoutSlots() {
+    PropertySlots slots = new PropertySlots(2);
+    Resource resource = new ResourceImpl(Resource.Type.Configuration, slots);
+
+    for (int i = 0; i < 5; i++) {
+      resource.setProperty(PropertyHelper.getPropertyId("properties", "p" + i), i);
+    }
+
+    Assert.assertEquals(2, slots.getLayout().size);
+    for (int i = 0; i < 5; i++) {
+      Assert.assertEquals(i, resource.getPropertyValue(PropertyHelper.getPropertyId("properties", "p" + i)));
+    }
+    Map<String, Object> properties = resource.getPropertiesMap().get("properties");
+    Assert.assertEquals(5, properties.size());
+    int i = 0;
+    for (String name : properties.keySet()) {
+      Assert.assertEquals("p" + i++, name);
+    }
+
+    Resource copy = new ResourceImpl(resource);
+    Assert.assertEquals(resource.getPropertiesMap(), copy.getPropertiesMap());
+
+    properties.remove("p3");
+    Assert.assertNull(resource.getPropertyValue(PropertyHelper.getPropertyId("properties", "p3")));
+    Assert.assertEquals(4, properties.size());
+  }
+
+  @Test
+  public void testConcurrentResourcesOfType() throws Exception {
+    final PropertySlots slots = new PropertySlots(64);
+    final Resource parent = new ResourceImpl(Resource.Type.Host, slots);
+    for (int i = 0; i < 10; i++) {
+      parent.setProperty(PropertyHelper.getPropertyId("Hosts", "p" + i), i);
+    }
+
+    // like the parallel sub-resource queries, every thread reads the shared parent and populates its own resources
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<List<Resource>>> futures = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      final int thread = t;
+      futures.add(executor.submit(new Callable<List<Resource>>() {
+        @Override
+        public List<Resource> call() {
+          List<Resource> resources = new ArrayList<>();
+          for (int r = 0; r < 200; r++) {
+            Resource resource = new ResourceImpl(Resource.Type.Host, slots);
+            for (int i = 0; i < 100; i++) {
+              resource.setProperty(PropertyHelper.getPropertyId("c" + (i % 5), "p" + ((i + thread * 7) % 100)),
+                  parent.getPropertyValue(PropertyHelper.getPropertyId("Hosts", "p" + (i % 10))));
+            }
+            resources.add(resource);
+          }
+          return resources;
+        }
+      }));
+    }
+    executor.shutdown();
+
+    for (int t = 0; t < futures.size(); t++) {
+      for (Resource resource : futures.get(t).get()) {
+        int count = 0;
+        for (Map<String, Object> properties : resource.getPropertiesMap().values()) {
+          count += properties.size();
+        }
+        Assert.assertEquals(100, count);
+        for (int i = 0; i < 100; i++) {
+          Assert.assertEquals(i % 10,
+              resource.getPropertyValue(PropertyHelper.getPropertyId("c" + (i % 5), "p" + ((i + t * 7) % 100))));
+        }
+      }
+    }
+    Assert.assertEquals(64, slots.getLayout().size);
+    Assert.assertEquals(10, parent.getPropertiesMap().get("Hosts").size());
+  }
+
   @Test
   public void testEquals() {
     Resource resource1 = new ResourceImpl(Resource.Type.Cluster);
@@ -187,7 +187,7 @@ public class TimelineMetricCacheTest {
     TimelineMetric metric = metricsList.iterator().next();
     Assert.assertEquals("cpu_user", metric.getMetricName());
     Assert.assertEquals("app1", metric.getAppId());
-    Assert.assertSame(metricValues, metric.getMetricValues());
+    Assert.assertEquals(metricValues, metric.getMetricValues());
 
     // call to update with new key
     metrics = cache.getAppTimelineMetricsFromCache(testKey);
@@ -195,7 +195,7 @@ public class TimelineMetricCacheTest {
     Assert.assertEquals(1, metricsList.size());
     Assert.assertEquals("cpu_user", metric.getMetricName());
     Assert.assertEquals("app1", metric.getAppId());
-    Assert.assertSame(metricValues, metric.getMetricValues());
+    Assert.assertEquals(metricValues, metric.getMetricValues());
 
     verify(configuration, cacheEntryFactory);
   }
@@ -24,6 +24,7 @@ import static org.easymock.EasyMock.anyObject;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ambari.server.Role;
 import org.apache.ambari.server.RoleCommand;
@@ -35,6 +36,7 @@ import org.apache.ambari.server.events.TaskUpdateEvent;
 import org.apache.ambari.server.events.publishers.TaskEventPublisher;
 import org.apache.ambari.server.orm.dao.ExecutionCommandDAO;
 import org.apache.ambari.server.orm.dao.HostDAO;
+import org.apache.ambari.server.orm.dao.HostRoleCommandStatusSummaryDTO;
 import org.apache.ambari.server.orm.dao.RequestDAO;
 import org.apache.ambari.server.orm.dao.StageDAO;
 import org.apache.ambari.server.orm.entities.RequestEntity;
@@ -160,4 +162,85 @@ public class TaskStatusListenerTest extends EasyMockSupport {
     verifyAll();
   }
 
+  /**
+   * Tests that the task counts of the stages of a running request are
+   * maintained as its tasks are updated.
+   */
+  @Test
+  public void testStageSummaries() {
+    ServiceComponentHostEvent serviceComponentHostEvent = createNiceMock(ServiceComponentHostEvent.class);
+    HostDAO hostDAO = createNiceMock(HostDAO.class);
+    StageDAO stageDAO = createNiceMock(StageDAO.class);
+    RequestDAO requestDAO = createNiceMock(RequestDAO.class);
+    StageEntity stageEntity = createNiceMock(StageEntity.class);
+    RequestEntity requestEntity = createNiceMock(RequestEntity.class);
+    EasyMock.expect(stageEntity.getStatus()).andReturn(HostRoleStatus.PENDING).anyTimes();
+    EasyMock.expect(stageEntity.getDisplayStatus()).andReturn(HostRoleStatus.PENDING).anyTimes();
+    EasyMock.expect(stageEntity.isSkippable()).andReturn(Boolean.FALSE).anyTimes();
+    EasyMock.expect(stageEntity.getRoleSuccessCriterias()).andReturn(Collections.emptyList()).anyTimes();
+    EasyMock.expect(stageDAO.findByPK(anyObject(StageEntityPK.class))).andReturn(stageEntity).anyTimes();
+    EasyMock.expect(requestEntity.getStatus()).andReturn(HostRoleStatus.PENDING).anyTimes();
+    EasyMock.expect(requestEntity.getDisplayStatus()).andReturn(HostRoleStatus.PENDING).anyTimes();
+    EasyMock.expect(requestDAO.findByPK(anyLong())).andReturn(requestEntity).anyTimes();
+    replayAll();
+
+    List<HostRoleCommand> hostRoleCommands = new ArrayList<>();
+    long taskId = 1;
+    for (int stageId = 0; stageId < 2; stageId++) {
+      for (int i = 0; i < 3; i++, taskId++) {
+        hostRoleCommands.add(createTask(serviceComponentHostEvent, hostDAO, stageId, taskId, HostRoleStatus.PENDING));
+      }
+    }
+
+    TaskStatusListener listener = new TaskStatusListener(publisher, stageDAO, requestDAO);
+    Assert.assertNull(listener.getStageSummaries(1L));
+
+    listener.onTaskCreateEvent(new TaskCreateEvent(hostRoleCommands));
+    Map<Long, HostRoleCommandStatusSummaryDTO> summaries = listener.getStageSummaries(1L);
+    Assert.assertEquals(2, summaries.size());
+    Assert.assertEquals(3, summaries.get(0L).getTaskTotal());
+    Assert.assertEquals(Integer.valueOf(3), summaries.get(0L).getCounts().get(HostRoleStatus.PENDING));
+    Assert.assertEquals(Long.valueOf(-1L), summaries.get(0L).getStartTime());
+
+    // one task of the first stage is in progress
+    HostRoleCommand task = createTask(serviceComponentHostEvent, hostDAO, 0, 1L, HostRoleStatus.IN_PROGRESS);
+    task.setStartTime(100L);
+    listener.onTaskUpdateEvent(new TaskUpdateEvent(Collections.singletonList(task)));
+
+    summaries = listener.getStageSummaries(1L);
+    Assert.assertEquals(3, summaries.get(0L).getTaskTotal());
+    Assert.assertEquals(Integer.valueOf(2), summaries.get(0L).getCounts().get(HostRoleStatus.PENDING));
+    Assert.assertEquals(Integer.valueOf(1), summaries.get(0L).getCounts().get(HostRoleStatus.IN_PROGRESS));
+    Assert.assertEquals(Integer.valueOf(3), summaries.get(1L).getCounts().get(HostRoleStatus.PENDING));
+
+    // all of the tasks of the first stage complete
+    List<HostRoleCommand> completedTasks = new ArrayList<>();
+    for (long completedTaskId = 1; completedTaskId <= 3; completedTaskId++) {
+      task = createTask(serviceComponentHostEvent, hostDAO, 0, completedTaskId, HostRoleStatus.COMPLETED);
+      task.setStartTime(100L + completedTaskId);
+      task.setEndTime(200L + completedTaskId);
+      completedTasks.add(task);
+    }
+    listener.onTaskUpdateEvent(new TaskUpdateEvent(completedTasks));
+
+    summaries = listener.getStageSummaries(1L);
+    HostRoleCommandStatusSummaryDTO summary = summaries.get(0L);
+    Assert.assertEquals(3, summary.getTaskTotal());
+    Assert.assertEquals(Integer.valueOf(3), summary.getCounts().get(HostRoleStatus.COMPLETED));
+    Assert.assertEquals(Integer.valueOf(0), summary.getCounts().get(HostRoleStatus.PENDING));
+    Assert.assertEquals(Integer.valueOf(0), summary.getCounts().get(HostRoleStatus.IN_PROGRESS));
+    Assert.assertEquals(Long.valueOf(100L), summary.getStartTime());
+    Assert.assertEquals(Long.valueOf(203L), summary.getEndTime());
+  }
+
+  private HostRoleCommand createTask(ServiceComponentHostEvent serviceComponentHostEvent, HostDAO hostDAO,
+      long stageId, long taskId, HostRoleStatus status) {
+    HostRoleCommand hostRoleCommand = new HostRoleCommand("hostname-" + taskId, Role.DATANODE,
+        serviceComponentHostEvent, RoleCommand.EXECUTE, hostDAO, executionCommandDAO, ecwFactory);
+    hostRoleCommand.setStatus(status);
+    hostRoleCommand.setRequestId(1L);
+    hostRoleCommand.setStageId(stageId);
+    hostRoleCommand.setTaskId(taskId);
+    return hostRoleCommand;
+  }
 }
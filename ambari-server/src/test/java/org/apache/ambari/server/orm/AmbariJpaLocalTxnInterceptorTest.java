@@ -22,13 +22,17 @@ import static org.easymock.EasyMock.expect;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.persistence.EntityTransaction;
 
+import org.apache.ambari.server.H2DatabaseCleaner;
 import org.easymock.EasyMockSupport;
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.google.inject.Guice;
+import com.google.inject.Injector;
 import com.google.inject.persist.Transactional;
 
 public class AmbariJpaLocalTxnInterceptorTest extends EasyMockSupport {
@@ -151,6 +155,78 @@ public class AmbariJpaLocalTxnInterceptorTest extends EasyMockSupport {
     verifyAll();
   }
 
+  @Test
+  public void afterCommitTasksRunOnlyOnceCommitted() throws Exception {
+    Injector injector = Guice.createInjector(new InMemoryDefaultTestModule());
+    injector.getInstance(GuiceJpaInitializer.class);
+    try {
+      TransactionalTasks transactionalTasks = injector.getInstance(TransactionalTasks.class);
+      AtomicInteger runs = new AtomicInteger();
+
+      // outside of a transaction, the task runs right away
+      AmbariJpaLocalTxnInterceptor.runAfterCommit(new CountingTask(runs));
+      Assert.assertEquals(1, runs.get());
+
+      // the task waits for the outer-most transaction to commit
+      Assert.assertEquals(1, transactionalTasks.commit(new CountingTask(runs)));
+      Assert.assertEquals(2, runs.get());
+
+      // the task is dropped when the transaction is rolled back
+      try {
+        transactionalTasks.rollback(new CountingTask(runs));
+        Assert.fail("Expected the transaction to be rolled back");
+      } catch (IllegalStateException expected) {
+        // expected
+      }
+      Assert.assertEquals(2, runs.get());
+
+      // a later transaction of the same thread doesn't run the dropped task
+      transactionalTasks.commit(new CountingTask(runs));
+      Assert.assertEquals(3, runs.get());
+    } finally {
+      H2DatabaseCleaner.clearDatabaseAndStopPersistenceService(injector);
+    }
+  }
+
+  /**
+   * Registers tasks to run after the commit from within transactions.
+   */
+  public static class TransactionalTasks {
+
+    /**
+     * @return the number of runs counted when the transaction is about to commit
+     */
+    @Transactional
+    public int commit(CountingTask task) {
+      AmbariJpaLocalTxnInterceptor.runAfterCommit(task);
+      return nested(task);
+    }
+
+    @Transactional
+    public int nested(CountingTask task) {
+      return task.runs.get();
+    }
+
+    @Transactional(rollbackOn = IllegalStateException.class)
+    public void rollback(CountingTask task) {
+      AmbariJpaLocalTxnInterceptor.runAfterCommit(task);
+      throw new IllegalStateException();
+    }
+  }
+
+  private static class CountingTask implements Runnable {
+    private final AtomicInteger runs;
+
+    private CountingTask(AtomicInteger runs) {
+      this.runs = runs;
+    }
+
+    @Override
+    public void run() {
+      runs.incrementAndGet();
+    }
+  }
+
   @SafeVarargs
   private static Class<? extends Exception>[] asArray(Class<? extends Exception>... exceptions) {
     return exceptions;
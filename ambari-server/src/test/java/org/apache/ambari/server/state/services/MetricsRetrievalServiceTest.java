@@ -19,11 +19,16 @@ package org.apache.ambari.server.state.services;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import javax.persistence.EntityManager;
 
 import org.apache.ambari.server.configuration.Configuration;
+import org.apache.ambari.server.controller.jmx.JMXBeanFilter;
 import org.apache.ambari.server.controller.jmx.JMXMetricHolder;
 import org.apache.ambari.server.controller.utilities.StreamProvider;
 import org.apache.ambari.server.orm.DBAccessor;
@@ -35,6 +40,7 @@ import org.apache.ambari.server.utils.SynchronousThreadPoolExecutor;
 import org.apache.commons.io.IOUtils;
 import org.easymock.EasyMock;
 import org.easymock.EasyMockSupport;
+import org.easymock.IAnswer;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -55,6 +61,12 @@ public class MetricsRetrievalServiceTest extends EasyMockSupport {
   private static final String JMX_URL = "http://jmx-endpoint";
   private static final String REST_URL = "http://rest-endpoint";
 
+  private static final String JMX_RESPONSE = "{ \"beans\": ["
+      + "{ \"name\": \"java.lang:type=Threading\", \"AllThreadIds\": [1, 2, 3] },"
+      + "{ \"name\": \"Hadoop:service=NameNode,name=RpcActivityForPort8020\", \"RpcQueueTimeAvgTime\": 0.5 },"
+      + "{ \"name\": \"java.lang:type=Memory\", \"HeapMemoryUsage\": { \"used\": 5 } },"
+      + "{ \"modelerType\": \"unnamed\" } ] }";
+
   MetricsRetrievalService m_service = new MetricsRetrievalService();
 
   /**
@@ -237,6 +249,102 @@ public class MetricsRetrievalServiceTest extends EasyMockSupport {
     verifyAll();
   }
 
+  /**
+   * Tests that only the JMX beans accepted by the submitted filter are parsed.
+   */
+  @Test
+  public void testRetrievalOfFilteredJMXBeans() throws Exception {
+    StreamProvider streamProvider = createNiceMock(StreamProvider.class);
+    EasyMock.expect(streamProvider.readFrom(JMX_URL)).andReturn(
+        IOUtils.toInputStream(JMX_RESPONSE)).once();
+
+    replayAll();
+
+    m_service.doStart();
+
+    // make the service synchronous
+    m_service.setThreadPoolExecutor(new SynchronousThreadPoolExecutor());
+
+    JMXBeanFilter beanFilter = JMXBeanFilter.forCategories(
+        Arrays.asList("java.lang:type=Memory", "Hadoop:service=NameNode,name=RpcActivity,tag=client"),
+        Collections.<String>emptyList());
+
+    m_service.submitRequest(MetricSourceType.JMX, streamProvider, JMX_URL, beanFilter);
+    JMXMetricHolder jmxMetricHolder = m_service.getCachedJMXMetric(JMX_URL);
+
+    Assert.assertNotNull(jmxMetricHolder);
+    Assert.assertEquals(2, jmxMetricHolder.getBeans().size());
+    Assert.assertEquals("Hadoop:service=NameNode,name=RpcActivityForPort8020",
+        jmxMetricHolder.getBeans().get(0).get("name"));
+    Assert.assertEquals(5, ((Map<?, ?>) jmxMetricHolder.getBeans().get(1).get("HeapMemoryUsage")).get("used"));
+
+    verifyAll();
+  }
+
+  /**
+   * Tests that the beans parsed for a URL are the union of the filters
+   * submitted for it since its last response, and that a request without a
+   * filter parses all beans.
+   */
+  @Test
+  public void testJMXBeanFiltersAreMergedAndNarrowed() throws Exception {
+    Configuration configuration = m_injector.getInstance(Configuration.class);
+    configuration.setProperty(
+        Configuration.METRIC_RETRIEVAL_SERVICE_REQUEST_TTL_ENABLED.getKey(), "false");
+
+    StreamProvider streamProvider = createNiceMock(StreamProvider.class);
+    EasyMock.expect(streamProvider.readFrom(JMX_URL)).andAnswer(new IAnswer<InputStream>() {
+      @Override
+      public InputStream answer() throws Throwable {
+        return IOUtils.toInputStream(JMX_RESPONSE);
+      }
+    }).times(4);
+
+    replayAll();
+
+    m_service.doStart();
+
+    // queue the requests, to run them once all of the filters are submitted
+    final List<Runnable> queued = new ArrayList<>();
+    m_service.setThreadPoolExecutor(new SynchronousThreadPoolExecutor() {
+      @Override
+      public void execute(Runnable command) {
+        queued.add(command);
+      }
+    });
+
+    JMXBeanFilter memoryFilter = JMXBeanFilter.forCategories(
+        Collections.singleton("java.lang:type=Memory"), Collections.<String>emptyList());
+    JMXBeanFilter threadingFilter = JMXBeanFilter.forCategories(
+        Collections.<String>emptyList(), Collections.singleton("java\\.lang:type=(Thread\\w+)"));
+
+    m_service.submitRequest(MetricSourceType.JMX, streamProvider, JMX_URL, memoryFilter);
+    m_service.submitRequest(MetricSourceType.JMX, streamProvider, JMX_URL, threadingFilter);
+    runQueued(queued);
+    Assert.assertEquals(2, m_service.getCachedJMXMetric(JMX_URL).getBeans().size());
+
+    m_service.submitRequest(MetricSourceType.JMX, streamProvider, JMX_URL, threadingFilter);
+    runQueued(queued);
+    Assert.assertEquals(1, m_service.getCachedJMXMetric(JMX_URL).getBeans().size());
+    Assert.assertEquals("java.lang:type=Threading",
+        m_service.getCachedJMXMetric(JMX_URL).getBeans().get(0).get("name"));
+
+    m_service.submitRequest(MetricSourceType.JMX, streamProvider, JMX_URL);
+    runQueued(queued);
+    Assert.assertEquals(4, m_service.getCachedJMXMetric(JMX_URL).getBeans().size());
+
+    m_service.submitRequest(MetricSourceType.JMX, streamProvider, JMX_URL, memoryFilter);
+    runQueued(queued);
+    Assert.assertEquals(1, m_service.getCachedJMXMetric(JMX_URL).getBeans().size());
+
+    verifyAll();
+  }
+
+  private static void runQueued(List<Runnable> queued) {
+    Assert.assertEquals(1, queued.size());
+    queued.remove(0).run();
+  }
+
   /**
    *
    */
@@ -55,6 +55,7 @@ import org.apache.ambari.server.state.ConfigHelper;
 import org.apache.ambari.server.state.StackId;
 import org.apache.ambari.server.state.stack.OsFamily;
 import org.easymock.Capture;
+import org.easymock.CaptureType;
 import org.easymock.EasyMock;
 import org.easymock.EasyMockRunner;
 import org.easymock.EasyMockSupport;
@@ -165,6 +166,10 @@ public class UpgradeCatalog300Test {
       }
     };
 
+    Capture<DBAccessor.DBColumnInfo> stageColumns = newCapture(CaptureType.ALL);
+    dbAccessor.addColumn(eq(UpgradeCatalog300.STAGE_TABLE), capture(stageColumns));
+    expectLastCall().times(3);
+
     Capture<DBAccessor.DBColumnInfo> hrcOpsDisplayNameColumn = newCapture();
     dbAccessor.addColumn(eq(UpgradeCatalog300.HOST_ROLE_COMMAND_TABLE), capture(hrcOpsDisplayNameColumn));
 
@@ -183,6 +188,12 @@ public class UpgradeCatalog300Test {
     Assert.assertEquals(null, capturedOpsDisplayNameColumn.getDefaultValue());
     Assert.assertEquals(String.class, capturedOpsDisplayNameColumn.getType());
 
+    DBAccessor.DBColumnInfo capturedCommandFragmentsColumn = stageColumns.getValues().get(2);
+    Assert.assertEquals(UpgradeCatalog300.STAGE_COMMAND_FRAGMENTS_COLUMN, capturedCommandFragmentsColumn.getName());
+    Assert.assertEquals(null, capturedCommandFragmentsColumn.getDefaultValue());
+    Assert.assertEquals(byte[].class, capturedCommandFragmentsColumn.getType());
+    Assert.assertTrue(capturedCommandFragmentsColumn.isNullable());
+
     verify(dbAccessor);
   }
 